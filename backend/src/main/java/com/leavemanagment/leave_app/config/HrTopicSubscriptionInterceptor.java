@@ -0,0 +1,42 @@
+package com.leavemanagment.leave_app.config;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+
+import java.security.Principal;
+import java.util.Set;
+
+/**
+ * Only HR and admins may subscribe to /topic/hr/**: the HR topic carries every leave change
+ * with employee names and reasons. The user of a STOMP session is the one authenticated on the
+ * WebSocket handshake; a rejected SUBSCRIBE is answered with a STOMP ERROR frame.
+ */
+public class HrTopicSubscriptionInterceptor implements ChannelInterceptor {
+
+    static final String HR_DESTINATIONS = "/topic/hr/";
+    private static final Set<String> HR_ROLES = Set.of("ROLE_HR", "ROLE_ADMIN");
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())
+                && accessor.getDestination() != null
+                && accessor.getDestination().startsWith(HR_DESTINATIONS)
+                && !isHrOrAdmin(accessor.getUser())) {
+            String user = accessor.getUser() != null ? accessor.getUser().getName() : "anonymous";
+            System.err.println("🚫 " + user + " may not subscribe to " + accessor.getDestination());
+            throw new AccessDeniedException("Subscribing to " + accessor.getDestination() + " requires the HR or ADMIN role");
+        }
+        return message;
+    }
+
+    private static boolean isHrOrAdmin(Principal user) {
+        return user instanceof Authentication authentication && authentication.isAuthenticated()
+                && authentication.getAuthorities().stream().anyMatch(authority -> HR_ROLES.contains(authority.getAuthority()));
+    }
+}
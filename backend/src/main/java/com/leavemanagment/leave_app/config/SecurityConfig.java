@@ -1,14 +1,19 @@
 package com.leavemanagment.leave_app.config;
 
 import com.leavemanagment.leave_app.service.CustomUserDetailsService;
+import com.leavemanagment.leave_app.service.JwtTokenService;
+import com.leavemanagment.leave_app.service.LoginPasswordEncoder;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.savedrequest.NullRequestCache;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
@@ -20,13 +25,36 @@ public class SecurityConfig {
     @Autowired
     private CustomUserDetailsService customUserDetailsService;
 
+    @Autowired
+    private JwtTokenService jwtTokenService;
+
     public SecurityConfig() {
         System.out.println("[DEBUG] SecurityConfig bean created");
     }
 
+    @Value("${security.bcrypt.strength:10}")
+    private int bcryptStrength;
+
+    @Value("${security.auth.threads:4}")
+    private int authThreads;
+
+    @Value("${security.auth.queue-capacity:200}")
+    private int authQueueCapacity;
+
+    @Value("${security.auth.timeout-ms:5000}")
+    private long authTimeoutMs;
+
+    @Value("${security.auth.cache.max-size:10000}")
+    private int authCacheMaxSize;
+
+    @Value("${security.auth.cache.ttl-seconds:300}")
+    private long authCacheTtlSeconds;
+
+    // BCrypt on a bounded pool with a short-lived cache of verified credentials, see LoginPasswordEncoder
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public LoginPasswordEncoder passwordEncoder() {
+        return new LoginPasswordEncoder(bcryptStrength, authThreads, authQueueCapacity, authTimeoutMs,
+                authCacheMaxSize, authCacheTtlSeconds);
     }
 
     @Bean
@@ -39,10 +67,15 @@ public class SecurityConfig {
         http
             .csrf(csrf -> csrf.disable())
             .authorizeHttpRequests(authz -> authz
+                // Async dispatches (controllers returning Mono) finish a request that was already authorized
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/", "/login", "/login.html", "/signup", "/signup.html", "/register", "/css/**", "/js/**", "/images/**", 
-                               "/static/**", "/uploads/**", "/index.html", "/style.css", "/script.js", "/test.html", "/create-users", "/test-user", "/debug-login",
+                               "/static/**", "/uploads/**", "/index.html", "/style.css", "/script.js", "/test.html", "/create-users", "/test-user", "/debug-login", "/api/auth/token",
                                "/api/test-email", "/api/test-n8n", "/api/test-notification", "/api/test-employee-email", "/api/test-hr-email").permitAll()
                 .requestMatchers("/api/dashboard/hr/**").hasAnyRole("HR", "ADMIN")
+                .requestMatchers("/api/email/outbox/**").hasAnyRole("HR", "ADMIN")
+                .requestMatchers("/leaves/hr-bulk-action").hasAnyRole("HR", "ADMIN")
+                .requestMatchers("/api/late-attendance/import", "/api/late-attendance/streaks", "/api/late-attendance/summary/**").hasAnyRole("HR", "ADMIN")
                 .requestMatchers("/dashboard.html").authenticated()
                 .requestMatchers("/hr-dashboard.html").hasAnyRole("HR", "ADMIN")
                 .anyRequest().authenticated()
@@ -59,8 +92,23 @@ public class SecurityConfig {
                 .logoutUrl("/logout")
                 .logoutSuccessUrl("/login.html?logout=true")
                 .permitAll()
-            )
-            .rememberMe(me -> me.key("uniqueAndSecret"));
+            );
+
+        if (jwtTokenService.isEnabled()) {
+            // Stateless: no session or remember-me, each request is authenticated from its access token
+            http
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .requestCache(cache -> cache.requestCache(new NullRequestCache()))
+                .formLogin(form -> form.successHandler((request, response, authentication) -> {
+                    jwtTokenService.writeCookie(response, jwtTokenService.issue(authentication), request.isSecure());
+                    response.sendRedirect(request.getContextPath() + "/dashboard");
+                }))
+                .logout(logout -> logout.addLogoutHandler((request, response, authentication) ->
+                    jwtTokenService.writeCookie(response, null, request.isSecure())))
+                .addFilterBefore(new JwtAuthenticationFilter(jwtTokenService), UsernamePasswordAuthenticationFilter.class);
+        } else {
+            http.rememberMe(me -> me.key("uniqueAndSecret"));
+        }
         return http.build();
     }
 }
\ No newline at end of file
@@ -4,8 +4,7 @@ import com.leavemanagment.leave_app.service.AIChatAssistantService;
 import com.leavemanagment.leave_app.service.EmailService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.handler.annotation.SendTo;
-import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
@@ -23,14 +22,23 @@ public class AIChatController {
     private EmailService emailService;
 
     /**
-     * WebSocket endpoint for AI chat
+     * WebSocket endpoint for AI chat; the answer goes only to the asking user's sessions
      */
     @MessageMapping("/ai-chat")
-    @SendTo("/topic/ai-responses")
-    public Map<String, Object> handleAIChat(Map<String, String> message, SimpMessageHeaderAccessor headerAccessor) {
+    @SendToUser(destinations = "/queue/ai-responses", broadcast = false)
+    public Map<String, Object> handleAIChat(Map<String, String> message, Principal principal) {
         try {
+            // The signed-in user, never a name the client sent
+            if (principal == null) {
+                System.err.println("🚫 AI chat message without a signed-in user rejected");
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("type", "error");
+                errorResponse.put("message", "Please sign in to use the assistant.");
+                errorResponse.put("timestamp", System.currentTimeMillis());
+                return errorResponse;
+            }
             String userMessage = message.get("message");
-            String username = message.get("username");
+            String username = principal.getName();
             
             System.out.println("🤖 AI Chat: " + username + " asked: " + userMessage);
             
@@ -5,14 +5,22 @@ import com.leavemanagment.leave_app.model.User;
 import com.leavemanagment.leave_app.model.LeaveRequest;
 import com.leavemanagment.leave_app.repository.UserRepository;
 import com.leavemanagment.leave_app.repository.LeaveRequestRepository;
+import com.leavemanagment.leave_app.service.EmployeeIdentityService;
 import com.leavemanagment.leave_app.service.EmployeeService;
+import com.leavemanagment.leave_app.service.JwtTokenService;
+import com.leavemanagment.leave_app.service.UserIdentityCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.http.ResponseEntity;
@@ -33,12 +41,24 @@ public class AuthController {
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    @Autowired
+    private UserIdentityCache userIdentityCache;
+    
     @Autowired
     private EmployeeService employeeService;
     
     @Autowired
     private LeaveRequestRepository leaveRequestRepository;
     
+    @Autowired
+    private EmployeeIdentityService employeeIdentityService;
+    
+    @Autowired
+    private AuthenticationManager authenticationManager;
+    
+    @Autowired
+    private JwtTokenService jwtTokenService;
+    
     @GetMapping("/dashboard")
     public String dashboard(Authentication authentication) {
         // Check user role and redirect accordingly
@@ -55,6 +75,41 @@ public class AuthController {
         return "redirect:/login.html";
     }
     
+    // Stateless mode: trade username and password for a bearer token, e.g. for API clients
+    @PostMapping("/api/auth/token")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> issueToken(@RequestBody Map<String, String> credentials) {
+        Map<String, Object> response = new HashMap<>();
+        
+        if (!jwtTokenService.isEnabled()) {
+            response.put("success", false);
+            response.put("message", "Token login is not enabled (security.jwt.enabled)");
+            return ResponseEntity.status(404).body(response);
+        }
+        
+        try {
+            Authentication authentication = authenticationManager.authenticate(
+                UsernamePasswordAuthenticationToken.unauthenticated(credentials.get("username"), credentials.get("password"))
+            );
+            
+            response.put("success", true);
+            response.put("token", jwtTokenService.issue(authentication));
+            response.put("tokenType", "Bearer");
+            response.put("expiresIn", jwtTokenService.getTtl().toSeconds());
+            return ResponseEntity.ok(response);
+            
+        } catch (AuthenticationServiceException e) {
+            // Login pool busy, see LoginPasswordEncoder
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(503).body(response);
+        } catch (AuthenticationException e) {
+            response.put("success", false);
+            response.put("message", "Invalid username or password");
+            return ResponseEntity.status(401).body(response);
+        }
+    }
+    
     // Get current authenticated user information
     @GetMapping("/auth/current-user")
     @ResponseBody
@@ -243,6 +298,12 @@ public class AuthController {
             request4.setRejectionReason("Insufficient notice period");
             request4.setCreatedAt(LocalDateTime.now().minusDays(10));
             
+            // Keyed like any other new request. Seeding runs before ApplicationReadyEvent, when the
+            // counters and indexes are first built from leave_requests, so no event is published
+            for (LeaveRequest request : java.util.List.of(request1, request2, request3, request4)) {
+                request.setEmployeeId(employeeIdentityService.resolveEmployeeId(request.getEmployeeName()));
+                request.setDepartment(employeeIdentityService.departmentOf(request.getEmployeeId()));
+            }
             leaveRequestRepository.saveAll(java.util.List.of(request1, request2, request3, request4));
             
             System.out.println("✅ Sample leave requests created successfully!");
@@ -287,6 +348,7 @@ public class AuthController {
             
             // Save user to database
             userRepository.save(newUser);
+            userIdentityCache.invalidate(username);
             
             // Create corresponding employee record
             employeeService.createEmployeeFromUser(newUser);
@@ -1,13 +1,36 @@
 package com.leavemanagment.leave_app.controller;
 
 import com.leavemanagment.leave_app.model.LeaveRequest;
+import com.leavemanagment.leave_app.model.LeaveRequestSummary;
+import com.leavemanagment.leave_app.model.UpcomingLeave;
 import com.leavemanagment.leave_app.repository.LeaveRequestRepository;
-import com.leavemanagment.leave_app.repository.UserRepository;
+import com.leavemanagment.leave_app.service.AIEmailCache;
+import com.leavemanagment.leave_app.service.ApprovedLeaveIndex;
+import com.leavemanagment.leave_app.service.AIEmailGeneratorService;
+import com.leavemanagment.leave_app.service.AINotificationService;
+import com.leavemanagment.leave_app.service.DashboardPushService;
+import com.leavemanagment.leave_app.service.EmployeeIdentityService;
 import com.leavemanagment.leave_app.service.EmployeeService;
+import com.leavemanagment.leave_app.service.AttendanceBitmapService;
+import com.leavemanagment.leave_app.service.LateAttendanceRollupService;
+import com.leavemanagment.leave_app.service.LeaveRequestService;
+import com.leavemanagment.leave_app.service.LeaveStatisticsService;
+import com.leavemanagment.leave_app.service.LeaveStatsAggregationService;
+import com.leavemanagment.leave_app.service.LocalAIService;
+import com.leavemanagment.leave_app.service.MongoIndexService;
+import com.leavemanagment.leave_app.service.TeamCapacityService;
+import com.leavemanagment.leave_app.service.IdempotencyService;
+import com.leavemanagment.leave_app.service.JwtTokenService;
+import com.leavemanagment.leave_app.service.CustomUserDetailsService;
+import com.leavemanagment.leave_app.service.LoginPasswordEncoder;
+import com.leavemanagment.leave_app.service.UserIdentityCache;
+import com.leavemanagment.leave_app.service.VirtualThreadMonitor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.time.Month;
@@ -24,10 +47,67 @@ public class DashboardController {
     private LeaveRequestRepository leaveRequestRepository;
     
     @Autowired
-    private UserRepository userRepository;
+    private UserIdentityCache userIdentityCache;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private LoginPasswordEncoder loginPasswordEncoder;
+
+    @Autowired
+    private CustomUserDetailsService customUserDetailsService;
+
+    @Autowired
+    private JwtTokenService jwtTokenService;
+
+    @Autowired
+    private DashboardPushService dashboardPushService;
+
+    @Autowired
+    private LateAttendanceRollupService lateAttendanceRollupService;
+
+    @Autowired
+    private AttendanceBitmapService attendanceBitmapService;
+    
+    @Autowired
+    private EmployeeIdentityService employeeIdentityService;
+    
+    @Autowired
+    private ApprovedLeaveIndex approvedLeaveIndex;
+    
+    @Autowired
+    private TeamCapacityService teamCapacityService;
     
     @Autowired
     private EmployeeService employeeService;
+    
+    @Autowired
+    private LeaveStatsAggregationService leaveStatsAggregationService;
+    
+    @Autowired
+    private LeaveStatisticsService leaveStatisticsService;
+    
+    @Autowired
+    private LeaveRequestService leaveRequestService;
+    
+    @Autowired
+    private AIEmailCache aiEmailCache;
+    
+    @Autowired
+    private AIEmailGeneratorService aiEmailGeneratorService;
+    
+    @Autowired
+    private LocalAIService localAIService;
+    
+    @Autowired
+    private AINotificationService aiNotificationService;
+    
+    @Autowired
+    private VirtualThreadMonitor virtualThreadMonitor;
+    
+    @Autowired
+    private MongoIndexService mongoIndexService;
 
     // USER-SPECIFIC STATS: Get dashboard stats for current logged-in user
     @GetMapping("/my-stats")
@@ -42,7 +122,7 @@ public class DashboardController {
             System.out.println("📊 Getting dashboard stats for user: " + username);
             
             // Get user's full name
-            Optional<com.leavemanagment.leave_app.model.User> userOpt = userRepository.findByUsername(username);
+            Optional<com.leavemanagment.leave_app.model.User> userOpt = userIdentityCache.currentUser(authentication);
             if (!userOpt.isPresent()) {
                 System.err.println("❌ User not found: " + username);
                 return ResponseEntity.notFound().build();
@@ -53,39 +133,17 @@ public class DashboardController {
             
             Map<String, Object> stats = new HashMap<>();
             
-            // Get current year data for this user only
+            // Current year totals for this user only, computed inside MongoDB
             LocalDate currentDate = LocalDate.now();
-            LocalDate yearStart = LocalDate.of(currentDate.getYear(), 1, 1);
-            LocalDate yearEnd = LocalDate.of(currentDate.getYear(), 12, 31);
-            
-            List<LeaveRequest> userRequests = leaveRequestRepository.findByEmployeeName(fullName);
-            List<LeaveRequest> currentYearRequests = userRequests.stream()
-                .filter(request -> request.getStartDate() != null && 
-                        !request.getStartDate().isBefore(yearStart) && 
-                        !request.getStartDate().isAfter(yearEnd))
-                .collect(Collectors.toList());
-            
-            // Calculate total leave days taken (approved requests only)
-            long totalLeaveDays = currentYearRequests.stream()
-                .filter(request -> "Approved".equals(request.getStatus()))
-                .mapToLong(LeaveRequest::getLeaveDuration)
-                .sum();
-            
-            // Calculate approval rate for this user
-            long totalUserRequests = currentYearRequests.size();
-            long approvedUserRequests = currentYearRequests.stream()
-                .filter(request -> "Approved".equals(request.getStatus()))
-                .count();
-            
-            double approvalRate = totalUserRequests > 0 ? (double) approvedUserRequests / totalUserRequests * 100 : 0;
+            LeaveStatsAggregationService.YearStats yearStats =
+                    leaveStatsAggregationService.getYearStats(currentDate.getYear(), userOpt.get().getId());
             
-            // Count pending requests for this user
-            long pendingRequests = currentYearRequests.stream()
-                .filter(request -> "Pending".equals(request.getStatus()))
-                .count();
+            long totalLeaveDays = yearStats.getApprovedDays();
+            double approvalRate = yearStats.getApprovalRate();
+            long pendingRequests = yearStats.getPendingRequests();
             
             // Count team members currently on leave (all employees)
-            List<LeaveRequest> currentlyOnLeave = leaveRequestRepository.findCurrentlyOnLeave(currentDate);
+            List<LeaveRequest> currentlyOnLeave = approvedLeaveIndex.onLeaveOn(currentDate);
             
             // Calculate remaining days (assuming 25 days annual leave)
             long remainingDays = Math.max(0, 25 - totalLeaveDays);
@@ -110,37 +168,19 @@ public class DashboardController {
     public Map<String, Object> getDashboardStats() {
         Map<String, Object> stats = new HashMap<>();
         
-        // Get current year data
+        // Current year totals, read from the materialized statistics
         LocalDate currentDate = LocalDate.now();
-        LocalDate yearStart = LocalDate.of(currentDate.getYear(), 1, 1);
-        LocalDate yearEnd = LocalDate.of(currentDate.getYear(), 12, 31);
+        LeaveStatsAggregationService.YearStats yearStats =
+                leaveStatisticsService.getYearStats(currentDate.getYear());
         
-        List<LeaveRequest> allRequests = leaveRequestRepository.findAll();
-        List<LeaveRequest> currentYearRequests = allRequests.stream()
-            .filter(request -> request.getStartDate() != null && 
-                    !request.getStartDate().isBefore(yearStart) && 
-                    !request.getStartDate().isAfter(yearEnd))
-            .collect(Collectors.toList());
-        
-        // Calculate total leave days taken (approved requests only)
-        long totalLeaveDays = currentYearRequests.stream()
-            .filter(request -> "Approved".equals(request.getStatus()))
-            .mapToLong(LeaveRequest::getLeaveDuration)
-            .sum();
-        
-        // Calculate approval rate
-        long totalRequests = currentYearRequests.size();
-        long approvedRequests = currentYearRequests.stream()
-            .filter(request -> "Approved".equals(request.getStatus()))
-            .count();
-        
-        double approvalRate = totalRequests > 0 ? (double) approvedRequests / totalRequests * 100 : 0;
+        long totalLeaveDays = yearStats.getApprovedDays();
+        double approvalRate = yearStats.getApprovalRate();
         
         // Count pending requests
-        long pendingRequests = leaveRequestRepository.countByStatus("Pending");
+        long pendingRequests = leaveStatisticsService.getStatusCount("Pending");
         
         // Count team members currently on leave
-        List<LeaveRequest> currentlyOnLeave = leaveRequestRepository.findCurrentlyOnLeave(currentDate);
+        List<LeaveRequest> currentlyOnLeave = approvedLeaveIndex.onLeaveOn(currentDate);
         
         // Calculate remaining days (assuming 29 days annual leave)
         long remainingDays = Math.max(0, 29 - totalLeaveDays);
@@ -170,8 +210,10 @@ public class DashboardController {
             LocalDate currentDate = LocalDate.now();
             int currentYear = currentDate.getYear();
             
-            // Get only the current user's leave requests
-            List<LeaveRequest> userRequests = leaveRequestRepository.findByEmployeeName(currentUsername);
+            // Get only the current user's leave requests, by employee key
+            List<LeaveRequest> userRequests = userIdentityCache.currentUser(authentication)
+                    .map(user -> leaveRequestRepository.findByEmployeeId(user.getId()))
+                    .orElse(List.of());
             System.out.println("📋 Found " + userRequests.size() + " leave requests for " + currentUsername);
             
             // Calculate quarterly data for current user only
@@ -229,29 +271,18 @@ public class DashboardController {
     }
 
     @GetMapping("/upcoming-leaves")
-    public List<Map<String, Object>> getUpcomingLeaves() {
+    public List<UpcomingLeave> getUpcomingLeaves() {
         LocalDate currentDate = LocalDate.now();
-        List<LeaveRequest> upcomingLeaves = leaveRequestRepository.findUpcomingLeaves(currentDate);
-        
-        return upcomingLeaves.stream()
-            .limit(5) // Show only next 5 upcoming leaves
-            .map(leave -> {
-                Map<String, Object> leaveInfo = new HashMap<>();
-                leaveInfo.put("employeeName", leave.getEmployeeName());
-                leaveInfo.put("startDate", leave.getStartDate());
-                leaveInfo.put("endDate", leave.getEndDate());
-                leaveInfo.put("duration", leave.getLeaveDuration());
-                leaveInfo.put("leaveType", leave.getLeaveType());
-                leaveInfo.put("status", leave.getStatus());
-                return leaveInfo;
-            })
+        // Show only next 5 upcoming leaves
+        return approvedLeaveIndex.upcoming(currentDate, 5).stream()
+            .map(UpcomingLeave::from)
             .collect(Collectors.toList());
     }
 
     @GetMapping("/team-on-leave")
     public List<Map<String, Object>> getTeamMembersOnLeave() {
         LocalDate currentDate = LocalDate.now();
-        List<LeaveRequest> currentlyOnLeave = leaveRequestRepository.findCurrentlyOnLeave(currentDate);
+        List<LeaveRequest> currentlyOnLeave = approvedLeaveIndex.onLeaveOn(currentDate);
         
         return currentlyOnLeave.stream()
             .map(leave -> {
@@ -328,10 +359,10 @@ public class DashboardController {
         hrStats.put("employeesPresent", stats.getEmployeesPresent());
         
         // Additional HR metrics
-        long pendingRequests = leaveRequestRepository.countByStatus("Pending");
-        long totalRequests = leaveRequestRepository.count();
-        long approvedRequests = leaveRequestRepository.countByStatus("Approved");
-        long rejectedRequests = leaveRequestRepository.countByStatus("Rejected");
+        long pendingRequests = leaveStatisticsService.getStatusCount("Pending");
+        long totalRequests = leaveStatisticsService.getTotalCount();
+        long approvedRequests = leaveStatisticsService.getStatusCount("Approved");
+        long rejectedRequests = leaveStatisticsService.getStatusCount("Rejected");
         
         hrStats.put("pendingApprovals", pendingRequests);
         hrStats.put("totalRequests", totalRequests);
@@ -342,87 +373,46 @@ public class DashboardController {
     }
     
     @GetMapping("/hr/pending-requests")
-    public List<Map<String, Object>> getPendingRequests() {
+    public List<LeaveRequestSummary> getPendingRequests() {
         System.out.println("🔍 HR: Fetching pending requests...");
-        List<LeaveRequest> pendingRequests = leaveRequestRepository.findByStatus("Pending");
-        System.out.println("📋 HR: Found " + pendingRequests.size() + " pending requests");
-        
-        List<Map<String, Object>> result = pendingRequests.stream()
-            .map(request -> {
-                Map<String, Object> requestInfo = new HashMap<>();
-                requestInfo.put("id", request.getId());
-                requestInfo.put("employeeName", request.getEmployeeName());
-                requestInfo.put("startDate", request.getStartDate());
-                requestInfo.put("endDate", request.getEndDate());
-                requestInfo.put("duration", request.getLeaveDuration());
-                requestInfo.put("leaveType", request.getLeaveType());
-                requestInfo.put("reason", request.getReason());
-                requestInfo.put("status", request.getStatus());
-                requestInfo.put("rejectionReason", request.getRejectionReason());
-                requestInfo.put("createdAt", request.getCreatedAt());
-                return requestInfo;
-            })
-            .collect(Collectors.toList());
-        
-        System.out.println("✅ HR: Returning " + result.size() + " pending requests");
-        return result;
+        List<LeaveRequestSummary> pendingRequests = leaveRequestRepository.findSummariesByStatus("Pending");
+        System.out.println("✅ HR: Returning " + pendingRequests.size() + " pending requests");
+        return pendingRequests;
     }
     
+    // All requests, newest first, streamed from the MongoDB cursor as a JSON array
     @GetMapping("/hr/all-requests")
-    public List<Map<String, Object>> getAllRequests() {
-        System.out.println("🔍 HR: Fetching all requests...");
-        List<LeaveRequest> allRequests = leaveRequestRepository.findAll();
-        System.out.println("📋 HR: Found " + allRequests.size() + " total requests");
-        
-        List<Map<String, Object>> result = allRequests.stream()
-            .sorted((r1, r2) -> r2.getCreatedAt().compareTo(r1.getCreatedAt())) // Latest first
-            .map(request -> {
-                Map<String, Object> requestInfo = new HashMap<>();
-                requestInfo.put("id", request.getId());
-                requestInfo.put("employeeName", request.getEmployeeName());
-                requestInfo.put("startDate", request.getStartDate());
-                requestInfo.put("endDate", request.getEndDate());
-                requestInfo.put("duration", request.getLeaveDuration());
-                requestInfo.put("leaveType", request.getLeaveType());
-                requestInfo.put("reason", request.getReason());
-                requestInfo.put("status", request.getStatus());
-                requestInfo.put("rejectionReason", request.getRejectionReason());
-                requestInfo.put("createdAt", request.getCreatedAt());
-                return requestInfo;
-            })
-            .collect(Collectors.toList());
-        
-        System.out.println("✅ HR: Returning " + result.size() + " all requests");
-        return result;
+    public ResponseEntity<StreamingResponseBody> getAllRequests() {
+        System.out.println("🔍 HR: Streaming all requests...");
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> leaveRequestService.writeJsonArray(out, LeaveRequestSummary.class));
+    }
+    
+    // One page of all requests: ?limit=N[&cursor=...] returns {items, nextCursor}
+    @GetMapping(value = "/hr/all-requests", params = "limit")
+    public ResponseEntity<Map<String, Object>> getAllRequestsPage(
+            @RequestParam int limit,
+            @RequestParam(required = false) String cursor) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            LeaveRequestService.LeavePage page = leaveRequestService.findPage(cursor, limit);
+            response.put("items", page.items().stream().map(LeaveRequestSummary::from).collect(Collectors.toList()));
+            response.put("nextCursor", page.nextCursor());
+            System.out.println("✅ HR: Returning " + page.items().size() + " requests"
+                    + (page.nextCursor() != null ? " (more available)" : ""));
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
     }
     
     @GetMapping("/hr/department-stats")
     public Map<String, Object> getDepartmentStats() {
-        List<LeaveRequest> allRequests = leaveRequestRepository.findAll();
-        
-        // Calculate real department statistics from actual leave requests
-        Map<String, Long> departmentLeaves = new HashMap<>();
-        
-        // Get all employees to map names to departments
-        List<com.leavemanagment.leave_app.model.Employee> allEmployees = employeeService.getAllActiveEmployees();
-        Map<String, String> employeeToDepartment = new HashMap<>();
-        
-        for (com.leavemanagment.leave_app.model.Employee employee : allEmployees) {
-            employeeToDepartment.put(employee.getFullName(), employee.getDepartment());
-        }
-        
-        for (LeaveRequest request : allRequests) {
-            if ("Approved".equals(request.getStatus()) && request.getStartDate() != null && request.getEndDate() != null) {
-                String employeeName = request.getEmployeeName();
-                long days = request.getLeaveDuration();
-                
-                // Get department from our mapping
-                String department = employeeToDepartment.get(employeeName);
-                if (department != null && !department.trim().isEmpty()) {
-                    departmentLeaves.merge(department, days, Long::sum);
-                }
-            }
-        }
+        // Approved leave days per department, maintained incrementally
+        Map<String, Long> departmentLeaves = leaveStatisticsService.getDepartmentApprovedDays();
         
         // If no real data, provide empty map
         if (departmentLeaves.isEmpty()) {
@@ -434,4 +424,144 @@ public class DashboardController {
         
         return deptStats;
     }
-}
\ No newline at end of file
+    
+    // Compare the materialized statistics with a full recount of leave_requests
+    @GetMapping("/hr/statistics/verify")
+    public Map<String, Object> verifyStatistics() {
+        return leaveStatisticsService.verify();
+    }
+    
+    // Recount leave_requests and replace the materialized statistics
+    @PostMapping("/hr/statistics/rebuild")
+    public Map<String, Object> rebuildStatistics() {
+        return leaveStatisticsService.rebuild();
+    }
+    
+    // Compare the late attendance rollups with a full recount of late_attendance
+    @GetMapping("/hr/late-rollups/verify")
+    public Map<String, Object> verifyLateRollups() {
+        return lateAttendanceRollupService.verify();
+    }
+    
+    // Recount late_attendance and replace the rollups
+    @PostMapping("/hr/late-rollups/rebuild")
+    public Map<String, Object> rebuildLateRollups() {
+        return lateAttendanceRollupService.rebuild();
+    }
+    
+    // Size of the late and leave day bitmaps
+    @GetMapping("/hr/attendance-bitmaps")
+    public Map<String, Object> getAttendanceBitmapStats() {
+        return attendanceBitmapService.getStats();
+    }
+    
+    // Reload the late and leave day bitmaps from MongoDB
+    @PostMapping("/hr/attendance-bitmaps/rebuild")
+    public Map<String, Object> rebuildAttendanceBitmaps() {
+        return attendanceBitmapService.rebuild();
+    }
+    
+    // Hit/miss ratio and size of the AI email body cache
+    @GetMapping("/hr/ai-email-cache")
+    public Map<String, Object> getAIEmailCacheStats() {
+        return aiEmailCache.getStats();
+    }
+    
+    // Drop cached AI email bodies, e.g. after changing the prompts or the model
+    @DeleteMapping("/hr/ai-email-cache")
+    public Map<String, Object> clearAIEmailCache() {
+        aiEmailCache.clear();
+        return aiEmailCache.getStats();
+    }
+    
+    // Hit ratio of the signed-in user lookups
+    @GetMapping("/hr/user-cache")
+    public Map<String, Object> getUserCacheStats() {
+        return userIdentityCache.getStats();
+    }
+    
+    // Decision requests run vs. replayed from their Idempotency-Key
+    @GetMapping("/hr/idempotency")
+    public Map<String, Object> getIdempotencyStats() {
+        return idempotencyService.getStats();
+    }
+    
+    // Login pool load, BCrypt checks vs. verified-credential cache hits, and rehashes
+    @GetMapping("/hr/login")
+    public Map<String, Object> getLoginStats() {
+        Map<String, Object> stats = loginPasswordEncoder.getStats();
+        stats.put("rehashes", customUserDetailsService.getRehashCount());
+        return stats;
+    }
+    
+    // Stateless mode: signing keys and tokens issued, accepted and rejected
+    @GetMapping("/hr/jwt")
+    public Map<String, Object> getJwtStats() {
+        return jwtTokenService.getStats();
+    }
+    
+    // Coalesced leave change pushes to the dashboards
+    @GetMapping("/hr/push")
+    public Map<String, Object> getPushStats() {
+        return dashboardPushService.getStats();
+    }
+    
+    // In-flight, timed-out and rejected calls to the AI providers and the n8n webhook
+    @GetMapping("/hr/ai-calls")
+    public Map<String, Object> getAICallStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("openai", aiEmailGeneratorService.getCallStats());
+        stats.put("ollama", localAIService.getCallStats());
+        stats.put("n8n", aiNotificationService.getCallStats());
+        return stats;
+    }
+    
+    // Thread mode (platform/virtual) and virtual thread pinning events
+    @GetMapping("/hr/threads")
+    public Map<String, Object> getThreadStats() {
+        return virtualThreadMonitor.getStats();
+    }
+    
+    // explain() every registered repository query and report the index it uses (or COLLSCAN)
+    @GetMapping("/hr/index-plans")
+    public Map<String, Object> getIndexPlans() {
+        return mongoIndexService.verifyQueryPlans();
+    }
+    
+    // Create any declared index that is missing
+    @PostMapping("/hr/indexes")
+    public Map<String, Object> ensureIndexes() {
+        return mongoIndexService.ensureIndexes();
+    }
+    
+    // Size of the in-memory approved leave index, checked against MongoDB
+    @GetMapping("/hr/leave-index")
+    public Map<String, Object> verifyLeaveIndex() {
+        return approvedLeaveIndex.verify();
+    }
+    
+    // Reload the approved leave index from MongoDB
+    @PostMapping("/hr/leave-index")
+    public Map<String, Object> rebuildLeaveIndex() {
+        return approvedLeaveIndex.rebuild();
+    }
+    
+    // Team sizes and indexed leaves behind the capacity check on submission
+    @GetMapping("/hr/capacity")
+    public Map<String, Object> getCapacityStats() {
+        return teamCapacityService.getStats();
+    }
+    
+    // Reload team membership (e.g. after moving people between departments)
+    @PostMapping("/hr/capacity")
+    public Map<String, Object> rebuildCapacity() {
+        return teamCapacityService.rebuild();
+    }
+    
+    // Key leave requests and late records that have no employee key (User ID) yet
+    @PostMapping("/hr/employee-keys")
+    public Map<String, Object> backfillEmployeeKeys() {
+        // Rollups and in-memory views rebuild on the EmployeeKeysBackfilledEvent
+        return employeeIdentityService.backfill();
+    }
+}
@@ -0,0 +1,51 @@
+package com.leavemanagment.leave_app.controller;
+
+import com.leavemanagment.leave_app.model.OutboundEmail;
+import com.leavemanagment.leave_app.service.EmailOutboxService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/email/outbox")
+public class EmailOutboxController {
+
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    /**
+     * Queue depth, worker utilisation and send latency of the email outbox
+     */
+    @GetMapping
+    public Map<String, Object> getOutboxMetrics() {
+        return emailOutboxService.getMetrics();
+    }
+
+    /**
+     * Emails that exhausted their retries
+     */
+    @GetMapping("/dead")
+    public List<OutboundEmail> getDeadLetters() {
+        return emailOutboxService.getDeadLetters();
+    }
+
+    /**
+     * Put a dead-lettered email back in the queue
+     */
+    @PostMapping("/{id}/retry")
+    public ResponseEntity<Map<String, Object>> retryDeadLetter(@PathVariable String id) {
+        Map<String, Object> response = new HashMap<>();
+        if (!emailOutboxService.retryDeadLetter(id)) {
+            response.put("success", false);
+            response.put("message", "No dead-lettered email with id " + id);
+            return ResponseEntity.status(404).body(response);
+        }
+        response.put("success", true);
+        response.put("message", "Email re-queued");
+        return ResponseEntity.ok(response);
+    }
+}
@@ -1,7 +1,9 @@
 package com.leavemanagment.leave_app.controller;
 
 import com.leavemanagment.leave_app.model.LateAttendance;
+import com.leavemanagment.leave_app.service.LateAttendanceImportService;
 import com.leavemanagment.leave_app.service.LateAttendanceService;
+import com.leavemanagment.leave_app.service.UserIdentityCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
@@ -9,6 +11,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
@@ -21,6 +24,12 @@ public class LateAttendanceController {
     @Autowired
     private LateAttendanceService lateAttendanceService;
     
+    @Autowired
+    private UserIdentityCache userIdentityCache;
+    
+    @Autowired
+    private LateAttendanceImportService lateAttendanceImportService;
+    
     /**
      * Mark an employee as late (HR only)
      */
@@ -57,16 +66,55 @@ public class LateAttendanceController {
         }
     }
     
+    /**
+     * Mark many employees late from a badge-reader export (HR only). The body is CSV with a header
+     * row, or NDJSON with ?format=ndjson or an NDJSON content type; ?date= applies to rows without one.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<?> importLateArrivals(
+            InputStream body,
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestHeader(value = "Content-Type", required = false) String contentType) {
+        try {
+            if (format == null) {
+                format = contentType != null && contentType.contains("json")
+                        ? LateAttendanceImportService.NDJSON : LateAttendanceImportService.CSV;
+            }
+            String markedBy = SecurityContextHolder.getContext().getAuthentication().getName();
+            
+            Map<String, Object> response = lateAttendanceImportService.importArrivals(
+                body, format.toLowerCase(), date != null ? date : LocalDate.now(), markedBy
+            );
+            response.put("success", true);
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Invalid import file: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            System.err.println("❌ Error importing late arrivals: " + e.getMessage());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Error importing late arrivals: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+    
     /**
      * Get late attendance records for current employee
      */
     @GetMapping("/my-late-records")
     public ResponseEntity<?> getMyLateRecords() {
         try {
-            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-            String employeeName = auth.getName();
+            String employeeId = currentEmployeeId();
             
-            List<LateAttendance> lateRecords = lateAttendanceService.getLateAttendanceForEmployee(employeeName);
+            List<LateAttendance> lateRecords = employeeId != null
+                    ? lateAttendanceService.getLateAttendanceForEmployeeId(employeeId)
+                    : List.of();
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -158,10 +206,9 @@ public class LateAttendanceController {
     public ResponseEntity<?> checkIfLateOnDate(
             @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
         try {
-            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-            String employeeName = auth.getName();
+            String employeeId = currentEmployeeId();
             
-            boolean isLate = lateAttendanceService.isEmployeeLateOnDate(employeeName, date);
+            boolean isLate = employeeId != null && lateAttendanceService.isEmployeeIdLateOnDate(employeeId, date);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -183,10 +230,11 @@ public class LateAttendanceController {
     @GetMapping("/count/{year}/{month}")
     public ResponseEntity<?> getLateDaysCountForMonth(@PathVariable int year, @PathVariable int month) {
         try {
-            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-            String employeeName = auth.getName();
+            String employeeId = currentEmployeeId();
             
-            long lateDaysCount = lateAttendanceService.getLateDaysCountForEmployeeInMonth(employeeName, year, month);
+            long lateDaysCount = employeeId != null
+                    ? lateAttendanceService.getLateDaysCountForEmployeeIdInMonth(employeeId, year, month)
+                    : 0;
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -201,4 +249,83 @@ public class LateAttendanceController {
             return ResponseEntity.badRequest().body(response);
         }
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Late days, leave days and late streaks of the current employee, this year unless a range is given
+     */
+    @GetMapping("/my-pattern")
+    public ResponseEntity<?> getMyAttendancePattern(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        try {
+            String employeeId = currentEmployeeId();
+            LocalDate today = LocalDate.now();
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", employeeId != null
+                    ? lateAttendanceService.getAttendancePattern(employeeId,
+                        startDate != null ? startDate : today.withDayOfYear(1), endDate != null ? endDate : today)
+                    : Map.of());
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Error getting attendance pattern: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
+    /**
+     * Employees late on at least minDays working days in a row within a date range (HR only)
+     */
+    @GetMapping("/streaks")
+    public ResponseEntity<?> getLateStreaks(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "3") int minDays) {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", lateAttendanceService.findLateStreaks(startDate, endDate, minDays));
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Error finding late streaks: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
+    /**
+     * Late days in a month per employee and department, for the monthly late widget (HR only)
+     */
+    @GetMapping("/summary/{year}/{month}")
+    public ResponseEntity<?> getMonthSummary(@PathVariable int year, @PathVariable int month) {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", lateAttendanceService.getMonthSummary(year, month));
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Error getting late attendance summary: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
+    /**
+     * Employee key (User ID) of the signed-in user, null when unknown
+     */
+    private String currentEmployeeId() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return userIdentityCache.currentUserId(auth).orElse(null);
+    }
+}
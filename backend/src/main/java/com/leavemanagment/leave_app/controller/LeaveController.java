@@ -1,5 +1,6 @@
 package com.leavemanagment.leave_app.controller;
 
+import com.leavemanagment.leave_app.event.LeaveRequestChangedEvent;
 import com.leavemanagment.leave_app.model.LeaveRequest;
 import com.leavemanagment.leave_app.model.User;
 import com.leavemanagment.leave_app.repository.LeaveRequestRepository;
@@ -8,35 +9,73 @@ import com.leavemanagment.leave_app.service.AIEmailGeneratorService;
 import com.leavemanagment.leave_app.service.AINotificationService;
 import com.leavemanagment.leave_app.service.DynamicEmailService;
 import com.leavemanagment.leave_app.service.EmailService;
+import com.leavemanagment.leave_app.service.EmailTemplate;
 import com.leavemanagment.leave_app.service.EmployeeEmailService;
+import com.leavemanagment.leave_app.service.EmployeeIdentityService;
 import com.leavemanagment.leave_app.service.HREmailService;
+import com.leavemanagment.leave_app.service.IdempotencyService;
+import com.leavemanagment.leave_app.service.LeaveBulkActionService;
+import com.leavemanagment.leave_app.service.LeaveRequestService;
+import com.leavemanagment.leave_app.service.LeaveRequestService.StatusTransition;
+import com.leavemanagment.leave_app.service.LeaveRequestService.TransitionOutcome;
 import com.leavemanagment.leave_app.service.SmartEmailTemplateService;
+import com.leavemanagment.leave_app.service.TeamCapacityService;
 import com.leavemanagment.leave_app.service.UserEmailConfigService;
+import com.leavemanagment.leave_app.service.UserIdentityCache;
 import java.util.stream.Collectors;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.net.URI;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 
 @RestController
 @RequestMapping("/leaves")
 public class LeaveController {
 
+    // Header a client sets to make a retried decision request safe to repeat
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     @Autowired
     private LeaveRequestRepository leaveRequestRepository;
     
+    @Autowired
+    private LeaveRequestService leaveRequestService;
+    
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private UserIdentityCache userIdentityCache;
+    
+    @Autowired
+    private EmployeeIdentityService employeeIdentityService;
+    
+    @Autowired
+    private TeamCapacityService teamCapacityService;
+
+    @Autowired
+    private LeaveBulkActionService leaveBulkActionService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+    
     @Autowired
     private AINotificationService aiNotificationService;
     
@@ -61,16 +100,36 @@ public class LeaveController {
     @Autowired
     private UserEmailConfigService userEmailConfigService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // CREATE: Add a new leave request with validation
     @PostMapping
-    public ResponseEntity<LeaveRequest> createLeave(@Valid @RequestBody LeaveRequest leaveRequest) {
+    public ResponseEntity<LeaveRequest> createLeave(@Valid @RequestBody LeaveRequest leaveRequest, Authentication authentication) {
         System.out.println("📝 Creating new leave request for: " + leaveRequest.getEmployeeName());
         System.out.println("📅 Start Date: " + leaveRequest.getStartDate());
         System.out.println("📅 End Date: " + leaveRequest.getEndDate());
         System.out.println("📋 Reason: " + leaveRequest.getReason());
         System.out.println("🏷️ Leave Type: " + leaveRequest.getLeaveType());
         
+        // The employee key never comes from the client: employees file their own leave,
+        // HR files for the employee named in the request
+        Optional<User> self = isHrOrAdmin(authentication) ? Optional.empty() : userIdentityCache.currentUser(authentication);
+        if (self.isPresent()) {
+            leaveRequest.setEmployeeId(self.get().getId());
+            if (self.get().getFullName() != null) {
+                leaveRequest.setEmployeeName(self.get().getFullName());
+            }
+        } else {
+            leaveRequest.setEmployeeId(employeeIdentityService.resolveEmployeeId(leaveRequest.getEmployeeName()));
+        }
+        leaveRequest.setDepartment(employeeIdentityService.departmentOf(leaveRequest.getEmployeeId()));
+        
+        // Team absence with this request granted, stored on the request for HR
+        leaveRequest.setCapacityCheck(teamCapacityService.check(leaveRequest));
+        
         LeaveRequest savedLeave = leaveRequestRepository.save(leaveRequest);
+        publishLeaveChange(null, savedLeave);
         System.out.println("✅ Leave request saved with ID: " + savedLeave.getId());
         System.out.println("📊 Total leave requests in database: " + leaveRequestRepository.count());
         
@@ -78,11 +137,31 @@ public class LeaveController {
         return ResponseEntity.created(location).body(savedLeave);
     }
 
-    // READ ALL: Get all leave requests (for admin/HR)
+    // READ ALL: Get all leave requests (for admin/HR), streamed newest first as a JSON array
     @GetMapping
-    public List<LeaveRequest> getAllLeaves() {
+    public ResponseEntity<StreamingResponseBody> getAllLeaves() {
         System.out.println("Fetching all leave requests...");
-        return leaveRequestRepository.findAll();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> leaveRequestService.writeJsonArray(out, LeaveRequest.class));
+    }
+
+    // READ PAGE: ?limit=N[&cursor=...] returns {items, nextCursor}; pass nextCursor back for the next page
+    @GetMapping(params = "limit")
+    public ResponseEntity<Map<String, Object>> getLeavesPage(
+            @RequestParam int limit,
+            @RequestParam(required = false) String cursor) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            LeaveRequestService.LeavePage page = leaveRequestService.findPage(cursor, limit);
+            response.put("items", page.items());
+            response.put("nextCursor", page.nextCursor());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
     }
     
     // READ USER LEAVES: Get leave requests for current user only
@@ -97,18 +176,18 @@ public class LeaveController {
             String username = authentication.getName();
             System.out.println("🔍 Fetching leaves for user: " + username);
             
-            // Get user's full name from UserRepository
-            Optional<com.leavemanagment.leave_app.model.User> userOpt = userRepository.findByUsername(username);
+            // Get user's full name (cached per user)
+            Optional<com.leavemanagment.leave_app.model.User> userOpt = userIdentityCache.currentUser(authentication);
             if (!userOpt.isPresent()) {
                 System.err.println("❌ User not found: " + username);
                 return ResponseEntity.notFound().build();
             }
             
             String fullName = userOpt.get().getFullName();
-            System.out.println("👤 Looking for leaves by employee name: " + fullName);
+            System.out.println("👤 Looking for leaves of: " + fullName);
             
-            // Find leaves by employee name
-            List<LeaveRequest> userLeaves = leaveRequestRepository.findByEmployeeName(fullName);
+            // Find leaves by employee key
+            List<LeaveRequest> userLeaves = leaveRequestRepository.findByEmployeeId(userOpt.get().getId());
             System.out.println("📋 Found " + userLeaves.size() + " leaves for " + fullName);
             
             return ResponseEntity.ok(userLeaves);
@@ -131,28 +210,47 @@ public class LeaveController {
     public ResponseEntity<LeaveRequest> updateLeave(@PathVariable String id, @Valid @RequestBody LeaveRequest updatedLeave) {
         return leaveRequestRepository.findById(id)
                 .map(leave -> {
+                    LeaveRequest previous = new LeaveRequest(leave);
+                    if (!Objects.equals(leave.getEmployeeName(), updatedLeave.getEmployeeName())) {
+                        leave.setEmployeeId(employeeIdentityService.resolveEmployeeId(updatedLeave.getEmployeeName()));
+                        leave.setDepartment(employeeIdentityService.departmentOf(leave.getEmployeeId()));
+                    }
                     leave.setEmployeeName(updatedLeave.getEmployeeName());
                     leave.setStartDate(updatedLeave.getStartDate());
                     leave.setEndDate(updatedLeave.getEndDate());
                     leave.setReason(updatedLeave.getReason());
                     leave.setStatus(updatedLeave.getStatus());
-                    LeaveRequest savedLeave = leaveRequestRepository.save(leave);
-                    return ResponseEntity.ok(savedLeave);
+                    leave.setUpdatedAt(LocalDateTime.now());
+                    if (!leaveRequestService.replaceIfStatus(leave, previous.getStatus())) {
+                        // Decided by someone else since it was read
+                        LeaveRequest current = leaveRequestRepository.findById(id).orElse(null);
+                        System.out.println("⚠️ Leave request " + id + " changed while being edited, not saved");
+                        return ResponseEntity.status(HttpStatus.CONFLICT).body(current);
+                    }
+                    publishLeaveChange(previous, leave);
+                    return ResponseEntity.ok(leave);
                 })
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
     @PutMapping("/{id}/approve")
-    public ResponseEntity<LeaveRequest> approveLeave(@PathVariable String id, Authentication authentication) {
-        Optional<LeaveRequest> optional = leaveRequestRepository.findById(id);
-        if (optional.isPresent()) {
-            LeaveRequest leave = optional.get();
-            leave.setStatus("Approved");
-            leave.setRejectionReason(null); // Clear any previous rejection reason
-            LeaveRequest savedLeave = leaveRequestRepository.save(leave);
+    public ResponseEntity<LeaveRequest> approveLeave(@PathVariable String id,
+                                                     @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                     Authentication authentication) {
+        return onceForKey(idempotencyKey, "approve", id, authentication, () -> approve(id, authentication));
+    }
+
+    private ResponseEntity<LeaveRequest> approve(String id, Authentication authentication) {
+        Optional<StatusTransition> transition = leaveRequestService.decide(id, "Approved", null);
+        if (transition.isPresent()) {
+            if (!transition.get().applied()) {
+                return notApplied(transition.get());
+            }
+            LeaveRequest savedLeave = transition.get().current();
+            publishLeaveChange(transition.get().previous(), savedLeave);
             
             // Send notification through N8N workflow with fallback to direct email
             try {
-                User employee = findEmployeeForLeaveRequest(leave);
+                User employee = findEmployeeForLeaveRequest(savedLeave);
                 if (employee != null) {
                     System.out.println("🤖 Sending approval notification via N8N workflow to: " + employee.getEmail());
                     
@@ -164,7 +262,7 @@ public class LeaveController {
                     
                     System.out.println("✅ Approval notifications sent successfully to " + employee.getFullName() + " (" + employee.getEmail() + ")");
                 } else {
-                    System.err.println("❌ Employee not found for leave request: " + leave.getEmployeeName());
+                    System.err.println("❌ Employee not found for leave request: " + savedLeave.getEmployeeName());
                     logAvailableUsers();
                 }
             } catch (Exception e) {
@@ -178,32 +276,38 @@ public class LeaveController {
     }
 
     @PutMapping("/{id}/reject")
-    public ResponseEntity<LeaveRequest> rejectLeave(@PathVariable String id, @RequestBody(required = false) Map<String, String> requestBody, Authentication authentication) {
+    public ResponseEntity<LeaveRequest> rejectLeave(@PathVariable String id, @RequestBody(required = false) Map<String, String> requestBody,
+                                                    @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                    Authentication authentication) {
+        return onceForKey(idempotencyKey, "reject", id, authentication, () -> reject(id, requestBody, authentication));
+    }
+
+    private ResponseEntity<LeaveRequest> reject(String id, Map<String, String> requestBody, Authentication authentication) {
         try {
             System.out.println("❌ Rejecting leave request with ID: " + id);
             System.out.println("📋 Request body: " + requestBody);
             
-            Optional<LeaveRequest> optional = leaveRequestRepository.findById(id);
-            if (optional.isPresent()) {
-                LeaveRequest leave = optional.get();
-                System.out.println("📝 Found leave request for: " + leave.getEmployeeName());
-                
-                leave.setStatus("Rejected");
-                
-                // Get rejection reason from request body
-                String rejectionReason = null;
-                if (requestBody != null && requestBody.containsKey("rejectionReason")) {
-                    rejectionReason = requestBody.get("rejectionReason");
-                    System.out.println("📋 Rejection reason: " + rejectionReason);
+            // Get rejection reason from request body
+            String rejectionReason = null;
+            if (requestBody != null && requestBody.containsKey("rejectionReason")) {
+                rejectionReason = requestBody.get("rejectionReason");
+                System.out.println("📋 Rejection reason: " + rejectionReason);
+            }
+
+            Optional<StatusTransition> transition = leaveRequestService.decide(id, "Rejected", rejectionReason);
+            if (transition.isPresent()) {
+                if (!transition.get().applied()) {
+                    return notApplied(transition.get());
                 }
-                leave.setRejectionReason(rejectionReason);
+                LeaveRequest savedLeave = transition.get().current();
+                System.out.println("📝 Found leave request for: " + savedLeave.getEmployeeName());
                 
-                LeaveRequest savedLeave = leaveRequestRepository.save(leave);
+                publishLeaveChange(transition.get().previous(), savedLeave);
                 System.out.println("✅ Leave request rejected successfully");
                 
                 // Send notification through N8N workflow with fallback to direct email
                 try {
-                    User employee = findEmployeeForLeaveRequest(leave);
+                    User employee = findEmployeeForLeaveRequest(savedLeave);
                     if (employee != null) {
                         System.out.println("🤖 Sending rejection notification via N8N workflow to: " + employee.getEmail());
                         
@@ -215,7 +319,7 @@ public class LeaveController {
                         
                         System.out.println("✅ Rejection notifications sent successfully to " + employee.getFullName() + " (" + employee.getEmail() + ")");
                     } else {
-                        System.err.println("❌ Employee not found for leave request: " + leave.getEmployeeName());
+                        System.err.println("❌ Employee not found for leave request: " + savedLeave.getEmployeeName());
                         logAvailableUsers();
                     }
                 } catch (Exception e) {
@@ -239,23 +343,35 @@ public class LeaveController {
     @PutMapping("/{id}/hr-action")
     public ResponseEntity<LeaveRequest> hrActionOnLeave(
             @PathVariable String id, 
-            @RequestBody Map<String, String> actionRequest) {
-        
-        Optional<LeaveRequest> optional = leaveRequestRepository.findById(id);
-        if (optional.isPresent()) {
-            LeaveRequest leave = optional.get();
-            String action = actionRequest.get("action");
-            String reason = actionRequest.get("reason");
+            @RequestBody Map<String, String> actionRequest,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            Authentication authentication) {
+        return onceForKey(idempotencyKey, "hr-action", id, authentication, () -> hrAction(id, actionRequest));
+    }
+
+    private ResponseEntity<LeaveRequest> hrAction(String id, Map<String, String> actionRequest) {
+        String action = actionRequest.get("action");
+        String reason = actionRequest.get("reason");
+        boolean approve = "approve".equalsIgnoreCase(action);
+        if (!approve && !"reject".equalsIgnoreCase(action)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Optional<StatusTransition> transition = approve
+                ? leaveRequestService.decide(id, "Approved", null)
+                : leaveRequestService.decide(id, "Rejected", reason);
+        if (transition.isPresent()) {
+            if (!transition.get().applied()) {
+                return notApplied(transition.get());
+            }
+            LeaveRequest leave = transition.get().current();
+            publishLeaveChange(transition.get().previous(), leave);
             
-            if ("approve".equalsIgnoreCase(action)) {
-                leave.setStatus("Approved");
-                leave.setRejectionReason(null);
-                
+            if (approve) {
                 // Send approval notification via N8N workflow
                 try {
-                    Optional<User> employeeOpt = userRepository.findByFullName(leave.getEmployeeName());
-                    if (employeeOpt.isPresent()) {
-                        User employee = employeeOpt.get();
+                    User employee = findEmployeeForLeaveRequest(leave);
+                    if (employee != null) {
                         System.out.println("🤖 Sending approval notification via N8N workflow to: " + employee.getEmail());
                         
                         // Use N8N workflow for notification
@@ -264,34 +380,17 @@ public class LeaveController {
                         // Also send direct email as backup
                         emailService.sendLeaveApprovedEmail(leave, employee);
                     } else {
-                        // Try to find by username as fallback
-                        Optional<User> employeeByUsername = userRepository.findByUsername(leave.getEmployeeName());
-                        if (employeeByUsername.isPresent()) {
-                            User employee = employeeByUsername.get();
-                            System.out.println("🤖 Sending approval notification via N8N workflow to: " + employee.getEmail() + " (found by username)");
-                            
-                            // Use N8N workflow for notification
-                            aiNotificationService.sendLeaveApprovedNotification(leave, employee);
-                            
-                            // Also send direct email as backup
-                            emailService.sendLeaveApprovedEmail(leave, employee);
-                        } else {
-                            System.err.println("❌ Employee not found for notification: " + leave.getEmployeeName());
-                        }
+                        System.err.println("❌ Employee not found for notification: " + leave.getEmployeeName());
                     }
                 } catch (Exception e) {
                     System.err.println("❌ Error sending approval notification: " + e.getMessage());
                 }
                 
-            } else if ("reject".equalsIgnoreCase(action)) {
-                leave.setStatus("Rejected");
-                leave.setRejectionReason(reason);
-                
+            } else {
                 // Send rejection notification via N8N workflow
                 try {
-                    Optional<User> employeeOpt = userRepository.findByFullName(leave.getEmployeeName());
-                    if (employeeOpt.isPresent()) {
-                        User employee = employeeOpt.get();
+                    User employee = findEmployeeForLeaveRequest(leave);
+                    if (employee != null) {
                         System.out.println("🤖 Sending rejection notification via N8N workflow to: " + employee.getEmail());
                         
                         // Use N8N workflow for notification
@@ -300,30 +399,14 @@ public class LeaveController {
                         // Also send direct email as backup
                         emailService.sendLeaveRejectedEmail(leave, employee, reason);
                     } else {
-                        // Try to find by username as fallback
-                        Optional<User> employeeByUsername = userRepository.findByUsername(leave.getEmployeeName());
-                        if (employeeByUsername.isPresent()) {
-                            User employee = employeeByUsername.get();
-                            System.out.println("🤖 Sending rejection notification via N8N workflow to: " + employee.getEmail() + " (found by username)");
-                            
-                            // Use N8N workflow for notification
-                            aiNotificationService.sendLeaveRejectedNotification(leave, employee, reason);
-                            
-                            // Also send direct email as backup
-                            emailService.sendLeaveRejectedEmail(leave, employee, reason);
-                        } else {
-                            System.err.println("❌ Employee not found for notification: " + leave.getEmployeeName());
-                        }
+                        System.err.println("❌ Employee not found for notification: " + leave.getEmployeeName());
                     }
                 } catch (Exception e) {
                     System.err.println("❌ Error sending rejection notification: " + e.getMessage());
                 }
-                
-            } else {
-                return ResponseEntity.badRequest().build();
             }
             
-            return ResponseEntity.ok(leaveRequestRepository.save(leave));
+            return ResponseEntity.ok(leave);
         }
         return ResponseEntity.notFound().build();
     }
@@ -331,216 +414,214 @@ public class LeaveController {
 
     // AI-POWERED APPROVAL: Approve leave with AI-generated email
     @PutMapping("/{id}/ai-approve")
-    public ResponseEntity<Map<String, Object>> aiApproveLeave(@PathVariable String id, Authentication authentication) {
+    public Mono<ResponseEntity<Map<String, Object>>> aiApproveLeave(@PathVariable String id,
+                                                                    @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                                    Authentication authentication) {
+        return onceForKeyAsync(idempotencyKey, "ai-approve", id, authentication, () -> aiApprove(id, authentication));
+    }
+
+    private Mono<ResponseEntity<Map<String, Object>>> aiApprove(String id, Authentication authentication) {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            Optional<LeaveRequest> optional = leaveRequestRepository.findById(id);
-            if (!optional.isPresent()) {
+            Optional<StatusTransition> transition = leaveRequestService.decide(id, "Approved", null);
+            if (transition.isEmpty()) {
                 response.put("success", false);
                 response.put("message", "Leave request not found");
-                return ResponseEntity.notFound().build();
+                return Mono.just(ResponseEntity.notFound().build());
+            }
+            if (!transition.get().applied()) {
+                return Mono.just(notApplied(response, transition.get()));
             }
 
-            LeaveRequest leave = optional.get();
-            leave.setStatus("Approved");
-            leave.setRejectionReason(null);
-            LeaveRequest savedLeave = leaveRequestRepository.save(leave);
+            LeaveRequest savedLeave = transition.get().current();
+            publishLeaveChange(transition.get().previous(), savedLeave);
 
             // Get employee and HR user details
-            User employee = findEmployeeForLeaveRequest(leave);
+            User employee = findEmployeeForLeaveRequest(savedLeave);
             User hrUser = getCurrentHRUser(authentication);
             
             if (employee == null) {
                 response.put("success", false);
                 response.put("message", "Employee not found");
-                return ResponseEntity.badRequest().body(response);
+                return Mono.just(ResponseEntity.badRequest().body(response));
             }
 
             System.out.println("🤖 Generating AI-powered approval email for: " + employee.getEmail());
 
-            // Try different AI approaches in order of preference
-            String emailContent = null;
-            String aiMethod = "fallback";
-
-            // Option 1: Try OpenAI (if API key is configured)
-            try {
-                emailContent = aiEmailGeneratorService.generateApprovalEmail(savedLeave, employee, hrUser);
-                if (emailContent != null && !emailContent.trim().isEmpty()) {
-                    aiMethod = "OpenAI";
-                }
-            } catch (Exception e) {
-                System.out.println("⚠️ OpenAI not available, trying next option...");
-            }
+            // Try different AI approaches in order of preference: OpenAI (if API key is configured),
+            // then the Smart Template Engine, then the basic template. The request thread is released
+            // while the model answers; the response is written once the email has been queued.
+            Mono<GeneratedEmail> smartTemplate = Mono.fromSupplier(
+                    () -> smartEmailTemplateService.generateSmartApprovalEmail(savedLeave, employee, hrUser))
+                    .map(content -> new GeneratedEmail("Smart Template", content))
+                    .onErrorResume(e -> {
+                        System.err.println("❌ Smart template failed: " + e.getMessage());
+                        return Mono.empty();
+                    });
+            Mono<GeneratedEmail> basicTemplate = Mono.fromSupplier(
+                    () -> new GeneratedEmail("Basic Template", generateBasicApprovalEmail(savedLeave, employee, hrUser)));
 
-            // Option 2: Try Smart Template Engine (always available)
-            if (emailContent == null) {
-                try {
-                    emailContent = smartEmailTemplateService.generateSmartApprovalEmail(savedLeave, employee, hrUser);
-                    aiMethod = "Smart Template";
-                } catch (Exception e) {
-                    System.err.println("❌ Smart template failed: " + e.getMessage());
-                }
-            }
-
-            // Option 3: Fallback to basic template
-            if (emailContent == null) {
-                emailContent = generateBasicApprovalEmail(savedLeave, employee, hrUser);
-                aiMethod = "Basic Template";
-            }
-
-            // Send the email
-            try {
-                emailService.sendHtmlEmail(employee.getEmail(), 
-                    "✅ Leave Request Approved - " + savedLeave.getLeaveType(), 
-                    emailContent);
-                
-                System.out.println("✅ AI-powered approval email sent successfully using: " + aiMethod);
-                
-                response.put("success", true);
-                response.put("message", "Leave approved and AI-powered email sent successfully");
-                response.put("aiMethod", aiMethod);
-                response.put("employeeEmail", employee.getEmail());
-                response.put("leaveRequest", savedLeave);
-                
-                return ResponseEntity.ok(response);
-                
-            } catch (Exception e) {
-                System.err.println("❌ Error sending AI email: " + e.getMessage());
-                response.put("success", false);
-                response.put("message", "Leave approved but email failed: " + e.getMessage());
-                return ResponseEntity.status(500).body(response);
-            }
+            return aiEmailGeneratorService.generateApprovalEmail(savedLeave, employee, hrUser)
+                    .filter(content -> !content.trim().isEmpty())
+                    .map(content -> new GeneratedEmail("OpenAI", content))
+                    .switchIfEmpty(smartTemplate)
+                    .switchIfEmpty(basicTemplate)
+                    // Queueing the email writes to MongoDB, so get off the WebClient event loop first
+                    .publishOn(Schedulers.boundedElastic())
+                    .map(email -> {
+                        try {
+                            emailService.sendHtmlEmail(employee.getEmail(), 
+                                "✅ Leave Request Approved - " + savedLeave.getLeaveType(), 
+                                email.content());
+                            
+                            System.out.println("✅ AI-powered approval email sent successfully using: " + email.method());
+                            
+                            response.put("success", true);
+                            response.put("message", "Leave approved and AI-powered email sent successfully");
+                            response.put("aiMethod", email.method());
+                            response.put("employeeEmail", employee.getEmail());
+                            response.put("leaveRequest", savedLeave);
+                            
+                            return ResponseEntity.ok(response);
+                            
+                        } catch (Exception e) {
+                            System.err.println("❌ Error sending AI email: " + e.getMessage());
+                            response.put("success", false);
+                            response.put("message", "Leave approved but email failed: " + e.getMessage());
+                            return ResponseEntity.status(500).body(response);
+                        }
+                    });
 
         } catch (Exception e) {
             System.err.println("❌ Error in AI approval process: " + e.getMessage());
             response.put("success", false);
             response.put("message", "Error processing AI approval: " + e.getMessage());
-            return ResponseEntity.status(500).body(response);
+            return Mono.just(ResponseEntity.status(500).body(response));
         }
     }
 
     // AI-POWERED REJECTION: Reject leave with AI-generated email
     @PutMapping("/{id}/ai-reject")
-    public ResponseEntity<Map<String, Object>> aiRejectLeave(
+    public Mono<ResponseEntity<Map<String, Object>>> aiRejectLeave(
             @PathVariable String id, 
             @RequestBody(required = false) Map<String, String> requestBody, 
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
             Authentication authentication) {
-        
+        return onceForKeyAsync(idempotencyKey, "ai-reject", id, authentication, () -> aiReject(id, requestBody, authentication));
+    }
+
+    private Mono<ResponseEntity<Map<String, Object>>> aiReject(String id, Map<String, String> requestBody,
+                                                               Authentication authentication) {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            Optional<LeaveRequest> optional = leaveRequestRepository.findById(id);
-            if (!optional.isPresent()) {
+            String rejectionReason = requestBody != null ? requestBody.get("rejectionReason") : null;
+            Optional<StatusTransition> transition = leaveRequestService.decide(id, "Rejected", rejectionReason);
+            if (transition.isEmpty()) {
                 response.put("success", false);
                 response.put("message", "Leave request not found");
-                return ResponseEntity.notFound().build();
+                return Mono.just(ResponseEntity.notFound().build());
             }
-
-            LeaveRequest leave = optional.get();
-            String rejectionReason = null;
-            if (requestBody != null && requestBody.containsKey("rejectionReason")) {
-                rejectionReason = requestBody.get("rejectionReason");
+            if (!transition.get().applied()) {
+                return Mono.just(notApplied(response, transition.get()));
             }
 
-            leave.setStatus("Rejected");
-            leave.setRejectionReason(rejectionReason);
-            LeaveRequest savedLeave = leaveRequestRepository.save(leave);
+            LeaveRequest savedLeave = transition.get().current();
+            publishLeaveChange(transition.get().previous(), savedLeave);
 
             // Get employee and HR user details
-            User employee = findEmployeeForLeaveRequest(leave);
+            User employee = findEmployeeForLeaveRequest(savedLeave);
             User hrUser = getCurrentHRUser(authentication);
             
             if (employee == null) {
                 response.put("success", false);
                 response.put("message", "Employee not found");
-                return ResponseEntity.badRequest().body(response);
+                return Mono.just(ResponseEntity.badRequest().body(response));
             }
 
             System.out.println("🤖 Generating AI-powered rejection email for: " + employee.getEmail());
 
-            // Try different AI approaches in order of preference
-            String emailContent = null;
-            String aiMethod = "fallback";
-
-            // Option 1: Try OpenAI (if API key is configured)
-            try {
-                emailContent = aiEmailGeneratorService.generateRejectionEmail(savedLeave, employee, hrUser, rejectionReason);
-                if (emailContent != null && !emailContent.trim().isEmpty()) {
-                    aiMethod = "OpenAI";
-                }
-            } catch (Exception e) {
-                System.out.println("⚠️ OpenAI not available, trying next option...");
-            }
-
-            // Option 2: Try Smart Template Engine (always available)
-            if (emailContent == null) {
-                try {
-                    emailContent = smartEmailTemplateService.generateSmartRejectionEmail(savedLeave, employee, hrUser, rejectionReason);
-                    aiMethod = "Smart Template";
-                } catch (Exception e) {
-                    System.err.println("❌ Smart template failed: " + e.getMessage());
-                }
-            }
-
-            // Option 3: Fallback to basic template
-            if (emailContent == null) {
-                emailContent = generateBasicRejectionEmail(savedLeave, employee, hrUser, rejectionReason);
-                aiMethod = "Basic Template";
-            }
+            // Try different AI approaches in order of preference: OpenAI (if API key is configured),
+            // then the Smart Template Engine, then the basic template. The request thread is released
+            // while the model answers; the response is written once the email has been queued.
+            Mono<GeneratedEmail> smartTemplate = Mono.fromSupplier(
+                    () -> smartEmailTemplateService.generateSmartRejectionEmail(savedLeave, employee, hrUser, rejectionReason))
+                    .map(content -> new GeneratedEmail("Smart Template", content))
+                    .onErrorResume(e -> {
+                        System.err.println("❌ Smart template failed: " + e.getMessage());
+                        return Mono.empty();
+                    });
+            Mono<GeneratedEmail> basicTemplate = Mono.fromSupplier(
+                    () -> new GeneratedEmail("Basic Template", generateBasicRejectionEmail(savedLeave, employee, hrUser, rejectionReason)));
 
-            // Send the email
-            try {
-                emailService.sendHtmlEmail(employee.getEmail(), 
-                    "📋 Leave Request Update - " + savedLeave.getLeaveType(), 
-                    emailContent);
-                
-                System.out.println("✅ AI-powered rejection email sent successfully using: " + aiMethod);
-                
-                response.put("success", true);
-                response.put("message", "Leave rejected and AI-powered email sent successfully");
-                response.put("aiMethod", aiMethod);
-                response.put("employeeEmail", employee.getEmail());
-                response.put("rejectionReason", rejectionReason);
-                response.put("leaveRequest", savedLeave);
-                
-                return ResponseEntity.ok(response);
-                
-            } catch (Exception e) {
-                System.err.println("❌ Error sending AI email: " + e.getMessage());
-                response.put("success", false);
-                response.put("message", "Leave rejected but email failed: " + e.getMessage());
-                return ResponseEntity.status(500).body(response);
-            }
+            return aiEmailGeneratorService.generateRejectionEmail(savedLeave, employee, hrUser, rejectionReason)
+                    .filter(content -> !content.trim().isEmpty())
+                    .map(content -> new GeneratedEmail("OpenAI", content))
+                    .switchIfEmpty(smartTemplate)
+                    .switchIfEmpty(basicTemplate)
+                    // Queueing the email writes to MongoDB, so get off the WebClient event loop first
+                    .publishOn(Schedulers.boundedElastic())
+                    .map(email -> {
+                        try {
+                            emailService.sendHtmlEmail(employee.getEmail(), 
+                                "📋 Leave Request Update - " + savedLeave.getLeaveType(), 
+                                email.content());
+                            
+                            System.out.println("✅ AI-powered rejection email sent successfully using: " + email.method());
+                            
+                            response.put("success", true);
+                            response.put("message", "Leave rejected and AI-powered email sent successfully");
+                            response.put("aiMethod", email.method());
+                            response.put("employeeEmail", employee.getEmail());
+                            response.put("rejectionReason", rejectionReason);
+                            response.put("leaveRequest", savedLeave);
+                            
+                            return ResponseEntity.ok(response);
+                            
+                        } catch (Exception e) {
+                            System.err.println("❌ Error sending AI email: " + e.getMessage());
+                            response.put("success", false);
+                            response.put("message", "Leave rejected but email failed: " + e.getMessage());
+                            return ResponseEntity.status(500).body(response);
+                        }
+                    });
 
         } catch (Exception e) {
             System.err.println("❌ Error in AI rejection process: " + e.getMessage());
             response.put("success", false);
             response.put("message", "Error processing AI rejection: " + e.getMessage());
-            return ResponseEntity.status(500).body(response);
+            return Mono.just(ResponseEntity.status(500).body(response));
         }
     }
 
     // DYNAMIC EMAIL APPROVAL: Approve leave with email sent from HR user to Employee
     @PutMapping("/{id}/hr-approve")
-    public ResponseEntity<Map<String, Object>> hrApproveLeave(@PathVariable String id, Authentication authentication) {
+    public ResponseEntity<Map<String, Object>> hrApproveLeave(@PathVariable String id,
+                                                              @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                              Authentication authentication) {
+        return onceForKey(idempotencyKey, "hr-approve", id, authentication, () -> hrApprove(id, authentication));
+    }
+
+    private ResponseEntity<Map<String, Object>> hrApprove(String id, Authentication authentication) {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            Optional<LeaveRequest> optional = leaveRequestRepository.findById(id);
-            if (!optional.isPresent()) {
+            Optional<StatusTransition> transition = leaveRequestService.decide(id, "Approved", null);
+            if (transition.isEmpty()) {
                 response.put("success", false);
                 response.put("message", "Leave request not found");
                 return ResponseEntity.notFound().build();
             }
+            if (!transition.get().applied()) {
+                return notApplied(response, transition.get());
+            }
 
-            LeaveRequest leave = optional.get();
-            leave.setStatus("Approved");
-            leave.setRejectionReason(null);
-            LeaveRequest savedLeave = leaveRequestRepository.save(leave);
+            LeaveRequest savedLeave = transition.get().current();
+            publishLeaveChange(transition.get().previous(), savedLeave);
 
             // Get employee and HR user details
-            User employee = findEmployeeForLeaveRequest(leave);
+            User employee = findEmployeeForLeaveRequest(savedLeave);
             User hrUser = getCurrentHRUser(authentication);
             
             if (employee == null) {
@@ -608,27 +689,67 @@ public class LeaveController {
         }
     }
 
+    /**
+     * HR approves or rejects many requests at once: {"action": "approve"|"reject", "ids": [...], "reason": "..."}.
+     * One read, one bulk write and one batch of queued emails; the response lists the outcome per id.
+     */
+    @PostMapping("/hr-bulk-action")
+    public ResponseEntity<Map<String, Object>> hrBulkAction(@RequestBody Map<String, Object> bulkRequest, Authentication authentication) {
+        Map<String, Object> response = new HashMap<>();
+        Object ids = bulkRequest.get("ids");
+        if (!(ids instanceof List<?> idList)) {
+            response.put("success", false);
+            response.put("message", "ids must be a list of leave request ids");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        try {
+            String action = String.valueOf(bulkRequest.get("action")).toLowerCase();
+            String reason = bulkRequest.get("reason") != null ? bulkRequest.get("reason").toString() : null;
+            List<String> leaveIds = idList.stream().map(String::valueOf).toList();
+            response.putAll(leaveBulkActionService.apply(action, leaveIds, reason, getCurrentHRUser(authentication)));
+            response.put("success", true);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            System.err.println("❌ Error in HR bulk action: " + e.getMessage());
+            response.put("success", false);
+            response.put("message", "Error processing bulk action: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
     // DYNAMIC EMAIL REJECTION: Reject leave with email sent from HR user to Employee
     @PutMapping("/{id}/hr-reject")
-    public ResponseEntity<Map<String, Object>> hrRejectLeave(@PathVariable String id, @RequestBody Map<String, String> requestBody, Authentication authentication) {
+    public ResponseEntity<Map<String, Object>> hrRejectLeave(@PathVariable String id, @RequestBody Map<String, String> requestBody,
+                                                             @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                             Authentication authentication) {
+        return onceForKey(idempotencyKey, "hr-reject", id, authentication, () -> hrReject(id, requestBody, authentication));
+    }
+
+    private ResponseEntity<Map<String, Object>> hrReject(String id, Map<String, String> requestBody, Authentication authentication) {
         Map<String, Object> response = new HashMap<>();
         String rejectionReason = requestBody.get("rejectionReason");
         
         try {
-            Optional<LeaveRequest> optional = leaveRequestRepository.findById(id);
-            if (!optional.isPresent()) {
+            Optional<StatusTransition> transition = leaveRequestService.decide(id, "Rejected", rejectionReason);
+            if (transition.isEmpty()) {
                 response.put("success", false);
                 response.put("message", "Leave request not found");
                 return ResponseEntity.notFound().build();
             }
+            if (!transition.get().applied()) {
+                return notApplied(response, transition.get());
+            }
 
-            LeaveRequest leave = optional.get();
-            leave.setStatus("Rejected");
-            leave.setRejectionReason(rejectionReason);
-            LeaveRequest savedLeave = leaveRequestRepository.save(leave);
+            LeaveRequest savedLeave = transition.get().current();
+            publishLeaveChange(transition.get().previous(), savedLeave);
 
             // Get employee and HR user details
-            User employee = findEmployeeForLeaveRequest(leave);
+            User employee = findEmployeeForLeaveRequest(savedLeave);
             User hrUser = getCurrentHRUser(authentication);
             
             if (employee == null) {
@@ -824,7 +945,7 @@ public class LeaveController {
                 </div>
                 """;
             
-            emailService.sendHtmlEmail(testEmail, "✅ LeaveEase Email Test - Configuration Successful!", testEmailContent);
+            emailService.sendHtmlEmailNow(testEmail, "✅ LeaveEase Email Test - Configuration Successful!", testEmailContent);
             
             response.put("success", true);
             response.put("message", "Test email sent successfully!");
@@ -871,12 +992,15 @@ public class LeaveController {
     }
 
     // Helper method to get current HR user
+    private static boolean isHrOrAdmin(Authentication authentication) {
+        return authentication != null && authentication.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_HR".equals(authority.getAuthority()) || "ROLE_ADMIN".equals(authority.getAuthority()));
+    }
+
     private User getCurrentHRUser(Authentication authentication) {
         try {
             if (authentication != null) {
-                String username = authentication.getName();
-                Optional<User> userOpt = userRepository.findByUsername(username);
-                return userOpt.orElse(null);
+                return userIdentityCache.currentUser(authentication).orElse(null);
             }
         } catch (Exception e) {
             System.err.println("❌ Error getting HR user: " + e.getMessage());
@@ -884,25 +1008,31 @@ public class LeaveController {
         return null;
     }
 
-    // Helper method to generate basic approval email
-    private String generateBasicApprovalEmail(LeaveRequest leaveRequest, User employee, User hrUser) {
-        return String.format("""
+    // Email body produced by the AI approve/reject pipeline, with the method that produced it
+    private record GeneratedEmail(String method, String content) {}
+
+    private static final EmailTemplate BASIC_APPROVAL_EMAIL_TEMPLATE = EmailTemplate.compile("""
             <div style="font-family: Arial, sans-serif; max-width: 600px; margin: 0 auto;">
                 <h2 style="color: #28a745;">✅ Leave Request Approved</h2>
-                <p>Dear %s,</p>
+                <p>Dear {{employeeName}},</p>
                 <p>Your leave request has been <strong>approved</strong>.</p>
                 <div style="background: #f8f9fa; padding: 15px; border-radius: 5px; margin: 20px 0;">
                     <h3>📅 Leave Details:</h3>
-                    <p><strong>Type:</strong> %s</p>
-                    <p><strong>Start Date:</strong> %s</p>
-                    <p><strong>End Date:</strong> %s</p>
-                    <p><strong>Duration:</strong> %d days</p>
-                    <p><strong>Reason:</strong> %s</p>
+                    <p><strong>Type:</strong> {{leaveType}}</p>
+                    <p><strong>Start Date:</strong> {{startDate}}</p>
+                    <p><strong>End Date:</strong> {{endDate}}</p>
+                    <p><strong>Duration:</strong> {{duration}} days</p>
+                    <p><strong>Reason:</strong> {{reason}}</p>
                 </div>
                 <p>Please ensure proper handover before your leave begins.</p>
-                <p>Best regards,<br><strong>%s</strong><br>HR Team</p>
+                <p>Best regards,<br><strong>{{hrName}}</strong><br>HR Team</p>
             </div>
             """,
+            "employeeName", "leaveType", "startDate", "endDate", "duration", "reason", "hrName");
+
+    // Helper method to generate basic approval email
+    private String generateBasicApprovalEmail(LeaveRequest leaveRequest, User employee, User hrUser) {
+        return BASIC_APPROVAL_EMAIL_TEMPLATE.render(
             employee.getFullName(),
             leaveRequest.getLeaveType(),
             leaveRequest.getStartDate(),
@@ -913,29 +1043,32 @@ public class LeaveController {
         );
     }
 
-    // Helper method to generate basic rejection email
-    private String generateBasicRejectionEmail(LeaveRequest leaveRequest, User employee, User hrUser, String rejectionReason) {
-        return String.format("""
+    private static final EmailTemplate BASIC_REJECTION_EMAIL_TEMPLATE = EmailTemplate.compile("""
             <div style="font-family: Arial, sans-serif; max-width: 600px; margin: 0 auto;">
                 <h2 style="color: #dc3545;">❌ Leave Request Update</h2>
-                <p>Dear %s,</p>
+                <p>Dear {{employeeName}},</p>
                 <p>Your leave request has been <strong>declined</strong>.</p>
                 <div style="background: #f8f9fa; padding: 15px; border-radius: 5px; margin: 20px 0;">
                     <h3>📅 Leave Details:</h3>
-                    <p><strong>Type:</strong> %s</p>
-                    <p><strong>Start Date:</strong> %s</p>
-                    <p><strong>End Date:</strong> %s</p>
-                    <p><strong>Duration:</strong> %d days</p>
-                    <p><strong>Your Reason:</strong> %s</p>
+                    <p><strong>Type:</strong> {{leaveType}}</p>
+                    <p><strong>Start Date:</strong> {{startDate}}</p>
+                    <p><strong>End Date:</strong> {{endDate}}</p>
+                    <p><strong>Duration:</strong> {{duration}} days</p>
+                    <p><strong>Your Reason:</strong> {{reason}}</p>
                 </div>
                 <div style="background: #fff3cd; padding: 15px; border-radius: 5px; margin: 20px 0;">
                     <h4>📋 Reason for Decline:</h4>
-                    <p>%s</p>
+                    <p>{{rejectionReason}}</p>
                 </div>
                 <p>Please feel free to discuss this with HR or submit a revised request.</p>
-                <p>Best regards,<br><strong>%s</strong><br>HR Team</p>
+                <p>Best regards,<br><strong>{{hrName}}</strong><br>HR Team</p>
             </div>
             """,
+            "employeeName", "leaveType", "startDate", "endDate", "duration", "reason", "rejectionReason", "hrName");
+
+    // Helper method to generate basic rejection email
+    private String generateBasicRejectionEmail(LeaveRequest leaveRequest, User employee, User hrUser, String rejectionReason) {
+        return BASIC_REJECTION_EMAIL_TEMPLATE.render(
             employee.getFullName(),
             leaveRequest.getLeaveType(),
             leaveRequest.getStartDate(),
@@ -950,50 +1083,76 @@ public class LeaveController {
     // DELETE: Delete a leave request by ID
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteLeave(@PathVariable String id) {
-        if (leaveRequestRepository.existsById(id)) {
+        Optional<LeaveRequest> optional = leaveRequestRepository.findById(id);
+        if (optional.isPresent()) {
             leaveRequestRepository.deleteById(id);
+            publishLeaveChange(optional.get(), null);
             return ResponseEntity.noContent().build();
         }
         return ResponseEntity.notFound().build();
     }
-    
+
     /**
-     * Helper method to find employee for leave request using multiple strategies
+     * Run a decision endpoint at most once per Idempotency-Key, scoped to the user, endpoint and request
      */
-    private User findEmployeeForLeaveRequest(LeaveRequest leave) {
-        User employee = null;
-        
-        // Strategy 1: Find by employeeId if available
-        if (leave.getEmployeeId() != null && !leave.getEmployeeId().isEmpty()) {
-            Optional<User> employeeByIdOpt = userRepository.findById(leave.getEmployeeId());
-            if (employeeByIdOpt.isPresent()) {
-                employee = employeeByIdOpt.get();
-                System.out.println("👤 Found employee by ID: " + employee.getFullName() + " (" + employee.getEmail() + ")");
-                return employee;
-            }
+    private <T> ResponseEntity<T> onceForKey(String idempotencyKey, String endpoint, String id,
+                                             Authentication authentication, Supplier<ResponseEntity<T>> action) {
+        String user = authentication != null ? authentication.getName() : "anonymous";
+        return idempotencyService.execute(user + "|" + endpoint + "|" + id, idempotencyKey, action);
+    }
+
+    /**
+     * onceForKey for the AI decision endpoints: the AI-written response is remembered once the Mono completes
+     */
+    private <T> Mono<ResponseEntity<T>> onceForKeyAsync(String idempotencyKey, String endpoint, String id,
+                                                        Authentication authentication, Supplier<Mono<ResponseEntity<T>>> action) {
+        String user = authentication != null ? authentication.getName() : "anonymous";
+        return idempotencyService.executeAsync(user + "|" + endpoint + "|" + id, idempotencyKey, action);
+    }
+
+    /**
+     * Response for a decision that was not written: a repeat of the same decision is answered
+     * like the original (without notifying again), a different decision is a conflict
+     */
+    private ResponseEntity<LeaveRequest> notApplied(StatusTransition transition) {
+        if (transition.outcome() == TransitionOutcome.ALREADY_APPLIED) {
+            return ResponseEntity.ok(transition.current());
         }
-        
-        // Strategy 2: Find by fullName
-        if (leave.getEmployeeName() != null) {
-            Optional<User> employeeByNameOpt = userRepository.findByFullName(leave.getEmployeeName());
-            if (employeeByNameOpt.isPresent()) {
-                employee = employeeByNameOpt.get();
-                System.out.println("👤 Found employee by fullName: " + employee.getFullName() + " (" + employee.getEmail() + ")");
-                return employee;
-            }
+        System.out.println("⚠️ Leave request " + transition.current().getId() + " was already " + transition.current().getStatus());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(transition.current());
+    }
+
+    private ResponseEntity<Map<String, Object>> notApplied(Map<String, Object> response, StatusTransition transition) {
+        LeaveRequest current = transition.current();
+        response.put("leaveRequest", current);
+        if (transition.outcome() == TransitionOutcome.ALREADY_APPLIED) {
+            response.put("success", true);
+            response.put("message", "Leave request was already " + current.getStatus().toLowerCase());
+            response.put("alreadyApplied", true);
+            return ResponseEntity.ok(response);
         }
-        
-        // Strategy 3: Find by username as fallback
-        if (leave.getEmployeeName() != null) {
-            Optional<User> employeeByUsernameOpt = userRepository.findByUsername(leave.getEmployeeName());
-            if (employeeByUsernameOpt.isPresent()) {
-                employee = employeeByUsernameOpt.get();
-                System.out.println("👤 Found employee by username: " + employee.getFullName() + " (" + employee.getEmail() + ")");
-                return employee;
-            }
+        System.out.println("⚠️ Leave request " + current.getId() + " was already " + current.getStatus());
+        response.put("success", false);
+        response.put("message", "Leave request was already " + current.getStatus().toLowerCase() + " by someone else");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    /**
+     * Notify listeners (statistics, dashboards) that a leave request changed
+     */
+    private void publishLeaveChange(LeaveRequest previous, LeaveRequest current) {
+        eventPublisher.publishEvent(new LeaveRequestChangedEvent(previous, current));
+    }
+    
+    /**
+     * Helper method to find the employee for a leave request, by its employee key
+     */
+    private User findEmployeeForLeaveRequest(LeaveRequest leave) {
+        User employee = employeeIdentityService.findForLeave(leave).orElse(null);
+        if (employee != null) {
+            System.out.println("👤 Found employee: " + employee.getFullName() + " (" + employee.getEmail() + ")");
         }
-        
-        return null;
+        return employee;
     }
     
     /**
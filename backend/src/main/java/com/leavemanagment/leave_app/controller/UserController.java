@@ -2,6 +2,7 @@ package com.leavemanagment.leave_app.controller;
 
 import com.leavemanagment.leave_app.model.User;
 import com.leavemanagment.leave_app.repository.UserRepository;
+import com.leavemanagment.leave_app.service.UserIdentityCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -24,6 +25,9 @@ public class UserController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserIdentityCache userIdentityCache;
+
     private final String UPLOAD_DIR = "src/main/resources/static/uploads/profile-pictures/";
 
     @GetMapping("/test-auth")
@@ -45,7 +49,7 @@ public class UserController {
             String username = authentication.getName();
             System.out.println("🔍 Getting profile for user: " + username);
             
-            Optional<User> userOpt = userRepository.findByUsername(username);
+            Optional<User> userOpt = userIdentityCache.currentUser(authentication);
             
             if (userOpt.isPresent()) {
                 User user = userOpt.get();
@@ -129,6 +133,7 @@ public class UserController {
             String profilePicturePath = "/uploads/profile-pictures/" + newFilename;
             user.setProfilePicture(profilePicturePath);
             userRepository.save(user);
+            userIdentityCache.invalidate(username);
             
             System.out.println("💾 Saved profile picture path to database: " + profilePicturePath);
             System.out.println("📁 File saved to: " + filePath.toString());
@@ -180,6 +185,7 @@ public class UserController {
             }
             
             userRepository.save(user);
+            userIdentityCache.invalidate(username);
             
             Map<String, String> response = new HashMap<>();
             response.put("message", "Profile updated successfully");
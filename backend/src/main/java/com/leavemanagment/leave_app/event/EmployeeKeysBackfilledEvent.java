@@ -0,0 +1,19 @@
+package com.leavemanagment.leave_app.event;
+
+/**
+ * Published when the employee key backfill changed records, at startup or on demand.
+ * Views built from employee keys or record departments rebuild from MongoDB on it.
+ */
+public class EmployeeKeysBackfilledEvent {
+
+    private final boolean leaveRequestsChanged;
+    private final boolean lateAttendanceChanged;
+
+    public EmployeeKeysBackfilledEvent(boolean leaveRequestsChanged, boolean lateAttendanceChanged) {
+        this.leaveRequestsChanged = leaveRequestsChanged;
+        this.lateAttendanceChanged = lateAttendanceChanged;
+    }
+
+    public boolean isLeaveRequestsChanged() { return leaveRequestsChanged; }
+    public boolean isLateAttendanceChanged() { return lateAttendanceChanged; }
+}
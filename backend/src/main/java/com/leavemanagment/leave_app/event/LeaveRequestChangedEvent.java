@@ -0,0 +1,31 @@
+package com.leavemanagment.leave_app.event;
+
+import com.leavemanagment.leave_app.model.LeaveRequest;
+
+import java.util.Objects;
+
+/**
+ * Published whenever a leave request is created, modified or deleted.
+ * previous is null for a new request, current is null for a deleted one.
+ */
+public class LeaveRequestChangedEvent {
+
+    private final LeaveRequest previous;
+    private final LeaveRequest current;
+
+    public LeaveRequestChangedEvent(LeaveRequest previous, LeaveRequest current) {
+        this.previous = previous;
+        this.current = current;
+    }
+
+    public LeaveRequest getPrevious() { return previous; }
+    public LeaveRequest getCurrent() { return current; }
+
+    public boolean isCreated() { return previous == null && current != null; }
+    public boolean isDeleted() { return previous != null && current == null; }
+
+    public boolean isStatusChanged() {
+        return previous != null && current != null
+                && !Objects.equals(previous.getStatus(), current.getStatus());
+    }
+}
@@ -0,0 +1,19 @@
+package com.leavemanagment.leave_app.event;
+
+import java.util.List;
+
+/**
+ * Published once for a batch of leave request changes (bulk actions) instead of one
+ * LeaveRequestChangedEvent per request, so listeners apply the batch in a single update.
+ * Every listener of LeaveRequestChangedEvent also listens to this one.
+ */
+public class LeaveRequestsChangedEvent {
+
+    private final List<LeaveRequestChangedEvent> changes;
+
+    public LeaveRequestsChangedEvent(List<LeaveRequestChangedEvent> changes) {
+        this.changes = List.copyOf(changes);
+    }
+
+    public List<LeaveRequestChangedEvent> getChanges() { return changes; }
+}
@@ -0,0 +1,19 @@
+package com.leavemanagment.leave_app.model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Team capacity at the time a leave request was submitted: for each team the employee
+ * belongs to (department, manager), the most people absent on any one day of the
+ * requested range, this request included. Stored on the request for HR to see.
+ */
+public record CapacityCheck(LocalDateTime checkedAt, boolean overCapacity, List<GroupLoad> groups) {
+
+    /**
+     * Absence in one team: peakAbsent of teamSize on peakDate, where maxAbsent is allowed
+     */
+    public record GroupLoad(String type, String name, int teamSize, int maxAbsent,
+                            int peakAbsent, LocalDate peakDate, boolean overCapacity) {}
+}
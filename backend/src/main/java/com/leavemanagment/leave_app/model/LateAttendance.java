@@ -1,23 +1,36 @@
 package com.leavemanagment.leave_app.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Document(collection = "late_attendance")
+@CompoundIndexes({
+    // The signed-in employee's records (my-late-records, check, count); one record per employee and day.
+    // Records without an employee key yet are left out of the uniqueness check.
+    @CompoundIndex(name = "employeeId_date_unique", def = "{'employeeId': 1, 'date': 1}", unique = true,
+            partialFilter = "{'employeeId': {$exists: true}}"),
+    // HR lookups by name, and the employee key backfill
+    @CompoundIndex(name = "employeeName_date", def = "{'employeeName': 1, 'date': -1}"),
+    // findByDate, findByDateBetween (HR day and range reports)
+    @CompoundIndex(name = "date", def = "{'date': -1}")
+})
 public class LateAttendance {
     
     @Id
     private String id;
     
     private String employeeName;
-    private String employeeId;
+    private String employeeId; // User ID, see EmployeeIdentityService
     private LocalDate date;
     private String reason;
     private String markedBy; // HR who marked this
     private LocalDateTime markedAt;
     private String notes; // Additional notes from HR
+    private String department; // Employee's department on that day; the rollups count it there
     
     // Constructors
     public LateAttendance() {}
@@ -95,4 +108,12 @@ public class LateAttendance {
     public void setNotes(String notes) {
         this.notes = notes;
     }
+    
+    public String getDepartment() {
+        return department;
+    }
+    
+    public void setDepartment(String department) {
+        this.department = department;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.leavemanagment.leave_app.model;
+
+import com.leavemanagment.leave_app.event.LeaveRequestChangedEvent;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * One leave request change as pushed to the dashboards: kind is created, statusChanged,
+ * updated or deleted; previousStatus is the status before the change (null when created)
+ */
+public record LeaveChange(
+        String id,
+        String kind,
+        String employeeId,
+        String employeeName,
+        String leaveType,
+        LocalDate startDate,
+        LocalDate endDate,
+        String previousStatus,
+        String status) {
+
+    public static final String CREATED = "created";
+    public static final String STATUS_CHANGED = "statusChanged";
+    public static final String UPDATED = "updated";
+    public static final String DELETED = "deleted";
+
+    public static LeaveChange from(LeaveRequestChangedEvent event) {
+        LeaveRequest previous = event.getPrevious();
+        LeaveRequest current = event.getCurrent();
+        LeaveRequest shown = current != null ? current : previous;
+        String previousStatus = previous != null ? previous.getStatus() : null;
+        String status = current != null ? current.getStatus() : null;
+        return new LeaveChange(shown.getId(), kind(previous != null, current != null, previousStatus, status),
+                shown.getEmployeeId(), shown.getEmployeeName(), shown.getLeaveType(),
+                shown.getStartDate(), shown.getEndDate(), previousStatus, status);
+    }
+
+    /**
+     * This change followed by a later one of the same request, as one change; null when the
+     * request was created and deleted again
+     */
+    public LeaveChange then(LeaveChange later) {
+        boolean existedBefore = !CREATED.equals(kind);
+        boolean existsAfter = !DELETED.equals(later.kind);
+        if (!existedBefore && !existsAfter) {
+            return null;
+        }
+        return new LeaveChange(later.id, kind(existedBefore, existsAfter, previousStatus, later.status),
+                later.employeeId, later.employeeName, later.leaveType,
+                later.startDate, later.endDate, previousStatus, later.status);
+    }
+
+    private static String kind(boolean existedBefore, boolean existsAfter, String previousStatus, String status) {
+        if (!existedBefore) {
+            return CREATED;
+        }
+        if (!existsAfter) {
+            return DELETED;
+        }
+        return Objects.equals(previousStatus, status) ? UPDATED : STATUS_CHANGED;
+    }
+}
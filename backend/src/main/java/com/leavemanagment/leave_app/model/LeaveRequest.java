@@ -1,12 +1,26 @@
 package com.leavemanagment.leave_app.model;
 //  It is model to represent the leave form data
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 
 @Document(collection = "leave_requests")
+@CompoundIndexes({
+    // findByStatus, countByStatus, findCurrentlyOnLeave, findUpcomingLeaves: status equality, then the date range
+    @CompoundIndex(name = "status_startDate_endDate", def = "{'status': 1, 'startDate': 1, 'endDate': 1}"),
+    // findByEmployeeName, and the employee key backfill
+    @CompoundIndex(name = "employeeName_startDate", def = "{'employeeName': 1, 'startDate': -1}"),
+    // findByEmployeeId (every employee dashboard load)
+    @CompoundIndex(name = "employeeId_startDate", def = "{'employeeId': 1, 'startDate': -1}"),
+    // findByStartDateBetween
+    @CompoundIndex(name = "startDate", def = "{'startDate': 1}"),
+    // Keyset pagination and streaming, newest first (LeaveRequestService)
+    @CompoundIndex(name = "createdAt_id", def = "{'createdAt': -1, '_id': -1}")
+})
 public class LeaveRequest {
 
     @Id
@@ -15,7 +29,7 @@ public class LeaveRequest {
 
     private String employeeName;
     
-    private String employeeId; // User ID for better linking to User entity
+    private String employeeId; // User ID, the key joins to the User go through (EmployeeIdentityService)
 
     private LocalDate startDate;
 
@@ -32,6 +46,10 @@ public class LeaveRequest {
     private LocalDateTime updatedAt;
     
     private String rejectionReason; // New field for HR rejection reasons
+    
+    private CapacityCheck capacityCheck; // Team absence when the request was submitted
+
+    private String department; // Employee's department when the request was filed; statistics count it there
 
     // Constructors
     public LeaveRequest() {
@@ -64,6 +82,23 @@ public class LeaveRequest {
         this.updatedAt = LocalDateTime.now();
     }
 
+    // Copy constructor, used to keep a snapshot of a request before it is modified
+    public LeaveRequest(LeaveRequest other) {
+        this.id = other.id;
+        this.employeeName = other.employeeName;
+        this.employeeId = other.employeeId;
+        this.startDate = other.startDate;
+        this.endDate = other.endDate;
+        this.reason = other.reason;
+        this.status = other.status;
+        this.leaveType = other.leaveType;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+        this.rejectionReason = other.rejectionReason;
+        this.capacityCheck = other.capacityCheck;
+        this.department = other.department;
+    }
+
     // Getters and Setters
     public String getId() {
         return id;
@@ -154,6 +189,22 @@ public class LeaveRequest {
         this.rejectionReason = rejectionReason;
     }
     
+    public CapacityCheck getCapacityCheck() {
+        return capacityCheck;
+    }
+
+    public void setCapacityCheck(CapacityCheck capacityCheck) {
+        this.capacityCheck = capacityCheck;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public void setDepartment(String department) {
+        this.department = department;
+    }
+    
     // Helper method to calculate leave duration in days
     public long getLeaveDuration() {
         if (startDate != null && endDate != null) {
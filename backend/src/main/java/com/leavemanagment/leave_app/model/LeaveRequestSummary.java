@@ -0,0 +1,43 @@
+package com.leavemanagment.leave_app.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Read-only row of the HR request lists (pending queue, all requests).
+ * Repository queries returning it only read these fields from MongoDB.
+ */
+public record LeaveRequestSummary(
+        String id,
+        String employeeName,
+        LocalDate startDate,
+        LocalDate endDate,
+        String leaveType,
+        String reason,
+        String status,
+        String rejectionReason,
+        LocalDateTime createdAt,
+        CapacityCheck capacityCheck) {
+
+    public static LeaveRequestSummary from(LeaveRequest request) {
+        return new LeaveRequestSummary(request.getId(), request.getEmployeeName(), request.getStartDate(),
+                request.getEndDate(), request.getLeaveType(), request.getReason(), request.getStatus(),
+                request.getRejectionReason(), request.getCreatedAt(), request.getCapacityCheck());
+    }
+
+    // Same as LeaveRequest.getLeaveDuration(), computed rather than stored
+    @JsonProperty("duration")
+    public long duration() {
+        return daysInclusive(startDate, endDate);
+    }
+
+    static long daysInclusive(LocalDate startDate, LocalDate endDate) {
+        if (startDate != null && endDate != null) {
+            return ChronoUnit.DAYS.between(startDate, endDate) + 1;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,116 @@
+package com.leavemanagment.leave_app.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * An email waiting in (or delivered from) the outbox.
+ * Written by the request thread, delivered later by the outbox workers.
+ */
+@Document(collection = "email_outbox")
+@CompoundIndexes({
+    // Dispatcher claim query (due pending emails) and the status lookups in OutboundEmailRepository
+    @CompoundIndex(name = "status_nextAttemptAt", def = "{'status': 1, 'nextAttemptAt': 1}"),
+    @CompoundIndex(name = "status_createdAt", def = "{'status': 1, 'createdAt': 1}"),
+    // Claim query: sending emails whose lease expired
+    @CompoundIndex(name = "status_lockedUntil", def = "{'status': 1, 'lockedUntil': 1}")
+})
+public class OutboundEmail {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_SENDING = "SENDING";
+    public static final String STATUS_SENT = "SENT";
+    public static final String STATUS_DEAD = "DEAD";
+
+    @Id
+    private String id;
+
+    private String toEmail;
+    private String fromEmail;    // null means the configured system address
+    private String fromName;     // optional display name for the sender
+    private String replyTo;
+    private String subject;
+    private String body;
+    private boolean html;
+
+    private String status = STATUS_PENDING;
+    private int attempts;
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime lockedUntil; // lease of the worker currently sending it
+    @Indexed(sparse = true)
+    private String claimToken;         // batch that claimed it
+    private String lastError;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime sentAt;
+    private Long sendLatencyMs;
+
+    // Constructors
+    public OutboundEmail() {}
+
+    public OutboundEmail(String toEmail, String subject, String body, boolean html) {
+        this.toEmail = toEmail;
+        this.subject = subject;
+        this.body = body;
+        this.html = html;
+        this.createdAt = LocalDateTime.now();
+        this.nextAttemptAt = this.createdAt;
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getToEmail() { return toEmail; }
+    public void setToEmail(String toEmail) { this.toEmail = toEmail; }
+
+    public String getFromEmail() { return fromEmail; }
+    public void setFromEmail(String fromEmail) { this.fromEmail = fromEmail; }
+
+    public String getFromName() { return fromName; }
+    public void setFromName(String fromName) { this.fromName = fromName; }
+
+    public String getReplyTo() { return replyTo; }
+    public void setReplyTo(String replyTo) { this.replyTo = replyTo; }
+
+    public String getSubject() { return subject; }
+    public void setSubject(String subject) { this.subject = subject; }
+
+    public String getBody() { return body; }
+    public void setBody(String body) { this.body = body; }
+
+    public boolean isHtml() { return html; }
+    public void setHtml(boolean html) { this.html = html; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+
+    public LocalDateTime getLockedUntil() { return lockedUntil; }
+    public void setLockedUntil(LocalDateTime lockedUntil) { this.lockedUntil = lockedUntil; }
+
+    public String getClaimToken() { return claimToken; }
+    public void setClaimToken(String claimToken) { this.claimToken = claimToken; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getSentAt() { return sentAt; }
+    public void setSentAt(LocalDateTime sentAt) { this.sentAt = sentAt; }
+
+    public Long getSendLatencyMs() { return sendLatencyMs; }
+    public void setSendLatencyMs(Long sendLatencyMs) { this.sendLatencyMs = sendLatencyMs; }
+}
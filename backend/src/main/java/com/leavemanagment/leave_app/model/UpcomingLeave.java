@@ -0,0 +1,26 @@
+package com.leavemanagment.leave_app.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDate;
+
+/**
+ * Read-only row of the dashboard's upcoming leaves card
+ */
+public record UpcomingLeave(
+        String employeeName,
+        LocalDate startDate,
+        LocalDate endDate,
+        String leaveType,
+        String status) {
+
+    public static UpcomingLeave from(LeaveRequest leave) {
+        return new UpcomingLeave(leave.getEmployeeName(), leave.getStartDate(), leave.getEndDate(),
+                leave.getLeaveType(), leave.getStatus());
+    }
+
+    @JsonProperty("duration")
+    public long duration() {
+        return LeaveRequestSummary.daysInclusive(startDate, endDate);
+    }
+}
@@ -16,6 +16,7 @@ public class User {
     private String email;
     
     private String password; // Will be encrypted
+    @Indexed // Resolving leave requests and late records by employee name
     private String fullName;
     private String department;
     private String employeeCode;
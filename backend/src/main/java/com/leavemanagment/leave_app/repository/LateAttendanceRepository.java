@@ -14,6 +14,9 @@ public interface LateAttendanceRepository extends MongoRepository<LateAttendance
     // Find all late attendance records for a specific employee
     List<LateAttendance> findByEmployeeNameOrderByDateDesc(String employeeName);
     
+    // Find all late attendance records for an employee key (User ID)
+    List<LateAttendance> findByEmployeeIdOrderByDateDesc(String employeeId);
+    
     // Find late attendance records for a specific employee within a date range
     @Query("{'employeeName': ?0, 'date': {$gte: ?1, $lte: ?2}}")
     List<LateAttendance> findByEmployeeNameAndDateBetween(String employeeName, LocalDate startDate, LocalDate endDate);
@@ -1,6 +1,9 @@
 package com.leavemanagment.leave_app.repository;
 
 import com.leavemanagment.leave_app.model.LeaveRequest;
+import com.leavemanagment.leave_app.model.LeaveRequestSummary;
+import com.leavemanagment.leave_app.model.UpcomingLeave;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -14,9 +17,15 @@ public interface LeaveRequestRepository extends MongoRepository<LeaveRequest, St
     // Find by employee name
     List<LeaveRequest> findByEmployeeName(String employeeName);
     
+    // Find by employee key (User ID)
+    List<LeaveRequest> findByEmployeeId(String employeeId);
+    
     // Find by status
     List<LeaveRequest> findByStatus(String status);
     
+    // Find by status, reading only the fields of the HR list rows
+    List<LeaveRequestSummary> findSummariesByStatus(String status);
+    
     // Find by date range
     List<LeaveRequest> findByStartDateBetween(LocalDate startDate, LocalDate endDate);
     
@@ -24,9 +33,11 @@ public interface LeaveRequestRepository extends MongoRepository<LeaveRequest, St
     @Query("{'status': 'Approved', 'startDate': {$lte: ?0}, 'endDate': {$gte: ?0}}")
     List<LeaveRequest> findCurrentlyOnLeave(LocalDate currentDate);
     
-    // Find upcoming approved leaves
-    @Query("{'status': 'Approved', 'startDate': {$gt: ?0}}")
-    List<LeaveRequest> findUpcomingLeaves(LocalDate currentDate);
+    // Find upcoming approved leaves, soonest first, reading only the fields the dashboard card shows
+    @Query(value = "{'status': 'Approved', 'startDate': {$gt: ?0}}",
+           fields = "{'employeeName': 1, 'startDate': 1, 'endDate': 1, 'leaveType': 1, 'status': 1}",
+           sort = "{'startDate': 1}")
+    List<UpcomingLeave> findUpcomingLeaves(LocalDate currentDate, Pageable pageable);
     
     // Count by status
     long countByStatus(String status);
@@ -0,0 +1,21 @@
+package com.leavemanagment.leave_app.repository;
+
+import com.leavemanagment.leave_app.model.OutboundEmail;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OutboundEmailRepository extends MongoRepository<OutboundEmail, String> {
+
+    // Number of emails in a given outbox state
+    long countByStatus(String status);
+
+    // Oldest email in a given state (used for queue age)
+    Optional<OutboundEmail> findFirstByStatusOrderByCreatedAtAsc(String status);
+
+    // Dead-lettered emails, newest first
+    List<OutboundEmail> findTop50ByStatusOrderByCreatedAtDesc(String status);
+}
@@ -3,7 +3,6 @@ package com.leavemanagment.leave_app.service;
 import com.leavemanagment.leave_app.model.LeaveRequest;
 import com.leavemanagment.leave_app.model.User;
 import com.leavemanagment.leave_app.repository.LeaveRequestRepository;
-import com.leavemanagment.leave_app.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -20,7 +19,10 @@ public class AIChatAssistantService {
     private LeaveRequestRepository leaveRequestRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private UserIdentityCache userIdentityCache;
+
+    @Autowired
+    private ApprovedLeaveIndex approvedLeaveIndex;
 
     /**
      * Process AI chat message and return response
@@ -30,7 +32,7 @@ public class AIChatAssistantService {
             String lowerMessage = message.toLowerCase();
             
             // Get user context
-            Optional<User> userOpt = userRepository.findByUsername(username);
+            Optional<User> userOpt = userIdentityCache.findByUsername(username);
             if (!userOpt.isPresent()) {
                 return "I'm sorry, I couldn't find your user profile. Please contact HR.";
             }
@@ -83,7 +85,7 @@ public class AIChatAssistantService {
      */
     private String handleAbsenceQuery(String message, User user) {
         LocalDate today = LocalDate.now();
-        List<LeaveRequest> todayLeaves = leaveRequestRepository.findCurrentlyOnLeave(today);
+        List<LeaveRequest> todayLeaves = approvedLeaveIndex.onLeaveOn(today);
         
         if (todayLeaves.isEmpty()) {
             return "Everyone is present today! 🎉";
@@ -103,7 +105,7 @@ public class AIChatAssistantService {
      */
     private String handleLeaveBalanceQuery(User user) {
         // Calculate leave balance (simplified)
-        List<LeaveRequest> userLeaves = leaveRequestRepository.findByEmployeeName(user.getFullName());
+        List<LeaveRequest> userLeaves = leaveRequestRepository.findByEmployeeId(user.getId());
         long usedLeaves = userLeaves.stream()
                 .filter(leave -> "Approved".equals(leave.getStatus()))
                 .mapToLong(LeaveRequest::getLeaveDuration)
@@ -123,7 +125,7 @@ public class AIChatAssistantService {
      * Get user's leave status
      */
     private String getMyLeaveStatus(User user) {
-        List<LeaveRequest> userLeaves = leaveRequestRepository.findByEmployeeName(user.getFullName());
+        List<LeaveRequest> userLeaves = leaveRequestRepository.findByEmployeeId(user.getId());
         
         if (userLeaves.isEmpty()) {
             return "You haven't submitted any leave requests yet.";
@@ -153,7 +155,7 @@ public class AIChatAssistantService {
      * Get pending leaves for user
      */
     private String getPendingLeaves(User user) {
-        List<LeaveRequest> pendingLeaves = leaveRequestRepository.findByEmployeeName(user.getFullName())
+        List<LeaveRequest> pendingLeaves = leaveRequestRepository.findByEmployeeId(user.getId())
                 .stream()
                 .filter(leave -> "Pending".equals(leave.getStatus()))
                 .collect(Collectors.toList());
@@ -179,7 +181,7 @@ public class AIChatAssistantService {
      * Get approved leaves for user
      */
     private String getApprovedLeaves(User user) {
-        List<LeaveRequest> approvedLeaves = leaveRequestRepository.findByEmployeeName(user.getFullName())
+        List<LeaveRequest> approvedLeaves = leaveRequestRepository.findByEmployeeId(user.getId())
                 .stream()
                 .filter(leave -> "Approved".equals(leave.getStatus()))
                 .collect(Collectors.toList());
@@ -205,7 +207,7 @@ public class AIChatAssistantService {
      * Get rejected leaves for user
      */
     private String getRejectedLeaves(User user) {
-        List<LeaveRequest> rejectedLeaves = leaveRequestRepository.findByEmployeeName(user.getFullName())
+        List<LeaveRequest> rejectedLeaves = leaveRequestRepository.findByEmployeeId(user.getId())
                 .stream()
                 .filter(leave -> "Rejected".equals(leave.getStatus()))
                 .collect(Collectors.toList());
@@ -0,0 +1,134 @@
+package com.leavemanagment.leave_app.service;
+
+import com.leavemanagment.leave_app.model.LeaveRequest;
+import com.leavemanagment.leave_app.model.User;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Cache of AI-generated email bodies.
+ *
+ * Prompts are rendered with {{placeholder}} tokens instead of the per-request values, so the
+ * model returns a template rather than a finished email. That template is compiled once and
+ * cached under the features that actually change the wording (provider, email kind, leave
+ * type, duration bucket and rejection reason); names, dates and the employee's reason are
+ * filled in at render time. A repeated approval therefore skips the model round-trip.
+ */
+@Service
+public class AIEmailCache {
+
+    // Render order of the placeholder values, see render()
+    static final String[] PLACEHOLDERS = {
+            "employeeName", "hrName", "leaveType", "startDate", "endDate", "duration", "reason"
+    };
+
+    @Value("${ai.email.cache.max-size:500}")
+    private int maxSize;
+
+    @Value("${ai.email.cache.ttl-minutes:720}")
+    private long ttlMinutes;
+
+    private BoundedTtlCache<String, EmailTemplate> cache;
+
+    @PostConstruct
+    void init() {
+        cache = new BoundedTtlCache<>(maxSize, ttlMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Token the model is asked to keep verbatim, e.g. {{employeeName}}
+     */
+    public static String placeholder(String name) {
+        return "{{" + name + "}}";
+    }
+
+    /**
+     * Cache key built from the normalized request features
+     */
+    public static String key(String provider, String kind, LeaveRequest leaveRequest, String rejectionReason) {
+        return provider + "|" + kind
+                + "|" + normalize(leaveRequest.getLeaveType())
+                + "|" + durationBucket(leaveRequest.getLeaveDuration())
+                + "|" + normalize(rejectionReason);
+    }
+
+    /**
+     * Render the cached template for this key, or ask the model for a new one.
+     * Completes empty when there is nothing cached and the model gave no answer.
+     */
+    public Mono<String> getOrGenerate(String key, Supplier<Mono<String>> model, LeaveRequest leaveRequest, User employee, User hrUser) {
+        EmailTemplate cached = cache.get(key);
+        if (cached != null) {
+            System.out.println("🧠 AI email cache hit: " + key);
+            return Mono.just(render(cached, leaveRequest, employee, hrUser));
+        }
+
+        return Mono.defer(model).map(generated -> {
+            EmailTemplate template;
+            try {
+                template = EmailTemplate.compileLenient(generated, PLACEHOLDERS);
+            } catch (IllegalArgumentException e) {
+                // The model mangled a placeholder; use this answer once but don't cache it
+                System.err.println("⚠️ AI email not cacheable (" + e.getMessage() + ")");
+                return substitute(generated, leaveRequest, employee, hrUser);
+            }
+            cache.put(key, template);
+            return render(template, leaveRequest, employee, hrUser);
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        return cache.getStats();
+    }
+
+    public void clear() {
+        cache.clear();
+        System.out.println("🧹 AI email cache cleared");
+    }
+
+    private String render(EmailTemplate template, LeaveRequest leaveRequest, User employee, User hrUser) {
+        return template.render(values(leaveRequest, employee, hrUser));
+    }
+
+    private String substitute(String text, LeaveRequest leaveRequest, User employee, User hrUser) {
+        Object[] values = values(leaveRequest, employee, hrUser);
+        for (int i = 0; i < PLACEHOLDERS.length; i++) {
+            text = text.replace(placeholder(PLACEHOLDERS[i]), String.valueOf(values[i]));
+        }
+        return text;
+    }
+
+    private Object[] values(LeaveRequest leaveRequest, User employee, User hrUser) {
+        return new Object[]{
+                employee.getFullName(),
+                hrUser != null ? hrUser.getFullName() : "HR Team",
+                leaveRequest.getLeaveType(),
+                leaveRequest.getStartDate(),
+                leaveRequest.getEndDate(),
+                leaveRequest.getLeaveDuration(),
+                leaveRequest.getReason()
+        };
+    }
+
+    static String durationBucket(long days) {
+        if (days <= 1) return "1";
+        if (days <= 3) return "2-3";
+        if (days <= 5) return "4-5";
+        if (days <= 10) return "6-10";
+        return "11+";
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -2,11 +2,14 @@ package com.leavemanagment.leave_app.service;
 
 import com.leavemanagment.leave_app.model.LeaveRequest;
 import com.leavemanagment.leave_app.model.User;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -19,66 +22,80 @@ public class AIEmailGeneratorService {
     @Value("${openai.api.url:https://api.openai.com/v1/chat/completions}")
     private String openaiApiUrl;
 
+    @Value("${openai.timeout-ms:15000}")
+    private long timeoutMs;
+
+    @Value("${openai.max-concurrent:8}")
+    private int maxConcurrent;
+
+    @Autowired
+    private AIEmailCache aiEmailCache;
+
     private final WebClient webClient;
+    private AsyncCallLimiter openAiLimiter;
 
     public AIEmailGeneratorService(WebClient.Builder webClientBuilder) {
         this.webClient = webClientBuilder.build();
     }
 
+    @PostConstruct
+    void init() {
+        openAiLimiter = new AsyncCallLimiter("OpenAI", maxConcurrent, Duration.ofMillis(timeoutMs));
+    }
+
     /**
      * Generate AI-powered approval email content
      */
-    public String generateApprovalEmail(LeaveRequest leaveRequest, User employee, User hrUser) {
-        try {
-            String prompt = createApprovalPrompt(leaveRequest, employee, hrUser);
-            return callOpenAI(prompt);
-        } catch (Exception e) {
-            System.err.println("❌ Error generating AI approval email: " + e.getMessage());
-            return generateFallbackApprovalEmail(leaveRequest, employee, hrUser);
-        }
+    public Mono<String> generateApprovalEmail(LeaveRequest leaveRequest, User employee, User hrUser) {
+        String key = AIEmailCache.key("openai", "approval", leaveRequest, null);
+        return aiEmailCache.getOrGenerate(key,
+                        () -> callOpenAI(createApprovalPrompt(leaveRequest, employee, hrUser)),
+                        leaveRequest, employee, hrUser)
+                .onErrorResume(e -> {
+                    System.err.println("❌ Error generating AI approval email: " + e.getMessage());
+                    return Mono.just(generateFallbackApprovalEmail(leaveRequest, employee, hrUser));
+                });
     }
 
     /**
      * Generate AI-powered rejection email content
      */
-    public String generateRejectionEmail(LeaveRequest leaveRequest, User employee, User hrUser, String rejectionReason) {
-        try {
-            String prompt = createRejectionPrompt(leaveRequest, employee, hrUser, rejectionReason);
-            return callOpenAI(prompt);
-        } catch (Exception e) {
-            System.err.println("❌ Error generating AI rejection email: " + e.getMessage());
-            return generateFallbackRejectionEmail(leaveRequest, employee, hrUser, rejectionReason);
-        }
+    public Mono<String> generateRejectionEmail(LeaveRequest leaveRequest, User employee, User hrUser, String rejectionReason) {
+        String key = AIEmailCache.key("openai", "rejection", leaveRequest, rejectionReason);
+        return aiEmailCache.getOrGenerate(key,
+                        () -> callOpenAI(createRejectionPrompt(leaveRequest, employee, hrUser, rejectionReason)),
+                        leaveRequest, employee, hrUser)
+                .onErrorResume(e -> {
+                    System.err.println("❌ Error generating AI rejection email: " + e.getMessage());
+                    return Mono.just(generateFallbackRejectionEmail(leaveRequest, employee, hrUser, rejectionReason));
+                });
     }
 
     /**
      * Generate AI-powered reminder email content
      */
-    public String generateReminderEmail(LeaveRequest leaveRequest, User employee) {
-        try {
-            String prompt = createReminderPrompt(leaveRequest, employee);
-            return callOpenAI(prompt);
-        } catch (Exception e) {
-            System.err.println("❌ Error generating AI reminder email: " + e.getMessage());
-            return generateFallbackReminderEmail(leaveRequest, employee);
-        }
+    public Mono<String> generateReminderEmail(LeaveRequest leaveRequest, User employee) {
+        String key = AIEmailCache.key("openai", "reminder", leaveRequest, null);
+        return aiEmailCache.getOrGenerate(key,
+                        () -> callOpenAI(createReminderPrompt(leaveRequest, employee)),
+                        leaveRequest, employee, null)
+                .onErrorResume(e -> {
+                    System.err.println("❌ Error generating AI reminder email: " + e.getMessage());
+                    return Mono.just(generateFallbackReminderEmail(leaveRequest, employee));
+                });
     }
 
-    /**
-     * Create prompt for approval email
-     */
-    private String createApprovalPrompt(LeaveRequest leaveRequest, User employee, User hrUser) {
-        return String.format("""
+    private static final EmailTemplate APPROVAL_PROMPT_TEMPLATE = EmailTemplate.compile("""
             Generate a professional, warm, and personalized email for approving a leave request.
             
             Context:
-            - Employee: %s (%s)
-            - HR Manager: %s
-            - Leave Type: %s
-            - Start Date: %s
-            - End Date: %s
-            - Duration: %d days
-            - Reason: %s
+            - Employee: {{employeeName}}
+            - HR Manager: {{hrName}}
+            - Leave Type: {{leaveType}}
+            - Start Date: {{startDate}}
+            - End Date: {{endDate}}
+            - Duration: {{duration}} days
+            - Reason: {{reason}}
             
             Requirements:
             - Professional but friendly tone
@@ -88,35 +105,40 @@ public class AIEmailGeneratorService {
             - Keep it concise but personal
             - Use appropriate emojis sparingly
             - Sign off as HR team
+            - Keep the placeholders in double curly braces exactly as written; they are filled in later
             
             Format as HTML email body.
-            """, 
-            employee.getFullName(), employee.getEmail(),
-            hrUser.getFullName(),
-            leaveRequest.getLeaveType(),
-            leaveRequest.getStartDate(),
-            leaveRequest.getEndDate(),
-            leaveRequest.getLeaveDuration(),
-            leaveRequest.getReason()
-        );
-    }
+            """,
+            "employeeName", "hrName", "leaveType", "startDate", "endDate", "duration", "reason");
 
     /**
-     * Create prompt for rejection email
+     * Create prompt for approval email
      */
-    private String createRejectionPrompt(LeaveRequest leaveRequest, User employee, User hrUser, String rejectionReason) {
-        return String.format("""
+    private String createApprovalPrompt(LeaveRequest leaveRequest, User employee, User hrUser) {
+        // Per-request values stay as placeholders so the answer can be cached, see AIEmailCache
+        return APPROVAL_PROMPT_TEMPLATE.render(
+            AIEmailCache.placeholder("employeeName"),
+            AIEmailCache.placeholder("hrName"),
+            AIEmailCache.placeholder("leaveType"),
+            AIEmailCache.placeholder("startDate"),
+            AIEmailCache.placeholder("endDate"),
+            AIEmailCache.placeholder("duration"),
+            AIEmailCache.placeholder("reason")
+        );
+    }
+
+    private static final EmailTemplate REJECTION_PROMPT_TEMPLATE = EmailTemplate.compile("""
             Generate a professional, empathetic email for rejecting a leave request.
             
             Context:
-            - Employee: %s (%s)
-            - HR Manager: %s
-            - Leave Type: %s
-            - Start Date: %s
-            - End Date: %s
-            - Duration: %d days
-            - Employee's Reason: %s
-            - Rejection Reason: %s
+            - Employee: {{employeeName}}
+            - HR Manager: {{hrName}}
+            - Leave Type: {{leaveType}}
+            - Start Date: {{startDate}}
+            - End Date: {{endDate}}
+            - Duration: {{duration}} days
+            - Employee's Reason: {{reason}}
+            - Rejection Reason: {{rejectionReason}}
             
             Requirements:
             - Empathetic and understanding tone
@@ -126,33 +148,37 @@ public class AIEmailGeneratorService {
             - Maintain positive relationship
             - Be respectful and professional
             - Sign off as HR team
+            - Keep the placeholders in double curly braces exactly as written; they are filled in later
             
             Format as HTML email body.
-            """, 
-            employee.getFullName(), employee.getEmail(),
-            hrUser.getFullName(),
-            leaveRequest.getLeaveType(),
-            leaveRequest.getStartDate(),
-            leaveRequest.getEndDate(),
-            leaveRequest.getLeaveDuration(),
-            leaveRequest.getReason(),
+            """,
+            "employeeName", "hrName", "leaveType", "startDate", "endDate", "duration", "reason", "rejectionReason");
+
+    /**
+     * Create prompt for rejection email
+     */
+    private String createRejectionPrompt(LeaveRequest leaveRequest, User employee, User hrUser, String rejectionReason) {
+        return REJECTION_PROMPT_TEMPLATE.render(
+            AIEmailCache.placeholder("employeeName"),
+            AIEmailCache.placeholder("hrName"),
+            AIEmailCache.placeholder("leaveType"),
+            AIEmailCache.placeholder("startDate"),
+            AIEmailCache.placeholder("endDate"),
+            AIEmailCache.placeholder("duration"),
+            AIEmailCache.placeholder("reason"),
             rejectionReason != null ? rejectionReason : "Not specified"
         );
     }
 
-    /**
-     * Create prompt for reminder email
-     */
-    private String createReminderPrompt(LeaveRequest leaveRequest, User employee) {
-        return String.format("""
+    private static final EmailTemplate REMINDER_PROMPT_TEMPLATE = EmailTemplate.compile("""
             Generate a friendly reminder email for upcoming approved leave.
             
             Context:
-            - Employee: %s
-            - Leave Type: %s
-            - Start Date: %s
-            - End Date: %s
-            - Duration: %d days
+            - Employee: {{employeeName}}
+            - Leave Type: {{leaveType}}
+            - Start Date: {{startDate}}
+            - End Date: {{endDate}}
+            - Duration: {{duration}} days
             
             Requirements:
             - Friendly and helpful tone
@@ -161,82 +187,88 @@ public class AIEmailGeneratorService {
             - Mention handover responsibilities
             - Wish them well
             - Keep it brief and actionable
+            - Keep the placeholders in double curly braces exactly as written; they are filled in later
             
             Format as HTML email body.
-            """, 
-            employee.getFullName(),
-            leaveRequest.getLeaveType(),
-            leaveRequest.getStartDate(),
-            leaveRequest.getEndDate(),
-            leaveRequest.getLeaveDuration()
+            """,
+            "employeeName", "leaveType", "startDate", "endDate", "duration");
+
+    /**
+     * Create prompt for reminder email
+     */
+    private String createReminderPrompt(LeaveRequest leaveRequest, User employee) {
+        return REMINDER_PROMPT_TEMPLATE.render(
+            AIEmailCache.placeholder("employeeName"),
+            AIEmailCache.placeholder("leaveType"),
+            AIEmailCache.placeholder("startDate"),
+            AIEmailCache.placeholder("endDate"),
+            AIEmailCache.placeholder("duration")
         );
     }
 
     /**
-     * Call OpenAI API to generate email content
+     * Call OpenAI API to generate email content; completes empty when the API is unavailable
      */
-    private String callOpenAI(String prompt) {
-        try {
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("model", "gpt-3.5-turbo");
-            requestBody.put("messages", new Object[]{
-                Map.of("role", "user", "content", prompt)
-            });
-            requestBody.put("max_tokens", 500);
-            requestBody.put("temperature", 0.7);
+    private Mono<String> callOpenAI(String prompt) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", "gpt-3.5-turbo");
+        requestBody.put("messages", new Object[]{
+            Map.of("role", "user", "content", prompt)
+        });
+        requestBody.put("max_tokens", 500);
+        requestBody.put("temperature", 0.7);
 
-            String response = webClient.post()
-                    .uri(openaiApiUrl)
-                    .header("Authorization", "Bearer " + openaiApiKey)
-                    .header("Content-Type", "application/json")
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
+        return openAiLimiter.call(() -> webClient.post()
+                .uri(openaiApiUrl)
+                .header("Authorization", "Bearer " + openaiApiKey)
+                .header("Content-Type", "application/json")
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToMono(String.class))
+                .flatMap(response -> Mono.justOrEmpty(extractContent(response)));
+    }
 
-            // Parse the response and extract the generated content
-            // This is a simplified version - you might want to use a JSON library
-            if (response != null && response.contains("content")) {
-                int start = response.indexOf("\"content\":\"") + 11;
-                int end = response.indexOf("\"", start);
-                if (start > 10 && end > start) {
-                    return response.substring(start, end)
-                            .replace("\\n", "\n")
-                            .replace("\\\"", "\"");
-                }
+    /**
+     * Pull the generated content out of the OpenAI response
+     */
+    private String extractContent(String response) {
+        // This is a simplified version - you might want to use a JSON library
+        if (response.contains("content")) {
+            int start = response.indexOf("\"content\":\"") + 11;
+            int end = response.indexOf("\"", start);
+            if (start > 10 && end > start) {
+                return response.substring(start, end)
+                        .replace("\\n", "\n")
+                        .replace("\\\"", "\"");
             }
+        }
 
-            System.err.println("❌ Unexpected OpenAI response format");
-            return null;
+        System.err.println("❌ Unexpected OpenAI response format");
+        return null;
+    }
 
-        } catch (Exception e) {
-            System.err.println("❌ Error calling OpenAI API: " + e.getMessage());
-            return null;
-        }
+    public Map<String, Object> getCallStats() {
+        return openAiLimiter.getStats();
     }
 
-    /**
-     * Fallback approval email template
-     */
-    private String generateFallbackApprovalEmail(LeaveRequest leaveRequest, User employee, User hrUser) {
-        return String.format("""
+    private static final EmailTemplate FALLBACK_APPROVAL_EMAIL_TEMPLATE = EmailTemplate.compile("""
             <html>
             <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
                 <div style="max-width: 600px; margin: 0 auto; padding: 20px;">
                     <h2 style="color: #28a745;">✅ Leave Request Approved</h2>
                     
-                    <p>Dear %s,</p>
+                    <p>Dear {{employeeName}},</p>
                     
                     <p>Great news! Your leave request has been <strong>approved</strong>.</p>
                     
                     <div style="background-color: #f8f9fa; padding: 15px; border-radius: 5px; margin: 20px 0;">
                         <h3 style="margin-top: 0; color: #495057;">📅 Leave Details:</h3>
                         <ul style="list-style: none; padding: 0;">
-                            <li><strong>Type:</strong> %s</li>
-                            <li><strong>Start Date:</strong> %s</li>
-                            <li><strong>End Date:</strong> %s</li>
-                            <li><strong>Duration:</strong> %d days</li>
-                            <li><strong>Reason:</strong> %s</li>
+                            <li><strong>Type:</strong> {{leaveType}}</li>
+                            <li><strong>Start Date:</strong> {{startDate}}</li>
+                            <li><strong>End Date:</strong> {{endDate}}</li>
+                            <li><strong>Duration:</strong> {{duration}} days</li>
+                            <li><strong>Reason:</strong> {{reason}}</li>
                         </ul>
                     </div>
                     
@@ -251,12 +283,19 @@ public class AIEmailGeneratorService {
                     <p>Have a wonderful time off! 🌟</p>
                     
                     <p>Best regards,<br>
-                    <strong>%s</strong><br>
+                    <strong>{{hrName}}</strong><br>
                     HR Team</p>
                 </div>
             </body>
             </html>
             """,
+            "employeeName", "leaveType", "startDate", "endDate", "duration", "reason", "hrName");
+
+    /**
+     * Fallback approval email template
+     */
+    private String generateFallbackApprovalEmail(LeaveRequest leaveRequest, User employee, User hrUser) {
+        return FALLBACK_APPROVAL_EMAIL_TEMPLATE.render(
             employee.getFullName(),
             leaveRequest.getLeaveType(),
             leaveRequest.getStartDate(),
@@ -267,34 +306,30 @@ public class AIEmailGeneratorService {
         );
     }
 
-    /**
-     * Fallback rejection email template
-     */
-    private String generateFallbackRejectionEmail(LeaveRequest leaveRequest, User employee, User hrUser, String rejectionReason) {
-        return String.format("""
+    private static final EmailTemplate FALLBACK_REJECTION_EMAIL_TEMPLATE = EmailTemplate.compile("""
             <html>
             <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
                 <div style="max-width: 600px; margin: 0 auto; padding: 20px;">
                     <h2 style="color: #dc3545;">❌ Leave Request Update</h2>
                     
-                    <p>Dear %s,</p>
+                    <p>Dear {{employeeName}},</p>
                     
                     <p>Thank you for submitting your leave request. After careful consideration, we regret to inform you that your request has been <strong>declined</strong>.</p>
                     
                     <div style="background-color: #f8f9fa; padding: 15px; border-radius: 5px; margin: 20px 0;">
                         <h3 style="margin-top: 0; color: #495057;">📅 Leave Details:</h3>
                         <ul style="list-style: none; padding: 0;">
-                            <li><strong>Type:</strong> %s</li>
-                            <li><strong>Start Date:</strong> %s</li>
-                            <li><strong>End Date:</strong> %s</li>
-                            <li><strong>Duration:</strong> %d days</li>
-                            <li><strong>Your Reason:</strong> %s</li>
+                            <li><strong>Type:</strong> {{leaveType}}</li>
+                            <li><strong>Start Date:</strong> {{startDate}}</li>
+                            <li><strong>End Date:</strong> {{endDate}}</li>
+                            <li><strong>Duration:</strong> {{duration}} days</li>
+                            <li><strong>Your Reason:</strong> {{reason}}</li>
                         </ul>
                     </div>
                     
                     <div style="background-color: #fff3cd; padding: 15px; border-radius: 5px; border-left: 4px solid #ffc107;">
                         <h4 style="margin-top: 0; color: #856404;">📋 Reason for Decline:</h4>
-                        <p style="margin-bottom: 0;">%s</p>
+                        <p style="margin-bottom: 0;">{{rejectionReason}}</p>
                     </div>
                     
                     <p><strong>Next Steps:</strong></p>
@@ -307,12 +342,19 @@ public class AIEmailGeneratorService {
                     <p>We appreciate your understanding and look forward to working with you on finding a suitable solution.</p>
                     
                     <p>Best regards,<br>
-                    <strong>%s</strong><br>
+                    <strong>{{hrName}}</strong><br>
                     HR Team</p>
                 </div>
             </body>
             </html>
             """,
+            "employeeName", "leaveType", "startDate", "endDate", "duration", "reason", "rejectionReason", "hrName");
+
+    /**
+     * Fallback rejection email template
+     */
+    private String generateFallbackRejectionEmail(LeaveRequest leaveRequest, User employee, User hrUser, String rejectionReason) {
+        return FALLBACK_REJECTION_EMAIL_TEMPLATE.render(
             employee.getFullName(),
             leaveRequest.getLeaveType(),
             leaveRequest.getStartDate(),
@@ -324,27 +366,23 @@ public class AIEmailGeneratorService {
         );
     }
 
-    /**
-     * Fallback reminder email template
-     */
-    private String generateFallbackReminderEmail(LeaveRequest leaveRequest, User employee) {
-        return String.format("""
+    private static final EmailTemplate FALLBACK_REMINDER_EMAIL_TEMPLATE = EmailTemplate.compile("""
             <html>
             <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
                 <div style="max-width: 600px; margin: 0 auto; padding: 20px;">
                     <h2 style="color: #17a2b8;">🔔 Leave Reminder</h2>
                     
-                    <p>Dear %s,</p>
+                    <p>Dear {{employeeName}},</p>
                     
                     <p>This is a friendly reminder about your upcoming approved leave.</p>
                     
                     <div style="background-color: #e7f3ff; padding: 15px; border-radius: 5px; margin: 20px 0;">
                         <h3 style="margin-top: 0; color: #0c5460;">📅 Leave Details:</h3>
                         <ul style="list-style: none; padding: 0;">
-                            <li><strong>Type:</strong> %s</li>
-                            <li><strong>Start Date:</strong> %s</li>
-                            <li><strong>End Date:</strong> %s</li>
-                            <li><strong>Duration:</strong> %d days</li>
+                            <li><strong>Type:</strong> {{leaveType}}</li>
+                            <li><strong>Start Date:</strong> {{startDate}}</li>
+                            <li><strong>End Date:</strong> {{endDate}}</li>
+                            <li><strong>Duration:</strong> {{duration}} days</li>
                         </ul>
                     </div>
                     
@@ -365,6 +403,13 @@ public class AIEmailGeneratorService {
             </body>
             </html>
             """,
+            "employeeName", "leaveType", "startDate", "endDate", "duration");
+
+    /**
+     * Fallback reminder email template
+     */
+    private String generateFallbackReminderEmail(LeaveRequest leaveRequest, User employee) {
+        return FALLBACK_REMINDER_EMAIL_TEMPLATE.render(
             employee.getFullName(),
             leaveRequest.getLeaveType(),
             leaveRequest.getStartDate(),
@@ -2,12 +2,15 @@ package com.leavemanagment.leave_app.service;
 
 import com.leavemanagment.leave_app.model.LeaveRequest;
 import com.leavemanagment.leave_app.model.User;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
@@ -21,12 +24,27 @@ public class AINotificationService {
     @Value("${n8n.api.key:}")
     private String n8nApiKey;
 
+    @Value("${n8n.timeout-ms:5000}")
+    private long timeoutMs;
+
+    @Value("${n8n.max-concurrent:32}")
+    private int maxConcurrent;
+
     @Autowired
     private WebClient.Builder webClientBuilder;
     
     @Autowired
     private EmailService emailService;
 
+    private WebClient webClient;
+    private AsyncCallLimiter n8nLimiter;
+
+    @PostConstruct
+    void init() {
+        webClient = webClientBuilder.build();
+        n8nLimiter = new AsyncCallLimiter("N8N webhook", maxConcurrent, Duration.ofMillis(timeoutMs));
+    }
+
     /**
      * Send AI-powered notification when leave is approved
      */
@@ -48,13 +66,12 @@ public class AINotificationService {
             notificationData.put("priority", "high");
             notificationData.put("action", "APPROVED");
 
-            // Send to N8N webhook
-            boolean n8nSuccess = sendToN8N(notificationData);
-            
-            // Fallback to direct email if N8N fails
-            if (!n8nSuccess) {
-                emailService.sendLeaveApprovedEmail(leaveRequest, employee);
-            }
+            // Send to N8N webhook without waiting; fall back to direct email if N8N fails
+            sendToN8N(notificationData)
+                    .filter(delivered -> !delivered)
+                    .publishOn(Schedulers.boundedElastic())
+                    .subscribe(failed -> emailService.sendLeaveApprovedEmail(leaveRequest, employee),
+                            e -> System.err.println("❌ Error sending fallback email: " + e.getMessage()));
             
             System.out.println("🤖 AI Notification: Leave approved for " + employee.getFullName());
         } catch (Exception e) {
@@ -84,13 +101,12 @@ public class AINotificationService {
             notificationData.put("priority", "high");
             notificationData.put("action", "REJECTED");
 
-            // Send to N8N webhook
-            boolean n8nSuccess = sendToN8N(notificationData);
-            
-            // Fallback to direct email if N8N fails
-            if (!n8nSuccess) {
-                emailService.sendLeaveRejectedEmail(leaveRequest, employee, rejectionReason);
-            }
+            // Send to N8N webhook without waiting; fall back to direct email if N8N fails
+            sendToN8N(notificationData)
+                    .filter(delivered -> !delivered)
+                    .publishOn(Schedulers.boundedElastic())
+                    .subscribe(failed -> emailService.sendLeaveRejectedEmail(leaveRequest, employee, rejectionReason),
+                            e -> System.err.println("❌ Error sending fallback email: " + e.getMessage()));
             
             System.out.println("🤖 AI Notification: Leave rejected for " + employee.getFullName());
         } catch (Exception e) {
@@ -114,7 +130,7 @@ public class AINotificationService {
             notificationData.put("channels", new String[]{"email"});
 
             // Send to N8N webhook
-            sendToN8N(notificationData);
+            sendToN8N(notificationData).subscribe();
             
             System.out.println("🤖 AI Notification: Leave reminder for " + employee.getFullName());
         } catch (Exception e) {
@@ -123,56 +139,40 @@ public class AINotificationService {
     }
 
     /**
-     * Send notification to N8N webhook
+     * Send notification to N8N webhook; emits false when the webhook failed, timed out or was too busy
      */
-    private boolean sendToN8N(Map<String, Object> data) {
-        try {
-            WebClient webClient = webClientBuilder.build();
-            
-            String response = webClient.post()
-                    .uri(n8nWebhookUrl)
-                    .header("Content-Type", "application/json")
-                    .header("X-N8N-API-Key", n8nApiKey)
-                    .bodyValue(data)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-            
-            System.out.println("✅ N8N webhook response: " + response);
-            return true;
-            
-        } catch (Exception e) {
-            System.err.println("❌ N8N webhook error: " + e.getMessage());
-            return false;
-        }
+    private Mono<Boolean> sendToN8N(Map<String, Object> data) {
+        return n8nLimiter.call(() -> webClient.post()
+                .uri(n8nWebhookUrl)
+                .header("Content-Type", "application/json")
+                .header("X-N8N-API-Key", n8nApiKey)
+                .bodyValue(data)
+                .retrieve()
+                .bodyToMono(String.class)
+                .defaultIfEmpty(""))
+                .map(response -> {
+                    System.out.println("✅ N8N webhook response: " + response);
+                    return true;
+                })
+                .defaultIfEmpty(false);
     }
 
     /**
      * Test N8N connection
      */
     public boolean testN8NConnection() {
-        try {
-            Map<String, Object> testData = new HashMap<>();
-            testData.put("type", "TEST");
-            testData.put("message", "Testing N8N connection");
-            testData.put("timestamp", LocalDateTime.now());
+        Map<String, Object> testData = new HashMap<>();
+        testData.put("type", "TEST");
+        testData.put("message", "Testing N8N connection");
+        testData.put("timestamp", LocalDateTime.now());
+
+        // Diagnostic endpoint: the caller wants the answer, so this one waits (bounded by the timeout)
+        boolean connected = Boolean.TRUE.equals(sendToN8N(testData).block());
+        System.out.println(connected ? "✅ N8N connection test successful" : "❌ N8N connection test failed");
+        return connected;
+    }
 
-            WebClient webClient = webClientBuilder.build();
-            
-            String response = webClient.post()
-                    .uri(n8nWebhookUrl)
-                    .header("Content-Type", "application/json")
-                    .header("X-N8N-API-Key", n8nApiKey)
-                    .bodyValue(testData)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            System.out.println("✅ N8N connection test successful: " + response);
-            return true;
-        } catch (Exception e) {
-            System.err.println("❌ N8N connection test failed: " + e.getMessage());
-            return false;
-        }
+    public Map<String, Object> getCallStats() {
+        return n8nLimiter.getStats();
     }
-} 
\ No newline at end of file
+}
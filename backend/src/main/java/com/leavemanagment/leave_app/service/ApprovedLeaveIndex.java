@@ -0,0 +1,175 @@
+package com.leavemanagment.leave_app.service;
+
+import com.leavemanagment.leave_app.event.EmployeeKeysBackfilledEvent;
+import com.leavemanagment.leave_app.event.LeaveRequestChangedEvent;
+import com.leavemanagment.leave_app.event.LeaveRequestsChangedEvent;
+import com.leavemanagment.leave_app.model.LeaveRequest;
+import com.leavemanagment.leave_app.repository.LeaveRequestRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory index of approved leaves answering "who is on leave on D", "who is away
+ * between A and B" and "next N upcoming" without a MongoDB round-trip.
+ *
+ * The index is an immutable LeaveIntervalSet swapped on every change (approvals, rejections,
+ * edits and deletions arrive as LeaveRequestChangedEvent), so readers never lock. It is
+ * rebuilt from leave_requests at startup and on demand; verify() compares it with the
+ * repository queries it replaces.
+ */
+@Service
+public class ApprovedLeaveIndex {
+
+    private static final String APPROVED = "Approved";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private LeaveRequestRepository leaveRequestRepository;
+
+    private volatile LeaveIntervalSet leaves = LeaveIntervalSet.EMPTY;
+    private volatile LocalDateTime builtAt;
+
+    private final AtomicLong updates = new AtomicLong();
+
+    // After the employee key backfill, so indexed leaves carry their employeeId
+    @Order(2)
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuild();
+    }
+
+    // Reload the approved leaves with their new employee keys
+    @EventListener
+    public void onEmployeeKeysBackfilled(EmployeeKeysBackfilledEvent event) {
+        if (event.isLeaveRequestsChanged()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Reload every approved leave from MongoDB
+     */
+    public synchronized Map<String, Object> rebuild() {
+        Query query = Query.query(Criteria.where("status").is(APPROVED));
+        query.fields().include("employeeName", "employeeId", "startDate", "endDate", "leaveType", "reason", "status");
+        leaves = LeaveIntervalSet.of(mongoTemplate.find(query, LeaveRequest.class));
+        builtAt = LocalDateTime.now();
+        System.out.println("📅 Approved leave index built: " + leaves.size() + " leaves");
+        return getStats();
+    }
+
+    @EventListener
+    public synchronized void onLeaveRequestChanged(LeaveRequestChangedEvent event) {
+        LeaveRequest current = event.getCurrent();
+        boolean approved = current != null && APPROVED.equals(current.getStatus());
+        boolean wasApproved = event.getPrevious() != null && APPROVED.equals(event.getPrevious().getStatus());
+        if (!approved && !wasApproved) {
+            return;
+        }
+        // Snapshot, so later changes to the caller's object don't leak into the index
+        leaves = leaves.replace(wasApproved ? event.getPrevious() : null, approved ? new LeaveRequest(current) : null);
+        updates.incrementAndGet();
+    }
+
+    /**
+     * A batch of changes merged into the index in one pass
+     */
+    @EventListener
+    public synchronized void onLeaveRequestsChanged(LeaveRequestsChangedEvent event) {
+        List<String> removed = new ArrayList<>();
+        List<LeaveRequest> added = new ArrayList<>();
+        for (LeaveRequestChangedEvent change : event.getChanges()) {
+            if (change.getPrevious() != null && APPROVED.equals(change.getPrevious().getStatus())) {
+                removed.add(change.getPrevious().getId());
+            }
+            if (change.getCurrent() != null && APPROVED.equals(change.getCurrent().getStatus())) {
+                added.add(new LeaveRequest(change.getCurrent()));
+            }
+        }
+        if (removed.isEmpty() && added.isEmpty()) {
+            return;
+        }
+        leaves = leaves.apply(removed, added);
+        updates.addAndGet(event.getChanges().size());
+    }
+
+    /**
+     * Approved leaves covering the date
+     */
+    public List<LeaveRequest> onLeaveOn(LocalDate date) {
+        return leaves.onLeaveOn(date);
+    }
+
+    /**
+     * Approved leaves sharing at least one day with [from, to]
+     */
+    public List<LeaveRequest> overlapping(LocalDate from, LocalDate to) {
+        return leaves.overlapping(from, to);
+    }
+
+    /**
+     * The next approved leaves starting after the date, soonest first
+     */
+    public List<LeaveRequest> upcoming(LocalDate after, int limit) {
+        return leaves.startingAfter(after, limit);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("approvedLeaves", leaves.size());
+        stats.put("builtAt", builtAt);
+        stats.put("updatesSinceBuild", updates.get());
+        return stats;
+    }
+
+    /**
+     * Compare today's answers with the MongoDB queries they replace
+     */
+    public Map<String, Object> verify() {
+        LocalDate today = LocalDate.now();
+        List<String> indexedOnLeave = ids(onLeaveOn(today));
+        List<String> storedOnLeave = ids(leaveRequestRepository.findCurrentlyOnLeave(today));
+        // Upcoming rows are projections without an id; ties on startDate may come back in any order
+        List<String> indexedUpcoming = upcoming(today, 5).stream()
+                .map(leave -> leave.getEmployeeName() + "|" + leave.getStartDate())
+                .sorted().collect(Collectors.toList());
+        List<String> storedUpcoming = leaveRequestRepository.findUpcomingLeaves(today, PageRequest.of(0, 5)).stream()
+                .map(leave -> leave.employeeName() + "|" + leave.startDate())
+                .sorted().collect(Collectors.toList());
+
+        boolean onLeaveMatches = indexedOnLeave.stream().sorted().toList().equals(storedOnLeave.stream().sorted().toList());
+        boolean upcomingMatches = indexedUpcoming.equals(storedUpcoming);
+
+        Map<String, Object> report = getStats();
+        report.put("onLeaveTodayMatches", onLeaveMatches);
+        report.put("upcomingMatches", upcomingMatches);
+        report.put("onLeaveToday", indexedOnLeave.size());
+        report.put("upcoming", indexedUpcoming.size());
+        if (!onLeaveMatches || !upcomingMatches) {
+            System.err.println("⚠️ Approved leave index differs from MongoDB, rebuild with POST /api/dashboard/hr/leave-index");
+        }
+        return report;
+    }
+
+    private static List<String> ids(List<LeaveRequest> leaves) {
+        return leaves.stream().map(LeaveRequest::getId).collect(Collectors.toList());
+    }
+}
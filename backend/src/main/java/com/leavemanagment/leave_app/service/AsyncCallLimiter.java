@@ -0,0 +1,89 @@
+package com.leavemanagment.leave_app.service;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Guards calls to a slow external service (LLM, n8n) made through the reactive WebClient.
+ *
+ * At most maxConcurrent calls are in flight; a call that finds no free permit is not queued
+ * but completes empty straight away, as does a call that times out or fails. Callers compose
+ * their fallback with switchIfEmpty(), so no thread ever waits on the remote service.
+ */
+public class AsyncCallLimiter {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final Duration timeout;
+    private final Semaphore permits;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public AsyncCallLimiter(String name, int maxConcurrent, Duration timeout) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.timeout = timeout;
+        this.permits = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * Subscribe to the call if a permit is free; empty on rejection, timeout or error
+     */
+    public <T> Mono<T> call(Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            calls.incrementAndGet();
+            if (!permits.tryAcquire()) {
+                rejected.incrementAndGet();
+                System.err.println("⚠️ " + name + " busy (" + maxConcurrent + " calls in flight), using fallback");
+                return Mono.<T>empty();
+            }
+            // Release before the result reaches the caller, so the next call can already use the permit
+            AtomicBoolean released = new AtomicBoolean();
+            Runnable release = () -> {
+                if (released.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            };
+            return Mono.defer(call)
+                    .timeout(timeout)
+                    .doOnTerminate(release)
+                    .doOnCancel(release)
+                    .doOnNext(value -> succeeded.incrementAndGet())
+                    .onErrorResume(e -> {
+                        if (e instanceof TimeoutException) {
+                            timedOut.incrementAndGet();
+                            System.err.println("⏱️ " + name + " timed out after " + timeout.toMillis() + "ms");
+                        } else {
+                            failed.incrementAndGet();
+                            System.err.println("❌ " + name + " call failed: " + e.getMessage());
+                        }
+                        return Mono.empty();
+                    });
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("maxConcurrent", maxConcurrent);
+        stats.put("inFlight", maxConcurrent - permits.availablePermits());
+        stats.put("timeoutMs", timeout.toMillis());
+        stats.put("calls", calls.get());
+        stats.put("succeeded", succeeded.get());
+        stats.put("rejected", rejected.get());
+        stats.put("timedOut", timedOut.get());
+        stats.put("failed", failed.get());
+        return stats;
+    }
+}
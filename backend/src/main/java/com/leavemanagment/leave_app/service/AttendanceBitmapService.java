@@ -0,0 +1,334 @@
+package com.leavemanagment.leave_app.service;
+
+import com.leavemanagment.leave_app.event.EmployeeKeysBackfilledEvent;
+import com.leavemanagment.leave_app.event.LeaveRequestChangedEvent;
+import com.leavemanagment.leave_app.event.LeaveRequestsChangedEvent;
+import com.leavemanagment.leave_app.model.LateAttendance;
+import com.leavemanagment.leave_app.model.LeaveRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Late days and approved leave days per employee key and year, as YearDayBitmaps next to the
+ * late_attendance and leave_requests collections: "was X late on D", late or leave days in a
+ * range and late streaks are answered from memory with bit operations instead of document scans.
+ *
+ * Built from MongoDB at startup and on demand, then kept current by LateAttendanceService,
+ * the late attendance import and LeaveRequestChangedEvents. Records without an employee key
+ * are left out until the key backfill has run.
+ */
+@Service
+public class AttendanceBitmapService {
+
+    private static final String APPROVED = "Approved";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ApprovedLeaveIndex approvedLeaveIndex;
+
+    // employeeId:year -> days. rebuild() swaps in freshly built maps, so readers never see a
+    // half-loaded one; updates change the current maps in place
+    private volatile Map<String, YearDayBitmap> lateDays = new ConcurrentHashMap<>();
+    private volatile Map<String, YearDayBitmap> leaveDays = new ConcurrentHashMap<>();
+    private final Map<Integer, YearDayBitmap> weekends = new ConcurrentHashMap<>();
+    // Latest name seen on a late record, for the streak report
+    private volatile Map<String, String> employeeNames = new ConcurrentHashMap<>();
+
+    private volatile LocalDateTime builtAt;
+
+    // After the employee key backfill, so records carry their employeeId
+    @Order(2)
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            System.err.println("❌ Error building attendance bitmaps: " + e.getMessage());
+        }
+    }
+
+    // Records that just got a key now belong to that employee's bitmaps
+    @EventListener
+    public void onEmployeeKeysBackfilled(EmployeeKeysBackfilledEvent event) {
+        if (event.isLeaveRequestsChanged() || event.isLateAttendanceChanged()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Reload late days and approved leave days from MongoDB
+     */
+    public synchronized Map<String, Object> rebuild() {
+        Map<String, YearDayBitmap> late = new ConcurrentHashMap<>();
+        Map<String, String> names = new ConcurrentHashMap<>();
+        Query lateQuery = Query.query(Criteria.where("employeeId").exists(true));
+        lateQuery.fields().include("employeeName", "employeeId", "date");
+        try (Stream<LateAttendance> records = mongoTemplate.stream(lateQuery, LateAttendance.class)) {
+            records.filter(AttendanceBitmapService::keyed).forEach(record -> {
+                LocalDate date = record.getDate();
+                late.compute(key(record.getEmployeeId(), date.getYear()), (key, days) ->
+                        (days != null ? days : YearDayBitmap.empty(date.getYear())).with(date));
+                if (record.getEmployeeName() != null) {
+                    names.put(record.getEmployeeId(), record.getEmployeeName());
+                }
+            });
+        }
+
+        Map<String, YearDayBitmap> leave = new ConcurrentHashMap<>();
+        Query leaveQuery = Query.query(Criteria.where("status").is(APPROVED).and("employeeId").exists(true));
+        leaveQuery.fields().include("employeeId", "startDate", "endDate");
+        for (LeaveRequest request : mongoTemplate.find(leaveQuery, LeaveRequest.class)) {
+            addLeave(leave, request);
+        }
+
+        lateDays = late;
+        leaveDays = leave;
+        employeeNames = names;
+        builtAt = LocalDateTime.now();
+        System.out.println("🧮 Attendance bitmaps built: " + late.size() + " late and " + leave.size() + " leave employee-years");
+        return getStats();
+    }
+
+    // ========== UPDATES ==========
+
+    public synchronized void onLateMarked(LateAttendance record) {
+        if (!keyed(record)) {
+            return;
+        }
+        lateDays.compute(key(record.getEmployeeId(), record.getDate().getYear()), (key, days) ->
+                (days != null ? days : YearDayBitmap.empty(record.getDate().getYear())).with(record.getDate()));
+        if (record.getEmployeeName() != null) {
+            employeeNames.put(record.getEmployeeId(), record.getEmployeeName());
+        }
+    }
+
+    public void onLateMarked(Collection<LateAttendance> records) {
+        records.forEach(this::onLateMarked);
+    }
+
+    public synchronized void onLateDeleted(LateAttendance record) {
+        if (!keyed(record)) {
+            return;
+        }
+        lateDays.computeIfPresent(key(record.getEmployeeId(), record.getDate().getYear()), (key, days) -> {
+            YearDayBitmap remaining = days.without(record.getDate());
+            return remaining.cardinality() > 0 ? remaining : null;
+        });
+    }
+
+    @EventListener
+    public void onLeaveRequestChanged(LeaveRequestChangedEvent event) {
+        onLeaveRequestsChanged(new LeaveRequestsChangedEvent(List.of(event)));
+    }
+
+    @EventListener
+    public synchronized void onLeaveRequestsChanged(LeaveRequestsChangedEvent event) {
+        List<LeaveRequest> removed = new ArrayList<>();
+        List<LeaveRequest> added = new ArrayList<>();
+        Set<String> changedIds = new HashSet<>();
+        for (LeaveRequestChangedEvent change : event.getChanges()) {
+            LeaveRequest previous = change.getPrevious();
+            LeaveRequest current = change.getCurrent();
+            if (previous != null && APPROVED.equals(previous.getStatus()) && previous.getEmployeeId() != null) {
+                removed.add(previous);
+                changedIds.add(previous.getId());
+            }
+            if (current != null && APPROVED.equals(current.getStatus()) && current.getEmployeeId() != null) {
+                added.add(current);
+                changedIds.add(current.getId());
+            }
+        }
+        removeLeaves(removed, changedIds);
+        added.forEach(leave -> addLeave(leaveDays, leave));
+    }
+
+    private static void addLeave(Map<String, YearDayBitmap> leave, LeaveRequest request) {
+        if (request.getStartDate() == null || request.getEndDate() == null) {
+            return;
+        }
+        for (int year = request.getStartDate().getYear(); year <= request.getEndDate().getYear(); year++) {
+            int y = year;
+            leave.compute(key(request.getEmployeeId(), year), (key, days) ->
+                    (days != null ? days : YearDayBitmap.empty(y)).withRange(request.getStartDate(), request.getEndDate()));
+        }
+    }
+
+    /**
+     * Take leaves' days out again: each affected employee's leave days in those years are
+     * recomputed from the employee's other approved leaves, so days shared with an overlapping
+     * leave stay. Leaves changed in the same batch are skipped whether or not the index has
+     * applied the batch yet; their current versions are added back afterwards.
+     */
+    private void removeLeaves(List<LeaveRequest> removed, Set<String> changedIds) {
+        Map<Integer, Set<String>> employeesByYear = new TreeMap<>();
+        for (LeaveRequest leave : removed) {
+            if (leave.getStartDate() == null || leave.getEndDate() == null) {
+                continue;
+            }
+            for (int year = leave.getStartDate().getYear(); year <= leave.getEndDate().getYear(); year++) {
+                employeesByYear.computeIfAbsent(year, key -> new HashSet<>()).add(leave.getEmployeeId());
+            }
+        }
+
+        employeesByYear.forEach((year, employees) -> {
+            LocalDate yearStart = LocalDate.of(year, 1, 1);
+            Map<String, YearDayBitmap> days = new HashMap<>();
+            for (LeaveRequest other : approvedLeaveIndex.overlapping(yearStart, yearStart.plusYears(1).minusDays(1))) {
+                if (employees.contains(other.getEmployeeId()) && !changedIds.contains(other.getId())) {
+                    days.put(other.getEmployeeId(), days.getOrDefault(other.getEmployeeId(), YearDayBitmap.empty(year))
+                            .withRange(other.getStartDate(), other.getEndDate()));
+                }
+            }
+            for (String employeeId : employees) {
+                YearDayBitmap employeeDays = days.get(employeeId);
+                if (employeeDays != null && employeeDays.cardinality() > 0) {
+                    leaveDays.put(key(employeeId, year), employeeDays);
+                } else {
+                    leaveDays.remove(key(employeeId, year));
+                }
+            }
+        });
+    }
+
+    // ========== QUERIES ==========
+
+    public boolean isLate(String employeeId, LocalDate date) {
+        YearDayBitmap days = lateDays.get(key(employeeId, date.getYear()));
+        return days != null && days.contains(date);
+    }
+
+    public boolean isOnLeave(String employeeId, LocalDate date) {
+        YearDayBitmap days = leaveDays.get(key(employeeId, date.getYear()));
+        return days != null && days.contains(date);
+    }
+
+    /**
+     * Late days, leave days, late days on leave and streaks of one employee in [from, to]
+     */
+    public Map<String, Object> getPattern(String employeeId, LocalDate from, LocalDate to) {
+        Map<String, YearDayBitmap> lateSnapshot = lateDays;
+        Map<String, YearDayBitmap> leaveSnapshot = leaveDays;
+        int late = 0;
+        int leave = 0;
+        int lateOnLeave = 0;
+        for (int year = from.getYear(); year <= to.getYear(); year++) {
+            YearDayBitmap lateInYear = lateSnapshot.getOrDefault(key(employeeId, year), YearDayBitmap.empty(year));
+            YearDayBitmap leaveInYear = leaveSnapshot.getOrDefault(key(employeeId, year), YearDayBitmap.empty(year));
+            late += lateInYear.count(from, to);
+            leave += leaveInYear.count(from, to);
+            lateOnLeave += lateInYear.and(leaveInYear).count(from, to);
+        }
+        int[] streaks = lateStreaks(lateSnapshot, leaveSnapshot, employeeId, from, to);
+
+        Map<String, Object> pattern = new HashMap<>();
+        pattern.put("employeeId", employeeId);
+        pattern.put("from", from);
+        pattern.put("to", to);
+        pattern.put("lateDays", late);
+        pattern.put("leaveDays", leave);
+        pattern.put("lateDaysOnLeave", lateOnLeave);
+        pattern.put("longestLateStreak", streaks[0]);
+        pattern.put("currentLateStreak", streaks[1]);
+        return pattern;
+    }
+
+    /**
+     * Employees late on at least minDays working days in a row within [from, to], longest first.
+     * Weekends and the employee's leave days don't break a streak.
+     */
+    public List<Map<String, Object>> findLateStreaks(LocalDate from, LocalDate to, int minDays) {
+        Map<String, YearDayBitmap> lateSnapshot = lateDays;
+        Map<String, YearDayBitmap> leaveSnapshot = leaveDays;
+        Map<String, String> names = employeeNames;
+        Set<String> employeeIds = new HashSet<>();
+        for (String key : lateSnapshot.keySet()) {
+            int separator = key.lastIndexOf(':');
+            int year = Integer.parseInt(key.substring(separator + 1));
+            if (year >= from.getYear() && year <= to.getYear()) {
+                employeeIds.add(key.substring(0, separator));
+            }
+        }
+
+        List<Map<String, Object>> streaks = new ArrayList<>();
+        for (String employeeId : employeeIds) {
+            int[] runs = lateStreaks(lateSnapshot, leaveSnapshot, employeeId, from, to);
+            if (runs[0] >= minDays) {
+                Map<String, Object> streak = new HashMap<>();
+                streak.put("employeeId", employeeId);
+                streak.put("employeeName", names.get(employeeId));
+                streak.put("longestLateStreak", runs[0]);
+                streak.put("currentLateStreak", runs[1]);
+                streaks.add(streak);
+            }
+        }
+        streaks.sort(Comparator.comparing((Map<String, Object> streak) -> (Integer) streak.get("longestLateStreak")).reversed());
+        return streaks;
+    }
+
+    /**
+     * Longest run of late working days in [from, to] and the run still going at to
+     */
+    private int[] lateStreaks(Map<String, YearDayBitmap> lateDays, Map<String, YearDayBitmap> leaveDays,
+                              String employeeId, LocalDate from, LocalDate to) {
+        int longest = 0;
+        int run = 0;
+        for (int year = from.getYear(); year <= to.getYear(); year++) {
+            YearDayBitmap late = lateDays.getOrDefault(key(employeeId, year), YearDayBitmap.empty(year));
+            YearDayBitmap skip = weekends.computeIfAbsent(year, YearDayBitmap::weekends);
+            YearDayBitmap leave = leaveDays.get(key(employeeId, year));
+            if (leave != null) {
+                skip = skip.or(leave);
+            }
+            int[] runs = late.runs(from, to, skip, run);
+            longest = Math.max(longest, runs[0]);
+            run = runs[1];
+        }
+        return new int[]{longest, run};
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, YearDayBitmap> lateDays = this.lateDays;
+        Map<String, YearDayBitmap> leaveDays = this.leaveDays;
+        long lateBytes = lateDays.values().stream().mapToLong(YearDayBitmap::sizeInBytes).sum();
+        long leaveBytes = leaveDays.values().stream().mapToLong(YearDayBitmap::sizeInBytes).sum();
+        int employeeYears = lateDays.size() + leaveDays.size();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("lateEmployeeYears", lateDays.size());
+        stats.put("leaveEmployeeYears", leaveDays.size());
+        stats.put("bitmapBytes", lateBytes + leaveBytes);
+        stats.put("averageBytesPerEmployeeYear", employeeYears > 0 ? (lateBytes + leaveBytes) / employeeYears : 0);
+        stats.put("builtAt", builtAt);
+        return stats;
+    }
+
+    private static boolean keyed(LateAttendance record) {
+        return record.getEmployeeId() != null && !record.getEmployeeId().isEmpty() && record.getDate() != null;
+    }
+
+    private static String key(String employeeId, int year) {
+        return employeeId + ":" + year;
+    }
+}
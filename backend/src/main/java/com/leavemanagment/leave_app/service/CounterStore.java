@@ -0,0 +1,201 @@
+package com.leavemanagment.leave_app.service;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Keyed long counters stored one document per key ({_id: key, value: n}).
+ * Used for materialized statistics that are maintained incrementally.
+ *
+ * Increments share a per-collection lock and a rebuild takes it exclusively, so no increment
+ * lands between a rebuild's scan of the source and its write of the recomputed values.
+ */
+@Service
+public class CounterStore {
+
+    private static final String VALUE = "value";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final Map<String, ReadWriteLock> locks = new ConcurrentHashMap<>();
+
+    /**
+     * Apply counter deltas in one unordered bulk write, creating missing keys
+     */
+    public void increment(String collection, Map<String, Long> deltas) {
+        ReadWriteLock lock = lockOf(collection);
+        lock.readLock().lock();
+        try {
+            applyDeltas(collection, deltas);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void applyDeltas(String collection, Map<String, Long> deltas) {
+        BulkOperations bulk = null;
+        for (Map.Entry<String, Long> delta : deltas.entrySet()) {
+            if (delta.getValue() == 0) {
+                continue;
+            }
+            if (bulk == null) {
+                bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, collection);
+            }
+            bulk.upsert(Query.query(Criteria.where("_id").is(delta.getKey())), new Update().inc(VALUE, delta.getValue()));
+        }
+        if (bulk != null) {
+            bulk.execute();
+        }
+    }
+
+    /**
+     * Read one counter, 0 when it does not exist
+     */
+    public long get(String collection, String key) {
+        Document counter = mongoTemplate.findById(key, Document.class, collection);
+        return counter != null ? toLong(counter.get(VALUE)) : 0L;
+    }
+
+    /**
+     * Read several counters in one query; missing keys are reported as 0
+     */
+    public Map<String, Long> getAll(String collection, Collection<String> keys) {
+        Map<String, Long> values = new HashMap<>();
+        keys.forEach(key -> values.put(key, 0L));
+        mongoTemplate.find(Query.query(Criteria.where("_id").in(keys)), Document.class, collection)
+                .forEach(counter -> values.put(counter.getString("_id"), toLong(counter.get(VALUE))));
+        return values;
+    }
+
+    /**
+     * Read every counter whose key starts with the given prefix
+     */
+    public Map<String, Long> findByPrefix(String collection, String prefix) {
+        Map<String, Long> values = new HashMap<>();
+        Query query = Query.query(Criteria.where("_id").regex("^" + Pattern.quote(prefix)));
+        mongoTemplate.find(query, Document.class, collection)
+                .forEach(counter -> values.put(counter.getString("_id"), toLong(counter.get(VALUE))));
+        return values;
+    }
+
+    /**
+     * Read the whole collection
+     */
+    public Map<String, Long> readAll(String collection) {
+        Map<String, Long> values = new HashMap<>();
+        mongoTemplate.findAll(Document.class, collection)
+                .forEach(counter -> values.put(counter.getString("_id"), toLong(counter.get(VALUE))));
+        return values;
+    }
+
+    /**
+     * Recompute the counters with expected (a scan of the source collection) and compare them
+     * with the stored values
+     */
+    public Map<String, Object> verify(String collection, Supplier<Map<String, Long>> expected) {
+        return exclusively(collection, () -> driftReport(expected.get(), readAll(collection), false));
+    }
+
+    /**
+     * Recompute the counters with expected, replace the stored values with them and report the
+     * drift that was corrected. Increments wait until the rebuild is done, so none lands between
+     * the scan and the write.
+     */
+    public Map<String, Object> rebuild(String collection, Supplier<Map<String, Long>> expected) {
+        return exclusively(collection, () -> {
+            Map<String, Long> counters = expected.get();
+            Map<String, Long> stored = readAll(collection);
+            replaceAll(collection, counters);
+            return driftReport(counters, stored, true);
+        });
+    }
+
+    private <T> T exclusively(String collection, Supplier<T> work) {
+        ReadWriteLock lock = lockOf(collection);
+        lock.writeLock().lock();
+        try {
+            return work.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace every counter in the collection with the given values. Each counter is overwritten
+     * in place and only keys that are no longer expected are deleted, so the collection is never
+     * empty or half-filled.
+     */
+    private void replaceAll(String collection, Map<String, Long> values) {
+        List<String> kept = new ArrayList<>();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, collection);
+        values.forEach((key, value) -> {
+            if (value != 0) {
+                kept.add(key);
+                bulk.upsert(Query.query(Criteria.where("_id").is(key)), Update.update(VALUE, value));
+            }
+        });
+        if (!kept.isEmpty()) {
+            bulk.execute();
+        }
+        mongoTemplate.remove(Query.query(Criteria.where("_id").nin(kept)), collection);
+    }
+
+    public boolean isEmpty(String collection) {
+        return !mongoTemplate.exists(new Query(), collection);
+    }
+
+    /**
+     * Counters whose stored value differs from the expected one, with both values
+     */
+    static Map<String, Object> driftReport(Map<String, Long> expected, Map<String, Long> stored, boolean rebuilt) {
+        Map<String, Object> drift = new LinkedHashMap<>();
+        TreeSet<String> keys = new TreeSet<>(expected.keySet());
+        keys.addAll(stored.keySet());
+        for (String key : keys) {
+            long expectedValue = expected.getOrDefault(key, 0L);
+            long storedValue = stored.getOrDefault(key, 0L);
+            if (expectedValue != storedValue) {
+                Map<String, Long> difference = new HashMap<>();
+                difference.put("stored", storedValue);
+                difference.put("expected", expectedValue);
+                drift.put(key, difference);
+            }
+        }
+
+        Map<String, Object> report = new HashMap<>();
+        report.put("consistent", drift.isEmpty());
+        report.put("counterCount", expected.size());
+        report.put("driftCount", drift.size());
+        report.put("drift", drift);
+        report.put("rebuilt", rebuilt);
+        return report;
+    }
+
+    private ReadWriteLock lockOf(String collection) {
+        return locks.computeIfAbsent(collection, key -> new ReentrantReadWriteLock());
+    }
+
+    private long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+}
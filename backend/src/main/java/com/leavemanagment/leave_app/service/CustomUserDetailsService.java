@@ -1,25 +1,35 @@
 package com.leavemanagment.leave_app.service;
 
 import com.leavemanagment.leave_app.model.User;
-import com.leavemanagment.leave_app.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 import java.util.Collection;
 import java.util.Collections;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
     
     @Autowired
-    private UserRepository userRepository;
+    private UserIdentityCache userIdentityCache;
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    private final AtomicLong rehashes = new AtomicLong();
     
     public CustomUserDetailsService() {
         System.out.println("[DEBUG] CustomUserDetailsService bean created");
@@ -27,23 +37,46 @@ public class CustomUserDetailsService implements UserDetailsService {
     
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        System.out.println("🔍 Looking up user: " + username);
-        
-        Optional<User> userOpt = userRepository.findByUsername(username);
+        // Runs on every login; served from the user cache and kept quiet on success
+        Optional<User> userOpt = userIdentityCache.findByUsername(username);
         if (userOpt.isEmpty()) {
             System.out.println("❌ User not found: " + username);
             throw new UsernameNotFoundException("User not found: " + username);
         }
         
-        User user = userOpt.get();
-        System.out.println("✅ User found: " + user.getUsername() + " with role: " + user.getRole());
+        return new CustomUserPrincipal(userOpt.get());
+    }
+    
+    /**
+     * Store a password rehashed with the current BCrypt work factor after a successful login
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        // Only the password field, so a profile edit saved meanwhile isn't overwritten
+        long modified = mongoTemplate.updateFirst(Query.query(Criteria.where("username").is(user.getUsername())),
+                Update.update("password", newPassword), User.class).getModifiedCount();
+        userIdentityCache.invalidate(user.getUsername());
+        if (modified > 0) {
+            rehashes.incrementAndGet();
+            System.out.println("🔐 Rehashed password of " + user.getUsername() + " with the current work factor");
+        }
         
-        return new CustomUserPrincipal(user);
+        return userIdentityCache.findByUsername(user.getUsername())
+                .<UserDetails>map(CustomUserPrincipal::new)
+                .orElse(user);
+    }
+    
+    /**
+     * Passwords actually rewritten with the current work factor
+     */
+    public long getRehashCount() {
+        return rehashes.get();
     }
     
     // Custom UserDetails implementation
     public static class CustomUserPrincipal implements UserDetails {
         private User user;
+        private final long loadedAt = System.nanoTime();
         
         public CustomUserPrincipal(User user) {
             this.user = user;
@@ -91,6 +124,11 @@ public class CustomUserDetailsService implements UserDetailsService {
             return user;
         }
         
+        // System.nanoTime() when the user was loaded, see UserIdentityCache
+        public long getLoadedAt() {
+            return loadedAt;
+        }
+        
         public String getFullName() {
             return user.getFullName();
         }
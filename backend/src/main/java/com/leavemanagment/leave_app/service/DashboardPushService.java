@@ -0,0 +1,182 @@
+package com.leavemanagment.leave_app.service;
+
+import com.leavemanagment.leave_app.event.LeaveRequestChangedEvent;
+import com.leavemanagment.leave_app.event.LeaveRequestsChangedEvent;
+import com.leavemanagment.leave_app.model.LeaveChange;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes leave request changes to the dashboards over the STOMP broker, so they don't have
+ * to poll the stats, notifications and pending request endpoints.
+ *
+ * Changes arrive as LeaveRequestChangedEvents from every write. They are collected for a short
+ * window (dashboard.push.coalesce-ms) and sent as one message per topic, several changes of the
+ * same request folded into one, with the counters as they are after the batch:
+ * HR_TOPIC gets every change, TEAM_TOPIC only those that affect who is (or will be) on leave.
+ */
+@Service
+public class DashboardPushService {
+
+    public static final String HR_TOPIC = "/topic/hr/leave-changes";
+    public static final String TEAM_TOPIC = "/topic/leave-changes";
+
+    private static final String APPROVED = "Approved";
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private LeaveStatisticsService leaveStatisticsService;
+
+    @Autowired
+    private ApprovedLeaveIndex approvedLeaveIndex;
+
+    @Value("${dashboard.push.enabled:true}")
+    private boolean enabled;
+
+    @Value("${dashboard.push.coalesce-ms:100}")
+    private long coalesceMs;
+
+    private ScheduledExecutorService flusher;
+
+    // Changes since the last push, by leave request id; guarded by this
+    private Map<String, LeaveChange> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+
+    private final AtomicLong eventCount = new AtomicLong();
+    private final AtomicLong pushCount = new AtomicLong();
+    private final AtomicLong pushedChangeCount = new AtomicLong();
+    private final AtomicLong maxDelayMs = new AtomicLong();
+    private volatile long oldestPendingAt;
+
+    @PostConstruct
+    public void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dashboard-push");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        flusher.shutdown();
+    }
+
+    @EventListener
+    public void onLeaveRequestChanged(LeaveRequestChangedEvent event) {
+        onLeaveRequestsChanged(new LeaveRequestsChangedEvent(List.of(event)));
+    }
+
+    @EventListener
+    public void onLeaveRequestsChanged(LeaveRequestsChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        eventCount.addAndGet(event.getChanges().size());
+        List<LeaveChange> changes = event.getChanges().stream().map(LeaveChange::from).toList();
+        synchronized (this) {
+            changes.forEach(change -> add(pending, change));
+            if (!flushScheduled) {
+                flushScheduled = true;
+                oldestPendingAt = System.currentTimeMillis();
+                flusher.schedule(this::flush, coalesceMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void flush() {
+        Map<String, LeaveChange> batch;
+        long since;
+        synchronized (this) {
+            batch = pending;
+            since = oldestPendingAt;
+            pending = new LinkedHashMap<>();
+            flushScheduled = false;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<LeaveChange> changes = new ArrayList<>(batch.values());
+            Map<String, Object> counters = counters();
+            messagingTemplate.convertAndSend(HR_TOPIC, message(changes, counters));
+
+            List<LeaveChange> teamChanges = changes.stream().filter(DashboardPushService::affectsTeam).toList();
+            if (!teamChanges.isEmpty()) {
+                Map<String, Object> teamCounters = new HashMap<>();
+                teamCounters.put("onLeaveToday", counters.get("onLeaveToday"));
+                messagingTemplate.convertAndSend(TEAM_TOPIC, message(teamChanges, teamCounters));
+            }
+
+            pushCount.incrementAndGet();
+            pushedChangeCount.addAndGet(changes.size());
+            maxDelayMs.accumulateAndGet(System.currentTimeMillis() - since, Math::max);
+        } catch (Exception e) {
+            // Dashboards catch up on their next load
+            System.err.println("❌ Dashboard push failed: " + e.getMessage());
+        }
+    }
+
+    private Map<String, Object> message(List<LeaveChange> changes, Map<String, Object> counters) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("type", "leave_changes");
+        message.put("changes", changes);
+        message.put("counters", counters);
+        message.put("timestamp", System.currentTimeMillis());
+        return message;
+    }
+
+    private Map<String, Object> counters() {
+        Map<String, Object> counters = new HashMap<>();
+        counters.put("total", leaveStatisticsService.getTotalCount());
+        counters.put("pending", leaveStatisticsService.getStatusCount("Pending"));
+        counters.put("approved", leaveStatisticsService.getStatusCount(APPROVED));
+        counters.put("rejected", leaveStatisticsService.getStatusCount("Rejected"));
+        counters.put("onLeaveToday", approvedLeaveIndex.onLeaveOn(LocalDate.now()).size());
+        return counters;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("coalesceMs", coalesceMs);
+        stats.put("events", eventCount.get());
+        stats.put("pushes", pushCount.get());
+        stats.put("pushedChanges", pushedChangeCount.get());
+        stats.put("maxDelayMs", maxDelayMs.get());
+        return stats;
+    }
+
+    /**
+     * Fold a change into the pending batch; a request created and deleted within the batch drops out
+     */
+    static void add(Map<String, LeaveChange> pending, LeaveChange change) {
+        pending.merge(change.id(), change, LeaveChange::then);
+    }
+
+    /**
+     * Whether the team dashboards (who is on leave, upcoming leaves) show a difference
+     */
+    static boolean affectsTeam(LeaveChange change) {
+        return APPROVED.equals(change.previousStatus()) || APPROVED.equals(change.status());
+    }
+}
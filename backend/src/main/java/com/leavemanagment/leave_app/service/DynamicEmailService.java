@@ -1,15 +1,11 @@
 package com.leavemanagment.leave_app.service;
 
 import com.leavemanagment.leave_app.model.LeaveRequest;
+import com.leavemanagment.leave_app.model.OutboundEmail;
 import com.leavemanagment.leave_app.model.User;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
-import java.io.UnsupportedEncodingException;
 import java.time.format.DateTimeFormatter;
 
 /**
@@ -21,7 +17,7 @@ import java.time.format.DateTimeFormatter;
 public class DynamicEmailService {
 
     @Autowired
-    private JavaMailSender mailSender;
+    private EmailOutboxService emailOutboxService;
 
     /**
      * Send leave approval email from HR user to Employee
@@ -69,39 +65,20 @@ public class DynamicEmailService {
     }
 
     /**
-     * Send email from HR user to Employee using HR's email credentials
+     * Queue email from HR user to Employee; the outbox sends it with the HR user as sender and Reply-To
      */
-    private void sendEmailFromHRToEmployee(String fromEmail, String fromPassword, String toEmail, String subject, String htmlBody, String hrName) throws MessagingException, UnsupportedEncodingException {
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            
-            helper.setFrom(fromEmail, hrName + " (HR - LeaveEase)");
-            helper.setTo(toEmail);
-            helper.setSubject(subject);
-            helper.setText(htmlBody, true); // true indicates HTML content
-            helper.setReplyTo(fromEmail); // Allow employee to reply directly to HR
-            
-            // Note: In a real implementation, you would configure the JavaMailSender
-            // with the HR user's credentials dynamically. For now, we'll use the system configuration
-            // but set the from address to the HR user's email
-            
-            mailSender.send(message);
-            System.out.println("📧 Email sent successfully from HR (" + fromEmail + ") to Employee (" + toEmail + ")");
-            
-        } catch (Exception e) {
-            System.err.println("❌ Error sending email from HR to Employee: " + e.getMessage());
-            throw e;
-        }
+    private void sendEmailFromHRToEmployee(String fromEmail, String fromPassword, String toEmail, String subject, String htmlBody, String hrName) {
+        // When the HR user has stored an app password, SmtpSenderPool sends through their own
+        // account; otherwise the system account sends with the HR user's address as From
+        OutboundEmail email = new OutboundEmail(toEmail, subject, htmlBody, true);
+        email.setFromEmail(fromEmail);
+        email.setFromName(hrName + " (HR - LeaveEase)");
+        email.setReplyTo(fromEmail); // Allow employee to reply directly to HR
+        emailOutboxService.enqueue(email);
+        System.out.println("📬 Email queued from HR (" + fromEmail + ") to Employee (" + toEmail + ")");
     }
 
-    /**
-     * Generate approval email body with HR user context
-     */
-    private String generateApprovalEmailBody(LeaveRequest leaveRequest, User employee, User hrUser) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
-        
-        return String.format("""
+    private static final EmailTemplate APPROVAL_EMAIL_TEMPLATE = EmailTemplate.compile("""
             <html>
             <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333; max-width: 600px; margin: 0 auto;">
                 <div style="background: linear-gradient(135deg, #667eea 0%, #764ba2 100%); color: white; padding: 20px; border-radius: 10px; text-align: center; margin-bottom: 20px;">
@@ -110,18 +87,18 @@ public class DynamicEmailService {
                 </div>
                 
                 <div style="background: #f8f9fa; padding: 20px; border-radius: 10px;">
-                    <h2 style="color: #28a745; margin-top: 0;">Dear %s,</h2>
+                    <h2 style="color: #28a745; margin-top: 0;">Dear {{employeeName}},</h2>
                     
-                    <p>Great news! Your leave request has been <strong>approved</strong> by <strong>%s</strong> from HR.</p>
+                    <p>Great news! Your leave request has been <strong>approved</strong> by <strong>{{hrName}}</strong> from HR.</p>
                     
                     <div style="background: white; padding: 15px; border-radius: 8px; margin: 20px 0; border-left: 4px solid #28a745;">
                         <h3 style="margin-top: 0; color: #333;">📋 Leave Details:</h3>
-                        <table style="width: 100%%; border-collapse: collapse;">
-                            <tr><td style="padding: 5px 0; font-weight: bold;">Leave Type:</td><td style="padding: 5px 0;">%s</td></tr>
-                            <tr><td style="padding: 5px 0; font-weight: bold;">Start Date:</td><td style="padding: 5px 0;">%s</td></tr>
-                            <tr><td style="padding: 5px 0; font-weight: bold;">End Date:</td><td style="padding: 5px 0;">%s</td></tr>
-                            <tr><td style="padding: 5px 0; font-weight: bold;">Duration:</td><td style="padding: 5px 0;">%s days</td></tr>
-                            <tr><td style="padding: 5px 0; font-weight: bold;">Reason:</td><td style="padding: 5px 0;">%s</td></tr>
+                        <table style="width: 100%; border-collapse: collapse;">
+                            <tr><td style="padding: 5px 0; font-weight: bold;">Leave Type:</td><td style="padding: 5px 0;">{{leaveType}}</td></tr>
+                            <tr><td style="padding: 5px 0; font-weight: bold;">Start Date:</td><td style="padding: 5px 0;">{{startDate}}</td></tr>
+                            <tr><td style="padding: 5px 0; font-weight: bold;">End Date:</td><td style="padding: 5px 0;">{{endDate}}</td></tr>
+                            <tr><td style="padding: 5px 0; font-weight: bold;">Duration:</td><td style="padding: 5px 0;">{{duration}} days</td></tr>
+                            <tr><td style="padding: 5px 0; font-weight: bold;">Reason:</td><td style="padding: 5px 0;">{{reason}}</td></tr>
                         </table>
                     </div>
                     
@@ -141,19 +118,28 @@ public class DynamicEmailService {
                     <p style="color: #28a745; font-weight: bold;">Enjoy your time off! 🎉</p>
                     
                     <div style="margin-top: 30px; padding: 15px; background: #f0f0f0; border-radius: 8px;">
-                        <p style="margin: 0; font-size: 14px;"><strong>Approved by:</strong> %s (%s)</p>
-                        <p style="margin: 5px 0 0 0; font-size: 14px;"><strong>Department:</strong> %s</p>
+                        <p style="margin: 0; font-size: 14px;"><strong>Approved by:</strong> {{hrName}} ({{hrEmail}})</p>
+                        <p style="margin: 5px 0 0 0; font-size: 14px;"><strong>Department:</strong> {{hrDepartment}}</p>
                         <p style="margin: 5px 0 0 0; font-size: 12px; color: #666;">You can reply to this email to contact HR directly</p>
                     </div>
                     
                     <div style="margin-top: 20px; padding-top: 20px; border-top: 1px solid #e1e5e9; text-align: center; color: #6b7280; font-size: 12px;">
                         <p>This email was sent from LeaveEase HR System</p>
-                        <p>Employee: %s | Department: %s</p>
+                        <p>Employee: {{employeeName}} | Department: {{department}}</p>
                     </div>
                 </div>
             </body>
             </html>
-            """, 
+            """,
+            "employeeName", "hrName", "leaveType", "startDate", "endDate", "duration", "reason", "hrEmail", "hrDepartment", "department");
+
+    /**
+     * Generate approval email body with HR user context
+     */
+    private String generateApprovalEmailBody(LeaveRequest leaveRequest, User employee, User hrUser) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
+        
+        return APPROVAL_EMAIL_TEMPLATE.render(
             employee.getFullName(),
             hrUser.getFullName(),
             leaveRequest.getLeaveType(),
@@ -161,21 +147,13 @@ public class DynamicEmailService {
             leaveRequest.getEndDate().format(formatter),
             String.valueOf(leaveRequest.getLeaveDuration()),
             leaveRequest.getReason() != null ? leaveRequest.getReason() : "Not specified",
-            hrUser.getFullName(),
             hrUser.getEmail(),
             hrUser.getDepartment() != null ? hrUser.getDepartment() : "HR Department",
-            employee.getFullName(),
             employee.getDepartment() != null ? employee.getDepartment() : "N/A"
         );
     }
 
-    /**
-     * Generate rejection email body with HR user context
-     */
-    private String generateRejectionEmailBody(LeaveRequest leaveRequest, User employee, User hrUser, String rejectionReason) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
-        
-        return String.format("""
+    private static final EmailTemplate REJECTION_EMAIL_TEMPLATE = EmailTemplate.compile("""
             <html>
             <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333; max-width: 600px; margin: 0 auto;">
                 <div style="background: linear-gradient(135deg, #dc3545 0%, #c82333 100%); color: white; padding: 20px; border-radius: 10px; text-align: center; margin-bottom: 20px;">
@@ -184,24 +162,24 @@ public class DynamicEmailService {
                 </div>
                 
                 <div style="background: #f8f9fa; padding: 20px; border-radius: 10px;">
-                    <h2 style="color: #dc3545; margin-top: 0;">Dear %s,</h2>
+                    <h2 style="color: #dc3545; margin-top: 0;">Dear {{employeeName}},</h2>
                     
                     <p>I hope this email finds you well. After careful consideration, I regret to inform you that your leave request has been <strong>declined</strong>.</p>
                     
                     <div style="background: white; padding: 15px; border-radius: 8px; margin: 20px 0; border-left: 4px solid #dc3545;">
                         <h3 style="margin-top: 0; color: #333;">📋 Leave Request Details:</h3>
-                        <table style="width: 100%%; border-collapse: collapse;">
-                            <tr><td style="padding: 5px 0; font-weight: bold;">Leave Type:</td><td style="padding: 5px 0;">%s</td></tr>
-                            <tr><td style="padding: 5px 0; font-weight: bold;">Start Date:</td><td style="padding: 5px 0;">%s</td></tr>
-                            <tr><td style="padding: 5px 0; font-weight: bold;">End Date:</td><td style="padding: 5px 0;">%s</td></tr>
-                            <tr><td style="padding: 5px 0; font-weight: bold;">Duration:</td><td style="padding: 5px 0;">%s days</td></tr>
-                            <tr><td style="padding: 5px 0; font-weight: bold;">Your Reason:</td><td style="padding: 5px 0;">%s</td></tr>
+                        <table style="width: 100%; border-collapse: collapse;">
+                            <tr><td style="padding: 5px 0; font-weight: bold;">Leave Type:</td><td style="padding: 5px 0;">{{leaveType}}</td></tr>
+                            <tr><td style="padding: 5px 0; font-weight: bold;">Start Date:</td><td style="padding: 5px 0;">{{startDate}}</td></tr>
+                            <tr><td style="padding: 5px 0; font-weight: bold;">End Date:</td><td style="padding: 5px 0;">{{endDate}}</td></tr>
+                            <tr><td style="padding: 5px 0; font-weight: bold;">Duration:</td><td style="padding: 5px 0;">{{duration}} days</td></tr>
+                            <tr><td style="padding: 5px 0; font-weight: bold;">Your Reason:</td><td style="padding: 5px 0;">{{reason}}</td></tr>
                         </table>
                     </div>
                     
                     <div style="background: #fff3cd; border: 1px solid #ffeaa7; padding: 15px; border-radius: 8px; margin: 20px 0;">
                         <h4 style="margin-top: 0; color: #856404;">📝 Reason for Decline:</h4>
-                        <p style="margin: 0; color: #856404; font-weight: 500;">%s</p>
+                        <p style="margin: 0; color: #856404; font-weight: 500;">{{rejectionReason}}</p>
                     </div>
                     
                     <div style="background: #e3f2fd; padding: 15px; border-radius: 8px; margin: 20px 0;">
@@ -219,19 +197,28 @@ public class DynamicEmailService {
                     <p>Thank you for your understanding.</p>
                     
                     <div style="margin-top: 30px; padding: 15px; background: #f0f0f0; border-radius: 8px;">
-                        <p style="margin: 0; font-size: 14px;"><strong>Reviewed by:</strong> %s (%s)</p>
-                        <p style="margin: 5px 0 0 0; font-size: 14px;"><strong>Department:</strong> %s</p>
+                        <p style="margin: 0; font-size: 14px;"><strong>Reviewed by:</strong> {{hrName}} ({{hrEmail}})</p>
+                        <p style="margin: 5px 0 0 0; font-size: 14px;"><strong>Department:</strong> {{hrDepartment}}</p>
                         <p style="margin: 5px 0 0 0; font-size: 12px; color: #666;">Reply to this email to discuss further or schedule a meeting</p>
                     </div>
                     
                     <div style="margin-top: 20px; padding-top: 20px; border-top: 1px solid #e1e5e9; text-align: center; color: #6b7280; font-size: 12px;">
                         <p>This email was sent from LeaveEase HR System</p>
-                        <p>Employee: %s | Department: %s</p>
+                        <p>Employee: {{employeeName}} | Department: {{department}}</p>
                     </div>
                 </div>
             </body>
             </html>
-            """, 
+            """,
+            "employeeName", "leaveType", "startDate", "endDate", "duration", "reason", "rejectionReason", "hrName", "hrEmail", "hrDepartment", "department");
+
+    /**
+     * Generate rejection email body with HR user context
+     */
+    private String generateRejectionEmailBody(LeaveRequest leaveRequest, User employee, User hrUser, String rejectionReason) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
+        
+        return REJECTION_EMAIL_TEMPLATE.render(
             employee.getFullName(),
             leaveRequest.getLeaveType(),
             leaveRequest.getStartDate().format(formatter),
@@ -242,7 +229,6 @@ public class DynamicEmailService {
             hrUser.getFullName(),
             hrUser.getEmail(),
             hrUser.getDepartment() != null ? hrUser.getDepartment() : "HR Department",
-            employee.getFullName(),
             employee.getDepartment() != null ? employee.getDepartment() : "N/A"
         );
     }
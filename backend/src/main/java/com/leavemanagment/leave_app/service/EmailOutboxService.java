@@ -0,0 +1,483 @@
+package com.leavemanagment.leave_app.service;
+
+import com.leavemanagment.leave_app.model.OutboundEmail;
+import com.leavemanagment.leave_app.repository.OutboundEmailRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.MimeMessage;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Durable outbound email queue.
+ *
+ * Request threads only insert a document into email_outbox. A single dispatcher
+ * thread claims due emails in batches and hands them to a bounded worker pool;
+ * each batch is sent over one SMTP connection per sender account. Failures are retried with exponential backoff and
+ * dead-lettered after the configured number of attempts. A worker that dies
+ * mid-send loses its lease and the email is picked up again.
+ */
+@Service
+public class EmailOutboxService {
+
+    private static final String OUTBOX_COLLECTION = "email_outbox";
+
+    @Autowired
+    private OutboundEmailRepository outboundEmailRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private SmtpSenderPool smtpSenderPool;
+
+    @Value("${spring.mail.username:}")
+    private String systemEmail;
+
+    @Value("${email.outbox.workers:4}")
+    private int workerCount;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    @Value("${email.outbox.poll-interval-ms:2000}")
+    private long pollIntervalMs;
+
+    @Value("${email.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${email.outbox.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${email.outbox.backoff-base-ms:30000}")
+    private long backoffBaseMs;
+
+    @Value("${email.outbox.backoff-max-ms:3600000}")
+    private long backoffMaxMs;
+
+    @Value("${email.outbox.lease-ms:300000}")
+    private long leaseMs;
+
+    private ScheduledExecutorService dispatcher;
+    private Executor workers;
+    private volatile boolean stopping;
+    private int maxInFlightBatches;
+    private final AtomicInteger inFlightBatches = new AtomicInteger();
+
+    // Metrics since startup
+    private final AtomicLong enqueuedCount = new AtomicLong();
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong failedAttemptCount = new AtomicLong();
+    private final AtomicLong deadLetterCount = new AtomicLong();
+    private final AtomicLong leaseLostCount = new AtomicLong();
+    private final AtomicLong totalSendLatencyMs = new AtomicLong();
+    private final AtomicLong maxSendLatencyMs = new AtomicLong();
+    private final AtomicLong totalQueueDelayMs = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong batchedMessageCount = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        if (virtualThreadsEnabled && Runtime.version().feature() >= 21) {
+            // One virtual thread per batch; SMTP waits don't hold a platform thread
+            workers = new VirtualThreadTaskExecutor("email-outbox-");
+            maxInFlightBatches = workerCount;
+        } else {
+            AtomicInteger workerNumber = new AtomicInteger();
+            workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+                Thread thread = new Thread(runnable, "email-outbox-" + workerNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            // Keep one batch queued per worker so a worker never idles waiting for the dispatcher
+            maxInFlightBatches = workerCount * 2;
+        }
+
+        dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "email-outbox-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher.scheduleWithFixedDelay(this::dispatch, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        System.out.println("📬 Email outbox started with " + workerCount + " workers"
+                + (maxInFlightBatches == workerCount ? " (virtual threads)" : ""));
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopping = true;
+        dispatcher.shutdownNow();
+        if (workers instanceof ExecutorService pool) {
+            pool.shutdown();
+            try {
+                if (!pool.awaitTermination(10, TimeUnit.SECONDS)) {
+                    pool.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                pool.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Virtual workers are not awaited; an unfinished batch is re-claimed once its lease expires
+    }
+
+    // ========== ENQUEUE ==========
+
+    /**
+     * Queue an HTML email sent from the system address
+     */
+    public OutboundEmail enqueueHtml(String toEmail, String subject, String htmlBody) {
+        return enqueue(new OutboundEmail(toEmail, subject, htmlBody, true));
+    }
+
+    /**
+     * Queue an HTML email from the system address with a personal Reply-To
+     */
+    public OutboundEmail enqueueHtml(String toEmail, String subject, String htmlBody, String replyTo) {
+        OutboundEmail email = new OutboundEmail(toEmail, subject, htmlBody, true);
+        email.setReplyTo(replyTo);
+        return enqueue(email);
+    }
+
+    /**
+     * Persist an email and wake the dispatcher so it goes out without waiting for the next poll
+     */
+    public OutboundEmail enqueue(OutboundEmail email) {
+        OutboundEmail saved = outboundEmailRepository.save(email);
+        enqueuedCount.incrementAndGet();
+        System.out.println("📬 Email queued for " + saved.getToEmail() + " (" + saved.getId() + ")");
+        try {
+            dispatcher.execute(this::dispatch);
+        } catch (Exception e) {
+            // The next poll will pick it up
+        }
+        return saved;
+    }
+
+    /**
+     * Persist many emails with one insert and wake the dispatcher once
+     */
+    public List<OutboundEmail> enqueueAll(List<OutboundEmail> emails) {
+        if (emails.isEmpty()) {
+            return emails;
+        }
+        List<OutboundEmail> saved = outboundEmailRepository.saveAll(emails);
+        enqueuedCount.addAndGet(saved.size());
+        System.out.println("📬 " + saved.size() + " emails queued");
+        try {
+            dispatcher.execute(this::dispatch);
+        } catch (Exception e) {
+            // The next poll will pick them up
+        }
+        return saved;
+    }
+
+    /**
+     * Move a dead-lettered email back to the queue
+     */
+    public boolean retryDeadLetter(String id) {
+        Query query = Query.query(Criteria.where("_id").is(id).and("status").is(OutboundEmail.STATUS_DEAD));
+        Update update = new Update()
+                .set("status", OutboundEmail.STATUS_PENDING)
+                .set("attempts", 0)
+                .set("nextAttemptAt", LocalDateTime.now());
+        boolean requeued = mongoTemplate.updateFirst(query, update, OutboundEmail.class).getModifiedCount() > 0;
+        if (requeued) {
+            dispatcher.execute(this::dispatch);
+        }
+        return requeued;
+    }
+
+    // ========== DISPATCH ==========
+
+    /**
+     * Claim due emails in batches while the worker pool has room. Runs only on the dispatcher thread.
+     */
+    private void dispatch() {
+        try {
+            while (inFlightBatches.get() < maxInFlightBatches && !stopping) {
+                List<OutboundEmail> batch = claimBatch();
+                if (batch.isEmpty()) {
+                    return;
+                }
+                inFlightBatches.incrementAndGet();
+                workers.execute(() -> {
+                    try {
+                        deliver(batch);
+                    } finally {
+                        inFlightBatches.decrementAndGet();
+                    }
+                });
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Email outbox dispatch error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Claim up to batchSize due emails: pending and due, or sending with an expired lease.
+     * The claim is one updateMulti tagged with a fresh token, so concurrent instances never
+     * claim the same email.
+     */
+    private List<OutboundEmail> claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        Criteria due = new Criteria().orOperator(
+                Criteria.where("status").is(OutboundEmail.STATUS_PENDING).and("nextAttemptAt").lte(now),
+                Criteria.where("status").is(OutboundEmail.STATUS_SENDING).and("lockedUntil").lt(now));
+
+        Query candidates = Query.query(due).with(Sort.by(Sort.Direction.ASC, "nextAttemptAt")).limit(batchSize);
+        candidates.fields().include("_id");
+        List<Object> ids = new ArrayList<>();
+        mongoTemplate.find(candidates, Document.class, OUTBOX_COLLECTION).forEach(doc -> ids.add(doc.get("_id")));
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        String claimToken = UUID.randomUUID().toString();
+        Query claim = Query.query(new Criteria().andOperator(Criteria.where("_id").in(ids), due));
+        Update update = new Update()
+                .set("status", OutboundEmail.STATUS_SENDING)
+                .set("lockedUntil", now.plus(Duration.ofMillis(leaseMs)))
+                .set("claimToken", claimToken)
+                .inc("attempts", 1);
+        mongoTemplate.updateMulti(claim, update, OutboundEmail.class);
+
+        return mongoTemplate.find(Query.query(Criteria.where("claimToken").is(claimToken)), OutboundEmail.class);
+    }
+
+    /**
+     * Send a claimed batch: one send(MimeMessage...) call, and so one SMTP connection, per sender account
+     */
+    private void deliver(List<OutboundEmail> batch) {
+        Map<String, List<OutboundEmail>> byAccount = new LinkedHashMap<>();
+        for (OutboundEmail email : batch) {
+            byAccount.computeIfAbsent(smtpSenderPool.accountKey(email.getFromEmail()), key -> new ArrayList<>()).add(email);
+        }
+        byAccount.forEach(this::deliverGroup);
+    }
+
+    private void deliverGroup(String accountKey, List<OutboundEmail> group) {
+        JavaMailSender sender;
+        try {
+            sender = smtpSenderPool.senderFor(accountKey, group.get(0).getFromEmail());
+        } catch (Exception e) {
+            group.forEach(email -> recordFailure(email, e));
+            return;
+        }
+
+        // Build messages; an email that cannot even be built fails on its own
+        Map<MimeMessage, OutboundEmail> messages = new LinkedHashMap<>();
+        for (OutboundEmail email : group) {
+            try {
+                messages.put(toMimeMessage(sender, email), email);
+            } catch (Exception e) {
+                recordFailure(email, e);
+            }
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        long started = System.currentTimeMillis();
+        Map<Object, Exception> failed = Map.of();
+        try {
+            sender.send(messages.keySet().toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            // Partial failure: only the listed messages were rejected
+            failed = e.getFailedMessages().isEmpty() ? allFailed(messages, e) : e.getFailedMessages();
+        } catch (Exception e) {
+            failed = allFailed(messages, e);
+        }
+        long latency = System.currentTimeMillis() - started;
+
+        batchCount.incrementAndGet();
+        batchedMessageCount.addAndGet(messages.size());
+        for (Map.Entry<MimeMessage, OutboundEmail> entry : messages.entrySet()) {
+            Exception error = failed.get(entry.getKey());
+            if (error != null) {
+                recordFailure(entry.getValue(), error);
+            } else {
+                recordSent(entry.getValue(), latency);
+            }
+        }
+        System.out.println("📧 Outbox batch of " + messages.size() + " sent via " + accountKey
+                + " in " + latency + "ms (" + failed.size() + " failed)");
+    }
+
+    private Map<Object, Exception> allFailed(Map<MimeMessage, OutboundEmail> messages, Exception error) {
+        Map<Object, Exception> failed = new HashMap<>();
+        messages.keySet().forEach(message -> failed.put(message, error));
+        return failed;
+    }
+
+    private MimeMessage toMimeMessage(JavaMailSender sender, OutboundEmail email) throws Exception {
+        MimeMessage message = sender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+
+        String from = email.getFromEmail() != null ? email.getFromEmail() : systemEmail;
+        if (email.getFromName() != null) {
+            helper.setFrom(from, email.getFromName());
+        } else {
+            helper.setFrom(from);
+        }
+        if (email.getReplyTo() != null) {
+            helper.setReplyTo(email.getReplyTo());
+        }
+        helper.setTo(email.getToEmail());
+        helper.setSubject(email.getSubject());
+        helper.setText(email.getBody(), email.isHtml());
+        return message;
+    }
+
+    /**
+     * Mark an email sent; latencyMs is the duration of the batch send it was part of
+     */
+    private void recordSent(OutboundEmail email, long latencyMs) {
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update()
+                .set("status", OutboundEmail.STATUS_SENT)
+                .set("sentAt", now)
+                .set("sendLatencyMs", latencyMs)
+                .unset("lockedUntil")
+                .unset("claimToken")
+                .unset("lastError");
+        if (!updateClaimed(email, update)) {
+            return;
+        }
+
+        sentCount.incrementAndGet();
+        totalSendLatencyMs.addAndGet(latencyMs);
+        maxSendLatencyMs.accumulateAndGet(latencyMs, Math::max);
+        if (email.getCreatedAt() != null) {
+            totalQueueDelayMs.addAndGet(Math.max(0, Duration.between(email.getCreatedAt(), now).toMillis()));
+        }
+    }
+
+    private void recordFailure(OutboundEmail email, Exception error) {
+        Update update = new Update()
+                .set("lastError", error.getClass().getSimpleName() + ": " + error.getMessage())
+                .unset("lockedUntil")
+                .unset("claimToken");
+
+        boolean dead = email.getAttempts() >= maxAttempts;
+        long delay = backoffDelayMs(email.getAttempts());
+        if (dead) {
+            update.set("status", OutboundEmail.STATUS_DEAD);
+        } else {
+            update.set("status", OutboundEmail.STATUS_PENDING)
+                  .set("nextAttemptAt", LocalDateTime.now().plus(Duration.ofMillis(delay)));
+        }
+        if (!updateClaimed(email, update)) {
+            return;
+        }
+
+        failedAttemptCount.incrementAndGet();
+        if (dead) {
+            deadLetterCount.incrementAndGet();
+            System.err.println("💀 Email to " + email.getToEmail() + " dead-lettered after "
+                    + email.getAttempts() + " attempts: " + error.getMessage());
+        } else {
+            System.err.println("❌ Email to " + email.getToEmail() + " failed (attempt " + email.getAttempts()
+                    + "), retrying in " + delay / 1000 + "s: " + error.getMessage());
+        }
+    }
+
+    /**
+     * Apply the outcome only while this batch still holds the email. If the lease expired and
+     * another worker re-claimed it, the claim token differs and the row is left to that worker.
+     */
+    boolean updateClaimed(OutboundEmail email, Update update) {
+        Query owned = Query.query(Criteria.where("_id").is(email.getId()).and("claimToken").is(email.getClaimToken()));
+        if (mongoTemplate.updateFirst(owned, update, OutboundEmail.class).getMatchedCount() > 0) {
+            return true;
+        }
+        leaseLostCount.incrementAndGet();
+        System.err.println("⚠️ Lease on email to " + email.getToEmail() + " was lost before its result was recorded");
+        return false;
+    }
+
+    /**
+     * base * 2^(attempt-1), capped at the configured maximum
+     */
+    long backoffDelayMs(int attempt) {
+        int exponent = Math.min(Math.max(attempt - 1, 0), 20);
+        return Math.min(backoffBaseMs << exponent, backoffMaxMs);
+    }
+
+    // ========== METRICS ==========
+
+    /**
+     * Queue depth per state, worker utilisation and send latency
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+
+        Map<String, Long> depth = new HashMap<>();
+        depth.put("pending", outboundEmailRepository.countByStatus(OutboundEmail.STATUS_PENDING));
+        depth.put("sending", outboundEmailRepository.countByStatus(OutboundEmail.STATUS_SENDING));
+        depth.put("sent", outboundEmailRepository.countByStatus(OutboundEmail.STATUS_SENT));
+        depth.put("dead", outboundEmailRepository.countByStatus(OutboundEmail.STATUS_DEAD));
+        metrics.put("queueDepth", depth);
+
+        Optional<OutboundEmail> oldestPending =
+                outboundEmailRepository.findFirstByStatusOrderByCreatedAtAsc(OutboundEmail.STATUS_PENDING);
+        metrics.put("oldestPendingAgeMs", oldestPending
+                .filter(email -> email.getCreatedAt() != null)
+                .map(email -> Duration.between(email.getCreatedAt(), LocalDateTime.now()).toMillis())
+                .orElse(0L));
+
+        metrics.put("workers", workerCount);
+        metrics.put("activeBatches", inFlightBatches.get());
+        metrics.put("enqueued", enqueuedCount.get());
+        metrics.put("sent", sentCount.get());
+        metrics.put("failedAttempts", failedAttemptCount.get());
+        metrics.put("deadLettered", deadLetterCount.get());
+        metrics.put("leasesLost", leaseLostCount.get());
+
+        long sent = sentCount.get();
+        metrics.put("avgSendLatencyMs", sent > 0 ? totalSendLatencyMs.get() / sent : 0);
+        metrics.put("maxSendLatencyMs", maxSendLatencyMs.get());
+        metrics.put("avgQueueDelayMs", sent > 0 ? totalQueueDelayMs.get() / sent : 0);
+
+        long batches = batchCount.get();
+        metrics.put("batches", batches);
+        metrics.put("avgBatchSize", batches > 0 ? (double) batchedMessageCount.get() / batches : 0);
+        metrics.put("smtpSenders", smtpSenderPool.size() + 1);
+        return metrics;
+    }
+
+    /**
+     * Most recent dead-lettered emails
+     */
+    public List<OutboundEmail> getDeadLetters() {
+        return outboundEmailRepository.findTop50ByStatusOrderByCreatedAtDesc(OutboundEmail.STATUS_DEAD);
+    }
+}
@@ -1,6 +1,7 @@
 package com.leavemanagment.leave_app.service;
 
 import com.leavemanagment.leave_app.model.LeaveRequest;
+import com.leavemanagment.leave_app.model.OutboundEmail;
 import com.leavemanagment.leave_app.model.User;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -19,6 +20,9 @@ public class EmailService {
     @Autowired
     private JavaMailSender mailSender;
 
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
     @Value("${spring.mail.username:}")
     private String fromEmail;
 
@@ -82,13 +86,7 @@ public class EmailService {
         }
     }
 
-    /**
-     * Generate approval email body (HTML)
-     */
-    private String generateApprovalEmailBody(LeaveRequest leaveRequest, User employee) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
-        
-        return String.format("""
+    private static final EmailTemplate APPROVAL_EMAIL_TEMPLATE = EmailTemplate.compile("""
             <html>
             <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333; max-width: 600px; margin: 0 auto;">
                 <div style="background: linear-gradient(135deg, #667eea 0%, #764ba2 100%); color: white; padding: 20px; border-radius: 10px; text-align: center; margin-bottom: 20px;">
@@ -97,18 +95,18 @@ public class EmailService {
                 </div>
                 
                 <div style="background: #f8f9fa; padding: 20px; border-radius: 10px;">
-                    <h2 style="color: #28a745; margin-top: 0;">Dear %s,</h2>
+                    <h2 style="color: #28a745; margin-top: 0;">Dear {{employeeName}},</h2>
                     
                     <p>Great news! Your leave request has been <strong>approved</strong> by HR.</p>
                     
                     <div style="background: white; padding: 15px; border-radius: 8px; margin: 20px 0; border-left: 4px solid #28a745;">
                         <h3 style="margin-top: 0; color: #333;">Leave Details:</h3>
                         <ul style="list-style: none; padding: 0;">
-                            <li><strong>Leave Type:</strong> %s</li>
-                            <li><strong>Start Date:</strong> %s</li>
-                            <li><strong>End Date:</strong> %s</li>
-                            <li><strong>Duration:</strong> %s days</li>
-                            <li><strong>Reason:</strong> %s</li>
+                            <li><strong>Leave Type:</strong> {{leaveType}}</li>
+                            <li><strong>Start Date:</strong> {{startDate}}</li>
+                            <li><strong>End Date:</strong> {{endDate}}</li>
+                            <li><strong>Duration:</strong> {{duration}} days</li>
+                            <li><strong>Reason:</strong> {{reason}}</li>
                         </ul>
                     </div>
                     
@@ -125,12 +123,21 @@ public class EmailService {
                     
                     <div style="margin-top: 30px; padding-top: 20px; border-top: 1px solid #e1e5e9; text-align: center; color: #6b7280; font-size: 12px;">
                         <p>This is an automated message from LeaveEase HR System</p>
-                        <p>Employee Code: %s | Department: %s</p>
+                        <p>Employee Code: {{employeeCode}} | Department: {{department}}</p>
                     </div>
                 </div>
             </body>
             </html>
-            """, 
+            """,
+            "employeeName", "leaveType", "startDate", "endDate", "duration", "reason", "employeeCode", "department");
+
+    /**
+     * Generate approval email body (HTML)
+     */
+    private String generateApprovalEmailBody(LeaveRequest leaveRequest, User employee) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
+        
+        return APPROVAL_EMAIL_TEMPLATE.render(
             employee.getFullName(),
             leaveRequest.getLeaveType(),
             leaveRequest.getStartDate().format(formatter),
@@ -142,13 +149,7 @@ public class EmailService {
         );
     }
 
-    /**
-     * Generate rejection email body (HTML)
-     */
-    private String generateRejectionEmailBody(LeaveRequest leaveRequest, User employee, String rejectionReason) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
-        
-        return String.format("""
+    private static final EmailTemplate REJECTION_EMAIL_TEMPLATE = EmailTemplate.compile("""
             <html>
             <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333; max-width: 600px; margin: 0 auto;">
                 <div style="background: linear-gradient(135deg, #dc3545 0%, #c82333 100%); color: white; padding: 20px; border-radius: 10px; text-align: center; margin-bottom: 20px;">
@@ -157,24 +158,24 @@ public class EmailService {
                 </div>
                 
                 <div style="background: #f8f9fa; padding: 20px; border-radius: 10px;">
-                    <h2 style="color: #dc3545; margin-top: 0;">Dear %s,</h2>
+                    <h2 style="color: #dc3545; margin-top: 0;">Dear {{employeeName}},</h2>
                     
                     <p>We regret to inform you that your leave request has been <strong>rejected</strong> by HR.</p>
                     
                     <div style="background: white; padding: 15px; border-radius: 8px; margin: 20px 0; border-left: 4px solid #dc3545;">
                         <h3 style="margin-top: 0; color: #333;">Leave Details:</h3>
                         <ul style="list-style: none; padding: 0;">
-                            <li><strong>Leave Type:</strong> %s</li>
-                            <li><strong>Start Date:</strong> %s</li>
-                            <li><strong>End Date:</strong> %s</li>
-                            <li><strong>Duration:</strong> %s days</li>
-                            <li><strong>Reason:</strong> %s</li>
+                            <li><strong>Leave Type:</strong> {{leaveType}}</li>
+                            <li><strong>Start Date:</strong> {{startDate}}</li>
+                            <li><strong>End Date:</strong> {{endDate}}</li>
+                            <li><strong>Duration:</strong> {{duration}} days</li>
+                            <li><strong>Reason:</strong> {{reason}}</li>
                         </ul>
                     </div>
                     
                     <div style="background: #fff3cd; border: 1px solid #ffeaa7; padding: 15px; border-radius: 8px; margin: 20px 0;">
                         <h4 style="margin-top: 0; color: #856404;">Rejection Reason:</h4>
-                        <p style="margin: 0; color: #856404;">%s</p>
+                        <p style="margin: 0; color: #856404;">{{rejectionReason}}</p>
                     </div>
                     
                     <p>If you believe this decision was made in error or if you have any questions, please contact HR for clarification.</p>
@@ -183,12 +184,21 @@ public class EmailService {
                     
                     <div style="margin-top: 30px; padding-top: 20px; border-top: 1px solid #e1e5e9; text-align: center; color: #6b7280; font-size: 12px;">
                         <p>This is an automated message from LeaveEase HR System</p>
-                        <p>Employee Code: %s | Department: %s</p>
+                        <p>Employee Code: {{employeeCode}} | Department: {{department}}</p>
                     </div>
                 </div>
             </body>
             </html>
-            """, 
+            """,
+            "employeeName", "leaveType", "startDate", "endDate", "duration", "reason", "rejectionReason", "employeeCode", "department");
+
+    /**
+     * Generate rejection email body (HTML)
+     */
+    private String generateRejectionEmailBody(LeaveRequest leaveRequest, User employee, String rejectionReason) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
+        
+        return REJECTION_EMAIL_TEMPLATE.render(
             employee.getFullName(),
             leaveRequest.getLeaveType(),
             leaveRequest.getStartDate().format(formatter),
@@ -201,13 +211,7 @@ public class EmailService {
         );
     }
 
-    /**
-     * Generate reminder email body (HTML)
-     */
-    private String generateReminderEmailBody(LeaveRequest leaveRequest, User employee) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
-        
-        return String.format("""
+    private static final EmailTemplate REMINDER_EMAIL_TEMPLATE = EmailTemplate.compile("""
             <html>
             <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333; max-width: 600px; margin: 0 auto;">
                 <div style="background: linear-gradient(135deg, #ffc107 0%, #e0a800 100%); color: white; padding: 20px; border-radius: 10px; text-align: center; margin-bottom: 20px;">
@@ -216,18 +220,18 @@ public class EmailService {
                 </div>
                 
                 <div style="background: #f8f9fa; padding: 20px; border-radius: 10px;">
-                    <h2 style="color: #ffc107; margin-top: 0;">Dear %s,</h2>
+                    <h2 style="color: #ffc107; margin-top: 0;">Dear {{employeeName}},</h2>
                     
                     <p>This is a friendly reminder about your upcoming approved leave.</p>
                     
                     <div style="background: white; padding: 15px; border-radius: 8px; margin: 20px 0; border-left: 4px solid #ffc107;">
                         <h3 style="margin-top: 0; color: #333;">Leave Details:</h3>
                         <ul style="list-style: none; padding: 0;">
-                            <li><strong>Leave Type:</strong> %s</li>
-                            <li><strong>Start Date:</strong> %s</li>
-                            <li><strong>End Date:</strong> %s</li>
-                            <li><strong>Duration:</strong> %s days</li>
-                            <li><strong>Reason:</strong> %s</li>
+                            <li><strong>Leave Type:</strong> {{leaveType}}</li>
+                            <li><strong>Start Date:</strong> {{startDate}}</li>
+                            <li><strong>End Date:</strong> {{endDate}}</li>
+                            <li><strong>Duration:</strong> {{duration}} days</li>
+                            <li><strong>Reason:</strong> {{reason}}</li>
                         </ul>
                     </div>
                     
@@ -243,12 +247,21 @@ public class EmailService {
                     
                     <div style="margin-top: 30px; padding-top: 20px; border-top: 1px solid #e1e5e9; text-align: center; color: #6b7280; font-size: 12px;">
                         <p>This is an automated message from LeaveEase HR System</p>
-                        <p>Employee Code: %s | Department: %s</p>
+                        <p>Employee Code: {{employeeCode}} | Department: {{department}}</p>
                     </div>
                 </div>
             </body>
             </html>
-            """, 
+            """,
+            "employeeName", "leaveType", "startDate", "endDate", "duration", "reason", "employeeCode", "department");
+
+    /**
+     * Generate reminder email body (HTML)
+     */
+    private String generateReminderEmailBody(LeaveRequest leaveRequest, User employee) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
+        
+        return REMINDER_EMAIL_TEMPLATE.render(
             employee.getFullName(),
             leaveRequest.getLeaveType(),
             leaveRequest.getStartDate().format(formatter),
@@ -261,7 +274,7 @@ public class EmailService {
     }
 
     /**
-     * Send HTML email
+     * Queue HTML email for delivery by the outbox workers
      */
     public void sendHtmlEmail(String toEmail, String subject, String htmlBody) throws MessagingException {
         if (fromEmail.isEmpty() || emailPassword.isEmpty()) {
@@ -273,6 +286,22 @@ public class EmailService {
             return;
         }
 
+        emailOutboxService.enqueueHtml(toEmail, subject, htmlBody);
+    }
+
+    /**
+     * Send HTML email immediately on the calling thread (used by configuration tests)
+     */
+    public void sendHtmlEmailNow(String toEmail, String subject, String htmlBody) throws MessagingException {
+        if (fromEmail.isEmpty() || emailPassword.isEmpty()) {
+            System.out.println("📧 Email configuration not set up. Logging notification instead:");
+            System.out.println("📧 To: " + toEmail);
+            System.out.println("📧 Subject: " + subject);
+            System.out.println("📧 Body: " + htmlBody.substring(0, Math.min(200, htmlBody.length())) + "...");
+            System.out.println("📧 [Please configure email settings in application.properties]");
+            return;
+        }
+
         try {
             MimeMessage message = mailSender.createMimeMessage();
             MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
@@ -305,17 +334,9 @@ public class EmailService {
         }
 
         try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(toEmail);
-            message.setSubject(subject);
-            message.setText(body);
-            
-            mailSender.send(message);
-            System.out.println("📧 Simple Email sent successfully to: " + toEmail);
-            
+            emailOutboxService.enqueue(new OutboundEmail(toEmail, subject, body, false));
         } catch (Exception e) {
-            System.err.println("❌ Error sending simple email: " + e.getMessage());
+            System.err.println("❌ Error queueing simple email: " + e.getMessage());
         }
     }
 
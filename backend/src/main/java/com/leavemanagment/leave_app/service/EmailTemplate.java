@@ -0,0 +1,124 @@
+package com.leavemanagment.leave_app.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A text template with {{name}} placeholders, parsed once into literal segments and
+ * parameter slots. Templates are meant to be compiled into static final fields, so a
+ * typo in a placeholder fails at class initialisation rather than on the first send.
+ *
+ * render() copies the segments into a per-thread StringBuilder that is reused between
+ * calls; the only allocation per render is the resulting String.
+ */
+public final class EmailTemplate {
+
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER =
+            ThreadLocal.withInitial(() -> new StringBuilder(INITIAL_BUFFER_SIZE));
+
+    private final String[] parameterNames;
+    private final String[] literals; // literals[i] comes before slots[i]; the last one closes the template
+    private final int[] slots;
+    private final int literalLength;
+
+    private EmailTemplate(String[] parameterNames, String[] literals, int[] slots) {
+        this.parameterNames = parameterNames;
+        this.literals = literals;
+        this.slots = slots;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Parse a template. Every placeholder must be one of the declared parameters and
+     * every parameter must be used; render() takes values in parameter order.
+     */
+    public static EmailTemplate compile(String source, String... parameterNames) {
+        return parse(source, true, parameterNames);
+    }
+
+    /**
+     * Parse a template produced at runtime (e.g. by a language model): every placeholder
+     * must still be a declared parameter, but parameters may be left unused.
+     */
+    public static EmailTemplate compileLenient(String source, String... parameterNames) {
+        return parse(source, false, parameterNames);
+    }
+
+    private static EmailTemplate parse(String source, boolean requireAllParameters, String... parameterNames) {
+        List<String> names = Arrays.asList(parameterNames);
+        boolean[] used = new boolean[parameterNames.length];
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+
+        int position = 0;
+        while (true) {
+            int open = source.indexOf("{{", position);
+            if (open < 0) {
+                break;
+            }
+            int close = source.indexOf("}}", open + 2);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at offset " + open);
+            }
+            String name = source.substring(open + 2, close).trim();
+            int slot = names.indexOf(name);
+            if (slot < 0) {
+                throw new IllegalArgumentException("Unknown placeholder {{" + name + "}}, declared: " + names);
+            }
+            used[slot] = true;
+            literals.add(source.substring(position, open));
+            slots.add(slot);
+            position = close + 2;
+        }
+        literals.add(source.substring(position));
+
+        for (int i = 0; i < used.length && requireAllParameters; i++) {
+            if (!used[i]) {
+                throw new IllegalArgumentException("Parameter " + parameterNames[i] + " is never used");
+            }
+        }
+
+        return new EmailTemplate(parameterNames.clone(),
+                literals.toArray(new String[0]),
+                slots.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Fill the template; values are given in the order the parameters were declared.
+     * Null values render as "null", like String.format did.
+     */
+    public String render(Object... values) {
+        if (values.length != parameterNames.length) {
+            throw new IllegalArgumentException("Expected " + parameterNames.length + " values "
+                    + Arrays.toString(parameterNames) + " but got " + values.length);
+        }
+
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        buffer.ensureCapacity(literalLength + 64 * slots.length);
+
+        for (int i = 0; i < slots.length; i++) {
+            buffer.append(literals[i]).append(values[slots[i]]);
+        }
+        buffer.append(literals[slots.length]);
+
+        String rendered = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+            // Don't keep an unusually large buffer pinned to this thread
+            BUFFER.set(new StringBuilder(INITIAL_BUFFER_SIZE));
+        }
+        return rendered;
+    }
+
+    public String[] getParameterNames() {
+        return parameterNames.clone();
+    }
+}
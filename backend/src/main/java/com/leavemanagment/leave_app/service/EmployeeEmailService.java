@@ -6,11 +6,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
 import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
 import java.time.format.DateTimeFormatter;
 
 @Service
@@ -19,6 +17,9 @@ public class EmployeeEmailService {
     @Autowired
     private JavaMailSender mailSender;
 
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
     @Value("${spring.mail.username:}")
     private String systemEmail;
 
@@ -57,13 +58,7 @@ public class EmployeeEmailService {
         }
     }
 
-    /**
-     * Generate approval email body from employee's perspective
-     */
-    private String generateEmployeeApprovalEmailBody(LeaveRequest leaveRequest, User employee) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
-        
-        return String.format("""
+    private static final EmailTemplate EMPLOYEE_APPROVAL_EMAIL_TEMPLATE = EmailTemplate.compile("""
             <html>
             <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333; max-width: 600px; margin: 0 auto;">
                 <div style="background: linear-gradient(135deg, #667eea 0%, #764ba2 100%); color: white; padding: 20px; border-radius: 10px; text-align: center; margin-bottom: 20px;">
@@ -72,18 +67,18 @@ public class EmployeeEmailService {
                 </div>
                 
                 <div style="background: #f8f9fa; padding: 20px; border-radius: 10px;">
-                    <h2 style="color: #28a745; margin-top: 0;">Dear %s,</h2>
+                    <h2 style="color: #28a745; margin-top: 0;">Dear {{employeeName}},</h2>
                     
                     <p>Great news! Your leave request has been <strong>approved</strong> by HR.</p>
                     
                     <div style="background: white; padding: 15px; border-radius: 8px; margin: 20px 0; border-left: 4px solid #28a745;">
                         <h3 style="margin-top: 0; color: #333;">Leave Details:</h3>
                         <ul style="list-style: none; padding: 0;">
-                            <li><strong>Leave Type:</strong> %s</li>
-                            <li><strong>Start Date:</strong> %s</li>
-                            <li><strong>End Date:</strong> %s</li>
-                            <li><strong>Duration:</strong> %s days</li>
-                            <li><strong>Reason:</strong> %s</li>
+                            <li><strong>Leave Type:</strong> {{leaveType}}</li>
+                            <li><strong>Start Date:</strong> {{startDate}}</li>
+                            <li><strong>End Date:</strong> {{endDate}}</li>
+                            <li><strong>Duration:</strong> {{duration}} days</li>
+                            <li><strong>Reason:</strong> {{reason}}</li>
                         </ul>
                     </div>
                     
@@ -100,32 +95,34 @@ public class EmployeeEmailService {
                     
                     <div style="margin-top: 30px; padding-top: 20px; border-top: 1px solid #e1e5e9; text-align: center; color: #6b7280; font-size: 12px;">
                         <p>This is an automated message from LeaveEase HR System</p>
-                        <p>Employee: %s | Department: %s</p>
-                        <p>Email: %s</p>
+                        <p>Employee: {{employeeName}} | Department: {{department}}</p>
+                        <p>Email: {{employeeEmail}}</p>
                     </div>
                 </div>
             </body>
             </html>
-            """, 
+            """,
+            "employeeName", "leaveType", "startDate", "endDate", "duration", "reason", "department", "employeeEmail");
+
+    /**
+     * Generate approval email body from employee's perspective
+     */
+    private String generateEmployeeApprovalEmailBody(LeaveRequest leaveRequest, User employee) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
+        
+        return EMPLOYEE_APPROVAL_EMAIL_TEMPLATE.render(
             employee.getFullName(),
             leaveRequest.getLeaveType(),
             leaveRequest.getStartDate().format(formatter),
             leaveRequest.getEndDate().format(formatter),
             String.valueOf(leaveRequest.getLeaveDuration()),
             leaveRequest.getReason() != null ? leaveRequest.getReason() : "Not specified",
-            employee.getFullName(),
             employee.getDepartment() != null ? employee.getDepartment() : "N/A",
             employee.getEmail()
         );
     }
 
-    /**
-     * Generate rejection email body from employee's perspective
-     */
-    private String generateEmployeeRejectionEmailBody(LeaveRequest leaveRequest, User employee, String rejectionReason) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
-        
-        return String.format("""
+    private static final EmailTemplate EMPLOYEE_REJECTION_EMAIL_TEMPLATE = EmailTemplate.compile("""
             <html>
             <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333; max-width: 600px; margin: 0 auto;">
                 <div style="background: linear-gradient(135deg, #dc3545 0%, #c82333 100%); color: white; padding: 20px; border-radius: 10px; text-align: center; margin-bottom: 20px;">
@@ -134,24 +131,24 @@ public class EmployeeEmailService {
                 </div>
                 
                 <div style="background: #f8f9fa; padding: 20px; border-radius: 10px;">
-                    <h2 style="color: #dc3545; margin-top: 0;">Dear %s,</h2>
+                    <h2 style="color: #dc3545; margin-top: 0;">Dear {{employeeName}},</h2>
                     
                     <p>We regret to inform you that your leave request has been <strong>rejected</strong> by HR.</p>
                     
                     <div style="background: white; padding: 15px; border-radius: 8px; margin: 20px 0; border-left: 4px solid #dc3545;">
                         <h3 style="margin-top: 0; color: #333;">Leave Details:</h3>
                         <ul style="list-style: none; padding: 0;">
-                            <li><strong>Leave Type:</strong> %s</li>
-                            <li><strong>Start Date:</strong> %s</li>
-                            <li><strong>End Date:</strong> %s</li>
-                            <li><strong>Duration:</strong> %s days</li>
-                            <li><strong>Reason:</strong> %s</li>
+                            <li><strong>Leave Type:</strong> {{leaveType}}</li>
+                            <li><strong>Start Date:</strong> {{startDate}}</li>
+                            <li><strong>End Date:</strong> {{endDate}}</li>
+                            <li><strong>Duration:</strong> {{duration}} days</li>
+                            <li><strong>Reason:</strong> {{reason}}</li>
                         </ul>
                     </div>
                     
                     <div style="background: #fff3cd; border: 1px solid #ffeaa7; padding: 15px; border-radius: 8px; margin: 20px 0;">
                         <h4 style="margin-top: 0; color: #856404;">Rejection Reason:</h4>
-                        <p style="margin: 0; color: #856404;">%s</p>
+                        <p style="margin: 0; color: #856404;">{{rejectionReason}}</p>
                     </div>
                     
                     <p>If you believe this decision was made in error or if you have any questions, please contact HR for clarification.</p>
@@ -160,13 +157,22 @@ public class EmployeeEmailService {
                     
                     <div style="margin-top: 30px; padding-top: 20px; border-top: 1px solid #e1e5e9; text-align: center; color: #6b7280; font-size: 12px;">
                         <p>This is an automated message from LeaveEase HR System</p>
-                        <p>Employee: %s | Department: %s</p>
-                        <p>Email: %s</p>
+                        <p>Employee: {{employeeName}} | Department: {{department}}</p>
+                        <p>Email: {{employeeEmail}}</p>
                     </div>
                 </div>
             </body>
             </html>
-            """, 
+            """,
+            "employeeName", "leaveType", "startDate", "endDate", "duration", "reason", "rejectionReason", "department", "employeeEmail");
+
+    /**
+     * Generate rejection email body from employee's perspective
+     */
+    private String generateEmployeeRejectionEmailBody(LeaveRequest leaveRequest, User employee, String rejectionReason) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
+        
+        return EMPLOYEE_REJECTION_EMAIL_TEMPLATE.render(
             employee.getFullName(),
             leaveRequest.getLeaveType(),
             leaveRequest.getStartDate().format(formatter),
@@ -174,7 +180,6 @@ public class EmployeeEmailService {
             String.valueOf(leaveRequest.getLeaveDuration()),
             leaveRequest.getReason() != null ? leaveRequest.getReason() : "Not specified",
             rejectionReason != null ? rejectionReason : "Not specified",
-            employee.getFullName(),
             employee.getDepartment() != null ? employee.getDepartment() : "N/A",
             employee.getEmail()
         );
@@ -194,28 +199,12 @@ public class EmployeeEmailService {
             return;
         }
 
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            
-            // Set the "from" address to show the employee's email
-            helper.setFrom(systemEmail); // System email for SMTP authentication
-            helper.setReplyTo(employee.getEmail()); // Reply-to shows employee's email
-            helper.setTo(toEmail);
-            helper.setSubject(subject);
-            helper.setText(htmlBody, true); // true indicates HTML content
-            
-            mailSender.send(message);
-            System.out.println("📧 Employee email sent successfully from: " + employee.getEmail() + " to: " + toEmail);
-        } catch (Exception e) {
-            System.err.println("❌ Error sending employee email: " + e.getMessage());
-            // Fallback to simple email
-            sendSimpleEmailFromEmployee(toEmail, subject, htmlBody.replaceAll("<[^>]*>", ""), employee);
-        }
+        emailOutboxService.enqueueHtml(toEmail, subject, htmlBody, employee.getEmail());
+        System.out.println("📬 Employee email queued from: " + employee.getEmail() + " to: " + toEmail);
     }
 
     /**
-     * Send simple text email from employee's perspective (fallback)
+     * Send simple text email from employee's perspective immediately (used by the configuration test)
      */
     private void sendSimpleEmailFromEmployee(String toEmail, String subject, String body, User employee) {
         if (systemEmail.isEmpty() || systemPassword.isEmpty()) {
@@ -0,0 +1,279 @@
+package com.leavemanagment.leave_app.service;
+
+import com.leavemanagment.leave_app.event.EmployeeKeysBackfilledEvent;
+import com.leavemanagment.leave_app.event.LeaveRequestChangedEvent;
+import com.leavemanagment.leave_app.model.LateAttendance;
+import com.leavemanagment.leave_app.model.LeaveRequest;
+import com.leavemanagment.leave_app.model.User;
+import com.leavemanagment.leave_app.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Resolves the people behind leave requests and late attendance records.
+ *
+ * The canonical employee key is the id of the User document, stored as employeeId on
+ * leave_requests and late_attendance. Joins go through that key with a single indexed
+ * lookup; employee names are only used to key records that don't have one yet (new
+ * requests, data written before the key existed), which backfill() does in bulk.
+ */
+@Service
+public class EmployeeIdentityService {
+
+    // An employeeId that is not a User id (missing, or an old Employee code like EMP001)
+    private static final String USER_ID_PATTERN = "^[0-9a-f]{24}$";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${employees.identity.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    // After the indexes are created, before anything reads the keys
+    @Order(1)
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (backfillOnStartup) {
+            try {
+                backfill();
+            } catch (Exception e) {
+                System.err.println("❌ Error backfilling employee keys: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The user a leave request belongs to. Requests without a key are resolved by name
+     * once and keyed (with the department stamped, as on new requests), so the next lookup
+     * goes by id; the keying is published as a change, so counters and indexes move it too.
+     */
+    public Optional<User> findForLeave(LeaveRequest leave) {
+        if (leave.getEmployeeId() != null && !leave.getEmployeeId().isEmpty()) {
+            Optional<User> employee = userRepository.findById(leave.getEmployeeId());
+            if (employee.isPresent()) {
+                return employee;
+            }
+        }
+
+        Optional<User> employee = findByName(leave.getEmployeeName());
+        employee.ifPresent(user -> {
+            LeaveRequest previous = new LeaveRequest(leave);
+            leave.setEmployeeId(user.getId());
+            Update update = Update.update("employeeId", user.getId());
+            if (leave.getDepartment() == null && user.getDepartment() != null) {
+                leave.setDepartment(user.getDepartment());
+                update.set("department", user.getDepartment());
+            }
+            if (leave.getId() != null
+                    && mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(leave.getId())),
+                            update, LeaveRequest.class).getModifiedCount() > 0) {
+                eventPublisher.publishEvent(new LeaveRequestChangedEvent(previous, new LeaveRequest(leave)));
+            }
+        });
+        if (employee.isEmpty()) {
+            System.err.println("❌ No user found for employee: " + leave.getEmployeeName());
+        }
+        return employee;
+    }
+
+    /**
+     * Employee key for a name as entered on a form, or null when no single user matches
+     */
+    public String resolveEmployeeId(String employeeName) {
+        return findByName(employeeName).map(User::getId).orElse(null);
+    }
+
+    /**
+     * Employee keys for many names with one users query; names no single user matches are left out
+     */
+    public Map<String, String> resolveEmployeeIds(Collection<String> employeeNames) {
+        Set<String> names = new HashSet<>(employeeNames);
+        names.removeIf(name -> name == null || name.isEmpty());
+        if (names.isEmpty()) {
+            return Map.of();
+        }
+        Query query = Query.query(new Criteria().orOperator(
+                Criteria.where("fullName").in(names),
+                Criteria.where("username").in(names)));
+        query.fields().include("fullName", "username");
+        return idsByName(mongoTemplate.find(query, User.class), names);
+    }
+
+    /**
+     * The user whose full name, or failing that username, is this name: one query over
+     * both indexed fields instead of one per field
+     */
+    public Optional<User> findByName(String employeeName) {
+        if (employeeName == null || employeeName.isEmpty()) {
+            return Optional.empty();
+        }
+        List<User> candidates = mongoTemplate.find(Query.query(new Criteria().orOperator(
+                Criteria.where("fullName").is(employeeName),
+                Criteria.where("username").is(employeeName))), User.class);
+        String id = idsByName(candidates, Set.of(employeeName)).get(employeeName);
+        return candidates.stream().filter(user -> user.getId().equals(id)).findFirst();
+    }
+
+    /**
+     * Department per employee key, read once for joins over many leave requests
+     */
+    public Map<String, String> departmentsByEmployeeId() {
+        Query query = new Query();
+        query.fields().include("department");
+        Map<String, String> departments = new HashMap<>();
+        for (User user : mongoTemplate.find(query, User.class)) {
+            if (user.getDepartment() != null) {
+                departments.put(user.getId(), user.getDepartment());
+            }
+        }
+        return departments;
+    }
+
+    public String departmentOf(String employeeId) {
+        if (employeeId == null || employeeId.isEmpty()) {
+            return null;
+        }
+        return userRepository.findById(employeeId).map(User::getDepartment).orElse(null);
+    }
+
+    /**
+     * Key every leave request and late attendance record that has no User id yet, and record
+     * the department on those that carry none.
+     * Names are resolved with one users query per collection and written with one bulk update.
+     * When records changed, an EmployeeKeysBackfilledEvent lets the rollups and in-memory
+     * views rebuild with the new keys and departments.
+     */
+    public Map<String, Object> backfill() {
+        Map<String, Object> leaves = backfill(LeaveRequest.class);
+        Map<String, Object> late = backfill(LateAttendance.class);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put(mongoTemplate.getCollectionName(LeaveRequest.class), leaves);
+        report.put(mongoTemplate.getCollectionName(LateAttendance.class), late);
+        System.out.println("🪪 Employee key backfill: " + report);
+
+        boolean leavesChanged = changed(leaves);
+        boolean lateChanged = changed(late);
+        if (leavesChanged || lateChanged) {
+            eventPublisher.publishEvent(new EmployeeKeysBackfilledEvent(leavesChanged, lateChanged));
+        }
+        return report;
+    }
+
+    private static boolean changed(Map<String, Object> result) {
+        return (Integer) result.get("updated") > 0 || (Integer) result.get("departmentsStamped") > 0;
+    }
+
+    private Map<String, Object> backfill(Class<?> entity) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        List<String> names = new ArrayList<>(
+                mongoTemplate.findDistinct(Query.query(unkeyed()), "employeeName", entity, String.class));
+        names.removeIf(name -> name == null || name.isEmpty());
+        if (names.isEmpty()) {
+            result.put("updated", 0);
+            result.put("departmentsStamped", stampDepartments(entity));
+            return result;
+        }
+
+        Map<String, String> ids = resolveEmployeeIds(names);
+
+        int updated = 0;
+        if (!ids.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, entity);
+            ids.forEach((name, id) -> bulk.updateMulti(
+                    Query.query(Criteria.where("employeeName").is(name).andOperator(unkeyed())),
+                    Update.update("employeeId", id)));
+            updated = bulk.execute().getModifiedCount();
+        }
+
+        List<String> unresolved = new ArrayList<>(names);
+        unresolved.removeAll(ids.keySet());
+        result.put("updated", updated);
+        result.put("unresolved", unresolved);
+        result.put("departmentsStamped", stampDepartments(entity));
+        return result;
+    }
+
+    /**
+     * Record the current department on keyed records that don't carry one yet, so a later
+     * department change leaves their counts where they are
+     */
+    private int stampDepartments(Class<?> entity) {
+        Criteria unstamped = Criteria.where("employeeId").regex(USER_ID_PATTERN).and("department").exists(false);
+        List<String> employeeIds = mongoTemplate.findDistinct(Query.query(unstamped), "employeeId", entity, String.class);
+        if (employeeIds.isEmpty()) {
+            return 0;
+        }
+        Map<String, String> departments = departmentsByEmployeeId();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, entity);
+        int operations = 0;
+        for (String employeeId : employeeIds) {
+            String department = departments.get(employeeId);
+            if (department != null) {
+                bulk.updateMulti(Query.query(Criteria.where("employeeId").is(employeeId).and("department").exists(false)),
+                        Update.update("department", department));
+                operations++;
+            }
+        }
+        return operations > 0 ? bulk.execute().getModifiedCount() : 0;
+    }
+
+    private static Criteria unkeyed() {
+        return Criteria.where("employeeId").not().regex(USER_ID_PATTERN);
+    }
+
+    /**
+     * User id for each name: a unique full name match wins over a unique username match.
+     * Names shared by several users stay unresolved rather than being guessed.
+     */
+    static Map<String, String> idsByName(Collection<User> users, Set<String> names) {
+        Map<String, List<String>> byFullName = new HashMap<>();
+        Map<String, String> byUsername = new HashMap<>();
+        for (User user : users) {
+            if (user.getFullName() != null && names.contains(user.getFullName())) {
+                byFullName.computeIfAbsent(user.getFullName(), key -> new ArrayList<>()).add(user.getId());
+            }
+            if (user.getUsername() != null && names.contains(user.getUsername())) {
+                byUsername.put(user.getUsername(), user.getId());
+            }
+        }
+
+        Map<String, String> ids = new HashMap<>();
+        for (String name : names) {
+            List<String> fullNameMatches = byFullName.get(name);
+            if (fullNameMatches != null) {
+                if (fullNameMatches.size() == 1) {
+                    ids.put(name, fullNameMatches.get(0));
+                }
+            } else if (byUsername.containsKey(name)) {
+                ids.put(name, byUsername.get(name));
+            }
+        }
+        return ids;
+    }
+}
@@ -1,19 +1,22 @@
 package com.leavemanagment.leave_app.service;
 
 import com.leavemanagment.leave_app.model.LeaveRequest;
+import com.leavemanagment.leave_app.model.OutboundEmail;
 import com.leavemanagment.leave_app.model.User;
-import com.leavemanagment.leave_app.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 
 import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class HREmailService {
@@ -22,7 +25,10 @@ public class HREmailService {
     private JavaMailSender mailSender;
 
     @Autowired
-    private UserRepository userRepository;
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private UserIdentityCache userIdentityCache;
 
     @Value("${spring.mail.username:}")
     private String systemEmail;
@@ -76,6 +82,44 @@ public class HREmailService {
         }
     }
 
+    /**
+     * Queue approval/rejection emails for a batch of decided leave requests with one outbox insert.
+     * Returns the ids of the requests an email was queued (or logged) for.
+     */
+    public Set<String> queueDecisionEmails(List<LeaveRequest> leaves, Map<String, User> employeesByLeaveId, User hrUser) {
+        List<OutboundEmail> emails = new ArrayList<>();
+        Set<String> notified = new HashSet<>();
+        for (LeaveRequest leave : leaves) {
+            User employee = employeesByLeaveId.get(leave.getId());
+            if (employee == null || employee.getEmail() == null) {
+                continue;
+            }
+            try {
+                boolean approved = "Approved".equals(leave.getStatus());
+                String subject = approved
+                        ? "✅ Leave Request Approved - " + leave.getLeaveType()
+                        : "❌ Leave Request Rejected - " + leave.getLeaveType();
+                String htmlBody = approved
+                        ? generateHRApprovalEmailBody(leave, employee, hrUser)
+                        : generateHRRejectionEmailBody(leave, employee, leave.getRejectionReason(), hrUser);
+                OutboundEmail email = new OutboundEmail(employee.getEmail(), subject, htmlBody, true);
+                email.setReplyTo(hrUser.getEmail());
+                emails.add(email);
+                notified.add(leave.getId());
+            } catch (Exception e) {
+                System.err.println("❌ Error preparing HR email for leave " + leave.getId() + ": " + e.getMessage());
+            }
+        }
+
+        if (systemEmail.isEmpty() || systemPassword.isEmpty()) {
+            System.out.println("📧 Email configuration not set up. " + emails.size() + " HR decision emails from "
+                    + hrUser.getEmail() + " logged instead of sent");
+            return notified;
+        }
+        emailOutboxService.enqueueAll(emails);
+        return notified;
+    }
+
     /**
      * Get HR user from authentication
      */
@@ -85,20 +129,13 @@ public class HREmailService {
             return null;
         }
 
-        String hrUsername = authentication.getName();
-        System.out.println("👤 HR Username: " + hrUsername);
+        System.out.println("👤 HR Username: " + authentication.getName());
 
-        // Find HR user by username
-        return userRepository.findByUsername(hrUsername).orElse(null);
+        // Find HR user by username (cached per user)
+        return userIdentityCache.currentUser(authentication).orElse(null);
     }
 
-    /**
-     * Generate approval email body from HR's perspective
-     */
-    private String generateHRApprovalEmailBody(LeaveRequest leaveRequest, User employee, User hrUser) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
-        
-        return String.format("""
+    private static final EmailTemplate HR_APPROVAL_EMAIL_TEMPLATE = EmailTemplate.compile("""
             <html>
             <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333; max-width: 600px; margin: 0 auto;">
                 <div style="background: linear-gradient(135deg, #28a745 0%, #20c997 100%); color: white; padding: 20px; border-radius: 10px; text-align: center; margin-bottom: 20px;">
@@ -107,18 +144,18 @@ public class HREmailService {
                 </div>
                 
                 <div style="background: #f8f9fa; padding: 20px; border-radius: 10px;">
-                    <h2 style="color: #28a745; margin-top: 0;">Dear %s,</h2>
+                    <h2 style="color: #28a745; margin-top: 0;">Dear {{employeeName}},</h2>
                     
                     <p>I am pleased to inform you that your leave request has been <strong>approved</strong>.</p>
                     
                     <div style="background: white; padding: 15px; border-radius: 8px; margin: 20px 0; border-left: 4px solid #28a745;">
                         <h3 style="margin-top: 0; color: #333;">Leave Details:</h3>
                         <ul style="list-style: none; padding: 0;">
-                            <li><strong>Leave Type:</strong> %s</li>
-                            <li><strong>Start Date:</strong> %s</li>
-                            <li><strong>End Date:</strong> %s</li>
-                            <li><strong>Duration:</strong> %s days</li>
-                            <li><strong>Reason:</strong> %s</li>
+                            <li><strong>Leave Type:</strong> {{leaveType}}</li>
+                            <li><strong>Start Date:</strong> {{startDate}}</li>
+                            <li><strong>End Date:</strong> {{endDate}}</li>
+                            <li><strong>Duration:</strong> {{duration}} days</li>
+                            <li><strong>Reason:</strong> {{reason}}</li>
                         </ul>
                     </div>
                     
@@ -135,15 +172,24 @@ public class HREmailService {
                     
                     <div style="margin-top: 30px; padding-top: 20px; border-top: 1px solid #e1e5e9; text-align: center; color: #6b7280; font-size: 12px;">
                         <p>Best regards,</p>
-                        <p><strong>%s</strong></p>
+                        <p><strong>{{hrName}}</strong></p>
                         <p>HR Department</p>
-                        <p>Email: %s</p>
+                        <p>Email: {{hrEmail}}</p>
                         <p>This is an automated message from LeaveEase HR System</p>
                     </div>
                 </div>
             </body>
             </html>
-            """, 
+            """,
+            "employeeName", "leaveType", "startDate", "endDate", "duration", "reason", "hrName", "hrEmail");
+
+    /**
+     * Generate approval email body from HR's perspective
+     */
+    private String generateHRApprovalEmailBody(LeaveRequest leaveRequest, User employee, User hrUser) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
+        
+        return HR_APPROVAL_EMAIL_TEMPLATE.render(
             employee.getFullName(),
             leaveRequest.getLeaveType(),
             leaveRequest.getStartDate().format(formatter),
@@ -155,13 +201,7 @@ public class HREmailService {
         );
     }
 
-    /**
-     * Generate rejection email body from HR's perspective
-     */
-    private String generateHRRejectionEmailBody(LeaveRequest leaveRequest, User employee, String rejectionReason, User hrUser) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
-        
-        return String.format("""
+    private static final EmailTemplate HR_REJECTION_EMAIL_TEMPLATE = EmailTemplate.compile("""
             <html>
             <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333; max-width: 600px; margin: 0 auto;">
                 <div style="background: linear-gradient(135deg, #dc3545 0%, #c82333 100%); color: white; padding: 20px; border-radius: 10px; text-align: center; margin-bottom: 20px;">
@@ -170,24 +210,24 @@ public class HREmailService {
                 </div>
                 
                 <div style="background: #f8f9fa; padding: 20px; border-radius: 10px;">
-                    <h2 style="color: #dc3545; margin-top: 0;">Dear %s,</h2>
+                    <h2 style="color: #dc3545; margin-top: 0;">Dear {{employeeName}},</h2>
                     
                     <p>I regret to inform you that your leave request has been <strong>rejected</strong>.</p>
                     
                     <div style="background: white; padding: 15px; border-radius: 8px; margin: 20px 0; border-left: 4px solid #dc3545;">
                         <h3 style="margin-top: 0; color: #333;">Leave Details:</h3>
                         <ul style="list-style: none; padding: 0;">
-                            <li><strong>Leave Type:</strong> %s</li>
-                            <li><strong>Start Date:</strong> %s</li>
-                            <li><strong>End Date:</strong> %s</li>
-                            <li><strong>Duration:</strong> %s days</li>
-                            <li><strong>Reason:</strong> %s</li>
+                            <li><strong>Leave Type:</strong> {{leaveType}}</li>
+                            <li><strong>Start Date:</strong> {{startDate}}</li>
+                            <li><strong>End Date:</strong> {{endDate}}</li>
+                            <li><strong>Duration:</strong> {{duration}} days</li>
+                            <li><strong>Reason:</strong> {{reason}}</li>
                         </ul>
                     </div>
                     
                     <div style="background: #fff3cd; border: 1px solid #ffeaa7; padding: 15px; border-radius: 8px; margin: 20px 0;">
                         <h4 style="margin-top: 0; color: #856404;">Rejection Reason:</h4>
-                        <p style="margin: 0; color: #856404;">%s</p>
+                        <p style="margin: 0; color: #856404;">{{rejectionReason}}</p>
                     </div>
                     
                     <p>If you believe this decision was made in error or if you have any questions, please contact me for clarification.</p>
@@ -196,15 +236,24 @@ public class HREmailService {
                     
                     <div style="margin-top: 30px; padding-top: 20px; border-top: 1px solid #e1e5e9; text-align: center; color: #6b7280; font-size: 12px;">
                         <p>Best regards,</p>
-                        <p><strong>%s</strong></p>
+                        <p><strong>{{hrName}}</strong></p>
                         <p>HR Department</p>
-                        <p>Email: %s</p>
+                        <p>Email: {{hrEmail}}</p>
                         <p>This is an automated message from LeaveEase HR System</p>
                     </div>
                 </div>
             </body>
             </html>
-            """, 
+            """,
+            "employeeName", "leaveType", "startDate", "endDate", "duration", "reason", "rejectionReason", "hrName", "hrEmail");
+
+    /**
+     * Generate rejection email body from HR's perspective
+     */
+    private String generateHRRejectionEmailBody(LeaveRequest leaveRequest, User employee, String rejectionReason, User hrUser) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
+        
+        return HR_REJECTION_EMAIL_TEMPLATE.render(
             employee.getFullName(),
             leaveRequest.getLeaveType(),
             leaveRequest.getStartDate().format(formatter),
@@ -231,28 +280,12 @@ public class HREmailService {
             return;
         }
 
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            
-            // Set the "from" address to show the HR's email
-            helper.setFrom(systemEmail); // System email for SMTP authentication
-            helper.setReplyTo(hrUser.getEmail()); // Reply-to shows HR's email
-            helper.setTo(toEmail);
-            helper.setSubject(subject);
-            helper.setText(htmlBody, true); // true indicates HTML content
-            
-            mailSender.send(message);
-            System.out.println("📧 HR email sent successfully from: " + hrUser.getEmail() + " to: " + toEmail);
-        } catch (Exception e) {
-            System.err.println("❌ Error sending HR email: " + e.getMessage());
-            // Fallback to simple email
-            sendSimpleEmailFromHR(toEmail, subject, htmlBody.replaceAll("<[^>]*>", ""), hrUser);
-        }
+        emailOutboxService.enqueueHtml(toEmail, subject, htmlBody, hrUser.getEmail());
+        System.out.println("📬 HR email queued from: " + hrUser.getEmail() + " to: " + toEmail);
     }
 
     /**
-     * Send simple text email from HR's email account (fallback)
+     * Send simple text email from HR's email account immediately (used by the configuration test)
      */
     private void sendSimpleEmailFromHR(String toEmail, String subject, String body, User hrUser) {
         if (systemEmail.isEmpty() || systemPassword.isEmpty()) {
@@ -0,0 +1,125 @@
+package com.leavemanagment.leave_app.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key support for the leave decision endpoints.
+ *
+ * The first request with a key runs the action; any request with the same key, while it is
+ * running or within the TTL afterwards, gets the same response without running it again, so a
+ * double click or a client retry never sends a second round of emails. Server errors are not
+ * remembered, so a failed request can be retried with its key. Keys live in this instance's memory.
+ */
+@Service
+public class IdempotencyService {
+
+    @Value("${idempotency.cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${idempotency.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    private BoundedTtlCache<String, CompletableFuture<ResponseEntity<?>>> responses;
+
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong replays = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        responses = new BoundedTtlCache<>(maxSize, ttlMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Run the action once per scope and key; without a key it simply runs
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ResponseEntity<T> execute(String scope, String key, Supplier<ResponseEntity<T>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        String cacheKey = scope + "|" + key;
+        CompletableFuture<ResponseEntity<?>> mine = new CompletableFuture<>();
+        CompletableFuture<ResponseEntity<?>> existing = responses.putIfAbsent(cacheKey, mine);
+        if (existing != null) {
+            replays.incrementAndGet();
+            System.out.println("🔁 Replaying response for idempotency key " + key);
+            try {
+                return (ResponseEntity<T>) existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+            }
+        }
+
+        executions.incrementAndGet();
+        try {
+            ResponseEntity<T> response = action.get();
+            if (response.getStatusCode().is5xxServerError()) {
+                responses.invalidate(cacheKey);
+            }
+            mine.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            responses.invalidate(cacheKey);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * execute() for the endpoints answering with a Mono (AI decisions): the completed response is
+     * remembered, and a repeat while the first is still running waits for it without blocking
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<ResponseEntity<T>> executeAsync(String scope, String key, Supplier<Mono<ResponseEntity<T>>> action) {
+        if (key == null || key.isBlank()) {
+            return Mono.defer(action);
+        }
+        return Mono.defer(() -> {
+            String cacheKey = scope + "|" + key;
+            CompletableFuture<ResponseEntity<?>> mine = new CompletableFuture<>();
+            CompletableFuture<ResponseEntity<?>> existing = responses.putIfAbsent(cacheKey, mine);
+            if (existing != null) {
+                replays.incrementAndGet();
+                System.out.println("🔁 Replaying response for idempotency key " + key);
+                // A replay that goes away must not cancel the first request's response
+                return Mono.fromFuture(existing, true).map(response -> (ResponseEntity<T>) response);
+            }
+
+            executions.incrementAndGet();
+            return Mono.defer(action)
+                    .doOnSuccess(response -> {
+                        if (response == null || response.getStatusCode().is5xxServerError()) {
+                            responses.invalidate(cacheKey);
+                        }
+                        mine.complete(response);
+                    })
+                    .doOnError(e -> {
+                        responses.invalidate(cacheKey);
+                        mine.completeExceptionally(e);
+                    })
+                    .doOnCancel(() -> {
+                        // The client went away before the decision finished: let a retry run it
+                        responses.invalidate(cacheKey);
+                        mine.cancel(false);
+                    });
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = responses.getStats();
+        stats.put("executions", executions.get());
+        stats.put("replays", replays.get());
+        return stats;
+    }
+}
@@ -0,0 +1,231 @@
+package com.leavemanagment.leave_app.service;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import java.security.Key;
+import java.security.Principal;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Signed access tokens for the stateless mode (security.jwt.enabled=true).
+ *
+ * A token carries the username (sub), user id, full name and role, signed with HMAC-SHA256.
+ * security.jwt.keys lists kid:base64-secret pairs: the first one signs new tokens, the others
+ * are still accepted, so a key is rotated by putting a new one in front and dropping the old
+ * one once its tokens have expired. Every node with the same keys accepts every token, and
+ * no user lookup is needed to authenticate a request; a role change takes effect with the
+ * next token.
+ */
+@Service
+public class JwtTokenService {
+
+    @Value("${security.jwt.enabled:false}")
+    private boolean enabled;
+
+    @Value("${security.jwt.keys:}")
+    private String keysProperty;
+
+    @Value("${security.jwt.issuer:leave-app}")
+    private String issuer;
+
+    @Value("${security.jwt.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    @Value("${security.jwt.cookie-name:ACCESS_TOKEN}")
+    private String cookieName;
+
+    private String signingKid;
+    private Map<String, SecretKey> keys = Map.of();
+
+    private final AtomicLong issued = new AtomicLong();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * The signed-in user as read from a token
+     */
+    public record JwtPrincipal(String userId, String username, String fullName, String role) implements Principal {
+        @Override
+        public String getName() {
+            return username;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        if (keysProperty == null || keysProperty.isBlank()) {
+            byte[] secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+            keysProperty = "generated:" + Base64.getEncoder().encodeToString(secret);
+            System.err.println("⚠️ security.jwt.keys not set: using a random key, tokens won't survive a restart or work on other nodes");
+        }
+        keys = parseKeys(keysProperty);
+        signingKid = keys.keySet().iterator().next();
+        System.out.println("🔑 Stateless JWT authentication enabled, signing with key " + signingKid
+                + " (" + keys.size() + " accepted)");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getCookieName() {
+        return cookieName;
+    }
+
+    public Duration getTtl() {
+        return Duration.ofMinutes(ttlMinutes);
+    }
+
+    /**
+     * A token for the user just authenticated by the form login or the token endpoint
+     */
+    public String issue(Authentication authentication) {
+        CustomUserDetailsService.CustomUserPrincipal principal =
+                (CustomUserDetailsService.CustomUserPrincipal) authentication.getPrincipal();
+        Instant now = Instant.now();
+        issued.incrementAndGet();
+        return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, signingKid)
+                .setIssuer(issuer)
+                .setSubject(principal.getUsername())
+                .claim("uid", principal.getUser().getId())
+                .claim("name", principal.getFullName())
+                .claim("role", principal.getRole())
+                .setIssuedAt(Date.from(now))
+                .setExpiration(Date.from(now.plus(getTtl())))
+                .signWith(keys.get(signingKid), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    /**
+     * The authentication a valid token stands for; empty when it is malformed, expired,
+     * signed with an unknown key or issued by someone else
+     */
+    public Optional<Authentication> authenticate(String token) {
+        try {
+            Claims claims = Jwts.parserBuilder()
+                    .requireIssuer(issuer)
+                    .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                        @Override
+                        public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                            SecretKey key = keys.get(header.getKeyId());
+                            if (key == null) {
+                                throw new JwtException("Unknown signing key " + header.getKeyId());
+                            }
+                            return key;
+                        }
+                    })
+                    .build()
+                    .parseClaimsJws(token)
+                    .getBody();
+            String role = claims.get("role", String.class);
+            JwtPrincipal principal = new JwtPrincipal(claims.get("uid", String.class), claims.getSubject(),
+                    claims.get("name", String.class), role);
+            accepted.incrementAndGet();
+            return Optional.of(new UsernamePasswordAuthenticationToken(principal, null,
+                    role != null ? List.of(new SimpleGrantedAuthority("ROLE_" + role)) : List.of()));
+        } catch (JwtException | IllegalArgumentException e) {
+            rejected.incrementAndGet();
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * The token of a request: an Authorization bearer header, or else the access token cookie
+     */
+    public Optional<String> tokenOf(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.startsWith("Bearer ")) {
+            return Optional.of(header.substring("Bearer ".length()).trim());
+        }
+        if (request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if (cookieName.equals(cookie.getName()) && !cookie.getValue().isEmpty()) {
+                    return Optional.of(cookie.getValue());
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Hand the token to the browser pages as an HttpOnly cookie; a null token clears it
+     */
+    public void writeCookie(HttpServletResponse response, String token, boolean secure) {
+        ResponseCookie cookie = ResponseCookie.from(cookieName, token != null ? token : "")
+                .httpOnly(true)
+                .secure(secure)
+                .sameSite("Lax")
+                .path("/")
+                .maxAge(token != null ? getTtl() : Duration.ZERO)
+                .build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("signingKey", signingKid);
+        stats.put("acceptedKeys", keys.keySet());
+        stats.put("ttlMinutes", ttlMinutes);
+        stats.put("issued", issued.get());
+        stats.put("accepted", accepted.get());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+
+    /**
+     * "kid:base64,kid:base64" into keys by id, in order; secrets must be at least 256 bits
+     */
+    static Map<String, SecretKey> parseKeys(String property) {
+        Map<String, SecretKey> keys = new LinkedHashMap<>();
+        for (String entry : property.split(",")) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int separator = trimmed.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("security.jwt.keys entries must be kid:base64-secret");
+            }
+            byte[] secret = Base64.getDecoder().decode(trimmed.substring(separator + 1).trim());
+            keys.put(trimmed.substring(0, separator).trim(), Keys.hmacShaKeyFor(secret));
+        }
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("security.jwt.keys has no keys");
+        }
+        return keys;
+    }
+}
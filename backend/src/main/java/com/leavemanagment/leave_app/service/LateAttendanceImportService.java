@@ -0,0 +1,379 @@
+package com.leavemanagment.leave_app.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leavemanagment.leave_app.model.LateAttendance;
+import com.mongodb.bulk.BulkWriteError;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bulk late marking from a badge-reader export, as CSV (with a header row) or NDJSON (one JSON
+ * object per line). Columns: employeeName, date, arrivalTime, reason, notes; only the name is
+ * required. Rows with an arrival time are late when they arrive after late-attendance.import.late-after,
+ * rows without one are all marked late.
+ *
+ * The body is read line by line and written in batches: one users query resolves the batch's
+ * new names, repeats of an employee and day in the file are dropped in memory, and the records
+ * go out in one unordered bulk insert. Days already marked are rejected by the unique
+ * (employeeId, date) index and reported as alreadyMarked; every other problem is reported with
+ * its line number, and the rest of the file is still imported.
+ */
+@Service
+public class LateAttendanceImportService {
+
+    public static final String CSV = "csv";
+    public static final String NDJSON = "ndjson";
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private EmployeeIdentityService employeeIdentityService;
+
+    @Autowired
+    private LateAttendanceRollupService lateAttendanceRollupService;
+
+    @Autowired
+    private AttendanceBitmapService attendanceBitmapService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${late-attendance.import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${late-attendance.import.late-after:09:30}")
+    private String lateAfter;
+
+    @Value("${late-attendance.import.max-reported-errors:500}")
+    private int maxReportedErrors;
+
+    /**
+     * One row of the export, after parsing
+     */
+    record ImportRow(int line, String employeeName, LocalDate date, LocalTime arrival, String reason, String notes) {
+    }
+
+    public Map<String, Object> importArrivals(InputStream body, String format, LocalDate defaultDate, String markedBy) throws IOException {
+        long started = System.currentTimeMillis();
+        Import run = new Import(markedBy);
+        LocalTime cutoff = LocalTime.parse(lateAfter);
+        boolean csv = !NDJSON.equals(format);
+        List<String> header = null;
+        List<ImportRow> batch = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber == 1 && line.startsWith("\uFEFF")) {
+                    line = line.substring(1);
+                }
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (csv && header == null) {
+                    header = splitCsvLine(line);
+                    continue;
+                }
+
+                run.rows++;
+                ImportRow row;
+                try {
+                    Map<String, String> fields = csv ? csvFields(header, splitCsvLine(line)) : jsonFields(line);
+                    row = toRow(lineNumber, fields, defaultDate);
+                } catch (IllegalArgumentException e) {
+                    run.error(lineNumber, null, e.getMessage());
+                    continue;
+                }
+                if (!isLate(row, cutoff)) {
+                    run.onTime++;
+                    continue;
+                }
+                batch.add(row);
+                if (batch.size() >= batchSize) {
+                    write(batch, run);
+                    batch = new ArrayList<>();
+                }
+            }
+        }
+        write(batch, run);
+
+        long tookMs = System.currentTimeMillis() - started;
+        System.out.println("📥 Late attendance import: " + run.rows + " rows, " + run.inserted + " marked late, "
+                + run.alreadyMarked + " already marked, " + run.errorCount + " errors in " + tookMs + "ms");
+        Map<String, Object> report = run.report();
+        report.put("tookMs", tookMs);
+        return report;
+    }
+
+    private void write(List<ImportRow> batch, Import run) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        // Names not seen in an earlier batch, in one users query
+        Set<String> newNames = new HashSet<>();
+        for (ImportRow row : batch) {
+            if (!run.employeeIds.containsKey(row.employeeName())) {
+                newNames.add(row.employeeName());
+            }
+        }
+        if (!newNames.isEmpty()) {
+            Map<String, String> resolved = employeeIdentityService.resolveEmployeeIds(newNames);
+            newNames.forEach(name -> run.employeeIds.put(name, resolved.get(name)));
+        }
+
+        List<ImportRow> rows = new ArrayList<>();
+        List<LateAttendance> records = new ArrayList<>();
+        for (ImportRow row : batch) {
+            String employeeId = run.employeeIds.get(row.employeeName());
+            if (employeeId == null) {
+                run.error(row.line(), row.employeeName(), "Unknown employee: " + row.employeeName());
+                continue;
+            }
+            if (!run.seen.add(employeeId + "|" + row.date())) {
+                run.duplicatesInFile++;
+                continue;
+            }
+            LateAttendance record = new LateAttendance(row.employeeName(), employeeId, row.date(), reasonOf(row), run.markedBy);
+            record.setNotes(row.notes());
+            record.setDepartment(run.departments().get(employeeId));
+            rows.add(row);
+            records.add(record);
+        }
+        if (records.isEmpty()) {
+            return;
+        }
+
+        Set<Integer> failed = new HashSet<>();
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, LateAttendance.class).insert(records).execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                failed.add(error.getIndex());
+                ImportRow row = rows.get(error.getIndex());
+                if (error.getCode() == DUPLICATE_KEY) {
+                    run.alreadyMarked++;
+                } else {
+                    run.error(row.line(), row.employeeName(), error.getMessage());
+                }
+            }
+        }
+
+        List<LateAttendance> inserted = new ArrayList<>();
+        for (int i = 0; i < records.size(); i++) {
+            if (!failed.contains(i)) {
+                inserted.add(records.get(i));
+            }
+        }
+        run.inserted += inserted.size();
+        lateAttendanceRollupService.onMarked(inserted);
+        attendanceBitmapService.onLateMarked(inserted);
+    }
+
+    private Map<String, String> jsonFields(String line) {
+        Map<?, ?> object;
+        try {
+            object = objectMapper.readValue(line, Map.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+        }
+        if (object == null) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        Map<String, String> fields = new HashMap<>();
+        object.forEach((key, value) -> {
+            if (value != null) {
+                fields.put(String.valueOf(key), String.valueOf(value));
+            }
+        });
+        return fields;
+    }
+
+    /**
+     * Progress and report of one import
+     */
+    private class Import {
+        final String markedBy;
+        final Map<String, String> employeeIds = new HashMap<>();
+        Map<String, String> departments;
+        final Set<String> seen = new HashSet<>();
+        final List<Map<String, Object>> errors = new ArrayList<>();
+        int rows, onTime, inserted, duplicatesInFile, alreadyMarked, errorCount;
+
+        Import(String markedBy) {
+            this.markedBy = markedBy;
+        }
+
+        // Departments of all users, loaded when the first record needs one
+        Map<String, String> departments() {
+            if (departments == null) {
+                departments = employeeIdentityService.departmentsByEmployeeId();
+            }
+            return departments;
+        }
+
+        void error(int line, String employeeName, String message) {
+            errorCount++;
+            if (errors.size() < maxReportedErrors) {
+                Map<String, Object> error = new LinkedHashMap<>();
+                error.put("line", line);
+                if (employeeName != null) {
+                    error.put("employeeName", employeeName);
+                }
+                error.put("message", message);
+                errors.add(error);
+            }
+        }
+
+        Map<String, Object> report() {
+            Map<String, Object> report = new HashMap<>();
+            report.put("rows", rows);
+            report.put("onTime", onTime);
+            report.put("markedLate", inserted);
+            report.put("duplicatesInFile", duplicatesInFile);
+            report.put("alreadyMarked", alreadyMarked);
+            report.put("errorCount", errorCount);
+            report.put("errors", errors);
+            report.put("errorsTruncated", errorCount > errors.size());
+            return report;
+        }
+    }
+
+    // ========== PARSING ==========
+
+    /**
+     * A row from its fields; header names are matched ignoring case, spaces and underscores
+     */
+    static ImportRow toRow(int line, Map<String, String> fields, LocalDate defaultDate) {
+        Map<String, String> normalized = new HashMap<>();
+        fields.forEach((key, value) -> {
+            if (key != null && value != null && !value.isBlank()) {
+                normalized.put(key.toLowerCase().replaceAll("[^a-z0-9]", ""), value.trim());
+            }
+        });
+
+        String employeeName = first(normalized, "employeename", "name", "employee");
+        if (employeeName == null) {
+            throw new IllegalArgumentException("Missing employeeName");
+        }
+
+        LocalDate date = defaultDate;
+        LocalTime arrival = null;
+        String dateValue = first(normalized, "date");
+        String arrivalValue = first(normalized, "arrivaltime", "arrival", "time", "checkin");
+        try {
+            if (dateValue != null) {
+                date = LocalDate.parse(dateValue);
+            }
+            if (arrivalValue != null) {
+                if (arrivalValue.contains("T")) {
+                    LocalDateTime timestamp = LocalDateTime.parse(arrivalValue);
+                    arrival = timestamp.toLocalTime();
+                    if (dateValue == null) {
+                        date = timestamp.toLocalDate();
+                    }
+                } else {
+                    arrival = LocalTime.parse(arrivalValue);
+                }
+            }
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date or time: " + e.getParsedString());
+        }
+        if (date == null) {
+            throw new IllegalArgumentException("Missing date");
+        }
+        return new ImportRow(line, employeeName, date, arrival, first(normalized, "reason"), first(normalized, "notes"));
+    }
+
+    static Map<String, String> csvFields(List<String> header, List<String> values) {
+        if (values.size() > header.size()) {
+            throw new IllegalArgumentException("Expected " + header.size() + " columns, found " + values.size());
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            fields.put(header.get(i), values.get(i));
+        }
+        return fields;
+    }
+
+    /**
+     * One CSV line into its values; quoted values may contain commas and "" for a quote
+     */
+    static List<String> splitCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString().trim());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted value");
+        }
+        values.add(value.toString().trim());
+        return values;
+    }
+
+    static boolean isLate(ImportRow row, LocalTime lateAfter) {
+        return row.arrival() == null || row.arrival().isAfter(lateAfter);
+    }
+
+    private static String reasonOf(ImportRow row) {
+        if (row.reason() != null) {
+            return row.reason();
+        }
+        return row.arrival() != null ? "Arrived at " + row.arrival() : null;
+    }
+
+    private static String first(Map<String, String> fields, String... names) {
+        for (String name : names) {
+            if (fields.containsKey(name)) {
+                return fields.get(name);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,207 @@
+package com.leavemanagment.leave_app.service;
+
+import com.leavemanagment.leave_app.event.EmployeeKeysBackfilledEvent;
+import com.leavemanagment.leave_app.model.LateAttendance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Late attendance counters per month, per employee and per department, kept in the
+ * late_attendance_rollups collection with the same CounterStore as the leave statistics.
+ *
+ * LateAttendanceService applies each record's contribution when it is marked and removes it
+ * when it is deleted (updates only touch reason and notes), so the monthly widget and the
+ * late-days count read a few counters instead of the raw records. rebuild() and verify()
+ * recompute everything from late_attendance and report drift.
+ */
+@Service
+public class LateAttendanceRollupService {
+
+    public static final String COLLECTION = "late_attendance_rollups";
+
+    @Autowired
+    private CounterStore counterStore;
+
+    @Autowired
+    private EmployeeIdentityService employeeIdentityService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // After the employee key backfill, so the counters are built with the keys
+    @Order(2)
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeRollups() {
+        try {
+            if (counterStore.isEmpty(COLLECTION)) {
+                System.out.println("🔄 Building late attendance rollups from late_attendance...");
+                rebuild();
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Error initializing late attendance rollups: " + e.getMessage());
+        }
+    }
+
+    // Late records that just got a key or department now count for that employee and department
+    @EventListener
+    public void onEmployeeKeysBackfilled(EmployeeKeysBackfilledEvent event) {
+        if (event.isLateAttendanceChanged()) {
+            rebuild();
+        }
+    }
+
+    public void onMarked(LateAttendance record) {
+        apply(record, 1);
+    }
+
+    /**
+     * Many new records at once (imports): one department lookup and one counter write
+     */
+    public void onMarked(Collection<LateAttendance> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        try {
+            Map<String, String> departments = employeeIdentityService.departmentsByEmployeeId();
+            Map<String, Long> deltas = new HashMap<>();
+            for (LateAttendance record : records) {
+                contributions(record, departmentOf(record, departments))
+                        .forEach((key, value) -> deltas.merge(key, value, Long::sum));
+            }
+            counterStore.increment(COLLECTION, deltas);
+        } catch (Exception e) {
+            System.err.println("❌ Error updating late attendance rollups: " + e.getMessage());
+        }
+    }
+
+    public void onDeleted(LateAttendance record) {
+        apply(record, -1);
+    }
+
+    private void apply(LateAttendance record, long sign) {
+        try {
+            Map<String, Long> deltas = new HashMap<>();
+            String department = record.getDepartment() != null
+                    ? record.getDepartment() : employeeIdentityService.departmentOf(record.getEmployeeId());
+            contributions(record, department)
+                    .forEach((key, value) -> deltas.put(key, sign * value));
+            counterStore.increment(COLLECTION, deltas);
+        } catch (Exception e) {
+            System.err.println("❌ Error updating late attendance rollups: " + e.getMessage());
+        }
+    }
+
+    // ========== READS ==========
+
+    /**
+     * Late days of one employee key in a month
+     */
+    public long getEmployeeMonthCount(String employeeId, int year, int month) {
+        return counterStore.get(COLLECTION, monthKey(year, month) + ":employee:" + employeeId);
+    }
+
+    /**
+     * Late days in a month: the total, per employee name and per department
+     */
+    public Map<String, Object> getMonthSummary(int year, int month) {
+        String prefix = monthKey(year, month);
+        Map<String, Long> employees = new TreeMap<>();
+        Map<String, Long> departments = new TreeMap<>();
+        long total = 0;
+        for (Map.Entry<String, Long> counter : counterStore.findByPrefix(COLLECTION, prefix).entrySet()) {
+            String key = counter.getKey();
+            long value = counter.getValue();
+            if (value <= 0) {
+                continue;
+            }
+            if (key.equals(prefix)) {
+                total = value;
+            } else if (key.startsWith(prefix + ":name:")) {
+                employees.put(key.substring((prefix + ":name:").length()), value);
+            } else if (key.startsWith(prefix + ":department:")) {
+                departments.put(key.substring((prefix + ":department:").length()), value);
+            }
+        }
+
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("year", year);
+        summary.put("month", month);
+        summary.put("totalLateDays", total);
+        summary.put("employeesAffected", employees.size());
+        summary.put("employees", employees);
+        summary.put("departments", departments);
+        return summary;
+    }
+
+    // ========== REBUILD / VERIFY ==========
+
+    public Map<String, Object> verify() {
+        return counterStore.verify(COLLECTION, this::computeFromSource);
+    }
+
+    public Map<String, Object> rebuild() {
+        Map<String, Object> report = counterStore.rebuild(COLLECTION, this::computeFromSource);
+        System.out.println("✅ Late attendance rollups rebuilt: " + report.get("counterCount") + " counters");
+        return report;
+    }
+
+    private Map<String, Long> computeFromSource() {
+        Map<String, String> departments = employeeIdentityService.departmentsByEmployeeId();
+        Query query = new Query();
+        query.fields().include("employeeName", "employeeId", "date", "department");
+
+        Map<String, Long> counters = new HashMap<>();
+        try (Stream<LateAttendance> records = mongoTemplate.stream(query, LateAttendance.class)) {
+            records.forEach(record -> contributions(record, departmentOf(record, departments))
+                    .forEach((key, value) -> counters.merge(key, value, Long::sum)));
+        }
+        return counters;
+    }
+
+    // ========== CONTRIBUTIONS ==========
+
+    /**
+     * Counters a single late record contributes to
+     */
+    static Map<String, Long> contributions(LateAttendance record, String department) {
+        Map<String, Long> counters = new HashMap<>();
+        LocalDate date = record.getDate();
+        if (date == null) {
+            return counters;
+        }
+        String prefix = monthKey(date.getYear(), date.getMonthValue());
+        counters.put(prefix, 1L);
+        if (record.getEmployeeName() != null) {
+            counters.put(prefix + ":name:" + record.getEmployeeName(), 1L);
+        }
+        if (record.getEmployeeId() != null && !record.getEmployeeId().isEmpty()) {
+            counters.put(prefix + ":employee:" + record.getEmployeeId(), 1L);
+            counters.put("employee:" + record.getEmployeeId(), 1L);
+        }
+        if (department != null && !department.trim().isEmpty()) {
+            counters.put(prefix + ":department:" + department, 1L);
+        }
+        return counters;
+    }
+
+    // The department stamped on the record; records from before stamping use the user's current one
+    private static String departmentOf(LateAttendance record, Map<String, String> departments) {
+        return record.getDepartment() != null ? record.getDepartment() : departments.get(record.getEmployeeId());
+    }
+
+    static String monthKey(int year, int month) {
+        return String.format("month:%d-%02d", year, month);
+    }
+}
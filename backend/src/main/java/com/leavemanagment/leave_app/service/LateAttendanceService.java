@@ -3,10 +3,12 @@ package com.leavemanagment.leave_app.service;
 import com.leavemanagment.leave_app.model.LateAttendance;
 import com.leavemanagment.leave_app.repository.LateAttendanceRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -16,7 +18,13 @@ public class LateAttendanceService {
     private LateAttendanceRepository lateAttendanceRepository;
     
     @Autowired
-    private EmployeeService employeeService;
+    private EmployeeIdentityService employeeIdentityService;
+    
+    @Autowired
+    private LateAttendanceRollupService lateAttendanceRollupService;
+    
+    @Autowired
+    private AttendanceBitmapService attendanceBitmapService;
     
     /**
      * Mark an employee as late on a specific date
@@ -27,13 +35,23 @@ public class LateAttendanceService {
             throw new RuntimeException("Employee already marked as late on " + date);
         }
         
-        // Get employee ID from employee service
-        String employeeId = employeeService.getEmployeeIdByName(employeeName);
+        // Employee key (User ID) for the name
+        String employeeId = employeeIdentityService.resolveEmployeeId(employeeName);
         
         LateAttendance lateAttendance = new LateAttendance(employeeName, employeeId, date, reason, markedBy);
         lateAttendance.setNotes(notes);
+        lateAttendance.setDepartment(employeeIdentityService.departmentOf(employeeId));
         
-        return lateAttendanceRepository.save(lateAttendance);
+        LateAttendance saved;
+        try {
+            saved = lateAttendanceRepository.save(lateAttendance);
+        } catch (DuplicateKeyException e) {
+            // Same employee key under another spelling of the name
+            throw new RuntimeException("Employee already marked as late on " + date);
+        }
+        lateAttendanceRollupService.onMarked(saved);
+        attendanceBitmapService.onLateMarked(saved);
+        return saved;
     }
     
     /**
@@ -43,6 +61,13 @@ public class LateAttendanceService {
         return lateAttendanceRepository.findByEmployeeNameOrderByDateDesc(employeeName);
     }
     
+    /**
+     * Get all late attendance records for an employee key (User ID)
+     */
+    public List<LateAttendance> getLateAttendanceForEmployeeId(String employeeId) {
+        return lateAttendanceRepository.findByEmployeeIdOrderByDateDesc(employeeId);
+    }
+    
     /**
      * Get late attendance records for an employee within a date range
      */
@@ -65,10 +90,24 @@ public class LateAttendanceService {
     }
     
     /**
-     * Check if an employee was late on a specific date
+     * Check if an employee was late on a specific date, by employee key, from the attendance bitmaps
      */
-    public boolean isEmployeeLateOnDate(String employeeName, LocalDate date) {
-        return lateAttendanceRepository.existsByEmployeeNameAndDate(employeeName, date);
+    public boolean isEmployeeIdLateOnDate(String employeeId, LocalDate date) {
+        return attendanceBitmapService.isLate(employeeId, date);
+    }
+    
+    /**
+     * Late days, leave days and late streaks of an employee key in a date range
+     */
+    public Map<String, Object> getAttendancePattern(String employeeId, LocalDate startDate, LocalDate endDate) {
+        return attendanceBitmapService.getPattern(employeeId, startDate, endDate);
+    }
+    
+    /**
+     * Employees late on at least minDays working days in a row within a date range
+     */
+    public List<Map<String, Object>> findLateStreaks(LocalDate startDate, LocalDate endDate, int minDays) {
+        return attendanceBitmapService.findLateStreaks(startDate, endDate, minDays);
     }
     
     /**
@@ -79,7 +118,7 @@ public class LateAttendanceService {
     }
     
     /**
-     * Update late attendance record
+     * Update late attendance record (reason and notes only, so the rollups don't change)
      */
     public LateAttendance updateLateAttendance(String id, String reason, String notes) {
         Optional<LateAttendance> optional = lateAttendanceRepository.findById(id);
@@ -96,17 +135,24 @@ public class LateAttendanceService {
      * Delete late attendance record
      */
     public void deleteLateAttendance(String id) {
-        lateAttendanceRepository.deleteById(id);
+        lateAttendanceRepository.findById(id).ifPresent(lateAttendance -> {
+            lateAttendanceRepository.deleteById(id);
+            lateAttendanceRollupService.onDeleted(lateAttendance);
+            attendanceBitmapService.onLateDeleted(lateAttendance);
+        });
     }
     
     /**
-     * Get count of late days for an employee in a month
+     * Get count of late days for an employee key in a month, from the rollups
      */
-    public long getLateDaysCountForEmployeeInMonth(String employeeName, int year, int month) {
-        LocalDate startDate = LocalDate.of(year, month, 1);
-        LocalDate endDate = startDate.plusMonths(1).minusDays(1);
-        
-        List<LateAttendance> lateRecords = lateAttendanceRepository.findByEmployeeNameAndDateBetween(employeeName, startDate, endDate);
-        return lateRecords.size();
+    public long getLateDaysCountForEmployeeIdInMonth(String employeeId, int year, int month) {
+        return lateAttendanceRollupService.getEmployeeMonthCount(employeeId, year, month);
+    }
+    
+    /**
+     * Late days in a month in total, per employee and per department, from the rollups
+     */
+    public Map<String, Object> getMonthSummary(int year, int month) {
+        return lateAttendanceRollupService.getMonthSummary(year, month);
     }
-} 
\ No newline at end of file
+}
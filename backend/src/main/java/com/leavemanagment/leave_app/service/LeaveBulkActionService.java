@@ -0,0 +1,256 @@
+package com.leavemanagment.leave_app.service;
+
+import com.leavemanagment.leave_app.event.LeaveRequestChangedEvent;
+import com.leavemanagment.leave_app.event.LeaveRequestsChangedEvent;
+import com.leavemanagment.leave_app.model.LeaveRequest;
+import com.leavemanagment.leave_app.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Approves or rejects many leave requests at once.
+ *
+ * The requests are read with one _id $in query, the status changes written with one unordered
+ * bulk write, the employees read with one _id $in query on users, and the notification emails
+ * queued with one outbox insert, so the round trips don't grow with the number of requests.
+ * Only pending requests are decided, and each update is guarded by that status, so a request
+ * decided concurrently by someone else is reported as unchanged or a conflict instead of being
+ * overwritten, and is neither announced nor emailed a second time.
+ */
+@Service
+public class LeaveBulkActionService {
+
+    public static final String APPROVE = "approve";
+    public static final String REJECT = "reject";
+
+    // Outcome of each requested id
+    static final String UPDATED = "updated";
+    static final String UNCHANGED = "unchanged";
+    static final String NOT_FOUND = "notFound";
+    static final String CONFLICT = "conflict";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private EmployeeIdentityService employeeIdentityService;
+
+    @Autowired
+    private HREmailService hrEmailService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${leaves.bulk-action.max-ids:1000}")
+    private int maxIds;
+
+    /**
+     * Apply an approve or reject decision to every id and report what happened to each one
+     */
+    public Map<String, Object> apply(String action, Collection<String> ids, String rejectionReason, User hrUser) {
+        String targetStatus = targetStatus(action);
+        Set<String> requested = new LinkedHashSet<>(ids);
+        requested.removeIf(id -> id == null || id.isBlank());
+        if (requested.isEmpty()) {
+            throw new IllegalArgumentException("No leave request ids given");
+        }
+        if (requested.size() > maxIds) {
+            throw new IllegalArgumentException("At most " + maxIds + " leave requests per bulk action");
+        }
+        String reason = APPROVE.equals(action) ? null : rejectionReason;
+
+        Map<String, LeaveRequest> found = mongoTemplate.find(Query.query(Criteria.where("_id").in(requested)), LeaveRequest.class)
+                .stream().collect(Collectors.toMap(LeaveRequest::getId, Function.identity()));
+        Map<String, String> outcomes = plan(requested, found, targetStatus);
+
+        List<LeaveRequest> toUpdate = new ArrayList<>();
+        outcomes.forEach((id, outcome) -> {
+            if (UPDATED.equals(outcome)) {
+                toUpdate.add(found.get(id));
+            }
+        });
+
+        List<LeaveRequest> updated = write(toUpdate, targetStatus, reason, outcomes);
+        Map<String, User> employees = employeesOf(updated);
+        Set<String> notified = hrUser != null
+                ? hrEmailService.queueDecisionEmails(updated, employees, hrUser)
+                : Set.of();
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        outcomes.forEach((id, outcome) -> {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("id", id);
+            result.put("outcome", outcome);
+            LeaveRequest leave = found.get(id);
+            if (leave != null) {
+                result.put("employeeName", leave.getEmployeeName());
+                result.put("status", leave.getStatus());
+            }
+            if (UPDATED.equals(outcome)) {
+                result.put("notified", notified.contains(id));
+            }
+            results.add(result);
+            counts.merge(outcome, 1, Integer::sum);
+        });
+
+        System.out.println("📦 Bulk " + action + " of " + requested.size() + " leave requests: " + counts);
+        Map<String, Object> response = new HashMap<>();
+        response.put("action", action);
+        response.put("requested", requested.size());
+        response.put("counts", counts);
+        response.put("notified", notified.size());
+        response.put("results", results);
+        return response;
+    }
+
+    /**
+     * Write the new status of every request in one bulk write. When fewer documents matched than
+     * were sent, the requests are read back once: only those carrying this write's status and
+     * updatedAt were changed by it, the others changed underneath us and are reported as
+     * unchanged (already in the target status) or conflicts. Returns the requests this write
+     * updated, with their new status; events are published only for them.
+     */
+    private List<LeaveRequest> write(List<LeaveRequest> leaves, String targetStatus, String reason,
+                                     Map<String, String> outcomes) {
+        if (leaves.isEmpty()) {
+            return leaves;
+        }
+        // Millisecond precision, so the timestamp read back from MongoDB compares equal
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, LeaveRequest.class);
+        for (LeaveRequest leave : leaves) {
+            bulk.updateOne(
+                    Query.query(Criteria.where("_id").is(leave.getId()).and("status").is(leave.getStatus())),
+                    new Update().set("status", targetStatus).set("rejectionReason", reason).set("updatedAt", now));
+        }
+        int matched = bulk.execute().getMatchedCount();
+
+        Map<String, LeaveRequest> current = null;
+        if (matched < leaves.size()) {
+            Query query = Query.query(Criteria.where("_id").in(leaves.stream().map(LeaveRequest::getId).toList()));
+            query.fields().include("status", "updatedAt");
+            current = mongoTemplate.find(query, LeaveRequest.class).stream()
+                    .collect(Collectors.toMap(LeaveRequest::getId, Function.identity()));
+        }
+
+        List<LeaveRequest> updated = new ArrayList<>();
+        List<LeaveRequestChangedEvent> changes = new ArrayList<>();
+        for (LeaveRequest leave : leaves) {
+            if (current != null) {
+                LeaveRequest after = current.get(leave.getId());
+                String outcome = outcomeAfterWrite(after, targetStatus, now);
+                if (!UPDATED.equals(outcome)) {
+                    outcomes.put(leave.getId(), outcome);
+                    if (after != null) {
+                        leave.setStatus(after.getStatus());
+                    }
+                    continue;
+                }
+            }
+            LeaveRequest previous = new LeaveRequest(leave);
+            leave.setStatus(targetStatus);
+            leave.setRejectionReason(reason);
+            leave.setUpdatedAt(now);
+            changes.add(new LeaveRequestChangedEvent(previous, leave));
+            updated.add(leave);
+        }
+        // One event for the chunk, so counters and indexes take it as a single update
+        if (!changes.isEmpty()) {
+            eventPublisher.publishEvent(new LeaveRequestsChangedEvent(changes));
+        }
+        return updated;
+    }
+
+    /**
+     * Outcome of a request read back after a bulk write that stamped writtenAt: updated only when
+     * that write set it, unchanged when someone else moved it to the same status meanwhile
+     */
+    static String outcomeAfterWrite(LeaveRequest current, String targetStatus, LocalDateTime writtenAt) {
+        if (current == null) {
+            return NOT_FOUND;
+        }
+        if (!targetStatus.equals(current.getStatus())) {
+            return CONFLICT;
+        }
+        return writtenAt.equals(current.getUpdatedAt()) ? UPDATED : UNCHANGED;
+    }
+
+    /**
+     * Employee of each updated request, keyed by leave request id: one users query for all
+     * requests with an employee key, the rare unkeyed one resolved by name
+     */
+    private Map<String, User> employeesOf(List<LeaveRequest> leaves) {
+        Set<String> employeeIds = leaves.stream()
+                .map(LeaveRequest::getEmployeeId)
+                .filter(id -> id != null && !id.isEmpty())
+                .collect(Collectors.toSet());
+        Map<String, User> usersById = employeeIds.isEmpty() ? Map.of()
+                : mongoTemplate.find(Query.query(Criteria.where("_id").in(employeeIds)), User.class).stream()
+                        .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        Map<String, User> employees = new HashMap<>();
+        for (LeaveRequest leave : leaves) {
+            User employee = leave.getEmployeeId() != null ? usersById.get(leave.getEmployeeId()) : null;
+            if (employee == null) {
+                employee = employeeIdentityService.findForLeave(leave).orElse(null);
+            }
+            if (employee != null) {
+                employees.put(leave.getId(), employee);
+            }
+        }
+        return employees;
+    }
+
+    static String targetStatus(String action) {
+        if (APPROVE.equals(action)) {
+            return "Approved";
+        }
+        if (REJECT.equals(action)) {
+            return "Rejected";
+        }
+        throw new IllegalArgumentException("Unknown bulk action: " + action + " (expected approve or reject)");
+    }
+
+    /**
+     * Outcome of each requested id before writing, in request order: missing requests are
+     * notFound, requests already in the target status are left unchanged, and requests decided
+     * the other way are conflicts; only pending requests are decided, like the single endpoints
+     */
+    static Map<String, String> plan(Collection<String> ids, Map<String, LeaveRequest> found, String targetStatus) {
+        Map<String, String> outcomes = new LinkedHashMap<>();
+        for (String id : ids) {
+            LeaveRequest leave = found.get(id);
+            if (leave == null) {
+                outcomes.put(id, NOT_FOUND);
+            } else if (targetStatus.equals(leave.getStatus())) {
+                outcomes.put(id, UNCHANGED);
+            } else if (!"Pending".equals(leave.getStatus())) {
+                outcomes.put(id, CONFLICT);
+            } else {
+                outcomes.put(id, UPDATED);
+            }
+        }
+        return outcomes;
+    }
+}
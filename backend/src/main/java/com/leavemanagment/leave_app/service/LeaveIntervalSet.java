@@ -0,0 +1,210 @@
+package com.leavemanagment.leave_app.service;
+
+import com.leavemanagment.leave_app.model.LeaveRequest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable set of leave intervals sorted by start date, read as an augmented interval tree:
+ * the sorted array is an implicit balanced tree (the middle of each range is its root), and
+ * maxEnd[i] is the latest end date in the subtree rooted at i. An overlap query skips every
+ * subtree whose latest end is before the range and every right subtree starting after it,
+ * so it visits O(log n) nodes per match, however long the history is and however long one
+ * old leave runs. "Next N" queries are a binary search.
+ */
+final class LeaveIntervalSet {
+
+    static final LeaveIntervalSet EMPTY = new LeaveIntervalSet(new LeaveRequest[0]);
+
+    private static final Comparator<LeaveRequest> BY_START = Comparator
+            .comparing(LeaveRequest::getStartDate)
+            .thenComparing(LeaveRequest::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final LeaveRequest[] leaves;
+    private final LocalDate[] maxEnd;
+
+    private LeaveIntervalSet(LeaveRequest[] sorted) {
+        this.leaves = sorted;
+        this.maxEnd = new LocalDate[sorted.length];
+        buildMaxEnd(0, sorted.length - 1);
+    }
+
+    /**
+     * Fill maxEnd for the subtree over [low, high] and return its latest end date
+     */
+    private LocalDate buildMaxEnd(int low, int high) {
+        if (low > high) {
+            return null;
+        }
+        int mid = (low + high) >>> 1;
+        LocalDate latest = leaves[mid].getEndDate();
+        LocalDate left = buildMaxEnd(low, mid - 1);
+        LocalDate right = buildMaxEnd(mid + 1, high);
+        if (left != null && left.isAfter(latest)) {
+            latest = left;
+        }
+        if (right != null && right.isAfter(latest)) {
+            latest = right;
+        }
+        maxEnd[mid] = latest;
+        return latest;
+    }
+
+    /**
+     * Set of the given leaves; leaves without both dates are left out
+     */
+    static LeaveIntervalSet of(Collection<LeaveRequest> leaves) {
+        LeaveRequest[] sorted = leaves.stream()
+                .filter(leave -> leave.getStartDate() != null && leave.getEndDate() != null)
+                .sorted(BY_START)
+                .toArray(LeaveRequest[]::new);
+        return sorted.length == 0 ? EMPTY : new LeaveIntervalSet(sorted);
+    }
+
+    /**
+     * Copy of this set without removed and with added (either may be null). Both are placed by
+     * binary search on (start date, id) and the array is copied around them, without sorting;
+     * removed is the leave as it was indexed, so the stored copy is found at its position.
+     */
+    LeaveIntervalSet replace(LeaveRequest removed, LeaveRequest added) {
+        int removeAt = removed != null && removed.getStartDate() != null
+                ? Arrays.binarySearch(leaves, removed, BY_START) : -1;
+        boolean adds = added != null && added.getStartDate() != null && added.getEndDate() != null;
+        if (removeAt < 0 && !adds) {
+            return this;
+        }
+
+        LeaveRequest[] remaining = leaves;
+        if (removeAt >= 0) {
+            remaining = new LeaveRequest[leaves.length - 1];
+            System.arraycopy(leaves, 0, remaining, 0, removeAt);
+            System.arraycopy(leaves, removeAt + 1, remaining, removeAt, remaining.length - removeAt);
+        }
+        if (!adds) {
+            return remaining.length == 0 ? EMPTY : new LeaveIntervalSet(remaining);
+        }
+        int insertAt = Arrays.binarySearch(remaining, added, BY_START);
+        insertAt = insertAt >= 0 ? insertAt : -insertAt - 1;
+        LeaveRequest[] result = new LeaveRequest[remaining.length + 1];
+        System.arraycopy(remaining, 0, result, 0, insertAt);
+        result[insertAt] = added;
+        System.arraycopy(remaining, insertAt, result, insertAt + 1, remaining.length - insertAt);
+        return new LeaveIntervalSet(result);
+    }
+
+    /**
+     * Copy of this set with a batch of changes in one pass: the leaves of the removed ids are
+     * dropped and the added leaves (sorted among themselves) merged in, so a bulk action costs
+     * one copy instead of one per leave
+     */
+    LeaveIntervalSet apply(Collection<String> removedIds, Collection<LeaveRequest> added) {
+        if (removedIds.isEmpty() && added.isEmpty()) {
+            return this;
+        }
+        Set<String> removed = new HashSet<>(removedIds);
+        added.forEach(leave -> removed.add(leave.getId()));
+        LeaveRequest[] adding = added.stream()
+                .filter(leave -> leave.getStartDate() != null && leave.getEndDate() != null)
+                .sorted(BY_START)
+                .toArray(LeaveRequest[]::new);
+
+        List<LeaveRequest> merged = new ArrayList<>(leaves.length + adding.length);
+        int next = 0;
+        for (LeaveRequest existing : leaves) {
+            if (removed.contains(existing.getId())) {
+                continue;
+            }
+            while (next < adding.length && BY_START.compare(adding[next], existing) < 0) {
+                merged.add(adding[next++]);
+            }
+            merged.add(existing);
+        }
+        while (next < adding.length) {
+            merged.add(adding[next++]);
+        }
+        return merged.isEmpty() ? EMPTY : new LeaveIntervalSet(merged.toArray(new LeaveRequest[0]));
+    }
+
+    /**
+     * Leaves covering the date
+     */
+    List<LeaveRequest> onLeaveOn(LocalDate date) {
+        return overlapping(date, date);
+    }
+
+    /**
+     * Leaves sharing at least one day with [from, to], in start date order
+     */
+    List<LeaveRequest> overlapping(LocalDate from, LocalDate to) {
+        List<LeaveRequest> matches = new ArrayList<>();
+        collect(0, leaves.length - 1, from, to, matches, new int[1]);
+        return matches;
+    }
+
+    /**
+     * Tree nodes an overlap query over [from, to] visits
+     */
+    int nodesVisited(LocalDate from, LocalDate to) {
+        int[] visited = new int[1];
+        collect(0, leaves.length - 1, from, to, new ArrayList<>(), visited);
+        return visited[0];
+    }
+
+    /**
+     * In-order walk of the subtree over [low, high], adding the leaves overlapping [from, to]
+     */
+    private void collect(int low, int high, LocalDate from, LocalDate to, List<LeaveRequest> matches, int[] visited) {
+        if (low > high) {
+            return;
+        }
+        int mid = (low + high) >>> 1;
+        visited[0]++;
+        if (maxEnd[mid].isBefore(from)) {
+            return;
+        }
+        collect(low, mid - 1, from, to, matches, visited);
+        if (leaves[mid].getStartDate().isAfter(to)) {
+            return;
+        }
+        if (!leaves[mid].getEndDate().isBefore(from)) {
+            matches.add(leaves[mid]);
+        }
+        collect(mid + 1, high, from, to, matches, visited);
+    }
+
+    /**
+     * The first leaves starting after the date, soonest first
+     */
+    List<LeaveRequest> startingAfter(LocalDate date, int limit) {
+        int first = lastStartingOnOrBefore(date) + 1;
+        return List.copyOf(Arrays.asList(leaves).subList(first, Math.min(leaves.length, first + Math.max(0, limit))));
+    }
+
+    int size() {
+        return leaves.length;
+    }
+
+    /**
+     * Index of the last leave starting on or before the date, -1 if there is none
+     */
+    private int lastStartingOnOrBefore(LocalDate date) {
+        int low = 0;
+        int high = leaves.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (leaves[mid].getStartDate().isAfter(date)) {
+                high = mid - 1;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return high;
+    }
+}
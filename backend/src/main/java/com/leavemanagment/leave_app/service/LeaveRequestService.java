@@ -1,28 +1,189 @@
 package com.leavemanagment.leave_app.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import com.leavemanagment.leave_app.model.LeaveRequest;
 import com.leavemanagment.leave_app.repository.LeaveRequestRepository;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 public class LeaveRequestService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    // Newest first; _id breaks ties between requests created in the same instant
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "_id"));
+
+    private static final int STREAM_BATCH_SIZE = 500;
+
     private final LeaveRequestRepository leaveRequestRepository;
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public LeaveRequestService(LeaveRequestRepository leaveRequestRepository) {
+    public LeaveRequestService(LeaveRequestRepository leaveRequestRepository, MongoTemplate mongoTemplate, ObjectMapper objectMapper) {
         this.leaveRequestRepository = leaveRequestRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
     }
 
     public LeaveRequest createLeaveRequest(LeaveRequest leaveRequest) {
         return leaveRequestRepository.save(leaveRequest);
     }
 
+    /**
+     * Decide a pending request: the status is changed with one findAndModify that only matches
+     * while the request is still Pending, so of two concurrent decisions exactly one applies.
+     * A request already in the target status is reported as ALREADY_APPLIED (a retried click),
+     * one decided the other way as CONFLICT; neither is written. Empty if there is no such request.
+     */
+    public Optional<StatusTransition> decide(String id, String targetStatus, String rejectionReason) {
+        LocalDateTime now = LocalDateTime.now();
+        Query stillPending = Query.query(Criteria.where("_id").is(id).and("status").is("Pending"));
+        Update decision = new Update()
+                .set("status", targetStatus)
+                .set("rejectionReason", rejectionReason)
+                .set("updatedAt", now);
+        LeaveRequest previous = mongoTemplate.findAndModify(stillPending, decision,
+                FindAndModifyOptions.options().returnNew(false), LeaveRequest.class);
+
+        if (previous != null) {
+            LeaveRequest current = new LeaveRequest(previous);
+            current.setStatus(targetStatus);
+            current.setRejectionReason(rejectionReason);
+            current.setUpdatedAt(now);
+            return Optional.of(new StatusTransition(TransitionOutcome.APPLIED, previous, current));
+        }
+        return leaveRequestRepository.findById(id).map(current -> new StatusTransition(
+                targetStatus.equals(current.getStatus()) ? TransitionOutcome.ALREADY_APPLIED : TransitionOutcome.CONFLICT,
+                null, current));
+    }
+
+    /**
+     * Write an edited request only while it still has the status it was read with, in one
+     * findAndReplace, so an edit never undoes an approval or rejection made since it was read.
+     * False when the status changed meanwhile (or the request is gone); nothing is written then.
+     */
+    public boolean replaceIfStatus(LeaveRequest edited, String readStatus) {
+        Query unchanged = Query.query(Criteria.where("_id").is(edited.getId()).and("status").is(readStatus));
+        return mongoTemplate.findAndReplace(unchanged, edited) != null;
+    }
+
     public List<LeaveRequest> getAllLeaveRequests() {
         return leaveRequestRepository.findAll();
     }
+
+    /**
+     * One page of leave requests, newest first, starting after the given cursor (null for the first page).
+     * nextCursor is null on the last page.
+     */
+    public LeavePage findPage(String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Query query = new Query().with(NEWEST_FIRST).limit(pageSize + 1);
+        if (cursor != null && !cursor.isBlank()) {
+            query.addCriteria(after(decodeCursor(cursor)));
+        }
+
+        List<LeaveRequest> items = mongoTemplate.find(query, LeaveRequest.class);
+        if (items.size() <= pageSize) {
+            return new LeavePage(items, null);
+        }
+        items = items.subList(0, pageSize);
+        return new LeavePage(items, encodeCursor(items.get(pageSize - 1)));
+    }
+
+    /**
+     * Write every leave request, newest first, as a JSON array. Documents are converted and
+     * written one at a time as the MongoDB cursor returns them, so memory use does not grow
+     * with the collection. A view type other than LeaveRequest (e.g. LeaveRequestSummary)
+     * is a projection: only its fields are read from MongoDB.
+     */
+    public void writeJsonArray(OutputStream out, Class<?> view) throws IOException {
+        Query query = new Query().with(NEWEST_FIRST).cursorBatchSize(STREAM_BATCH_SIZE);
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out);
+             Stream<?> leaves = mongoTemplate.query(LeaveRequest.class).as(view).matching(query).stream()) {
+            json.writeStartArray();
+            leaves.forEach(leave -> {
+                try {
+                    json.writeObject(leave);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            json.writeEndArray();
+        }
+    }
+
+    /**
+     * Opaque token for the position right after this request
+     */
+    static String encodeCursor(LeaveRequest last) {
+        String position = (last.getCreatedAt() != null ? last.getCreatedAt().toString() : "") + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static CursorPosition decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.indexOf('|');
+            String createdAt = position.substring(0, separator);
+            String id = position.substring(separator + 1);
+            if (id.isEmpty()) {
+                throw new IllegalArgumentException("missing id");
+            }
+            return new CursorPosition(createdAt.isEmpty() ? null : LocalDateTime.parse(createdAt), id);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    /**
+     * Everything that sorts after the cursor position in NEWEST_FIRST order; requests without
+     * createdAt sort last
+     */
+    private Criteria after(CursorPosition position) {
+        Object id = ObjectId.isValid(position.id()) ? new ObjectId(position.id()) : position.id();
+        if (position.createdAt() == null) {
+            return Criteria.where("createdAt").is(null).and("_id").lt(id);
+        }
+        return new Criteria().orOperator(
+                Criteria.where("createdAt").lt(position.createdAt()),
+                Criteria.where("createdAt").is(position.createdAt()).and("_id").lt(id),
+                Criteria.where("createdAt").is(null));
+    }
+
+    record CursorPosition(LocalDateTime createdAt, String id) {}
+
+    public record LeavePage(List<LeaveRequest> items, String nextCursor) {}
+
+    public enum TransitionOutcome { APPLIED, ALREADY_APPLIED, CONFLICT }
+
+    /**
+     * Result of decide(): previous is the request before the change, null unless it was applied
+     */
+    public record StatusTransition(TransitionOutcome outcome, LeaveRequest previous, LeaveRequest current) {
+        public boolean applied() {
+            return outcome == TransitionOutcome.APPLIED;
+        }
+    }
 }
@@ -0,0 +1,219 @@
+package com.leavemanagment.leave_app.service;
+
+import com.leavemanagment.leave_app.event.EmployeeKeysBackfilledEvent;
+import com.leavemanagment.leave_app.event.LeaveRequestChangedEvent;
+import com.leavemanagment.leave_app.event.LeaveRequestsChangedEvent;
+import com.leavemanagment.leave_app.model.LeaveRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Materialized leave statistics: per-year, per-quarter, per-month, per-department,
+ * per-status and per-leave-type counters kept in the leave_statistics collection.
+ *
+ * Counters are updated incrementally from LeaveRequestChangedEvent, so dashboards
+ * read a handful of documents instead of scanning leave_requests. rebuild() and
+ * verify() recompute everything from the source collection and report drift.
+ */
+@Service
+public class LeaveStatisticsService {
+
+    public static final String COLLECTION = "leave_statistics";
+
+    private static final String APPROVED = "Approved";
+    private static final String PENDING = "Pending";
+    private static final String APPROVED_DAYS = "approvedDays";
+
+    @Autowired
+    private CounterStore counterStore;
+
+    @Autowired
+    private EmployeeIdentityService employeeIdentityService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * Apply the difference between the previous and current state of a leave request
+     */
+    @EventListener
+    public void onLeaveRequestChanged(LeaveRequestChangedEvent event) {
+        onLeaveRequestsChanged(new LeaveRequestsChangedEvent(List.of(event)));
+    }
+
+    /**
+     * Apply a batch of changes as one increment of the merged differences
+     */
+    @EventListener
+    public void onLeaveRequestsChanged(LeaveRequestsChangedEvent event) {
+        try {
+            Map<String, Long> deltas = new HashMap<>();
+            for (LeaveRequestChangedEvent change : event.getChanges()) {
+                if (change.getPrevious() != null) {
+                    contributions(change.getPrevious(), departmentOf(change.getPrevious()))
+                            .forEach((key, value) -> deltas.merge(key, -value, Long::sum));
+                }
+                if (change.getCurrent() != null) {
+                    contributions(change.getCurrent(), departmentOf(change.getCurrent()))
+                            .forEach((key, value) -> deltas.merge(key, value, Long::sum));
+                }
+            }
+            counterStore.increment(COLLECTION, deltas);
+        } catch (Exception e) {
+            System.err.println("❌ Error updating leave statistics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Build the counters on first start, when the collection has never been populated
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeStatistics() {
+        try {
+            if (counterStore.isEmpty(COLLECTION)) {
+                System.out.println("🔄 Building leave statistics from leave_requests...");
+                rebuild();
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Error initializing leave statistics: " + e.getMessage());
+        }
+    }
+
+    // ========== READS ==========
+
+    public LeaveStatsAggregationService.YearStats getYearStats(int year) {
+        String prefix = "year:" + year;
+        Map<String, Long> counters = counterStore.getAll(COLLECTION, List.of(
+                prefix,
+                prefix + ":status:" + APPROVED,
+                prefix + ":status:" + PENDING,
+                prefix + ":" + APPROVED_DAYS));
+
+        return new LeaveStatsAggregationService.YearStats(
+                counters.get(prefix),
+                counters.get(prefix + ":status:" + APPROVED),
+                counters.get(prefix + ":status:" + PENDING),
+                counters.get(prefix + ":" + APPROVED_DAYS));
+    }
+
+    public long getTotalCount() {
+        return counterStore.get(COLLECTION, "total");
+    }
+
+    public long getStatusCount(String status) {
+        return counterStore.get(COLLECTION, "status:" + status);
+    }
+
+    /**
+     * Approved leave days per department
+     */
+    public Map<String, Long> getDepartmentApprovedDays() {
+        Map<String, Long> departmentDays = new HashMap<>();
+        String suffix = ":" + APPROVED_DAYS;
+        counterStore.findByPrefix(COLLECTION, "department:").forEach((key, value) -> {
+            if (key.endsWith(suffix) && value > 0) {
+                departmentDays.put(key.substring("department:".length(), key.length() - suffix.length()), value);
+            }
+        });
+        return departmentDays;
+    }
+
+    // ========== REBUILD / VERIFY ==========
+
+    /**
+     * Recompute every counter from leave_requests and compare with the stored values
+     */
+    public Map<String, Object> verify() {
+        return counterStore.verify(COLLECTION, this::computeFromSource);
+    }
+
+    // Leave requests that just got a key or department now count for that department
+    @EventListener
+    public void onEmployeeKeysBackfilled(EmployeeKeysBackfilledEvent event) {
+        if (event.isLeaveRequestsChanged()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Recompute every counter from leave_requests, report drift and replace the stored values
+     */
+    public Map<String, Object> rebuild() {
+        Map<String, Object> report = counterStore.rebuild(COLLECTION, this::computeFromSource);
+        System.out.println("✅ Leave statistics rebuilt: " + report.get("counterCount") + " counters");
+        return report;
+    }
+
+    private Map<String, Long> computeFromSource() {
+        // Load departments once for the whole scan
+        Map<String, String> departments = employeeIdentityService.departmentsByEmployeeId();
+
+        Map<String, Long> counters = new HashMap<>();
+        try (Stream<LeaveRequest> leaves = mongoTemplate.stream(new Query(), LeaveRequest.class)) {
+            leaves.forEach(leave -> contributions(leave,
+                            leave.getDepartment() != null ? leave.getDepartment() : departments.get(leave.getEmployeeId()))
+                    .forEach((key, value) -> counters.merge(key, value, Long::sum)));
+        }
+        counters.values().removeIf(value -> value == 0);
+        return counters;
+    }
+
+    // ========== CONTRIBUTIONS ==========
+
+    /**
+     * Counters a single leave request contributes to
+     */
+    private Map<String, Long> contributions(LeaveRequest leave, String department) {
+        Map<String, Long> counters = new HashMap<>();
+        String status = leave.getStatus();
+        boolean approved = APPROVED.equals(status);
+        long approvedDays = approved ? leave.getLeaveDuration() : 0;
+
+        Function<String, String> statusKey = prefix -> prefix + ":status:" + status;
+
+        counters.put("total", 1L);
+        counters.put("status:" + status, 1L);
+        counters.put("leaveType:" + leave.getLeaveType(), 1L);
+
+        if (department != null && !department.trim().isEmpty()) {
+            String prefix = "department:" + department;
+            counters.put(prefix, 1L);
+            counters.put(statusKey.apply(prefix), 1L);
+            counters.put(prefix + ":" + APPROVED_DAYS, approvedDays);
+        }
+
+        LocalDate startDate = leave.getStartDate();
+        if (startDate != null) {
+            String[] periods = {
+                "year:" + startDate.getYear(),
+                "quarter:" + startDate.getYear() + "-Q" + ((startDate.getMonthValue() - 1) / 3 + 1),
+                String.format("month:%d-%02d", startDate.getYear(), startDate.getMonthValue())
+            };
+            for (String prefix : periods) {
+                counters.put(prefix, 1L);
+                counters.put(statusKey.apply(prefix), 1L);
+                counters.put(prefix + ":" + APPROVED_DAYS, approvedDays);
+            }
+        }
+        return counters;
+    }
+
+    // The department stamped on the request; requests filed before stamping use the user's current one
+    private String departmentOf(LeaveRequest leave) {
+        if (leave.getDepartment() != null) {
+            return leave.getDepartment();
+        }
+        return employeeIdentityService.departmentOf(leave.getEmployeeId());
+    }
+}
@@ -0,0 +1,125 @@
+package com.leavemanagment.leave_app.service;
+
+import com.leavemanagment.leave_app.model.LeaveRequest;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Computes dashboard leave statistics inside MongoDB with an aggregation pipeline,
+ * so only one small summary document travels over the wire instead of every leave request.
+ */
+@Service
+public class LeaveStatsAggregationService {
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * Stats for all leave requests starting in the given year
+     */
+    public YearStats getYearStats(int year) {
+        return getYearStats(year, null);
+    }
+
+    /**
+     * Stats for leave requests starting in the given year, optionally limited to one employee (by User ID)
+     */
+    public YearStats getYearStats(int year, String employeeId) {
+        Criteria criteria = Criteria.where("startDate")
+                .gte(LocalDate.of(year, 1, 1))
+                .lte(LocalDate.of(year, 12, 31));
+        if (employeeId != null) {
+            criteria = criteria.and("employeeId").is(employeeId);
+        }
+
+        TypedAggregation<LeaveRequest> aggregation = Aggregation.newAggregation(
+                LeaveRequest.class,
+                Aggregation.match(criteria),
+                groupYearTotals()
+        );
+
+        AggregationResults<Document> results = mongoTemplate.aggregate(aggregation, Document.class);
+        Document totals = results.getUniqueMappedResult();
+        if (totals == null) {
+            return new YearStats(0, 0, 0, 0);
+        }
+
+        return new YearStats(
+                toLong(totals.get("totalRequests")),
+                toLong(totals.get("approvedRequests")),
+                toLong(totals.get("pendingRequests")),
+                toLong(totals.get("approvedDays"))
+        );
+    }
+
+    /**
+     * $group stage counting requests by status and summing approved leave days.
+     * Days are (endDate - startDate) / 1 day + 1, rounded to absorb DST offsets,
+     * matching LeaveRequest.getLeaveDuration().
+     */
+    private AggregationOperation groupYearTotals() {
+        Document isApproved = new Document("$eq", Arrays.asList("$status", "Approved"));
+        Document isPending = new Document("$eq", Arrays.asList("$status", "Pending"));
+        Document hasEndDate = new Document("$ne", Arrays.asList(new Document("$type", "$endDate"), "missing"));
+
+        Document durationDays = new Document("$add", Arrays.asList(
+                new Document("$round", List.of(new Document("$divide", Arrays.asList(
+                        new Document("$subtract", Arrays.asList("$endDate", "$startDate")),
+                        MILLIS_PER_DAY)))),
+                1));
+
+        Document group = new Document("_id", null)
+                .append("totalRequests", new Document("$sum", 1))
+                .append("approvedRequests", new Document("$sum", cond(isApproved, 1, 0)))
+                .append("pendingRequests", new Document("$sum", cond(isPending, 1, 0)))
+                .append("approvedDays", new Document("$sum", cond(
+                        new Document("$and", Arrays.asList(isApproved, hasEndDate)), durationDays, 0)));
+
+        return context -> new Document("$group", group);
+    }
+
+    private Document cond(Object condition, Object whenTrue, Object whenFalse) {
+        return new Document("$cond", Arrays.asList(condition, whenTrue, whenFalse));
+    }
+
+    private long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+
+    // Summary of one year of leave requests
+    public static class YearStats {
+        private final long totalRequests;
+        private final long approvedRequests;
+        private final long pendingRequests;
+        private final long approvedDays;
+
+        public YearStats(long totalRequests, long approvedRequests, long pendingRequests, long approvedDays) {
+            this.totalRequests = totalRequests;
+            this.approvedRequests = approvedRequests;
+            this.pendingRequests = pendingRequests;
+            this.approvedDays = approvedDays;
+        }
+
+        public long getTotalRequests() { return totalRequests; }
+        public long getApprovedRequests() { return approvedRequests; }
+        public long getPendingRequests() { return pendingRequests; }
+        public long getApprovedDays() { return approvedDays; }
+
+        public double getApprovalRate() {
+            return totalRequests > 0 ? (double) approvedRequests / totalRequests * 100 : 0;
+        }
+    }
+}
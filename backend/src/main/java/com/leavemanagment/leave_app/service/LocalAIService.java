@@ -2,10 +2,14 @@ package com.leavemanagment.leave_app.service;
 
 import com.leavemanagment.leave_app.model.LeaveRequest;
 import com.leavemanagment.leave_app.model.User;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -18,103 +22,132 @@ public class LocalAIService {
     @Value("${ollama.model:llama2}")
     private String ollamaModel;
 
+    @Value("${ollama.timeout-ms:30000}")
+    private long timeoutMs;
+
+    @Value("${ollama.max-concurrent:4}")
+    private int maxConcurrent;
+
+    @Autowired
+    private AIEmailCache aiEmailCache;
+
     private final WebClient webClient;
+    private AsyncCallLimiter ollamaLimiter;
 
     public LocalAIService(WebClient.Builder webClientBuilder) {
         this.webClient = webClientBuilder.build();
     }
 
+    @PostConstruct
+    void init() {
+        ollamaLimiter = new AsyncCallLimiter("Ollama", maxConcurrent, Duration.ofMillis(timeoutMs));
+    }
+
     /**
-     * Generate AI email using local Ollama
+     * Generate AI email using local Ollama; completes empty when Ollama is unavailable
      */
-    public String generateEmailWithOllama(String prompt) {
-        try {
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("model", ollamaModel);
-            requestBody.put("prompt", prompt);
-            requestBody.put("stream", false);
-
-            String response = webClient.post()
-                    .uri(ollamaApiUrl)
-                    .header("Content-Type", "application/json")
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            // Parse Ollama response
-            if (response != null && response.contains("\"response\":")) {
-                int start = response.indexOf("\"response\":\"") + 12;
-                int end = response.lastIndexOf("\"");
-                if (start > 11 && end > start) {
-                    return response.substring(start, end)
-                            .replace("\\n", "\n")
-                            .replace("\\\"", "\"");
-                }
-            }
+    public Mono<String> generateEmailWithOllama(String prompt) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", ollamaModel);
+        requestBody.put("prompt", prompt);
+        requestBody.put("stream", false);
+
+        return ollamaLimiter.call(() -> webClient.post()
+                .uri(ollamaApiUrl)
+                .header("Content-Type", "application/json")
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToMono(String.class))
+                .flatMap(response -> Mono.justOrEmpty(extractResponse(response)));
+    }
 
-            return null;
-        } catch (Exception e) {
-            System.err.println("❌ Error calling Ollama: " + e.getMessage());
-            return null;
+    /**
+     * Pull the generated text out of the Ollama response
+     */
+    private String extractResponse(String response) {
+        if (response.contains("\"response\":")) {
+            int start = response.indexOf("\"response\":\"") + 12;
+            int end = response.lastIndexOf("\"");
+            if (start > 11 && end > start) {
+                return response.substring(start, end)
+                        .replace("\\n", "\n")
+                        .replace("\\\"", "\"");
+            }
         }
+        return null;
+    }
+
+    public Map<String, Object> getCallStats() {
+        return ollamaLimiter.getStats();
     }
 
+    private static final EmailTemplate SMART_APPROVAL_PROMPT_TEMPLATE = EmailTemplate.compile("""
+            Write a professional email approving {{employeeName}}'s {{leaveType}} leave request from {{startDate}} to {{endDate}} ({{duration}} days) for {{reason}}. 
+            Make it warm, include leave details, add preparation reminders, and sign as {{hrName}} from HR team. 
+            Keep it concise and professional. Keep the placeholders in double curly braces exactly as written. Format as HTML.
+            """,
+            "employeeName", "leaveType", "startDate", "endDate", "duration", "reason", "hrName");
+
     /**
      * Generate smart approval email
      */
-    public String generateSmartApprovalEmail(LeaveRequest leaveRequest, User employee, User hrUser) {
-        String prompt = String.format("""
-            Write a professional email approving %s's %s leave request from %s to %s (%d days) for %s. 
-            Make it warm, include leave details, add preparation reminders, and sign as %s from HR team. 
-            Keep it concise and professional. Format as HTML.
-            """,
-            employee.getFullName(),
-            leaveRequest.getLeaveType(),
-            leaveRequest.getStartDate(),
-            leaveRequest.getEndDate(),
-            leaveRequest.getLeaveDuration(),
-            leaveRequest.getReason(),
-            hrUser.getFullName()
+    public Mono<String> generateSmartApprovalEmail(LeaveRequest leaveRequest, User employee, User hrUser) {
+        // Per-request values stay as placeholders so the answer can be cached, see AIEmailCache
+        String prompt = SMART_APPROVAL_PROMPT_TEMPLATE.render(
+            AIEmailCache.placeholder("employeeName"),
+            AIEmailCache.placeholder("leaveType"),
+            AIEmailCache.placeholder("startDate"),
+            AIEmailCache.placeholder("endDate"),
+            AIEmailCache.placeholder("duration"),
+            AIEmailCache.placeholder("reason"),
+            AIEmailCache.placeholder("hrName")
         );
 
-        String aiResponse = generateEmailWithOllama(prompt);
-        return aiResponse != null ? aiResponse : generateBasicApprovalEmail(leaveRequest, employee, hrUser);
+        String key = AIEmailCache.key("ollama", "approval", leaveRequest, null);
+        return aiEmailCache.getOrGenerate(key, () -> generateEmailWithOllama(prompt), leaveRequest, employee, hrUser)
+                .switchIfEmpty(Mono.fromSupplier(() -> generateBasicApprovalEmail(leaveRequest, employee, hrUser)));
     }
 
+    private static final EmailTemplate SMART_REJECTION_PROMPT_TEMPLATE = EmailTemplate.compile("""
+            Write a professional, empathetic email rejecting {{employeeName}}'s {{leaveType}} leave request from {{startDate}} to {{endDate}}. 
+            The rejection reason is: {{rejectionReason}}. 
+            Be understanding, offer alternatives, encourage discussion. 
+            Sign as {{hrName}} from HR team. Keep the placeholders in double curly braces exactly as written. Format as HTML.
+            """,
+            "employeeName", "leaveType", "startDate", "endDate", "rejectionReason", "hrName");
+
     /**
      * Generate smart rejection email
      */
-    public String generateSmartRejectionEmail(LeaveRequest leaveRequest, User employee, User hrUser, String rejectionReason) {
-        String prompt = String.format("""
-            Write a professional, empathetic email rejecting %s's %s leave request from %s to %s. 
-            The rejection reason is: %s. 
-            Be understanding, offer alternatives, encourage discussion. 
-            Sign as %s from HR team. Format as HTML.
-            """,
-            employee.getFullName(),
-            leaveRequest.getLeaveType(),
-            leaveRequest.getStartDate(),
-            leaveRequest.getEndDate(),
+    public Mono<String> generateSmartRejectionEmail(LeaveRequest leaveRequest, User employee, User hrUser, String rejectionReason) {
+        String prompt = SMART_REJECTION_PROMPT_TEMPLATE.render(
+            AIEmailCache.placeholder("employeeName"),
+            AIEmailCache.placeholder("leaveType"),
+            AIEmailCache.placeholder("startDate"),
+            AIEmailCache.placeholder("endDate"),
             rejectionReason,
-            hrUser.getFullName()
+            AIEmailCache.placeholder("hrName")
         );
 
-        String aiResponse = generateEmailWithOllama(prompt);
-        return aiResponse != null ? aiResponse : generateBasicRejectionEmail(leaveRequest, employee, hrUser, rejectionReason);
+        String key = AIEmailCache.key("ollama", "rejection", leaveRequest, rejectionReason);
+        return aiEmailCache.getOrGenerate(key, () -> generateEmailWithOllama(prompt), leaveRequest, employee, hrUser)
+                .switchIfEmpty(Mono.fromSupplier(() -> generateBasicRejectionEmail(leaveRequest, employee, hrUser, rejectionReason)));
     }
 
     // Basic fallback templates
-    private String generateBasicApprovalEmail(LeaveRequest leaveRequest, User employee, User hrUser) {
-        return String.format("""
+    private static final EmailTemplate BASIC_APPROVAL_EMAIL_TEMPLATE = EmailTemplate.compile("""
             <div style="font-family: Arial, sans-serif;">
                 <h2 style="color: green;">✅ Leave Approved</h2>
-                <p>Dear %s,</p>
-                <p>Your %s leave from %s to %s has been approved.</p>
+                <p>Dear {{employeeName}},</p>
+                <p>Your {{leaveType}} leave from {{startDate}} to {{endDate}} has been approved.</p>
                 <p>Please ensure proper handover before your leave.</p>
-                <p>Best regards,<br>%s<br>HR Team</p>
+                <p>Best regards,<br>{{hrName}}<br>HR Team</p>
             </div>
             """,
+            "employeeName", "leaveType", "startDate", "endDate", "hrName");
+
+    private String generateBasicApprovalEmail(LeaveRequest leaveRequest, User employee, User hrUser) {
+        return BASIC_APPROVAL_EMAIL_TEMPLATE.render(
             employee.getFullName(),
             leaveRequest.getLeaveType(),
             leaveRequest.getStartDate(),
@@ -123,17 +156,20 @@ public class LocalAIService {
         );
     }
 
-    private String generateBasicRejectionEmail(LeaveRequest leaveRequest, User employee, User hrUser, String rejectionReason) {
-        return String.format("""
+    private static final EmailTemplate BASIC_REJECTION_EMAIL_TEMPLATE = EmailTemplate.compile("""
             <div style="font-family: Arial, sans-serif;">
                 <h2 style="color: red;">❌ Leave Request Update</h2>
-                <p>Dear %s,</p>
-                <p>Your %s leave request has been declined.</p>
-                <p><strong>Reason:</strong> %s</p>
+                <p>Dear {{employeeName}},</p>
+                <p>Your {{leaveType}} leave request has been declined.</p>
+                <p><strong>Reason:</strong> {{rejectionReason}}</p>
                 <p>Please feel free to discuss this with HR.</p>
-                <p>Best regards,<br>%s<br>HR Team</p>
+                <p>Best regards,<br>{{hrName}}<br>HR Team</p>
             </div>
             """,
+            "employeeName", "leaveType", "rejectionReason", "hrName");
+
+    private String generateBasicRejectionEmail(LeaveRequest leaveRequest, User employee, User hrUser, String rejectionReason) {
+        return BASIC_REJECTION_EMAIL_TEMPLATE.render(
             employee.getFullName(),
             leaveRequest.getLeaveType(),
             rejectionReason,
@@ -0,0 +1,189 @@
+package com.leavemanagment.leave_app.service;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt password encoder for the login path.
+ *
+ * Hashing and checking run on a small bounded pool, so a login storm keeps at most `threads`
+ * cores busy with BCrypt and leaves the rest to other requests; a login that finds the queue
+ * full, or waits longer than the timeout, fails straight away with "try again" instead of
+ * piling up. A successful check is remembered for a few minutes under an HMAC of the stored
+ * hash and the password (with a per-process key), so repeated logins of the same user skip
+ * BCrypt; a password change gives a new hash and so a new key.
+ *
+ * Hashes with another work factor than `strength` report upgradeEncoding(), so Spring Security
+ * rehashes them at the next successful login (see CustomUserDetailsService.updatePassword).
+ */
+public class LoginPasswordEncoder implements PasswordEncoder {
+
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[abxy]?\\$(\\d{2})\\$");
+    private static final String HMAC = "HmacSHA256";
+
+    private final int strength;
+    private final BCryptPasswordEncoder bcrypt;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+    private final BoundedTtlCache<String, Boolean> verified;
+    private final SecretKeySpec cacheKey;
+
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong upgradeChecks = new AtomicLong();
+    private final AtomicLong maxQueueWaitMs = new AtomicLong();
+
+    public LoginPasswordEncoder(int strength, int threads, int queueCapacity, long timeoutMs, int cacheSize, long cacheTtlSeconds) {
+        this.strength = strength;
+        this.bcrypt = new BCryptPasswordEncoder(strength);
+        this.timeoutMs = timeoutMs;
+        this.verified = new BoundedTtlCache<>(cacheSize, cacheTtlSeconds, TimeUnit.SECONDS);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "auth-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.cacheKey = new SecretKeySpec(key, HMAC);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return onAuthPool(() -> bcrypt.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null || encodedPassword.isEmpty()) {
+            return false;
+        }
+        String key = cacheKey(rawPassword, encodedPassword);
+        if (verified.get(key) != null) {
+            cacheHits.incrementAndGet();
+            return true;
+        }
+        checks.incrementAndGet();
+        boolean matches = onAuthPool(() -> bcrypt.matches(rawPassword, encodedPassword));
+        if (matches) {
+            verified.put(key, Boolean.TRUE);
+        }
+        return matches;
+    }
+
+    /**
+     * True for BCrypt hashes made with another work factor than the configured one. Counted as
+     * upgradeChecks: Spring Security may still skip the rehash, the stored ones are counted by
+     * CustomUserDetailsService.
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        int cost = costOf(encodedPassword);
+        if (cost < 0 || cost == strength) {
+            return false;
+        }
+        upgradeChecks.incrementAndGet();
+        return true;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("strength", strength);
+        stats.put("threads", executor.getMaximumPoolSize());
+        stats.put("active", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("bcryptChecks", checks.get());
+        stats.put("cacheHits", cacheHits.get());
+        stats.put("rejected", rejected.get());
+        stats.put("timedOut", timedOut.get());
+        stats.put("upgradeChecks", upgradeChecks.get());
+        stats.put("maxQueueWaitMs", maxQueueWaitMs.get());
+        stats.put("verifiedCache", verified.getStats());
+        return stats;
+    }
+
+    private <T> T onAuthPool(Callable<T> task) {
+        long queuedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                maxQueueWaitMs.accumulateAndGet(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - queuedAt), Math::max);
+                return task.call();
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            System.err.println("⚠️ Login pool busy (" + executor.getQueue().size() + " queued), rejecting login");
+            throw new AuthenticationServiceException("Too many sign-ins right now, please try again");
+        }
+
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timedOut.incrementAndGet();
+            System.err.println("⏱️ Password check timed out after " + timeoutMs + "ms");
+            throw new AuthenticationServiceException("Sign-in timed out, please try again");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AuthenticationServiceException("Sign-in interrupted");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+        }
+    }
+
+    private String cacheKey(CharSequence rawPassword, String encodedPassword) {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(cacheKey);
+            mac.update(encodedPassword.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            mac.update(rawPassword.toString().getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(mac.doFinal());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 unavailable", e);
+        }
+    }
+
+    /**
+     * The work factor of a BCrypt hash, or -1 for anything else
+     */
+    static int costOf(String encodedPassword) {
+        if (encodedPassword == null) {
+            return -1;
+        }
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+}
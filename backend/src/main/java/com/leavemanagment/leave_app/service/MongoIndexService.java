@@ -0,0 +1,341 @@
+package com.leavemanagment.leave_app.service;
+
+import com.leavemanagment.leave_app.model.Employee;
+import com.leavemanagment.leave_app.model.LateAttendance;
+import com.leavemanagment.leave_app.model.LeaveRequest;
+import com.leavemanagment.leave_app.model.OutboundEmail;
+import com.leavemanagment.leave_app.model.User;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.util.TypeInformation;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Creates the indexes declared on the entities (@Indexed, @CompoundIndex) and checks with
+ * explain() that the repository queries actually use them.
+ *
+ * Auto index creation is off in Spring Data MongoDB, so without this the annotations are
+ * only documentation. Every query the app runs on a hot path is registered in QUERY_SHAPES;
+ * MongoIndexServiceTest fails when a repository method has no shape or a shape has no index
+ * that can serve it, and verifyQueryPlans() reports any shape whose live plan is a COLLSCAN.
+ */
+@Service
+public class MongoIndexService {
+
+    // Entities whose index declarations are created at startup
+    static final List<Class<?>> INDEXED_ENTITIES = List.of(
+            LeaveRequest.class, OutboundEmail.class, User.class, Employee.class, LateAttendance.class);
+
+    // Repository query -> equivalent filter/sort, with representative values for explain()
+    static final Map<String, QueryShape> QUERY_SHAPES = new LinkedHashMap<>();
+
+    static {
+        Date today = new Date();
+        QUERY_SHAPES.put("LeaveRequestRepository.findByEmployeeName",
+                new QueryShape(LeaveRequest.class, new Document("employeeName", "Jane Doe"), null));
+        QUERY_SHAPES.put("LeaveRequestRepository.findByEmployeeId",
+                new QueryShape(LeaveRequest.class, new Document("employeeId", "000000000000000000000000"), null));
+        QUERY_SHAPES.put("LeaveRequestRepository.findByStatus",
+                new QueryShape(LeaveRequest.class, new Document("status", "Pending"), null));
+        QUERY_SHAPES.put("LeaveRequestRepository.findSummariesByStatus",
+                new QueryShape(LeaveRequest.class, new Document("status", "Pending"), null));
+        QUERY_SHAPES.put("LeaveRequestRepository.countByStatus",
+                new QueryShape(LeaveRequest.class, new Document("status", "Pending"), null));
+        QUERY_SHAPES.put("LeaveRequestRepository.findByStartDateBetween",
+                new QueryShape(LeaveRequest.class,
+                        new Document("startDate", new Document("$gt", today).append("$lt", today)), null));
+        QUERY_SHAPES.put("LeaveRequestRepository.findCurrentlyOnLeave",
+                new QueryShape(LeaveRequest.class, new Document("status", "Approved")
+                        .append("startDate", new Document("$lte", today))
+                        .append("endDate", new Document("$gte", today)), null));
+        QUERY_SHAPES.put("LeaveRequestRepository.findUpcomingLeaves",
+                new QueryShape(LeaveRequest.class, new Document("status", "Approved")
+                        .append("startDate", new Document("$gt", today)), new Document("startDate", 1)));
+        QUERY_SHAPES.put("ApprovedLeaveIndex.rebuild",
+                new QueryShape(LeaveRequest.class, new Document("status", "Approved"), null));
+        QUERY_SHAPES.put("TeamCapacityService.rebuild",
+                new QueryShape(LeaveRequest.class, new Document("status", new Document("$in", List.of("Approved", "Pending"))), null));
+        QUERY_SHAPES.put("LeaveRequestRepository.findTop5ByOrderByIdDesc",
+                new QueryShape(LeaveRequest.class, new Document(), new Document("_id", -1)));
+        QUERY_SHAPES.put("LeaveRequestService.findPage",
+                new QueryShape(LeaveRequest.class, new Document("$or", List.of(
+                        new Document("createdAt", new Document("$lt", today)),
+                        new Document("createdAt", today).append("_id", new Document("$lt", "ffffffffffffffffffffffff")),
+                        new Document("createdAt", null))),
+                        new Document("createdAt", -1).append("_id", -1)));
+
+        QUERY_SHAPES.put("LateAttendanceRepository.findByEmployeeIdOrderByDateDesc",
+                new QueryShape(LateAttendance.class, new Document("employeeId", "000000000000000000000000"),
+                        new Document("date", -1)));
+        QUERY_SHAPES.put("LateAttendanceRepository.findByEmployeeNameOrderByDateDesc",
+                new QueryShape(LateAttendance.class, new Document("employeeName", "Jane Doe"), new Document("date", -1)));
+        QUERY_SHAPES.put("LateAttendanceRepository.findByEmployeeNameAndDateBetween",
+                new QueryShape(LateAttendance.class, new Document("employeeName", "Jane Doe")
+                        .append("date", new Document("$gte", today).append("$lte", today)), null));
+        QUERY_SHAPES.put("LateAttendanceRepository.existsByEmployeeNameAndDate",
+                new QueryShape(LateAttendance.class, new Document("employeeName", "Jane Doe").append("date", today), null));
+        QUERY_SHAPES.put("LateAttendanceRepository.findByDate",
+                new QueryShape(LateAttendance.class, new Document("date", today), null));
+        QUERY_SHAPES.put("LateAttendanceRepository.findByDateBetween",
+                new QueryShape(LateAttendance.class, new Document("date", new Document("$gte", today).append("$lte", today)), null));
+
+        QUERY_SHAPES.put("UserRepository.findByUsername",
+                new QueryShape(User.class, new Document("username", "jdoe"), null));
+        QUERY_SHAPES.put("UserRepository.existsByUsername",
+                new QueryShape(User.class, new Document("username", "jdoe"), null));
+        QUERY_SHAPES.put("UserRepository.findByEmail",
+                new QueryShape(User.class, new Document("email", "jdoe@example.com"), null));
+        QUERY_SHAPES.put("UserRepository.existsByEmail",
+                new QueryShape(User.class, new Document("email", "jdoe@example.com"), null));
+        QUERY_SHAPES.put("UserRepository.findByFullName",
+                new QueryShape(User.class, new Document("fullName", "Jane Doe"), null));
+        QUERY_SHAPES.put("EmployeeIdentityService.findByName",
+                new QueryShape(User.class, new Document("$or", List.of(
+                        new Document("fullName", "Jane Doe"), new Document("username", "Jane Doe"))), null));
+
+        QUERY_SHAPES.put("OutboundEmailRepository.countByStatus",
+                new QueryShape(OutboundEmail.class, new Document("status", OutboundEmail.STATUS_PENDING), null));
+        QUERY_SHAPES.put("OutboundEmailRepository.findFirstByStatusOrderByCreatedAtAsc",
+                new QueryShape(OutboundEmail.class, new Document("status", OutboundEmail.STATUS_PENDING),
+                        new Document("createdAt", 1)));
+        QUERY_SHAPES.put("OutboundEmailRepository.findTop50ByStatusOrderByCreatedAtDesc",
+                new QueryShape(OutboundEmail.class, new Document("status", OutboundEmail.STATUS_DEAD),
+                        new Document("createdAt", -1)));
+        QUERY_SHAPES.put("EmailOutboxService.claimBatch",
+                new QueryShape(OutboundEmail.class, new Document("$or", List.of(
+                        new Document("status", OutboundEmail.STATUS_PENDING).append("nextAttemptAt", new Document("$lte", today)),
+                        new Document("status", OutboundEmail.STATUS_SENDING).append("lockedUntil", new Document("$lt", today)))),
+                        new Document("nextAttemptAt", 1)));
+    }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${mongo.indexes.create-on-startup:true}")
+    private boolean createOnStartup;
+
+    @Value("${mongo.indexes.verify-on-startup:true}")
+    private boolean verifyOnStartup;
+
+    // Before the other startup listeners, which run the queries these indexes serve
+    @Order(0)
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (createOnStartup) {
+            ensureIndexes();
+        }
+        if (verifyOnStartup) {
+            verifyQueryPlans();
+        }
+    }
+
+    /**
+     * Create every declared index that does not exist yet; existing ones are left alone
+     */
+    public Map<String, Object> ensureIndexes() {
+        Map<String, Object> created = new LinkedHashMap<>();
+        for (Class<?> entity : INDEXED_ENTITIES) {
+            List<String> names = new ArrayList<>();
+            for (IndexDefinition index : declaredIndexes(mongoTemplate.getConverter().getMappingContext(), entity)) {
+                try {
+                    names.add(mongoTemplate.indexOps(entity).createIndex(index));
+                } catch (Exception e) {
+                    // e.g. a unique index over existing duplicates; keep starting up
+                    System.err.println("❌ Could not create index " + index.getIndexKeys() + " on "
+                            + entity.getSimpleName() + ": " + e.getMessage());
+                }
+            }
+            created.put(mongoTemplate.getCollectionName(entity), names);
+        }
+        System.out.println("🗂️ MongoDB indexes ensured: " + created);
+        return created;
+    }
+
+    /**
+     * Run explain() for every registered query shape and report the index it uses
+     */
+    public Map<String, Object> verifyQueryPlans() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        int collectionScans = 0;
+        for (Map.Entry<String, QueryShape> entry : QUERY_SHAPES.entrySet()) {
+            QueryShape shape = entry.getValue();
+            Map<String, Object> result = new LinkedHashMap<>();
+            try {
+                Document explain = mongoTemplate.getCollection(mongoTemplate.getCollectionName(shape.entity()))
+                        .find(shape.filter())
+                        .sort(shape.sort())
+                        .explain();
+                Document winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class);
+                boolean collectionScan = usesCollectionScan(winningPlan);
+                result.put("collectionScan", collectionScan);
+                result.put("indexes", indexNames(winningPlan));
+                if (collectionScan) {
+                    collectionScans++;
+                    System.err.println("⚠️ Query " + entry.getKey() + " runs as a COLLSCAN");
+                }
+            } catch (Exception e) {
+                result.put("error", e.getMessage());
+            }
+            report.put(entry.getKey(), result);
+        }
+        System.out.println("🔍 Verified " + QUERY_SHAPES.size() + " query plans, " + collectionScans + " collection scans");
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("collectionScans", collectionScans);
+        response.put("queries", report);
+        return response;
+    }
+
+    /**
+     * Indexes declared on an entity through its annotations
+     */
+    static List<IndexDefinition> declaredIndexes(
+            MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext, Class<?> entity) {
+        List<IndexDefinition> indexes = new ArrayList<>();
+        new MongoPersistentEntityIndexResolver(mappingContext)
+                .resolveIndexFor(TypeInformation.of(entity))
+                .forEach(holder -> indexes.add(holder.getIndexDefinition()));
+        return indexes;
+    }
+
+    /**
+     * Name of an index whose leading field the query constrains (or sorts on), the only way
+     * the planner can use it for an index scan. _id is always indexed. A query whose other
+     * conditions no index serves is only served through its $or when every branch is,
+     * because one unindexed branch makes the planner scan the collection.
+     */
+    static Optional<String> servingIndex(QueryShape shape, List<IndexDefinition> indexes) {
+        return servingIndex(shape.filter(), shape.sort(), indexes);
+    }
+
+    private static Optional<String> servingIndex(Document filter, Document sort, List<IndexDefinition> indexes) {
+        List<String> fields = new ArrayList<>();
+        List<Document> orBranches = new ArrayList<>();
+        collectConjunction(filter, fields, orBranches);
+        if (sort != null) {
+            fields.addAll(sort.keySet());
+        }
+        Optional<String> direct = leadingIndex(fields, indexes);
+        if (direct.isPresent() || orBranches.isEmpty()) {
+            return direct;
+        }
+
+        List<String> names = new ArrayList<>();
+        for (Document branch : orBranches) {
+            Optional<String> branchIndex = servingIndex(branch, null, indexes);
+            if (branchIndex.isEmpty()) {
+                return Optional.empty();
+            }
+            if (!names.contains(branchIndex.get())) {
+                names.add(branchIndex.get());
+            }
+        }
+        return Optional.of(String.join(",", names));
+    }
+
+    /**
+     * Fields every matching document must satisfy (top level and $and branches), and the $or branches
+     */
+    private static void collectConjunction(Document filter, List<String> fields, List<Document> orBranches) {
+        filter.forEach((key, value) -> {
+            if ("$and".equals(key) && value instanceof List<?> branches) {
+                branches.forEach(branch -> collectConjunction((Document) branch, fields, orBranches));
+            } else if ("$or".equals(key) && value instanceof List<?> branches) {
+                branches.forEach(branch -> orBranches.add((Document) branch));
+            } else if (!key.startsWith("$")) {
+                fields.add(key);
+            }
+        });
+    }
+
+    private static Optional<String> leadingIndex(List<String> fields, List<IndexDefinition> indexes) {
+        if (fields.contains("_id")) {
+            return Optional.of("_id_");
+        }
+        for (IndexDefinition index : indexes) {
+            String leadingField = index.getIndexKeys().keySet().iterator().next();
+            if (fields.contains(leadingField)) {
+                return Optional.of(String.valueOf(index.getIndexOptions().getOrDefault("name", index.getIndexKeys().toJson())));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * True when any stage of the plan (including $or branches) scans the whole collection
+     */
+    static boolean usesCollectionScan(Object plan) {
+        if (plan instanceof Document document) {
+            if ("COLLSCAN".equals(document.get("stage"))) {
+                return true;
+            }
+            return document.values().stream().anyMatch(MongoIndexService::usesCollectionScan);
+        }
+        if (plan instanceof List<?> list) {
+            return list.stream().anyMatch(MongoIndexService::usesCollectionScan);
+        }
+        return false;
+    }
+
+    static List<String> indexNames(Object plan) {
+        List<String> names = new ArrayList<>();
+        collectIndexNames(plan, names);
+        return names;
+    }
+
+    private static void collectIndexNames(Object plan, List<String> names) {
+        if (plan instanceof Document document) {
+            if (document.get("indexName") instanceof String name && !names.contains(name)) {
+                names.add(name);
+            }
+            document.values().forEach(value -> collectIndexNames(value, names));
+        } else if (plan instanceof List<?> list) {
+            list.forEach(value -> collectIndexNames(value, names));
+        }
+    }
+
+    /**
+     * Filter and sort a repository query sends to MongoDB
+     */
+    record QueryShape(Class<?> entity, Document filter, Document sort) {
+
+        /**
+         * Fields the query filters on (through $or / $and branches) and sorts on
+         */
+        List<String> fields() {
+            List<String> fields = new ArrayList<>();
+            collectFields(filter, fields);
+            if (sort != null) {
+                fields.addAll(sort.keySet());
+            }
+            return fields;
+        }
+
+        private static void collectFields(Document filter, List<String> fields) {
+            filter.forEach((key, value) -> {
+                if (key.startsWith("$") && value instanceof List<?> branches) {
+                    branches.forEach(branch -> collectFields((Document) branch, fields));
+                } else {
+                    fields.add(key);
+                }
+            });
+        }
+    }
+}
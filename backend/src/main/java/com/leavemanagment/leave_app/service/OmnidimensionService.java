@@ -1,25 +1,31 @@
 package com.leavemanagment.leave_app.service;
 
 import com.leavemanagment.leave_app.model.LeaveRequest;
-import com.leavemanagment.leave_app.repository.LeaveRequestRepository;
-import com.leavemanagment.leave_app.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class OmnidimensionService {
 
     @Autowired
-    private LeaveRequestRepository leaveRequestRepository;
+    private EmployeeIdentityService employeeIdentityService;
 
     @Autowired
-    private UserRepository userRepository;
+    private MongoTemplate mongoTemplate;
+
+    private static final String UNKNOWN = "Unknown";
+    private static final int TOTAL = 0;
+    private static final int APPROVED = 1;
 
     @Value("${omnidimension.api.url:http://localhost:3000/api}")
     private String omnidimensionApiUrl;
@@ -28,31 +34,34 @@ public class OmnidimensionService {
     private String omnidimensionApiKey;
 
     /**
-     * Generate multi-dimensional analytics for leave management
+     * Generate multi-dimensional analytics for leave management.
+     * Leave requests are streamed from MongoDB exactly once; every dimension is
+     * built from the same set of accumulators.
      */
     public Map<String, Object> generateMultiDimensionalAnalytics() {
         try {
+            AnalyticsAccumulator accumulator = collectAnalytics();
             Map<String, Object> analytics = new HashMap<>();
             
             // Time dimension analysis
-            analytics.put("timeAnalysis", generateTimeDimensionAnalysis());
+            analytics.put("timeAnalysis", generateTimeDimensionAnalysis(accumulator));
             
             // Employee dimension analysis
-            analytics.put("employeeAnalysis", generateEmployeeDimensionAnalysis());
+            analytics.put("employeeAnalysis", generateEmployeeDimensionAnalysis(accumulator));
             
             // Department dimension analysis
-            analytics.put("departmentAnalysis", generateDepartmentDimensionAnalysis());
+            analytics.put("departmentAnalysis", generateDepartmentDimensionAnalysis(accumulator));
             
             // Leave type dimension analysis
-            analytics.put("leaveTypeAnalysis", generateLeaveTypeDimensionAnalysis());
+            analytics.put("leaveTypeAnalysis", generateLeaveTypeDimensionAnalysis(accumulator));
             
             // Predictive analytics
-            analytics.put("predictiveAnalytics", generatePredictiveAnalytics());
+            analytics.put("predictiveAnalytics", generatePredictiveAnalytics(accumulator));
             
             // Anomaly detection
-            analytics.put("anomalyDetection", detectAnomalies());
+            analytics.put("anomalyDetection", detectAnomalies(accumulator));
             
-            System.out.println("🤖 Omnidimension: Multi-dimensional analytics generated successfully");
+            System.out.println("🤖 Omnidimension: Multi-dimensional analytics generated from " + accumulator.totalLeaves + " leave requests");
             return analytics;
             
         } catch (Exception e) {
@@ -61,47 +70,54 @@ public class OmnidimensionService {
         }
     }
 
+    /**
+     * Single scan over leave_requests feeding every dimension's counters
+     */
+    private AnalyticsAccumulator collectAnalytics() {
+        AnalyticsAccumulator accumulator = new AnalyticsAccumulator(LocalDate.now());
+        // Current departments by employee key, loaded once, for leaves saved before departments were stamped
+        Map<String, String> departments = employeeIdentityService.departmentsByEmployeeId();
+        
+        // A leave counts for the department it was requested in, like the leave statistics
+        try (Stream<LeaveRequest> leaves = mongoTemplate.stream(new Query(), LeaveRequest.class)) {
+            leaves.forEach(leave -> accumulator.accept(leave, leave.getDepartment() != null
+                    ? leave.getDepartment() : departments.getOrDefault(leave.getEmployeeId(), UNKNOWN)));
+        }
+        return accumulator;
+    }
+
     /**
      * Time dimension analysis
      */
-    private Map<String, Object> generateTimeDimensionAnalysis() {
+    private Map<String, Object> generateTimeDimensionAnalysis(AnalyticsAccumulator accumulator) {
         Map<String, Object> timeAnalysis = new HashMap<>();
         
-        // Monthly trends
+        // Monthly trends for the last 12 months
         Map<String, Long> monthlyTrends = new HashMap<>();
-        LocalDate now = LocalDate.now();
-        
+        DateTimeFormatter monthFormat = DateTimeFormatter.ofPattern("MMM yyyy");
         for (int i = 0; i < 12; i++) {
-            LocalDate monthStart = now.minusMonths(i).withDayOfMonth(1);
-            LocalDate monthEnd = monthStart.plusMonths(1).minusDays(1);
-            
-            long leavesInMonth = leaveRequestRepository.findAll().stream()
-                    .filter(leave -> leave.getStartDate() != null && 
-                            !leave.getStartDate().isBefore(monthStart) && 
-                            !leave.getStartDate().isAfter(monthEnd))
-                    .count();
-            
-            monthlyTrends.put(monthStart.format(DateTimeFormatter.ofPattern("MMM yyyy")), leavesInMonth);
+            YearMonth month = accumulator.currentMonth.minusMonths(i);
+            monthlyTrends.put(month.atDay(1).format(monthFormat), accumulator.leavesByMonth.getOrDefault(month, 0L));
         }
         
         timeAnalysis.put("monthlyTrends", monthlyTrends);
         
         // Seasonal patterns
         Map<String, Long> seasonalPatterns = new HashMap<>();
-        seasonalPatterns.put("Spring", countLeavesBySeason(3, 5));
-        seasonalPatterns.put("Summer", countLeavesBySeason(6, 8));
-        seasonalPatterns.put("Fall", countLeavesBySeason(9, 11));
-        seasonalPatterns.put("Winter", countLeavesBySeason(12, 2));
+        seasonalPatterns.put("Spring", accumulator.countMonths(3, 4, 5));
+        seasonalPatterns.put("Summer", accumulator.countMonths(6, 7, 8));
+        seasonalPatterns.put("Fall", accumulator.countMonths(9, 10, 11));
+        seasonalPatterns.put("Winter", accumulator.countMonths(12, 1, 2));
         
         timeAnalysis.put("seasonalPatterns", seasonalPatterns);
         
         // Day of week patterns
         Map<String, Long> dayOfWeekPatterns = new HashMap<>();
-        dayOfWeekPatterns.put("Monday", countLeavesByDayOfWeek(1));
-        dayOfWeekPatterns.put("Tuesday", countLeavesByDayOfWeek(2));
-        dayOfWeekPatterns.put("Wednesday", countLeavesByDayOfWeek(3));
-        dayOfWeekPatterns.put("Thursday", countLeavesByDayOfWeek(4));
-        dayOfWeekPatterns.put("Friday", countLeavesByDayOfWeek(5));
+        dayOfWeekPatterns.put("Monday", accumulator.leavesByDayOfWeek[DayOfWeek.MONDAY.getValue()]);
+        dayOfWeekPatterns.put("Tuesday", accumulator.leavesByDayOfWeek[DayOfWeek.TUESDAY.getValue()]);
+        dayOfWeekPatterns.put("Wednesday", accumulator.leavesByDayOfWeek[DayOfWeek.WEDNESDAY.getValue()]);
+        dayOfWeekPatterns.put("Thursday", accumulator.leavesByDayOfWeek[DayOfWeek.THURSDAY.getValue()]);
+        dayOfWeekPatterns.put("Friday", accumulator.leavesByDayOfWeek[DayOfWeek.FRIDAY.getValue()]);
         
         timeAnalysis.put("dayOfWeekPatterns", dayOfWeekPatterns);
         
@@ -111,32 +127,13 @@ public class OmnidimensionService {
     /**
      * Employee dimension analysis
      */
-    private Map<String, Object> generateEmployeeDimensionAnalysis() {
+    private Map<String, Object> generateEmployeeDimensionAnalysis(AnalyticsAccumulator accumulator) {
         Map<String, Object> employeeAnalysis = new HashMap<>();
         
         // Employee leave patterns
         Map<String, Object> employeePatterns = new HashMap<>();
-        List<LeaveRequest> allLeaves = leaveRequestRepository.findAll();
-        
-        Map<String, Long> employeeLeaveCounts = allLeaves.stream()
-                .collect(Collectors.groupingBy(LeaveRequest::getEmployeeName, Collectors.counting()));
-        
-        employeePatterns.put("leaveCounts", employeeLeaveCounts);
-        
-        // Employee approval rates
-        Map<String, Double> employeeApprovalRates = new HashMap<>();
-        for (String employeeName : employeeLeaveCounts.keySet()) {
-            List<LeaveRequest> employeeLeaves = leaveRequestRepository.findByEmployeeName(employeeName);
-            long approvedLeaves = employeeLeaves.stream()
-                    .filter(leave -> "Approved".equals(leave.getStatus()))
-                    .count();
-            
-            double approvalRate = employeeLeaves.isEmpty() ? 0.0 : 
-                    (double) approvedLeaves / employeeLeaves.size() * 100;
-            employeeApprovalRates.put(employeeName, Math.round(approvalRate * 100.0) / 100.0);
-        }
-        
-        employeePatterns.put("approvalRates", employeeApprovalRates);
+        employeePatterns.put("leaveCounts", toLeaveCounts(accumulator.byEmployee));
+        employeePatterns.put("approvalRates", toApprovalRates(accumulator.byEmployee));
         employeeAnalysis.put("patterns", employeePatterns);
         
         return employeeAnalysis;
@@ -145,44 +142,13 @@ public class OmnidimensionService {
     /**
      * Department dimension analysis
      */
-    private Map<String, Object> generateDepartmentDimensionAnalysis() {
+    private Map<String, Object> generateDepartmentDimensionAnalysis(AnalyticsAccumulator accumulator) {
         Map<String, Object> departmentAnalysis = new HashMap<>();
         
         // Department leave patterns
         Map<String, Object> departmentPatterns = new HashMap<>();
-        
-        // Get all employees and their departments
-        Map<String, String> employeeToDepartment = new HashMap<>();
-        userRepository.findAll().forEach(user -> {
-            employeeToDepartment.put(user.getFullName(), user.getDepartment());
-        });
-        
-        // Group leaves by department
-        Map<String, List<LeaveRequest>> leavesByDepartment = leaveRequestRepository.findAll().stream()
-                .collect(Collectors.groupingBy(leave -> 
-                        employeeToDepartment.getOrDefault(leave.getEmployeeName(), "Unknown")));
-        
-        Map<String, Long> departmentLeaveCounts = leavesByDepartment.entrySet().stream()
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        entry -> (long) entry.getValue().size()
-                ));
-        
-        departmentPatterns.put("leaveCounts", departmentLeaveCounts);
-        
-        // Department approval rates
-        Map<String, Double> departmentApprovalRates = new HashMap<>();
-        for (Map.Entry<String, List<LeaveRequest>> entry : leavesByDepartment.entrySet()) {
-            long approvedLeaves = entry.getValue().stream()
-                    .filter(leave -> "Approved".equals(leave.getStatus()))
-                    .count();
-            
-            double approvalRate = entry.getValue().isEmpty() ? 0.0 : 
-                    (double) approvedLeaves / entry.getValue().size() * 100;
-            departmentApprovalRates.put(entry.getKey(), Math.round(approvalRate * 100.0) / 100.0);
-        }
-        
-        departmentPatterns.put("approvalRates", departmentApprovalRates);
+        departmentPatterns.put("leaveCounts", toLeaveCounts(accumulator.byDepartment));
+        departmentPatterns.put("approvalRates", toApprovalRates(accumulator.byDepartment));
         departmentAnalysis.put("patterns", departmentPatterns);
         
         return departmentAnalysis;
@@ -191,31 +157,14 @@ public class OmnidimensionService {
     /**
      * Leave type dimension analysis
      */
-    private Map<String, Object> generateLeaveTypeDimensionAnalysis() {
+    private Map<String, Object> generateLeaveTypeDimensionAnalysis(AnalyticsAccumulator accumulator) {
         Map<String, Object> leaveTypeAnalysis = new HashMap<>();
         
         // Leave type distribution
-        Map<String, Long> leaveTypeDistribution = leaveRequestRepository.findAll().stream()
-                .collect(Collectors.groupingBy(LeaveRequest::getLeaveType, Collectors.counting()));
-        
-        leaveTypeAnalysis.put("distribution", leaveTypeDistribution);
+        leaveTypeAnalysis.put("distribution", toLeaveCounts(accumulator.byLeaveType));
         
         // Leave type approval rates
-        Map<String, Double> leaveTypeApprovalRates = new HashMap<>();
-        Map<String, List<LeaveRequest>> leavesByType = leaveRequestRepository.findAll().stream()
-                .collect(Collectors.groupingBy(LeaveRequest::getLeaveType));
-        
-        for (Map.Entry<String, List<LeaveRequest>> entry : leavesByType.entrySet()) {
-            long approvedLeaves = entry.getValue().stream()
-                    .filter(leave -> "Approved".equals(leave.getStatus()))
-                    .count();
-            
-            double approvalRate = entry.getValue().isEmpty() ? 0.0 : 
-                    (double) approvedLeaves / entry.getValue().size() * 100;
-            leaveTypeApprovalRates.put(entry.getKey(), Math.round(approvalRate * 100.0) / 100.0);
-        }
-        
-        leaveTypeAnalysis.put("approvalRates", leaveTypeApprovalRates);
+        leaveTypeAnalysis.put("approvalRates", toApprovalRates(accumulator.byLeaveType));
         
         return leaveTypeAnalysis;
     }
@@ -223,18 +172,14 @@ public class OmnidimensionService {
     /**
      * Predictive analytics
      */
-    private Map<String, Object> generatePredictiveAnalytics() {
+    private Map<String, Object> generatePredictiveAnalytics(AnalyticsAccumulator accumulator) {
         Map<String, Object> predictiveAnalytics = new HashMap<>();
         
         // Predict future leave requests
         Map<String, Object> futurePredictions = new HashMap<>();
         
-        // Simple prediction based on historical patterns
-        LocalDate nextMonth = LocalDate.now().plusMonths(1);
-        long avgMonthlyLeaves = leaveRequestRepository.findAll().stream()
-                .filter(leave -> leave.getStartDate() != null && 
-                        leave.getStartDate().isAfter(LocalDate.now().minusMonths(6)))
-                .count() / 6;
+        // Simple prediction based on the last six months of history
+        long avgMonthlyLeaves = accumulator.leavesInLastSixMonths / 6;
         
         futurePredictions.put("predictedLeavesNextMonth", avgMonthlyLeaves);
         futurePredictions.put("predictionConfidence", 85.5);
@@ -255,14 +200,13 @@ public class OmnidimensionService {
     /**
      * Anomaly detection
      */
-    private Map<String, Object> detectAnomalies() {
+    private Map<String, Object> detectAnomalies(AnalyticsAccumulator accumulator) {
         Map<String, Object> anomalies = new HashMap<>();
         
         List<Map<String, Object>> detectedAnomalies = new ArrayList<>();
         
         // Detect unusual leave patterns
-        Map<String, Long> employeeLeaveCounts = leaveRequestRepository.findAll().stream()
-                .collect(Collectors.groupingBy(LeaveRequest::getEmployeeName, Collectors.counting()));
+        Map<String, Long> employeeLeaveCounts = toLeaveCounts(accumulator.byEmployee);
         
         // Find employees with unusually high leave requests
         double avgLeaves = employeeLeaveCounts.values().stream()
@@ -292,25 +236,77 @@ public class OmnidimensionService {
         return anomalies;
     }
 
-    /**
-     * Helper method to count leaves by season
-     */
-    private long countLeavesBySeason(int startMonth, int endMonth) {
-        return leaveRequestRepository.findAll().stream()
-                .filter(leave -> leave.getStartDate() != null && 
-                        leave.getStartDate().getMonthValue() >= startMonth && 
-                        leave.getStartDate().getMonthValue() <= endMonth)
-                .count();
+    private Map<String, Long> toLeaveCounts(Map<String, long[]> counters) {
+        Map<String, Long> leaveCounts = new HashMap<>();
+        counters.forEach((key, counts) -> leaveCounts.put(key, counts[TOTAL]));
+        return leaveCounts;
+    }
+
+    private Map<String, Double> toApprovalRates(Map<String, long[]> counters) {
+        Map<String, Double> approvalRates = new HashMap<>();
+        counters.forEach((key, counts) -> {
+            double approvalRate = counts[TOTAL] == 0 ? 0.0 : (double) counts[APPROVED] / counts[TOTAL] * 100;
+            approvalRates.put(key, Math.round(approvalRate * 100.0) / 100.0);
+        });
+        return approvalRates;
     }
 
     /**
-     * Helper method to count leaves by day of week
+     * Shared counters filled in one pass over the leave requests.
+     * Grouped counters hold {total, approved} pairs.
      */
-    private long countLeavesByDayOfWeek(int dayOfWeek) {
-        return leaveRequestRepository.findAll().stream()
-                .filter(leave -> leave.getStartDate() != null && 
-                        leave.getStartDate().getDayOfWeek().getValue() == dayOfWeek)
-                .count();
+    private static class AnalyticsAccumulator {
+        private final YearMonth currentMonth;
+        private final LocalDate sixMonthsAgo;
+        
+        private long totalLeaves;
+        private long leavesInLastSixMonths;
+        private final Map<YearMonth, Long> leavesByMonth = new HashMap<>();
+        private final long[] leavesByMonthOfYear = new long[13];
+        private final long[] leavesByDayOfWeek = new long[8];
+        private final Map<String, long[]> byEmployee = new HashMap<>();
+        private final Map<String, long[]> byDepartment = new HashMap<>();
+        private final Map<String, long[]> byLeaveType = new HashMap<>();
+
+        AnalyticsAccumulator(LocalDate today) {
+            this.currentMonth = YearMonth.from(today);
+            this.sixMonthsAgo = today.minusMonths(6);
+        }
+
+        void accept(LeaveRequest leave, String department) {
+            totalLeaves++;
+            boolean approved = "Approved".equals(leave.getStatus());
+            
+            LocalDate startDate = leave.getStartDate();
+            if (startDate != null) {
+                leavesByMonth.merge(YearMonth.from(startDate), 1L, Long::sum);
+                leavesByMonthOfYear[startDate.getMonthValue()]++;
+                leavesByDayOfWeek[startDate.getDayOfWeek().getValue()]++;
+                if (startDate.isAfter(sixMonthsAgo)) {
+                    leavesInLastSixMonths++;
+                }
+            }
+            
+            count(byEmployee, leave.getEmployeeName(), approved);
+            count(byDepartment, department, approved);
+            count(byLeaveType, leave.getLeaveType(), approved);
+        }
+
+        long countMonths(int... months) {
+            long total = 0;
+            for (int month : months) {
+                total += leavesByMonthOfYear[month];
+            }
+            return total;
+        }
+
+        private static void count(Map<String, long[]> counters, String key, boolean approved) {
+            long[] counts = counters.computeIfAbsent(key != null ? key : UNKNOWN, k -> new long[2]);
+            counts[TOTAL]++;
+            if (approved) {
+                counts[APPROVED]++;
+            }
+        }
     }
 
     /**
@@ -16,54 +16,43 @@ public class SmartEmailTemplateService {
 
     private final Random random = new Random();
 
-    /**
-     * Generate personalized approval email with smart content
-     */
-    public String generateSmartApprovalEmail(LeaveRequest leaveRequest, User employee, User hrUser) {
-        String personalizedGreeting = getPersonalizedGreeting(employee.getFullName());
-        String leaveTypeMessage = getLeaveTypeSpecificMessage(leaveRequest.getLeaveType(), true);
-        String durationMessage = getDurationSpecificMessage((int)calculateLeaveDuration(leaveRequest), true);
-        String seasonalMessage = getSeasonalMessage(leaveRequest.getStartDate());
-        String preparationTips = getPreparationTips(leaveRequest.getLeaveType(), (int)calculateLeaveDuration(leaveRequest));
-        String closingMessage = getPersonalizedClosing(true);
-
-        return String.format("""
+    private static final EmailTemplate SMART_APPROVAL_EMAIL_TEMPLATE = EmailTemplate.compile("""
             <html>
             <body style="font-family: 'Segoe UI', Tahoma, Geneva, Verdana, sans-serif; line-height: 1.6; color: #333; max-width: 600px; margin: 0 auto;">
-                <div style="background: linear-gradient(135deg, #667eea 0%%, #764ba2 100%%); padding: 20px; text-align: center; border-radius: 10px 10px 0 0;">
+                <div style="background: linear-gradient(135deg, #667eea 0%, #764ba2 100%); padding: 20px; text-align: center; border-radius: 10px 10px 0 0;">
                     <h1 style="color: white; margin: 0; font-size: 24px;">🎉 Great News!</h1>
                 </div>
                 
                 <div style="padding: 30px; background: white; border-radius: 0 0 10px 10px; box-shadow: 0 4px 6px rgba(0,0,0,0.1);">
-                    <p style="font-size: 18px; margin-bottom: 20px;">%s</p>
+                    <p style="font-size: 18px; margin-bottom: 20px;">{{personalizedGreeting}}</p>
                     
                     <div style="background: #f0f8ff; padding: 20px; border-radius: 8px; border-left: 4px solid #4CAF50; margin: 20px 0;">
                         <h2 style="color: #2e7d32; margin-top: 0;">✅ Your Leave Request is Approved!</h2>
-                        <p style="margin-bottom: 10px;">%s</p>
-                        <p>%s</p>
+                        <p style="margin-bottom: 10px;">{{leaveTypeMessage}}</p>
+                        <p>{{durationMessage}}</p>
                     </div>
                     
                     <div style="background: #fafafa; padding: 20px; border-radius: 8px; margin: 20px 0;">
                         <h3 style="color: #555; margin-top: 0;">📅 Leave Details</h3>
-                        <table style="width: 100%%; border-collapse: collapse;">
-                            <tr><td style="padding: 8px 0; border-bottom: 1px solid #eee;"><strong>Type:</strong></td><td style="padding: 8px 0; border-bottom: 1px solid #eee;">%s</td></tr>
-                            <tr><td style="padding: 8px 0; border-bottom: 1px solid #eee;"><strong>Start Date:</strong></td><td style="padding: 8px 0; border-bottom: 1px solid #eee;">%s</td></tr>
-                            <tr><td style="padding: 8px 0; border-bottom: 1px solid #eee;"><strong>End Date:</strong></td><td style="padding: 8px 0; border-bottom: 1px solid #eee;">%s</td></tr>
-                            <tr><td style="padding: 8px 0; border-bottom: 1px solid #eee;"><strong>Duration:</strong></td><td style="padding: 8px 0; border-bottom: 1px solid #eee;">%d days</td></tr>
-                            <tr><td style="padding: 8px 0;"><strong>Reason:</strong></td><td style="padding: 8px 0;">%s</td></tr>
+                        <table style="width: 100%; border-collapse: collapse;">
+                            <tr><td style="padding: 8px 0; border-bottom: 1px solid #eee;"><strong>Type:</strong></td><td style="padding: 8px 0; border-bottom: 1px solid #eee;">{{leaveType}}</td></tr>
+                            <tr><td style="padding: 8px 0; border-bottom: 1px solid #eee;"><strong>Start Date:</strong></td><td style="padding: 8px 0; border-bottom: 1px solid #eee;">{{startDate}}</td></tr>
+                            <tr><td style="padding: 8px 0; border-bottom: 1px solid #eee;"><strong>End Date:</strong></td><td style="padding: 8px 0; border-bottom: 1px solid #eee;">{{endDate}}</td></tr>
+                            <tr><td style="padding: 8px 0; border-bottom: 1px solid #eee;"><strong>Duration:</strong></td><td style="padding: 8px 0; border-bottom: 1px solid #eee;">{{duration}} days</td></tr>
+                            <tr><td style="padding: 8px 0;"><strong>Reason:</strong></td><td style="padding: 8px 0;">{{reason}}</td></tr>
                         </table>
                     </div>
                     
-                    %s
+                    {{preparationTips}}
                     
                     <div style="background: #e8f5e8; padding: 15px; border-radius: 8px; margin: 20px 0;">
-                        <p style="margin: 0; font-style: italic; color: #2e7d32;">%s</p>
+                        <p style="margin: 0; font-style: italic; color: #2e7d32;">{{seasonalMessage}}</p>
                     </div>
                     
-                    <p style="margin-top: 30px;">%s</p>
+                    <p style="margin-top: 30px;">{{closingMessage}}</p>
                     
                     <div style="margin-top: 30px; padding-top: 20px; border-top: 2px solid #f0f0f0;">
-                        <p style="margin: 0;"><strong>%s</strong><br>
+                        <p style="margin: 0;"><strong>{{hrName}}</strong><br>
                         <span style="color: #666;">HR Team</span><br>
                         <span style="font-size: 12px; color: #999;">LeaveEase Management System</span></p>
                     </div>
@@ -71,6 +60,20 @@ public class SmartEmailTemplateService {
             </body>
             </html>
             """,
+            "personalizedGreeting", "leaveTypeMessage", "durationMessage", "leaveType", "startDate", "endDate", "duration", "reason", "preparationTips", "seasonalMessage", "closingMessage", "hrName");
+
+    /**
+     * Generate personalized approval email with smart content
+     */
+    public String generateSmartApprovalEmail(LeaveRequest leaveRequest, User employee, User hrUser) {
+        String personalizedGreeting = getPersonalizedGreeting(employee.getFullName());
+        String leaveTypeMessage = getLeaveTypeSpecificMessage(leaveRequest.getLeaveType(), true);
+        String durationMessage = getDurationSpecificMessage((int)calculateLeaveDuration(leaveRequest), true);
+        String seasonalMessage = getSeasonalMessage(leaveRequest.getStartDate());
+        String preparationTips = getPreparationTips(leaveRequest.getLeaveType(), (int)calculateLeaveDuration(leaveRequest));
+        String closingMessage = getPersonalizedClosing(true);
+
+        return SMART_APPROVAL_EMAIL_TEMPLATE.render(
             personalizedGreeting,
             leaveTypeMessage,
             durationMessage,
@@ -86,39 +89,30 @@ public class SmartEmailTemplateService {
         );
     }
 
-    /**
-     * Generate personalized rejection email with smart content
-     */
-    public String generateSmartRejectionEmail(LeaveRequest leaveRequest, User employee, User hrUser, String rejectionReason) {
-        String personalizedGreeting = getPersonalizedGreeting(employee.getFullName());
-        String empathyMessage = getEmpathyMessage(leaveRequest.getLeaveType());
-        String alternativeSuggestions = getAlternativeSuggestions(leaveRequest.getLeaveType(), rejectionReason);
-        String encouragementMessage = getEncouragementMessage();
-
-        return String.format("""
+    private static final EmailTemplate SMART_REJECTION_EMAIL_TEMPLATE = EmailTemplate.compile("""
             <html>
             <body style="font-family: 'Segoe UI', Tahoma, Geneva, Verdana, sans-serif; line-height: 1.6; color: #333; max-width: 600px; margin: 0 auto;">
-                <div style="background: linear-gradient(135deg, #ff9a9e 0%%, #fecfef 100%%); padding: 20px; text-align: center; border-radius: 10px 10px 0 0;">
+                <div style="background: linear-gradient(135deg, #ff9a9e 0%, #fecfef 100%); padding: 20px; text-align: center; border-radius: 10px 10px 0 0;">
                     <h1 style="color: #333; margin: 0; font-size: 24px;">📋 Leave Request Update</h1>
                 </div>
                 
                 <div style="padding: 30px; background: white; border-radius: 0 0 10px 10px; box-shadow: 0 4px 6px rgba(0,0,0,0.1);">
-                    <p style="font-size: 18px; margin-bottom: 20px;">%s</p>
+                    <p style="font-size: 18px; margin-bottom: 20px;">{{personalizedGreeting}}</p>
                     
-                    <p>%s</p>
+                    <p>{{empathyMessage}}</p>
                     
                     <div style="background: #fff3cd; padding: 20px; border-radius: 8px; border-left: 4px solid #ffc107; margin: 20px 0;">
                         <h3 style="color: #856404; margin-top: 0;">📋 Leave Request Status</h3>
                         <p style="margin-bottom: 10px;">After careful consideration, we need to <strong>decline</strong> your leave request for the following dates:</p>
-                        <p><strong>%s to %s</strong> (%d days)</p>
+                        <p><strong>{{startDate}} to {{endDate}}</strong> ({{duration}} days)</p>
                     </div>
                     
                     <div style="background: #f8d7da; padding: 20px; border-radius: 8px; border-left: 4px solid #dc3545; margin: 20px 0;">
                         <h4 style="color: #721c24; margin-top: 0;">📝 Reason for Decline:</h4>
-                        <p style="margin-bottom: 0; font-weight: 500;">%s</p>
+                        <p style="margin-bottom: 0; font-weight: 500;">{{rejectionReason}}</p>
                     </div>
                     
-                    %s
+                    {{alternativeSuggestions}}
                     
                     <div style="background: #d1ecf1; padding: 20px; border-radius: 8px; margin: 20px 0;">
                         <h4 style="color: #0c5460; margin-top: 0;">💡 Next Steps:</h4>
@@ -130,14 +124,14 @@ public class SmartEmailTemplateService {
                         </ul>
                     </div>
                     
-                    <p>%s</p>
+                    <p>{{encouragementMessage}}</p>
                     
                     <div style="background: #e2e3e5; padding: 15px; border-radius: 8px; margin: 20px 0; text-align: center;">
                         <p style="margin: 0; font-weight: 500; color: #495057;">📞 Need to discuss? Contact HR at hr@company.com or ext. 1234</p>
                     </div>
                     
                     <div style="margin-top: 30px; padding-top: 20px; border-top: 2px solid #f0f0f0;">
-                        <p style="margin: 0;"><strong>%s</strong><br>
+                        <p style="margin: 0;"><strong>{{hrName}}</strong><br>
                         <span style="color: #666;">HR Team</span><br>
                         <span style="font-size: 12px; color: #999;">LeaveEase Management System</span></p>
                     </div>
@@ -145,6 +139,18 @@ public class SmartEmailTemplateService {
             </body>
             </html>
             """,
+            "personalizedGreeting", "empathyMessage", "startDate", "endDate", "duration", "rejectionReason", "alternativeSuggestions", "encouragementMessage", "hrName");
+
+    /**
+     * Generate personalized rejection email with smart content
+     */
+    public String generateSmartRejectionEmail(LeaveRequest leaveRequest, User employee, User hrUser, String rejectionReason) {
+        String personalizedGreeting = getPersonalizedGreeting(employee.getFullName());
+        String empathyMessage = getEmpathyMessage(leaveRequest.getLeaveType());
+        String alternativeSuggestions = getAlternativeSuggestions(leaveRequest.getLeaveType(), rejectionReason);
+        String encouragementMessage = getEncouragementMessage();
+
+        return SMART_REJECTION_EMAIL_TEMPLATE.render(
             personalizedGreeting,
             empathyMessage,
             formatDate(leaveRequest.getStartDate()),
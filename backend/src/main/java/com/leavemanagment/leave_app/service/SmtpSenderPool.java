@@ -0,0 +1,114 @@
+package com.leavemanagment.leave_app.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One JavaMailSender per SMTP account (host:port:username).
+ *
+ * Senders whose HR user has stored an app password in UserEmailConfigService get their own
+ * sender built from the provider EmailConfig; everything else goes through the system sender
+ * configured by spring.mail.*. The outbox groups a batch by account key and sends each group
+ * with a single JavaMailSender.send(MimeMessage...) call, i.e. one connection and TLS handshake.
+ */
+@Service
+public class SmtpSenderPool {
+
+    public static final String SYSTEM_ACCOUNT = "system";
+
+    @Autowired
+    private JavaMailSender systemMailSender;
+
+    @Autowired
+    private UserEmailConfigService userEmailConfigService;
+
+    // Point every pooled account at one server, e.g. a local stand-in SMTP server while testing
+    @Value("${email.smtp.host-override:}")
+    private String hostOverride;
+
+    @Value("${email.smtp.port-override:0}")
+    private int portOverride;
+
+    @Value("${email.smtp.timeout-ms:5000}")
+    private int timeoutMs;
+
+    private final Map<String, PooledSender> senders = new ConcurrentHashMap<>();
+
+    /**
+     * Account key used to group messages that can share one SMTP connection
+     */
+    public String accountKey(String fromEmail) {
+        if (fromEmail == null || !userEmailConfigService.hasEmailConfig(fromEmail)) {
+            return SYSTEM_ACCOUNT;
+        }
+        UserEmailConfigService.EmailConfig config = userEmailConfigService.getEmailConfig(fromEmail);
+        return host(config) + ":" + port(config) + ":" + fromEmail;
+    }
+
+    /**
+     * Sender for an account key returned by accountKey()
+     */
+    public JavaMailSender senderFor(String accountKey, String fromEmail) {
+        if (SYSTEM_ACCOUNT.equals(accountKey)) {
+            return systemMailSender;
+        }
+
+        String password = userEmailConfigService.getUserEmailPassword(fromEmail);
+        PooledSender pooled = senders.compute(accountKey, (key, existing) -> {
+            // Rebuild when the HR user changed their app password
+            if (existing != null && existing.password.equals(password)) {
+                return existing;
+            }
+            UserEmailConfigService.EmailConfig config = userEmailConfigService.getEmailConfig(fromEmail);
+            System.out.println("📮 Creating SMTP sender for " + key);
+            return new PooledSender(createSender(config, fromEmail, password), password);
+        });
+        return pooled.sender;
+    }
+
+    public int size() {
+        return senders.size();
+    }
+
+    private JavaMailSenderImpl createSender(UserEmailConfigService.EmailConfig config, String username, String password) {
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost(host(config));
+        sender.setPort(port(config));
+        sender.setUsername(username);
+        sender.setPassword(password);
+        sender.setDefaultEncoding("UTF-8");
+
+        Properties props = sender.getJavaMailProperties();
+        props.put("mail.smtp.auth", String.valueOf(config.isAuth()));
+        props.put("mail.smtp.starttls.enable", String.valueOf(config.isStarttls()));
+        props.put("mail.smtp.connectiontimeout", String.valueOf(timeoutMs));
+        props.put("mail.smtp.timeout", String.valueOf(timeoutMs));
+        props.put("mail.smtp.writetimeout", String.valueOf(timeoutMs));
+        return sender;
+    }
+
+    private String host(UserEmailConfigService.EmailConfig config) {
+        return hostOverride.isEmpty() ? config.getHost() : hostOverride;
+    }
+
+    private int port(UserEmailConfigService.EmailConfig config) {
+        return portOverride > 0 ? portOverride : config.getPort();
+    }
+
+    private static class PooledSender {
+        private final JavaMailSender sender;
+        private final String password;
+
+        PooledSender(JavaMailSender sender, String password) {
+            this.sender = sender;
+            this.password = password;
+        }
+    }
+}
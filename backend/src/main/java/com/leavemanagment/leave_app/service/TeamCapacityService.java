@@ -0,0 +1,312 @@
+package com.leavemanagment.leave_app.service;
+
+import com.leavemanagment.leave_app.event.EmployeeKeysBackfilledEvent;
+import com.leavemanagment.leave_app.event.LeaveRequestChangedEvent;
+import com.leavemanagment.leave_app.event.LeaveRequestsChangedEvent;
+import com.leavemanagment.leave_app.model.CapacityCheck;
+import com.leavemanagment.leave_app.model.Employee;
+import com.leavemanagment.leave_app.model.LeaveRequest;
+import com.leavemanagment.leave_app.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Checks on submission whether a leave request leaves a team short-handed.
+ *
+ * Approved and pending leaves are indexed per team (department of the employee's User,
+ * manager from the matching Employee record) in LeaveIntervalSets, so a check only looks at
+ * the few leaves overlapping the requested dates, however long the team's history is. Team
+ * membership and sizes are loaded at startup and on rebuild() (new employees join on their
+ * first request); the leave sets follow LeaveRequestChangedEvent like ApprovedLeaveIndex.
+ */
+@Service
+public class TeamCapacityService {
+
+    static final String DEPARTMENT = "department";
+    static final String MANAGER = "manager";
+
+    private static final List<String> COUNTED_STATUSES = List.of("Approved", "Pending");
+
+    // Longest range checked day by day; longer requests are checked over their first days
+    private static final int MAX_CHECKED_DAYS = 366;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${capacity.max-absent-ratio:0.3}")
+    private double maxAbsentRatio;
+
+    // Employee key (User ID) -> the teams it belongs to
+    private volatile Map<String, List<Team>> teamsByEmployee = Map.of();
+    private volatile Map<Team, Integer> teamSizes = Map.of();
+    private volatile Map<Team, LeaveIntervalSet> leavesByTeam = Map.of();
+    private volatile LocalDateTime builtAt;
+
+    // After the employee key backfill, so leaves can be placed in their teams
+    @Order(2)
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuild();
+    }
+
+    // Leave requests that just got a key now count for that employee's teams
+    @EventListener
+    public void onEmployeeKeysBackfilled(EmployeeKeysBackfilledEvent event) {
+        if (event.isLeaveRequestsChanged()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Reload team membership and the approved/pending leaves of every team
+     */
+    public synchronized Map<String, Object> rebuild() {
+        Query users = new Query();
+        users.fields().include("email", "department");
+        Query employees = new Query();
+        employees.fields().include("email", "employeeId", "managerId");
+
+        Map<String, String> managerByEmail = new HashMap<>();
+        for (Employee employee : mongoTemplate.find(employees, Employee.class)) {
+            if (employee.getEmail() != null && employee.getManagerId() != null) {
+                managerByEmail.put(employee.getEmail(), employee.getManagerId());
+            }
+        }
+
+        Map<String, List<Team>> teams = new HashMap<>();
+        Map<Team, Integer> sizes = new HashMap<>();
+        for (User user : mongoTemplate.find(users, User.class)) {
+            List<Team> memberOf = new ArrayList<>(2);
+            if (user.getDepartment() != null) {
+                memberOf.add(new Team(DEPARTMENT, user.getDepartment()));
+            }
+            if (managerByEmail.containsKey(user.getEmail())) {
+                memberOf.add(new Team(MANAGER, managerByEmail.get(user.getEmail())));
+            }
+            memberOf.forEach(team -> sizes.merge(team, 1, Integer::sum));
+            teams.put(user.getId(), memberOf);
+        }
+
+        Query leaves = Query.query(Criteria.where("status").in(COUNTED_STATUSES));
+        leaves.fields().include("employeeId", "employeeName", "startDate", "endDate", "status");
+        Map<Team, List<LeaveRequest>> grouped = new HashMap<>();
+        for (LeaveRequest leave : mongoTemplate.find(leaves, LeaveRequest.class)) {
+            for (Team team : teams.getOrDefault(leave.getEmployeeId(), List.of())) {
+                grouped.computeIfAbsent(team, key -> new ArrayList<>()).add(leave);
+            }
+        }
+        Map<Team, LeaveIntervalSet> sets = new HashMap<>();
+        grouped.forEach((team, teamLeaves) -> sets.put(team, LeaveIntervalSet.of(teamLeaves)));
+
+        teamsByEmployee = teams;
+        teamSizes = sizes;
+        leavesByTeam = sets;
+        builtAt = LocalDateTime.now();
+        System.out.println("👥 Team capacity index built: " + sizes.size() + " teams, "
+                + grouped.values().stream().mapToInt(List::size).sum() + " leave entries");
+        return getStats();
+    }
+
+    @EventListener
+    public synchronized void onLeaveRequestChanged(LeaveRequestChangedEvent event) {
+        LeaveRequest previous = event.getPrevious();
+        LeaveRequest current = event.getCurrent();
+        boolean wasCounted = previous != null && COUNTED_STATUSES.contains(previous.getStatus());
+        boolean counted = current != null && COUNTED_STATUSES.contains(current.getStatus());
+        if (!wasCounted && !counted) {
+            return;
+        }
+
+        Map<Team, LeaveIntervalSet> sets = new HashMap<>(leavesByTeam);
+        if (wasCounted) {
+            for (Team team : teamsOf(previous.getEmployeeId())) {
+                sets.computeIfPresent(team, (key, set) -> set.replace(previous, null));
+            }
+        }
+        if (counted) {
+            LeaveRequest snapshot = new LeaveRequest(current);
+            for (Team team : teamsOf(current.getEmployeeId())) {
+                sets.put(team, sets.getOrDefault(team, LeaveIntervalSet.EMPTY).replace(null, snapshot));
+            }
+        }
+        leavesByTeam = sets;
+    }
+
+    /**
+     * A batch of changes merged into each affected team's set in one pass
+     */
+    @EventListener
+    public synchronized void onLeaveRequestsChanged(LeaveRequestsChangedEvent event) {
+        Map<Team, List<String>> removed = new HashMap<>();
+        Map<Team, List<LeaveRequest>> added = new HashMap<>();
+        for (LeaveRequestChangedEvent change : event.getChanges()) {
+            LeaveRequest previous = change.getPrevious();
+            LeaveRequest current = change.getCurrent();
+            if (previous != null && COUNTED_STATUSES.contains(previous.getStatus())) {
+                for (Team team : teamsOf(previous.getEmployeeId())) {
+                    removed.computeIfAbsent(team, key -> new ArrayList<>()).add(previous.getId());
+                }
+            }
+            if (current != null && COUNTED_STATUSES.contains(current.getStatus())) {
+                LeaveRequest snapshot = new LeaveRequest(current);
+                for (Team team : teamsOf(current.getEmployeeId())) {
+                    added.computeIfAbsent(team, key -> new ArrayList<>()).add(snapshot);
+                }
+            }
+        }
+        if (removed.isEmpty() && added.isEmpty()) {
+            return;
+        }
+
+        Map<Team, LeaveIntervalSet> sets = new HashMap<>(leavesByTeam);
+        Set<Team> teams = new HashSet<>(removed.keySet());
+        teams.addAll(added.keySet());
+        for (Team team : teams) {
+            sets.put(team, sets.getOrDefault(team, LeaveIntervalSet.EMPTY)
+                    .apply(removed.getOrDefault(team, List.of()), added.getOrDefault(team, List.of())));
+        }
+        leavesByTeam = sets;
+    }
+
+    /**
+     * Team absence if this request were granted, for every team of its employee
+     */
+    public CapacityCheck check(LeaveRequest request) {
+        List<CapacityCheck.GroupLoad> groups = new ArrayList<>();
+        if (request.getStartDate() != null && request.getEndDate() != null
+                && !request.getEndDate().isBefore(request.getStartDate())) {
+            for (Team team : teamsOf(request.getEmployeeId())) {
+                int teamSize = teamSizes.getOrDefault(team, 0);
+                List<LeaveRequest> overlapping = leavesByTeam.getOrDefault(team, LeaveIntervalSet.EMPTY)
+                        .overlapping(request.getStartDate(), request.getEndDate());
+                groups.add(load(team, teamSize, maxAbsent(teamSize, maxAbsentRatio), request, overlapping));
+            }
+        }
+        boolean overCapacity = groups.stream().anyMatch(CapacityCheck.GroupLoad::overCapacity);
+        if (overCapacity) {
+            System.out.println("⚠️ Leave request of " + request.getEmployeeName() + " exceeds team capacity: " + groups);
+        }
+        return new CapacityCheck(LocalDateTime.now(), overCapacity, groups);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("teams", teamSizes.size());
+        stats.put("employees", teamsByEmployee.size());
+        stats.put("indexedLeaves", leavesByTeam.values().stream().mapToInt(LeaveIntervalSet::size).sum());
+        stats.put("maxAbsentRatio", maxAbsentRatio);
+        stats.put("builtAt", builtAt);
+        return stats;
+    }
+
+    private List<Team> teamsOf(String employeeId) {
+        if (employeeId == null) {
+            return List.of();
+        }
+        List<Team> teams = teamsByEmployee.get(employeeId);
+        return teams != null ? teams : join(employeeId);
+    }
+
+    /**
+     * Add an employee who signed up after the last rebuild to their teams
+     */
+    private synchronized List<Team> join(String employeeId) {
+        if (teamsByEmployee.containsKey(employeeId)) {
+            return teamsByEmployee.get(employeeId);
+        }
+        User user = mongoTemplate.findById(employeeId, User.class);
+        if (user == null) {
+            return List.of();
+        }
+        List<Team> memberOf = new ArrayList<>(2);
+        if (user.getDepartment() != null) {
+            memberOf.add(new Team(DEPARTMENT, user.getDepartment()));
+        }
+        Employee employee = user.getEmail() != null
+                ? mongoTemplate.findOne(Query.query(Criteria.where("email").is(user.getEmail())), Employee.class)
+                : null;
+        if (employee != null && employee.getManagerId() != null) {
+            memberOf.add(new Team(MANAGER, employee.getManagerId()));
+        }
+
+        Map<String, List<Team>> teams = new HashMap<>(teamsByEmployee);
+        teams.put(employeeId, memberOf);
+        Map<Team, Integer> sizes = new HashMap<>(teamSizes);
+        memberOf.forEach(team -> sizes.merge(team, 1, Integer::sum));
+        teamsByEmployee = teams;
+        teamSizes = sizes;
+        return memberOf;
+    }
+
+    /**
+     * Most people of the team absent on one day of the request, counting each employee once
+     * per day and the request's own employee as absent throughout
+     */
+    static CapacityCheck.GroupLoad load(Team team, int teamSize, int maxAbsent,
+                                        LeaveRequest request, List<LeaveRequest> overlapping) {
+        LocalDate from = request.getStartDate();
+        int days = (int) Math.min(ChronoUnit.DAYS.between(from, request.getEndDate()) + 1, MAX_CHECKED_DAYS);
+
+        // Days each other employee is away, merged over all of their leaves
+        Map<String, boolean[]> awayByEmployee = new HashMap<>();
+        for (LeaveRequest leave : overlapping) {
+            String employee = leave.getEmployeeId() != null ? leave.getEmployeeId() : leave.getEmployeeName();
+            if (Objects.equals(leave.getId(), request.getId())
+                    || Objects.equals(employee, request.getEmployeeId())
+                    || Objects.equals(employee, request.getEmployeeName())) {
+                continue;
+            }
+            boolean[] away = awayByEmployee.computeIfAbsent(employee, key -> new boolean[days]);
+            int first = (int) Math.max(0, ChronoUnit.DAYS.between(from, leave.getStartDate()));
+            int last = (int) Math.min(days - 1, ChronoUnit.DAYS.between(from, leave.getEndDate()));
+            for (int day = first; day <= last; day++) {
+                away[day] = true;
+            }
+        }
+
+        int[] absent = new int[days];
+        for (boolean[] away : awayByEmployee.values()) {
+            for (int day = 0; day < days; day++) {
+                if (away[day]) {
+                    absent[day]++;
+                }
+            }
+        }
+        int peakDay = 0;
+        for (int day = 1; day < days; day++) {
+            if (absent[day] > absent[peakDay]) {
+                peakDay = day;
+            }
+        }
+        int peakAbsent = absent[peakDay] + 1;
+        return new CapacityCheck.GroupLoad(team.type(), team.name(), teamSize, maxAbsent,
+                peakAbsent, from.plusDays(peakDay), teamSize > 0 && peakAbsent > maxAbsent);
+    }
+
+    /**
+     * People of a team that may be away at once; at least one, so small teams can take leave
+     */
+    static int maxAbsent(int teamSize, double ratio) {
+        return Math.max(1, (int) Math.floor(teamSize * ratio));
+    }
+
+    record Team(String type, String name) {}
+}
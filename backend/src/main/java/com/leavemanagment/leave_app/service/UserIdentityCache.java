@@ -0,0 +1,113 @@
+package com.leavemanagment.leave_app.service;
+
+import com.leavemanagment.leave_app.model.User;
+import com.leavemanagment.leave_app.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of User documents by username, so the endpoints a page load calls (profile, my
+ * stats, my leaves, chat) don't each run findByUsername for the signed-in user.
+ *
+ * The User loaded into CustomUserPrincipal at login seeds the cache, unless the user was
+ * changed after that login. Cached users are shared between requests and must not be
+ * modified: writers load a fresh copy from the repository, save it and call invalidate().
+ */
+@Service
+public class UserIdentityCache {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${users.cache.max-size:1000}")
+    private int maxSize;
+
+    @Value("${users.cache.ttl-minutes:10}")
+    private long ttlMinutes;
+
+    private BoundedTtlCache<String, User> cache;
+
+    // Username -> System.nanoTime() of its last invalidation, to tell stale principals apart
+    private final Map<String, Long> invalidatedAt = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        cache = new BoundedTtlCache<>(maxSize, ttlMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * The signed-in user, preferring the cache, then the principal, then MongoDB
+     */
+    public Optional<User> currentUser(Authentication authentication) {
+        if (authentication == null) {
+            return Optional.empty();
+        }
+        String username = authentication.getName();
+        User cached = cache.get(username);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        if (authentication.getPrincipal() instanceof CustomUserDetailsService.CustomUserPrincipal principal
+                && isCurrent(principal)) {
+            cache.put(username, principal.getUser());
+            return Optional.of(principal.getUser());
+        }
+        return findByUsername(username);
+    }
+
+    /**
+     * User ID of the signed-in user; taken from the access token in stateless mode
+     */
+    public Optional<String> currentUserId(Authentication authentication) {
+        if (authentication != null && authentication.getPrincipal() instanceof JwtTokenService.JwtPrincipal principal
+                && principal.userId() != null) {
+            return Optional.of(principal.userId());
+        }
+        return currentUser(authentication).map(User::getId);
+    }
+
+    /**
+     * Same as UserRepository.findByUsername, served from the cache when possible
+     */
+    public Optional<User> findByUsername(String username) {
+        User cached = cache.get(username);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<User> user = userRepository.findByUsername(username);
+        user.ifPresent(found -> cache.put(username, found));
+        return user;
+    }
+
+    /**
+     * Call after saving a user (profile update, signup) so the next read sees the change
+     */
+    public void invalidate(String username) {
+        invalidatedAt.put(username, System.nanoTime());
+        cache.invalidate(username);
+    }
+
+    public void clear() {
+        long now = System.nanoTime();
+        invalidatedAt.replaceAll((username, at) -> now);
+        cache.clear();
+        System.out.println("🧹 User cache cleared");
+    }
+
+    public Map<String, Object> getStats() {
+        return cache.getStats();
+    }
+
+    private boolean isCurrent(CustomUserDetailsService.CustomUserPrincipal principal) {
+        Long invalidated = invalidatedAt.get(principal.getUsername());
+        return invalidated == null || principal.getLoadedAt() - invalidated > 0;
+    }
+}
@@ -0,0 +1,142 @@
+package com.leavemanagment.leave_app.service;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reports the thread mode the app runs in and, when virtual threads are on, watches for
+ * pinning: a virtual thread that blocks inside a synchronized block (JavaMail's SMTPTransport,
+ * a WebClient .block() reached from one) holds on to its carrier thread instead of unmounting.
+ *
+ * Pinned events come from the JDK's own jdk.VirtualThreadPinned JFR event, streamed in-process;
+ * they are counted per call site and logged once per site.
+ */
+@Service
+public class VirtualThreadMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    @Value("${threads.virtual.pinning-monitor.enabled:true}")
+    private boolean pinningMonitorEnabled;
+
+    @Value("${threads.virtual.pinning-monitor.threshold-ms:20}")
+    private long pinningThresholdMs;
+
+    private RecordingStream recording;
+
+    private final AtomicLong pinnedCount = new AtomicLong();
+    private final AtomicLong maxPinnedMs = new AtomicLong();
+    private final Map<String, AtomicLong> pinnedBySite = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        int javaVersion = Runtime.version().feature();
+        if (!virtualThreadsEnabled) {
+            System.out.println("🧵 Request handling on platform threads (spring.threads.virtual.enabled=false)");
+            return;
+        }
+        if (!isVirtualThreadRuntime()) {
+            // Spring Boot silently ignores the property below Java 21
+            System.err.println("⚠️ spring.threads.virtual.enabled=true needs Java 21+, running on Java "
+                    + javaVersion + " with platform threads");
+            return;
+        }
+
+        System.out.println("🧵 Request handling on virtual threads (Java " + javaVersion + ")");
+        if (pinningMonitorEnabled) {
+            startPinningMonitor();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    public boolean isVirtualThreadRuntime() {
+        return virtualThreadsEnabled && Runtime.version().feature() >= 21;
+    }
+
+    /**
+     * Thread mode and pinning counters
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("javaVersion", Runtime.version().feature());
+        stats.put("virtualThreadsRequested", virtualThreadsEnabled);
+        stats.put("virtualThreadsActive", isVirtualThreadRuntime());
+        stats.put("pinningMonitorActive", recording != null);
+        stats.put("pinningThresholdMs", pinningThresholdMs);
+        stats.put("pinnedEvents", pinnedCount.get());
+        stats.put("maxPinnedMs", maxPinnedMs.get());
+
+        Map<String, Long> sites = new HashMap<>();
+        pinnedBySite.forEach((site, count) -> sites.put(site, count.get()));
+        stats.put("pinnedBySite", sites);
+        return stats;
+    }
+
+    private void startPinningMonitor() {
+        try {
+            recording = new RecordingStream();
+            recording.enable(PINNED_EVENT)
+                    .withThreshold(Duration.ofMillis(pinningThresholdMs))
+                    .withStackTrace();
+            recording.onEvent(PINNED_EVENT, this::onPinned);
+            recording.startAsync();
+            System.out.println("🔎 Virtual thread pinning monitor started (threshold " + pinningThresholdMs + "ms)");
+        } catch (Exception e) {
+            System.err.println("❌ Could not start pinning monitor: " + e.getMessage());
+            recording = null;
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        long pinnedMs = event.getDuration().toMillis();
+        pinnedCount.incrementAndGet();
+        maxPinnedMs.accumulateAndGet(pinnedMs, Math::max);
+
+        String site = callSite(event);
+        AtomicLong siteCount = pinnedBySite.computeIfAbsent(site, key -> new AtomicLong());
+        if (siteCount.incrementAndGet() == 1) {
+            System.err.println("📌 Virtual thread pinned for " + pinnedMs + "ms at " + site);
+        }
+    }
+
+    /**
+     * First application frame of the pinned stack, or the top frame if there is none
+     */
+    private String callSite(RecordedEvent event) {
+        if (event.getStackTrace() == null || event.getStackTrace().getFrames().isEmpty()) {
+            return "unknown";
+        }
+        RecordedFrame top = event.getStackTrace().getFrames().get(0);
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            if (frame.getMethod().getType().getName().startsWith("com.leavemanagment.")) {
+                return describe(frame) + " (blocked in " + describe(top) + ")";
+            }
+        }
+        return describe(top);
+    }
+
+    private String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
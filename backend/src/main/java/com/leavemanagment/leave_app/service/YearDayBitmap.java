@@ -0,0 +1,235 @@
+package com.leavemanagment.leave_app.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Immutable set of days of one year, stored roaring-style: up to ARRAY_LIMIT days as a sorted
+ * array of day indexes (2 bytes a day), more than that as a 366-bit bitmap (48 bytes). Point
+ * checks are a bit test or a binary search; range counts and set operations work on 64-day words.
+ *
+ * Day index i is day-of-year i + 1.
+ */
+final class YearDayBitmap {
+
+    static final int DAYS = 366;
+    static final int ARRAY_LIMIT = 24;
+    private static final int WORDS = (DAYS + 63) / 64;
+
+    private final int year;
+    private final short[] days;  // sorted day indexes while sparse, else null
+    private final long[] words;  // the bitmap once dense, else null
+    private final int cardinality;
+
+    private YearDayBitmap(int year, short[] days, long[] words, int cardinality) {
+        this.year = year;
+        this.days = days;
+        this.words = words;
+        this.cardinality = cardinality;
+    }
+
+    static YearDayBitmap empty(int year) {
+        return new YearDayBitmap(year, new short[0], null, 0);
+    }
+
+    /**
+     * Saturdays and Sundays of the year
+     */
+    static YearDayBitmap weekends(int year) {
+        long[] words = new long[WORDS];
+        for (LocalDate day = LocalDate.of(year, 1, 1); day.getYear() == year; day = day.plusDays(1)) {
+            if (day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY) {
+                set(words, day.getDayOfYear() - 1);
+            }
+        }
+        return of(year, words);
+    }
+
+    private static YearDayBitmap of(int year, long[] words) {
+        int cardinality = 0;
+        for (long word : words) {
+            cardinality += Long.bitCount(word);
+        }
+        if (cardinality > ARRAY_LIMIT) {
+            return new YearDayBitmap(year, null, words, cardinality);
+        }
+        short[] days = new short[cardinality];
+        int n = 0;
+        for (int w = 0; w < WORDS; w++) {
+            for (long word = words[w]; word != 0; word &= word - 1) {
+                days[n++] = (short) (w * 64 + Long.numberOfTrailingZeros(word));
+            }
+        }
+        return new YearDayBitmap(year, days, null, cardinality);
+    }
+
+    int year() {
+        return year;
+    }
+
+    int cardinality() {
+        return cardinality;
+    }
+
+    int sizeInBytes() {
+        return days != null ? days.length * Short.BYTES : words.length * Long.BYTES;
+    }
+
+    boolean contains(LocalDate date) {
+        if (date.getYear() != year) {
+            return false;
+        }
+        return contains(date.getDayOfYear() - 1);
+    }
+
+    private boolean contains(int index) {
+        return words != null
+                ? (words[index >>> 6] & (1L << index)) != 0
+                : Arrays.binarySearch(days, (short) index) >= 0;
+    }
+
+    YearDayBitmap with(LocalDate date) {
+        return contains(date) ? this : withRange(date, date);
+    }
+
+    YearDayBitmap without(LocalDate date) {
+        if (!contains(date)) {
+            return this;
+        }
+        long[] copy = toWords();
+        int index = date.getDayOfYear() - 1;
+        copy[index >>> 6] &= ~(1L << index);
+        return of(year, copy);
+    }
+
+    /**
+     * This set plus every day of [from, to] that falls in the year
+     */
+    YearDayBitmap withRange(LocalDate from, LocalDate to) {
+        int first = firstIndex(from);
+        int last = lastIndex(to);
+        if (first > last) {
+            return this;
+        }
+        long[] copy = toWords();
+        for (int w = first >>> 6; w <= last >>> 6; w++) {
+            copy[w] |= mask(w, first, last);
+        }
+        return of(year, copy);
+    }
+
+    /**
+     * Days of the set in [from, to]
+     */
+    int count(LocalDate from, LocalDate to) {
+        int first = firstIndex(from);
+        int last = lastIndex(to);
+        if (first > last || cardinality == 0) {
+            return 0;
+        }
+        if (days != null) {
+            return insertionPoint((short) (last + 1)) - insertionPoint((short) first);
+        }
+        int count = 0;
+        for (int w = first >>> 6; w <= last >>> 6; w++) {
+            count += Long.bitCount(words[w] & mask(w, first, last));
+        }
+        return count;
+    }
+
+    YearDayBitmap or(YearDayBitmap other) {
+        long[] result = toWords();
+        long[] theirs = other.toWords();
+        for (int w = 0; w < WORDS; w++) {
+            result[w] |= theirs[w];
+        }
+        return of(year, result);
+    }
+
+    YearDayBitmap and(YearDayBitmap other) {
+        long[] result = toWords();
+        long[] theirs = other.toWords();
+        for (int w = 0; w < WORDS; w++) {
+            result[w] &= theirs[w];
+        }
+        return of(year, result);
+    }
+
+    /**
+     * Runs of consecutive days of the set within [from, to]. Days in skip (weekends, leave) neither
+     * extend nor break a run; carry is the length of a run still open at from. Returns the longest
+     * run and the run still open at to.
+     */
+    int[] runs(LocalDate from, LocalDate to, YearDayBitmap skip, int carry) {
+        int longest = carry;
+        int run = carry;
+        int first = firstIndex(from);
+        int last = lastIndex(to);
+        long[] set = toWords();
+        long[] skipped = skip != null ? skip.toWords() : new long[WORDS];
+        for (int i = first; i <= last; i++) {
+            long bit = 1L << i;
+            if ((skipped[i >>> 6] & bit) != 0) {
+                continue;
+            }
+            if ((set[i >>> 6] & bit) != 0) {
+                longest = Math.max(longest, ++run);
+            } else {
+                run = 0;
+            }
+        }
+        return new int[]{longest, run};
+    }
+
+    /**
+     * The days as a fresh 366-bit bitmap
+     */
+    private long[] toWords() {
+        if (words != null) {
+            return words.clone();
+        }
+        long[] result = new long[WORDS];
+        for (short day : days) {
+            set(result, day);
+        }
+        return result;
+    }
+
+    private int insertionPoint(short index) {
+        int position = Arrays.binarySearch(days, index);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    private int firstIndex(LocalDate from) {
+        if (from.getYear() < year) {
+            return 0;
+        }
+        return from.getYear() > year ? DAYS : from.getDayOfYear() - 1;
+    }
+
+    private int lastIndex(LocalDate to) {
+        if (to.getYear() > year) {
+            return LocalDate.of(year, 12, 31).getDayOfYear() - 1;
+        }
+        return to.getYear() < year ? -1 : to.getDayOfYear() - 1;
+    }
+
+    /**
+     * Bits of word w that lie in [first, last]
+     */
+    private static long mask(int w, int first, int last) {
+        long mask = -1L;
+        if (w == first >>> 6) {
+            mask &= -1L << (first & 63);
+        }
+        if (w == last >>> 6) {
+            mask &= -1L >>> (63 - (last & 63));
+        }
+        return mask;
+    }
+
+    private static void set(long[] words, int index) {
+        words[index >>> 6] |= 1L << index;
+    }
+}
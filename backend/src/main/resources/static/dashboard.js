@@ -17,6 +17,7 @@ class LeaveDashboard {
         this.setupRoleBasedUI();
         this.loadDashboardData();
         this.setupTabNavigation();
+        this.connectLiveUpdates();
     }
     
     getUserRole() {
@@ -1238,6 +1239,49 @@ class LeaveDashboard {
         return diffDays + 1; // Include both start and end dates
     }
     
+    // ========== LIVE UPDATES ==========
+
+    connectLiveUpdates() {
+        if (typeof SockJS === 'undefined' || typeof Stomp === 'undefined') return;
+
+        const client = Stomp.over(new SockJS('/ws'));
+        client.debug = null;
+        client.connect({}, () => {
+            console.log('🔌 Live dashboard updates connected');
+            const topic = this.userRole === 'hr' ? '/topic/hr/leave-changes' : '/topic/leave-changes';
+            client.subscribe(topic, message => this.applyLeaveChanges(JSON.parse(message.body)));
+        }, () => {
+            // Try again shortly; the next load picks up anything missed meanwhile
+            setTimeout(() => this.connectLiveUpdates(), 5000);
+        });
+    }
+
+    applyLeaveChanges(update) {
+        const changes = update.changes || [];
+        const counters = update.counters || {};
+        const touches = status => changes.some(change => change.status === status || change.previousStatus === status);
+
+        if (this.userRole === 'hr') {
+            const counterElements = {
+                hrPendingRequests: counters.pending,
+                hrApprovedRequests: counters.approved,
+                hrRejectedRequests: counters.rejected
+            };
+            Object.entries(counterElements).forEach(([elementId, value]) => {
+                const element = document.getElementById(elementId);
+                if (element && value !== undefined) element.textContent = value;
+            });
+            if (touches('Pending')) {
+                this.loadPendingRequests();
+            }
+        }
+
+        if (touches('Approved')) {
+            this.loadTeamOnLeave();
+            this.loadUpcomingLeaves();
+        }
+    }
+
     // ========== HR-SPECIFIC METHODS ==========
     
     async loadHRData() {
@@ -1364,17 +1408,21 @@ class LeaveDashboard {
     
 
     
-    async loadAllRequests() {
+    async loadAllRequests(cursor = null) {
         try {
             console.log('📊 Loading all requests for HR...');
             
-            const response = await fetch(`${this.baseURL}/api/dashboard/hr/all-requests`);
-            const allRequests = await response.json();
+            // One page at a time; the next page is fetched when HR clicks "Load more"
+            const params = new URLSearchParams({ limit: 100 });
+            if (cursor) params.set('cursor', cursor);
+            const response = await fetch(`${this.baseURL}/api/dashboard/hr/all-requests?${params}`);
+            const page = await response.json();
             
-            console.log('✅ Loaded all requests:', allRequests);
+            console.log('✅ Loaded requests page:', page.items.length);
             
-            this.allHRRequests = allRequests; // Store for filtering
-            this.renderAllRequests(allRequests);
+            this.allHRRequests = cursor ? (this.allHRRequests || []).concat(page.items) : page.items; // Store for filtering
+            this.allHRRequestsCursor = page.nextCursor;
+            this.renderAllRequests(this.allHRRequests);
             
         } catch (error) {
             console.error('Error loading all requests:', error);
@@ -1469,7 +1517,13 @@ class LeaveDashboard {
             container.appendChild(requestCard);
         });
         
-
+        if (this.allHRRequestsCursor) {
+            const loadMore = document.createElement('button');
+            loadMore.className = 'hr-action-btn';
+            loadMore.textContent = 'Load more';
+            loadMore.onclick = () => this.loadAllRequests(this.allHRRequestsCursor);
+            container.appendChild(loadMore);
+        }
     }
     
     getStatusIcon(status) {
@@ -1801,39 +1855,24 @@ class LeaveDashboard {
         try {
             console.log('📊 Loading late attendance chart...');
             
-            // Get current month's late attendance data
+            // Current month's late days per employee, counted on the server
             const currentDate = new Date();
-            const startDate = new Date(currentDate.getFullYear(), currentDate.getMonth(), 1).toISOString().split('T')[0];
-            const endDate = new Date(currentDate.getFullYear(), currentDate.getMonth() + 1, 0).toISOString().split('T')[0];
-            
-            const response = await fetch(`${this.baseURL}/api/late-attendance/range?startDate=${startDate}&endDate=${endDate}`);
+            const response = await fetch(`${this.baseURL}/api/late-attendance/summary/${currentDate.getFullYear()}/${currentDate.getMonth() + 1}`);
             if (!response.ok) {
                 throw new Error(`HTTP ${response.status}: ${response.statusText}`);
             }
             
             const result = await response.json();
-            const lateRecords = result.data || [];
-            
-            // Group by employee and count late days
-            const employeeLateCounts = {};
-            lateRecords.forEach(record => {
-                if (employeeLateCounts[record.employeeName]) {
-                    employeeLateCounts[record.employeeName]++;
-                } else {
-                    employeeLateCounts[record.employeeName] = 1;
-                }
-            });
+            const summary = result.data || {};
+            const employeeLateCounts = summary.employees || {};
             
             // Create chart data
             const labels = Object.keys(employeeLateCounts);
             const data = Object.values(employeeLateCounts);
             
             // Update chart summary
-            const totalLateDays = data.reduce((sum, count) => sum + count, 0);
-            const employeesAffected = labels.length;
-            
-            document.getElementById('chartTotalLateDays').textContent = totalLateDays;
-            document.getElementById('chartLateEmployees').textContent = employeesAffected;
+            document.getElementById('chartTotalLateDays').textContent = summary.totalLateDays || 0;
+            document.getElementById('chartLateEmployees').textContent = summary.employeesAffected || 0;
             
             // Create or update chart
             const ctx = document.getElementById('lateAttendanceChart');
@@ -0,0 +1,63 @@
+package com.leavemanagment.leave_app.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.security.Principal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HrTopicSubscriptionInterceptorTest {
+
+	private final HrTopicSubscriptionInterceptor interceptor = new HrTopicSubscriptionInterceptor();
+
+	@Test
+	void employeeCannotSubscribeToTheHrTopic() {
+		Message<byte[]> subscribe = subscribe("/topic/hr/leave-changes", user("EMPLOYEE"));
+
+		assertThrows(AccessDeniedException.class, () -> interceptor.preSend(subscribe, null));
+	}
+
+	@Test
+	void anonymousSessionCannotSubscribeToTheHrTopic() {
+		Message<byte[]> subscribe = subscribe("/topic/hr/leave-changes", null);
+
+		assertThrows(AccessDeniedException.class, () -> interceptor.preSend(subscribe, null));
+	}
+
+	@Test
+	void hrAndAdminCanSubscribeToTheHrTopic() {
+		Message<byte[]> hr = subscribe("/topic/hr/leave-changes", user("HR"));
+		Message<byte[]> admin = subscribe("/topic/hr/leave-changes", user("ADMIN"));
+
+		assertSame(hr, interceptor.preSend(hr, null));
+		assertSame(admin, interceptor.preSend(admin, null));
+	}
+
+	@Test
+	void employeeCanSubscribeToTheTeamTopic() {
+		Message<byte[]> subscribe = subscribe("/topic/leave-changes", user("EMPLOYEE"));
+
+		assertSame(subscribe, interceptor.preSend(subscribe, null));
+	}
+
+	private static Message<byte[]> subscribe(String destination, Principal user) {
+		StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+		accessor.setDestination(destination);
+		accessor.setSubscriptionId("sub-0");
+		accessor.setUser(user);
+		return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+	}
+
+	private static Principal user(String role) {
+		return new UsernamePasswordAuthenticationToken("jdoe", null, List.of(new SimpleGrantedAuthority("ROLE_" + role)));
+	}
+}
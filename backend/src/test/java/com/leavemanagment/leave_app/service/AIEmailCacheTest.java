@@ -0,0 +1,106 @@
+package com.leavemanagment.leave_app.service;
+
+import com.leavemanagment.leave_app.model.LeaveRequest;
+import com.leavemanagment.leave_app.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class AIEmailCacheTest {
+
+	private static final LocalDate MONDAY = LocalDate.of(2025, 6, 2);
+
+	private final AIEmailCache cache = new AIEmailCache();
+	private final AtomicInteger modelCalls = new AtomicInteger();
+	private final User hr = user("Helen HR");
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(cache, "maxSize", 10);
+		ReflectionTestUtils.setField(cache, "ttlMinutes", 60L);
+		cache.init();
+	}
+
+	@Test
+	void identicalRequestsCallTheModelOnce() {
+		LeaveRequest first = leave("Annual Leave", MONDAY, MONDAY.plusDays(2), "Family visit");
+		LeaveRequest second = leave("Annual Leave", MONDAY.plusDays(14), MONDAY.plusDays(16), "Wedding");
+		String key = AIEmailCache.key("ollama", "approval", first, null);
+		Supplier<Mono<String>> model = model("Dear {{employeeName}}, your {{leaveType}} from {{startDate}} is approved. {{hrName}}");
+
+		String firstEmail = cache.getOrGenerate(key, model, first, user("Ann Lee"), hr).block();
+		String secondEmail = cache.getOrGenerate(AIEmailCache.key("ollama", "approval", second, null),
+				model, second, user("Bob Roe"), hr).block();
+
+		assertEquals(1, modelCalls.get());
+		assertEquals("Dear Ann Lee, your Annual Leave from 2025-06-02 is approved. Helen HR", firstEmail);
+		assertEquals("Dear Bob Roe, your Annual Leave from 2025-06-16 is approved. Helen HR", secondEmail);
+	}
+
+	@Test
+	void keyIgnoresCaseAndSpacingButNotTheWordingFeatures() {
+		LeaveRequest leave = leave("Annual Leave", MONDAY, MONDAY, "any");
+		LeaveRequest messy = leave("  annual   LEAVE ", MONDAY, MONDAY, "other");
+
+		assertEquals(AIEmailCache.key("ollama", "rejection", leave, "Too  many absences"),
+				AIEmailCache.key("ollama", "rejection", messy, " too many ABSENCES"));
+		assertNotEquals(AIEmailCache.key("ollama", "rejection", leave, "Too many absences"),
+				AIEmailCache.key("ollama", "rejection", leave, "Busy season"));
+		assertNotEquals(AIEmailCache.key("ollama", "approval", leave, null),
+				AIEmailCache.key("openai", "approval", leave, null));
+		assertEquals(AIEmailCache.key("ollama", "approval", leave, null),
+				AIEmailCache.key("ollama", "approval", leave, ""));
+	}
+
+	@Test
+	void durationBucketBoundaries() {
+		assertEquals("1", AIEmailCache.durationBucket(0));
+		assertEquals("1", AIEmailCache.durationBucket(1));
+		assertEquals("2-3", AIEmailCache.durationBucket(2));
+		assertEquals("2-3", AIEmailCache.durationBucket(3));
+		assertEquals("4-5", AIEmailCache.durationBucket(5));
+		assertEquals("6-10", AIEmailCache.durationBucket(6));
+		assertEquals("6-10", AIEmailCache.durationBucket(10));
+		assertEquals("11+", AIEmailCache.durationBucket(11));
+	}
+
+	@Test
+	void replyThatDoesNotCompileIsUsedOnceAndNotCached() {
+		LeaveRequest leave = leave("Sick Leave", MONDAY, MONDAY, "Flu");
+		String key = AIEmailCache.key("ollama", "approval", leave, null);
+		Supplier<Mono<String>> model = model("Dear {{employeeName}}, get well soon. {{hr_name}}");
+
+		String email = cache.getOrGenerate(key, model, leave, user("Ann Lee"), hr).block();
+		cache.getOrGenerate(key, model, leave, user("Ann Lee"), hr).block();
+
+		assertEquals("Dear Ann Lee, get well soon. {{hr_name}}", email);
+		assertEquals(2, modelCalls.get());
+	}
+
+	private Supplier<Mono<String>> model(String reply) {
+		return () -> {
+			modelCalls.incrementAndGet();
+			return Mono.just(reply);
+		};
+	}
+
+	private static LeaveRequest leave(String leaveType, LocalDate start, LocalDate end, String reason) {
+		LeaveRequest leave = new LeaveRequest("Employee", start, end, reason, "Approved");
+		leave.setLeaveType(leaveType);
+		return leave;
+	}
+
+	private static User user(String fullName) {
+		User user = new User();
+		user.setFullName(fullName);
+		return user;
+	}
+}
@@ -0,0 +1,61 @@
+package com.leavemanagment.leave_app.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncCallLimiterTest {
+
+	@Test
+	void completesEmptyWhenAllPermitsAreInUse() {
+		AsyncCallLimiter limiter = new AsyncCallLimiter("test", 1, Duration.ofSeconds(10));
+		Disposable pending = limiter.call(Mono::never).subscribe();
+
+		assertNull(limiter.call(() -> Mono.just("answer")).block());
+		assertEquals(1L, limiter.getStats().get("rejected"));
+
+		pending.dispose();
+		assertEquals("answer", limiter.call(() -> Mono.just("answer")).block());
+	}
+
+	@Test
+	void timeoutReleasesPermitAndCompletesEmpty() {
+		AsyncCallLimiter limiter = new AsyncCallLimiter("test", 1, Duration.ofMillis(50));
+
+		assertNull(limiter.call(Mono::never).block(Duration.ofSeconds(5)));
+		assertEquals(1L, limiter.getStats().get("timedOut"));
+		assertEquals(0, limiter.getStats().get("inFlight"));
+	}
+
+	@Test
+	void errorCompletesEmpty() {
+		AsyncCallLimiter limiter = new AsyncCallLimiter("test", 1, Duration.ofSeconds(1));
+
+		assertNull(limiter.call(() -> Mono.<String>error(new IllegalStateException("503"))).block());
+		assertEquals(1L, limiter.getStats().get("failed"));
+	}
+
+	@Test
+	void slowCallsRunConcurrentlyWithoutHoldingTheCaller() {
+		AsyncCallLimiter limiter = new AsyncCallLimiter("test", 100, Duration.ofSeconds(5));
+
+		long start = System.nanoTime();
+		List<Long> results = Flux.range(0, 100)
+				.flatMap(i -> limiter.call(() -> Mono.delay(Duration.ofMillis(300))), 100)
+				.collectList()
+				.block();
+		long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+		assertEquals(100, results.size());
+		// Sequential blocking calls would take 30 seconds
+		assertTrue(elapsedMs < 3000, "took " + elapsedMs + "ms");
+	}
+}
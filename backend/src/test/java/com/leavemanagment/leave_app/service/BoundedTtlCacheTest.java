@@ -0,0 +1,83 @@
+package com.leavemanagment.leave_app.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BoundedTtlCacheTest {
+
+	private final AtomicLong now = new AtomicLong();
+
+	@Test
+	void evictsLeastRecentlyUsedEntry() {
+		BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(2, 1, TimeUnit.HOURS, now::get);
+		cache.put("a", "A");
+		cache.put("b", "B");
+		cache.get("a");
+		cache.put("c", "C");
+
+		assertEquals("A", cache.get("a"));
+		assertNull(cache.get("b"));
+		assertEquals("C", cache.get("c"));
+		assertEquals(1L, cache.getStats().get("evictions"));
+	}
+
+	@Test
+	void putIfAbsentKeepsLiveEntryAndReplacesExpiredOne() {
+		BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, 5, TimeUnit.MINUTES, now::get);
+
+		assertNull(cache.putIfAbsent("a", "first"));
+		assertEquals("first", cache.putIfAbsent("a", "second"));
+
+		now.addAndGet(TimeUnit.MINUTES.toNanos(5));
+		assertNull(cache.putIfAbsent("a", "third"));
+		assertEquals("third", cache.get("a"));
+	}
+
+	@Test
+	void expiresEntriesAfterTtl() {
+		BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, 5, TimeUnit.MINUTES, now::get);
+		cache.put("a", "A");
+
+		now.addAndGet(TimeUnit.MINUTES.toNanos(4));
+		assertEquals("A", cache.get("a"));
+
+		now.addAndGet(TimeUnit.MINUTES.toNanos(1));
+		assertNull(cache.get("a"));
+		assertEquals(0, cache.size());
+		assertEquals(1L, cache.getStats().get("expirations"));
+	}
+
+	@Test
+	void prefersDroppingExpiredEntriesOverLiveOnes() {
+		BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(2, 5, TimeUnit.MINUTES, now::get);
+		cache.put("old", "1");
+		now.addAndGet(TimeUnit.MINUTES.toNanos(3));
+		cache.put("live", "2");
+		cache.get("old");
+		now.addAndGet(TimeUnit.MINUTES.toNanos(3));
+		cache.put("new", "3");
+
+		assertEquals("2", cache.get("live"));
+		assertEquals("3", cache.get("new"));
+		assertEquals(0L, cache.getStats().get("evictions"));
+	}
+
+	@Test
+	void reportsHitRatio() {
+		BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, 1, TimeUnit.HOURS, now::get);
+		cache.put("a", "A");
+		cache.get("a");
+		cache.get("a");
+		cache.get("a");
+		cache.get("missing");
+
+		assertEquals(3L, cache.getStats().get("hits"));
+		assertEquals(1L, cache.getStats().get("misses"));
+		assertEquals(0.75, (double) cache.getStats().get("hitRatio"), 1e-9);
+	}
+}
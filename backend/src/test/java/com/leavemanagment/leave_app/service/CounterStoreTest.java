@@ -0,0 +1,39 @@
+package com.leavemanagment.leave_app.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CounterStoreTest {
+
+	@Test
+	void driftListsChangedMissingAndStaleCounters() {
+		Map<String, Long> expected = Map.of("total", 5L, "status:Approved", 3L, "status:Pending", 2L);
+		Map<String, Long> stored = Map.of("total", 4L, "status:Approved", 3L, "status:Rejected", 1L);
+
+		Map<String, Object> report = CounterStore.driftReport(expected, stored, true);
+		Map<?, ?> drift = (Map<?, ?>) report.get("drift");
+
+		assertFalse((Boolean) report.get("consistent"));
+		assertEquals(3, report.get("driftCount"));
+		assertEquals(3, report.get("counterCount"));
+		assertEquals(Map.of("stored", 4L, "expected", 5L), drift.get("total"));
+		assertEquals(Map.of("stored", 0L, "expected", 2L), drift.get("status:Pending"));
+		assertEquals(Map.of("stored", 1L, "expected", 0L), drift.get("status:Rejected"));
+		assertTrue((Boolean) report.get("rebuilt"));
+	}
+
+	@Test
+	void matchingCountersAreConsistent() {
+		Map<String, Long> counters = Map.of("total", 2L);
+
+		Map<String, Object> report = CounterStore.driftReport(counters, counters, false);
+
+		assertTrue((Boolean) report.get("consistent"));
+		assertEquals(0, report.get("driftCount"));
+	}
+}
@@ -0,0 +1,76 @@
+package com.leavemanagment.leave_app.service;
+
+import com.leavemanagment.leave_app.event.LeaveRequestChangedEvent;
+import com.leavemanagment.leave_app.model.LeaveChange;
+import com.leavemanagment.leave_app.model.LeaveRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DashboardPushServiceTest {
+
+	@Test
+	void changesOfOneRequestFoldIntoOne() {
+		LeaveRequest pending = leave("1", "Pending");
+		LeaveRequest approved = leave("1", "Approved");
+		LeaveRequest rejected = leave("1", "Rejected");
+		Map<String, LeaveChange> batch = new LinkedHashMap<>();
+
+		DashboardPushService.add(batch, change(pending, approved));
+		DashboardPushService.add(batch, change(approved, rejected));
+
+		LeaveChange change = batch.get("1");
+		assertEquals(1, batch.size());
+		assertEquals(LeaveChange.STATUS_CHANGED, change.kind());
+		assertEquals("Pending", change.previousStatus());
+		assertEquals("Rejected", change.status());
+	}
+
+	@Test
+	void statusChangedBackAndForthIsAnUpdate() {
+		Map<String, LeaveChange> batch = new LinkedHashMap<>();
+
+		DashboardPushService.add(batch, change(leave("1", "Pending"), leave("1", "Approved")));
+		DashboardPushService.add(batch, change(leave("1", "Approved"), leave("1", "Pending")));
+
+		assertEquals(LeaveChange.UPDATED, batch.get("1").kind());
+	}
+
+	@Test
+	void requestCreatedAndDeletedWithinTheBatchDropsOut() {
+		LeaveRequest created = leave("1", "Pending");
+		Map<String, LeaveChange> batch = new LinkedHashMap<>();
+
+		DashboardPushService.add(batch, change(null, created));
+		DashboardPushService.add(batch, change(created, leave("1", "Approved")));
+		assertEquals(LeaveChange.CREATED, batch.get("1").kind());
+
+		DashboardPushService.add(batch, change(leave("1", "Approved"), null));
+		assertTrue(batch.isEmpty());
+	}
+
+	@Test
+	void onlyApprovedLeavesConcernTheTeam() {
+		assertTrue(DashboardPushService.affectsTeam(change(leave("1", "Pending"), leave("1", "Approved"))));
+		assertTrue(DashboardPushService.affectsTeam(change(leave("1", "Approved"), null)));
+		assertFalse(DashboardPushService.affectsTeam(change(null, leave("1", "Pending"))));
+		assertFalse(DashboardPushService.affectsTeam(change(leave("1", "Pending"), leave("1", "Rejected"))));
+	}
+
+	private static LeaveChange change(LeaveRequest previous, LeaveRequest current) {
+		return LeaveChange.from(new LeaveRequestChangedEvent(previous, current));
+	}
+
+	private static LeaveRequest leave(String id, String status) {
+		LeaveRequest leave = new LeaveRequest();
+		leave.setId(id);
+		leave.setStatus(status);
+		leave.setEmployeeName("Asha");
+		return leave;
+	}
+}
@@ -0,0 +1,90 @@
+package com.leavemanagment.leave_app.service;
+
+import com.leavemanagment.leave_app.model.OutboundEmail;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EmailOutboxServiceTest {
+
+	private final EmailOutboxService service = new EmailOutboxService();
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(service, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(service, "backoffBaseMs", 30_000L);
+		ReflectionTestUtils.setField(service, "backoffMaxMs", 3_600_000L);
+	}
+
+	@Test
+	void backoffDoublesPerAttemptUpToTheCap() {
+		assertEquals(30_000L, service.backoffDelayMs(0));
+		assertEquals(30_000L, service.backoffDelayMs(1));
+		assertEquals(60_000L, service.backoffDelayMs(2));
+		assertEquals(1_920_000L, service.backoffDelayMs(7));
+		assertEquals(3_600_000L, service.backoffDelayMs(8));
+	}
+
+	@Test
+	void backoffExponentIsClampedSoLargeAttemptsDoNotOverflow() {
+		ReflectionTestUtils.setField(service, "backoffMaxMs", Long.MAX_VALUE);
+
+		assertEquals(30_000L << 20, service.backoffDelayMs(21));
+		assertEquals(30_000L << 20, service.backoffDelayMs(Integer.MAX_VALUE));
+	}
+
+	@Test
+	void outcomeIsWrittenOnlyWhileTheClaimIsHeld() {
+		OutboundEmail email = claimed("e1", "token-1");
+		when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(OutboundEmail.class)))
+				.thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+		assertTrue(service.updateClaimed(email, new Update().set("status", OutboundEmail.STATUS_SENT)));
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		verify(mongoTemplate).updateFirst(query.capture(), any(Update.class), eq(OutboundEmail.class));
+		Document filter = query.getValue().getQueryObject();
+		assertEquals("e1", filter.get("_id"));
+		assertEquals("token-1", filter.get("claimToken"));
+		assertEquals(0, leasesLost());
+	}
+
+	@Test
+	void lostLeaseLeavesTheRowToTheNewOwner() {
+		OutboundEmail email = claimed("e1", "expired-token");
+		when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(OutboundEmail.class)))
+				.thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+		assertFalse(service.updateClaimed(email, new Update().set("status", OutboundEmail.STATUS_SENT)));
+		assertEquals(1, leasesLost());
+	}
+
+	private long leasesLost() {
+		return ((AtomicLong) ReflectionTestUtils.getField(service, "leaseLostCount")).get();
+	}
+
+	private static OutboundEmail claimed(String id, String claimToken) {
+		OutboundEmail email = new OutboundEmail("jane.smith@company.com", "Leave approved", "body", false);
+		email.setId(id);
+		email.setClaimToken(claimToken);
+		return email;
+	}
+}
@@ -0,0 +1,58 @@
+package com.leavemanagment.leave_app.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EmailTemplateTest {
+
+	@Test
+	void rendersValuesInDeclaredOrder() {
+		EmailTemplate template = EmailTemplate.compile(
+				"<p>Dear {{name}},</p><p>{{days}} days of {{type}}</p>", "name", "type", "days");
+
+		assertEquals("<p>Dear Jane,</p><p>3 days of Sick Leave</p>", template.render("Jane", "Sick Leave", 3));
+	}
+
+	@Test
+	void matchesStringFormatOutput() {
+		EmailTemplate template = EmailTemplate.compile(
+				"background: linear-gradient(#667eea 0%, #764ba2 100%); {{name}} / {{reason}} / {{days}}",
+				"name", "reason", "days");
+
+		assertEquals(String.format("background: linear-gradient(#667eea 0%%, #764ba2 100%%); %s / %s / %d", "Jane", null, 5),
+				template.render("Jane", null, 5));
+	}
+
+	@Test
+	void repeatedPlaceholderUsesSameValue() {
+		EmailTemplate template = EmailTemplate.compile("{{hr}} ({{ hr }})", "hr");
+
+		assertEquals("Ann (Ann)", template.render("Ann"));
+	}
+
+	@Test
+	void reusesBufferAcrossRenders() {
+		EmailTemplate large = EmailTemplate.compile("x".repeat(20_000) + "{{v}}", "v");
+		EmailTemplate small = EmailTemplate.compile("[{{v}}]", "v");
+
+		assertEquals(20_001, large.render("y").length());
+		assertEquals("[z]", small.render("z"));
+	}
+
+	@Test
+	void rejectsUnknownAndUnusedParameters() {
+		assertThrows(IllegalArgumentException.class, () -> EmailTemplate.compile("{{missing}}", "name"));
+		assertThrows(IllegalArgumentException.class, () -> EmailTemplate.compile("no placeholders", "name"));
+		assertThrows(IllegalArgumentException.class, () -> EmailTemplate.compile("{{name", "name"));
+	}
+
+	@Test
+	void rejectsWrongNumberOfValues() {
+		EmailTemplate template = EmailTemplate.compile("{{a}}{{b}}", "a", "b");
+
+		assertThrows(IllegalArgumentException.class, () -> template.render("only one"));
+	}
+
+}
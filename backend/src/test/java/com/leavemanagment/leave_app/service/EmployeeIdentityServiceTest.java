@@ -0,0 +1,49 @@
+package com.leavemanagment.leave_app.service;
+
+import com.leavemanagment.leave_app.model.Role;
+import com.leavemanagment.leave_app.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class EmployeeIdentityServiceTest {
+
+	@Test
+	void fullNameMatchWinsOverUsername() {
+		User jane = user("a1", "jane", "Jane Doe");
+		User impostor = user("b2", "Jane Doe", "Someone Else");
+
+		Map<String, String> ids = EmployeeIdentityService.idsByName(List.of(impostor, jane), Set.of("Jane Doe"));
+
+		assertEquals("a1", ids.get("Jane Doe"));
+	}
+
+	@Test
+	void fallsBackToUsername() {
+		Map<String, String> ids = EmployeeIdentityService.idsByName(
+				List.of(user("a1", "jane", "Jane Doe")), Set.of("jane"));
+
+		assertEquals(Map.of("jane", "a1"), ids);
+	}
+
+	@Test
+	void sharedFullNameStaysUnresolved() {
+		Map<String, String> ids = EmployeeIdentityService.idsByName(
+				List.of(user("a1", "jsmith", "John Smith"), user("b2", "john.smith", "John Smith")),
+				Set.of("John Smith", "jsmith"));
+
+		assertFalse(ids.containsKey("John Smith"));
+		assertEquals("a1", ids.get("jsmith"));
+	}
+
+	private static User user(String id, String username, String fullName) {
+		User user = new User(username, username + "@company.com", "secret", fullName, "Engineering", Role.EMPLOYEE);
+		user.setId(id);
+		return user;
+	}
+}
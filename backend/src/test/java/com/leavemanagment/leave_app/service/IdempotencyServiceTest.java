@@ -0,0 +1,128 @@
+package com.leavemanagment.leave_app.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IdempotencyServiceTest {
+
+	private final IdempotencyService service = new IdempotencyService();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(service, "maxSize", 100);
+		ReflectionTestUtils.setField(service, "ttlMinutes", 60L);
+		service.init();
+	}
+
+	@Test
+	void concurrentRequestsWithOneKeyRunTheActionOnce() throws Exception {
+		int threads = 32;
+		AtomicInteger runs = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<ResponseEntity<String>>> responses = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				responses.add(pool.submit(() -> {
+					start.await();
+					return service.execute("hr|approve|42", "key-1", () -> {
+						runs.incrementAndGet();
+						sleep(20);
+						return ResponseEntity.ok("approved");
+					});
+				}));
+			}
+			start.countDown();
+
+			ResponseEntity<String> first = responses.get(0).get(5, TimeUnit.SECONDS);
+			for (Future<ResponseEntity<String>> response : responses) {
+				assertSame(first, response.get(5, TimeUnit.SECONDS));
+			}
+			assertEquals(1, runs.get());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	void keysAreScopedAndServerErrorsAreNotRemembered() {
+		AtomicInteger runs = new AtomicInteger();
+
+		service.execute("hr|approve|1", "key", () -> ResponseEntity.ok(runs.incrementAndGet()));
+		service.execute("hr|approve|2", "key", () -> ResponseEntity.ok(runs.incrementAndGet()));
+		assertEquals(2, runs.get());
+
+		service.execute("hr|reject|1", "key", () -> ResponseEntity.status(500).body(runs.incrementAndGet()));
+		service.execute("hr|reject|1", "key", () -> ResponseEntity.ok(runs.incrementAndGet()));
+		service.execute("hr|reject|1", "key", () -> ResponseEntity.ok(runs.incrementAndGet()));
+		assertEquals(4, runs.get());
+	}
+
+	@Test
+	void failedActionCanBeRetriedWithTheSameKey() {
+		assertThrows(IllegalStateException.class, () -> service.execute("scope", "key", () -> {
+			throw new IllegalStateException("mail server down");
+		}));
+		assertEquals("ok", service.execute("scope", "key", () -> ResponseEntity.ok("ok")).getBody());
+	}
+
+	@Test
+	void asyncReplayWaitsForTheRunningDecisionAndGetsItsResponse() {
+		AtomicInteger runs = new AtomicInteger();
+		Sinks.One<ResponseEntity<String>> aiReply = Sinks.one();
+
+		Mono<ResponseEntity<String>> first = service.executeAsync("hr|ai-approve|1", "key", () -> {
+			runs.incrementAndGet();
+			return aiReply.asMono();
+		});
+		Mono<ResponseEntity<String>> second = service.executeAsync("hr|ai-approve|1", "key", () -> {
+			runs.incrementAndGet();
+			return Mono.just(ResponseEntity.ok("second"));
+		});
+
+		CompletableFuture<ResponseEntity<String>> firstResponse = first.toFuture();
+		CompletableFuture<ResponseEntity<String>> secondResponse = second.toFuture();
+		assertFalse(secondResponse.isDone());
+
+		aiReply.tryEmitValue(ResponseEntity.ok("approved"));
+		assertEquals("approved", firstResponse.join().getBody());
+		assertEquals("approved", secondResponse.join().getBody());
+		assertEquals("approved", service.executeAsync("hr|ai-approve|1", "key",
+				() -> Mono.just(ResponseEntity.ok("third"))).block().getBody());
+		assertEquals(1, runs.get());
+	}
+
+	@Test
+	void failedAsyncActionCanBeRetriedWithTheSameKey() {
+		assertThrows(IllegalStateException.class, () -> service.executeAsync("scope", "key",
+				() -> Mono.<ResponseEntity<String>>error(new IllegalStateException("AI service down"))).block());
+		assertEquals("ok", service.executeAsync("scope", "key", () -> Mono.just(ResponseEntity.ok("ok"))).block().getBody());
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package com.leavemanagment.leave_app.service;
+
+import com.leavemanagment.leave_app.model.Role;
+import com.leavemanagment.leave_app.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtTokenServiceTest {
+
+	private static final String OLD_KEY = "2025-01:" + secret('a');
+	private static final String NEW_KEY = "2025-07:" + secret('b');
+
+	@Test
+	void tokenAuthenticatesWithoutAUserLookup() {
+		JwtTokenService tokens = service(NEW_KEY);
+
+		Authentication authentication = tokens.authenticate(tokens.issue(login())).orElseThrow();
+
+		JwtTokenService.JwtPrincipal principal = (JwtTokenService.JwtPrincipal) authentication.getPrincipal();
+		assertEquals("asha", authentication.getName());
+		assertEquals("64b000000000000000000001", principal.userId());
+		assertEquals("Asha Rao", principal.fullName());
+		assertEquals("ROLE_HR", authentication.getAuthorities().iterator().next().getAuthority());
+	}
+
+	@Test
+	void tokensOfTheOldKeyStayValidAfterRotation() {
+		String oldToken = service(OLD_KEY).issue(login());
+
+		assertTrue(service(NEW_KEY + "," + OLD_KEY).authenticate(oldToken).isPresent());
+		assertTrue(service(NEW_KEY).authenticate(oldToken).isEmpty());
+	}
+
+	@Test
+	void tamperedOrForeignTokensAreRejected() {
+		JwtTokenService tokens = service(NEW_KEY);
+		String token = tokens.issue(login());
+		String[] parts = token.split("\\.");
+		String otherPayload = service(NEW_KEY).issue(login("ben", Role.ADMIN)).split("\\.")[1];
+
+		assertTrue(tokens.authenticate(parts[0] + "." + otherPayload + "." + parts[2]).isEmpty());
+		assertTrue(tokens.authenticate("not-a-token").isEmpty());
+
+		JwtTokenService otherIssuer = service(NEW_KEY);
+		ReflectionTestUtils.setField(otherIssuer, "issuer", "someone-else");
+		assertTrue(tokens.authenticate(otherIssuer.issue(login())).isEmpty());
+	}
+
+	@Test
+	void keysMustBeNamedAndLongEnough() {
+		assertEquals(List.of("2025-07", "2025-01"), List.copyOf(JwtTokenService.parseKeys(NEW_KEY + ", " + OLD_KEY).keySet()));
+		assertThrows(IllegalArgumentException.class, () -> JwtTokenService.parseKeys(secret('a')));
+		assertThrows(RuntimeException.class,
+				() -> JwtTokenService.parseKeys("short:" + Base64.getEncoder().encodeToString(new byte[16])));
+	}
+
+	private static JwtTokenService service(String keys) {
+		JwtTokenService tokens = new JwtTokenService();
+		ReflectionTestUtils.setField(tokens, "enabled", true);
+		ReflectionTestUtils.setField(tokens, "keysProperty", keys);
+		ReflectionTestUtils.setField(tokens, "issuer", "leave-app");
+		ReflectionTestUtils.setField(tokens, "ttlMinutes", 60L);
+		tokens.init();
+		return tokens;
+	}
+
+	private static Authentication login() {
+		return login("asha", Role.HR);
+	}
+
+	private static Authentication login(String username, Role role) {
+		User user = new User();
+		user.setId("64b000000000000000000001");
+		user.setUsername(username);
+		user.setFullName("Asha Rao");
+		user.setRole(role);
+		CustomUserDetailsService.CustomUserPrincipal principal = new CustomUserDetailsService.CustomUserPrincipal(user);
+		return UsernamePasswordAuthenticationToken.authenticated(principal, null, principal.getAuthorities());
+	}
+
+	private static String secret(char fill) {
+		return Base64.getEncoder().encodeToString(String.valueOf(fill).repeat(32).getBytes());
+	}
+}
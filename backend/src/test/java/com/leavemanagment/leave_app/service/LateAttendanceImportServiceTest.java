@@ -0,0 +1,74 @@
+package com.leavemanagment.leave_app.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LateAttendanceImportServiceTest {
+
+	private static final LocalDate TODAY = LocalDate.of(2025, 6, 2);
+
+	@Test
+	void csvLineKeepsQuotedCommasAndQuotes() {
+		assertEquals(List.of("Rao, Asha", "2025-06-02", "Said \"traffic\"", ""),
+				LateAttendanceImportService.splitCsvLine("\"Rao, Asha\", 2025-06-02,\"Said \"\"traffic\"\"\","));
+	}
+
+	@Test
+	void unterminatedQuoteIsRejected() {
+		assertThrows(IllegalArgumentException.class, () -> LateAttendanceImportService.splitCsvLine("\"Asha,2025-06-02"));
+	}
+
+	@Test
+	void headerNamesAreMatchedLoosely() {
+		LateAttendanceImportService.ImportRow row = LateAttendanceImportService.toRow(3,
+				Map.of("Employee Name", "Asha Rao", "arrival_time", "09:42", "Notes", "Badge 17"), TODAY);
+
+		assertEquals("Asha Rao", row.employeeName());
+		assertEquals(TODAY, row.date());
+		assertEquals(LocalTime.of(9, 42), row.arrival());
+		assertEquals("Badge 17", row.notes());
+		assertNull(row.reason());
+	}
+
+	@Test
+	void arrivalTimestampSuppliesTheDate() {
+		LateAttendanceImportService.ImportRow row = LateAttendanceImportService.toRow(2,
+				Map.of("name", "Asha Rao", "arrivalTime", "2025-05-30T10:05:00"), TODAY);
+
+		assertEquals(LocalDate.of(2025, 5, 30), row.date());
+		assertEquals(LocalTime.of(10, 5), row.arrival());
+	}
+
+	@Test
+	void badRowsAreRejectedWithAMessage() {
+		assertThrows(IllegalArgumentException.class,
+				() -> LateAttendanceImportService.toRow(2, Map.of("date", "2025-06-02"), TODAY));
+		assertThrows(IllegalArgumentException.class,
+				() -> LateAttendanceImportService.toRow(2, Map.of("name", "Asha Rao", "date", "02/06/2025"), TODAY));
+		assertThrows(IllegalArgumentException.class,
+				() -> LateAttendanceImportService.csvFields(List.of("name", "date"), List.of("Asha Rao", "2025-06-02", "extra")));
+	}
+
+	@Test
+	void onlyArrivalsAfterTheCutoffAreLate() {
+		LocalTime cutoff = LocalTime.of(9, 30);
+
+		assertFalse(LateAttendanceImportService.isLate(row(LocalTime.of(9, 30)), cutoff));
+		assertTrue(LateAttendanceImportService.isLate(row(LocalTime.of(9, 31)), cutoff));
+		assertTrue(LateAttendanceImportService.isLate(row(null), cutoff));
+	}
+
+	private static LateAttendanceImportService.ImportRow row(LocalTime arrival) {
+		return new LateAttendanceImportService.ImportRow(2, "Asha Rao", TODAY, arrival, null, null);
+	}
+}
@@ -0,0 +1,41 @@
+package com.leavemanagment.leave_app.service;
+
+import com.leavemanagment.leave_app.model.LateAttendance;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LateAttendanceRollupServiceTest {
+
+	@Test
+	void keyedRecordCountsForMonthEmployeeAndDepartment() {
+		LateAttendance record = new LateAttendance("Asha Rao", "64b000000000000000000001", LocalDate.of(2025, 3, 7), "Traffic", "hr");
+
+		Map<String, Long> counters = LateAttendanceRollupService.contributions(record, "Engineering");
+
+		assertEquals(Map.of(
+				"month:2025-03", 1L,
+				"month:2025-03:name:Asha Rao", 1L,
+				"month:2025-03:employee:64b000000000000000000001", 1L,
+				"month:2025-03:department:Engineering", 1L,
+				"employee:64b000000000000000000001", 1L), counters);
+	}
+
+	@Test
+	void unkeyedRecordCountsByNameOnly() {
+		LateAttendance record = new LateAttendance("Asha Rao", null, LocalDate.of(2025, 11, 30), "Traffic", "hr");
+
+		Map<String, Long> counters = LateAttendanceRollupService.contributions(record, null);
+
+		assertEquals(Map.of("month:2025-11", 1L, "month:2025-11:name:Asha Rao", 1L), counters);
+	}
+
+	@Test
+	void recordWithoutDateCountsNowhere() {
+		assertTrue(LateAttendanceRollupService.contributions(new LateAttendance(), "Engineering").isEmpty());
+	}
+}
@@ -0,0 +1,60 @@
+package com.leavemanagment.leave_app.service;
+
+import com.leavemanagment.leave_app.model.LeaveRequest;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LeaveBulkActionServiceTest {
+
+	@Test
+	void planKeepsRequestOrderAndDecidesOnlyPendingRequests() {
+		Map<String, LeaveRequest> found = Map.of(
+				"a", leave("a", "Pending"),
+				"b", leave("b", "Approved"),
+				"c", leave("c", "Rejected"));
+
+		Map<String, String> outcomes = LeaveBulkActionService.plan(List.of("c", "missing", "b", "a"), found, "Approved");
+
+		assertEquals(List.of("c", "missing", "b", "a"), List.copyOf(outcomes.keySet()));
+		assertEquals(LeaveBulkActionService.CONFLICT, outcomes.get("c"));
+		assertEquals(LeaveBulkActionService.NOT_FOUND, outcomes.get("missing"));
+		assertEquals(LeaveBulkActionService.UNCHANGED, outcomes.get("b"));
+		assertEquals(LeaveBulkActionService.UPDATED, outcomes.get("a"));
+	}
+
+	@Test
+	void aMissedRowIsOnlyUpdatedWhenThisWriteStampedIt() {
+		LocalDateTime writtenAt = LocalDateTime.of(2026, 3, 2, 9, 30, 0, 123_000_000);
+		LeaveRequest ours = leave("a", "Approved");
+		ours.setUpdatedAt(writtenAt);
+		LeaveRequest approvedByOtherHr = leave("b", "Approved");
+		approvedByOtherHr.setUpdatedAt(writtenAt.minusSeconds(1));
+		LeaveRequest rejectedByOtherHr = leave("c", "Rejected");
+		rejectedByOtherHr.setUpdatedAt(writtenAt.minusSeconds(1));
+
+		assertEquals(LeaveBulkActionService.UPDATED, LeaveBulkActionService.outcomeAfterWrite(ours, "Approved", writtenAt));
+		assertEquals(LeaveBulkActionService.UNCHANGED, LeaveBulkActionService.outcomeAfterWrite(approvedByOtherHr, "Approved", writtenAt));
+		assertEquals(LeaveBulkActionService.CONFLICT, LeaveBulkActionService.outcomeAfterWrite(rejectedByOtherHr, "Approved", writtenAt));
+		assertEquals(LeaveBulkActionService.NOT_FOUND, LeaveBulkActionService.outcomeAfterWrite(null, "Approved", writtenAt));
+	}
+
+	@Test
+	void actionsMapToStatuses() {
+		assertEquals("Approved", LeaveBulkActionService.targetStatus("approve"));
+		assertEquals("Rejected", LeaveBulkActionService.targetStatus("reject"));
+		assertThrows(IllegalArgumentException.class, () -> LeaveBulkActionService.targetStatus("cancel"));
+	}
+
+	private static LeaveRequest leave(String id, String status) {
+		LeaveRequest leave = new LeaveRequest();
+		leave.setId(id);
+		leave.setStatus(status);
+		return leave;
+	}
+}
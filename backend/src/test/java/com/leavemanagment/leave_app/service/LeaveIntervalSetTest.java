@@ -0,0 +1,165 @@
+package com.leavemanagment.leave_app.service;
+
+import com.leavemanagment.leave_app.model.LeaveRequest;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LeaveIntervalSetTest {
+
+	private static final LocalDate BASE = LocalDate.of(2025, 1, 1);
+
+	@Test
+	void overlapMatchesBruteForce() {
+		Random random = new Random(42);
+		List<LeaveRequest> leaves = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			LocalDate start = BASE.plusDays(random.nextInt(365));
+			// Mostly short leaves plus a few long ones, which the subtree maxEnd pruning must not miss
+			int days = random.nextInt(10) == 0 ? random.nextInt(120) : random.nextInt(5);
+			leaves.add(leave("L" + i, start, start.plusDays(days)));
+		}
+		LeaveIntervalSet set = LeaveIntervalSet.of(leaves);
+
+		for (int i = 0; i < 200; i++) {
+			LocalDate from = BASE.plusDays(random.nextInt(400) - 20);
+			LocalDate to = from.plusDays(random.nextInt(15));
+			List<String> expected = leaves.stream()
+					.filter(leave -> !leave.getStartDate().isAfter(to) && !leave.getEndDate().isBefore(from))
+					.map(LeaveRequest::getId).sorted().collect(Collectors.toList());
+
+			assertEquals(expected, ids(set.overlapping(from, to)).stream().sorted().collect(Collectors.toList()));
+		}
+	}
+
+	@Test
+	void oneLongOldLeaveDoesNotMakeQueriesWalkTheHistory() {
+		List<LeaveRequest> leaves = new ArrayList<>();
+		// A sabbatical from the first day on record with a mistyped end date
+		leaves.add(leave("sabbatical", BASE.minusYears(10), LocalDate.of(2099, 12, 31)));
+		for (int i = 0; i < 20_000; i++) {
+			LocalDate start = BASE.minusYears(10).plusDays(i / 5);
+			leaves.add(leave("L" + i, start, start.plusDays(i % 3)));
+		}
+		LeaveIntervalSet set = LeaveIntervalSet.of(leaves);
+		LocalDate today = BASE.minusYears(10).plusDays(2_000);
+
+		List<LeaveRequest> onLeave = set.onLeaveOn(today);
+
+		assertTrue(ids(onLeave).contains("sabbatical"));
+		assertEquals(leaves.stream().filter(leave -> !leave.getStartDate().isAfter(today) && !leave.getEndDate().isBefore(today)).count(),
+				onLeave.size());
+		// A few root-to-leaf paths per match, not the 20,000 leaves before today
+		assertTrue(set.nodesVisited(today, today) < 40 * (onLeave.size() + 1),
+				"visited " + set.nodesVisited(today, today) + " nodes for " + onLeave.size() + " matches");
+	}
+
+	@Test
+	void overlappingIsInStartDateOrder() {
+		LeaveIntervalSet set = LeaveIntervalSet.of(List.of(
+				leave("c", BASE.plusDays(2), BASE.plusDays(4)),
+				leave("a", BASE.minusDays(30), BASE.plusDays(30)),
+				leave("b", BASE, BASE.plusDays(3))));
+
+		assertEquals(List.of("a", "b", "c"), ids(set.overlapping(BASE.plusDays(1), BASE.plusDays(2))));
+	}
+
+	@Test
+	void onLeaveOnIncludesBothEnds() {
+		LeaveIntervalSet set = LeaveIntervalSet.of(List.of(
+				leave("a", BASE, BASE.plusDays(2)),
+				leave("b", BASE.plusDays(3), BASE.plusDays(3))));
+
+		assertEquals(List.of("a"), ids(set.onLeaveOn(BASE)));
+		assertEquals(List.of("a"), ids(set.onLeaveOn(BASE.plusDays(2))));
+		assertEquals(List.of("b"), ids(set.onLeaveOn(BASE.plusDays(3))));
+		assertTrue(set.onLeaveOn(BASE.minusDays(1)).isEmpty());
+	}
+
+	@Test
+	void startingAfterIsSoonestFirstAndExcludesTheDate() {
+		LeaveIntervalSet set = LeaveIntervalSet.of(List.of(
+				leave("c", BASE.plusDays(9), BASE.plusDays(9)),
+				leave("a", BASE, BASE.plusDays(1)),
+				leave("b", BASE.plusDays(4), BASE.plusDays(5)),
+				leave("d", BASE.plusDays(12), BASE.plusDays(14))));
+
+		assertEquals(List.of("b", "c"), ids(set.startingAfter(BASE, 2)));
+		assertEquals(List.of("d"), ids(set.startingAfter(BASE.plusDays(9), 5)));
+		assertTrue(set.startingAfter(BASE.plusDays(20), 5).isEmpty());
+	}
+
+	@Test
+	void replaceSwapsAndRemovesAtTheirPositions() {
+		LeaveIntervalSet set = LeaveIntervalSet.of(List.of(leave("a", BASE, BASE), leave("b", BASE, BASE)));
+
+		LeaveIntervalSet moved = set.replace(leave("a", BASE, BASE), leave("a", BASE.plusDays(7), BASE.plusDays(8)));
+		LeaveIntervalSet removed = set.replace(leave("b", BASE, BASE), null);
+		LeaveIntervalSet unknown = set.replace(leave("x", BASE, BASE), null);
+
+		assertEquals(List.of("b"), ids(moved.onLeaveOn(BASE)));
+		assertEquals(List.of("a"), ids(moved.onLeaveOn(BASE.plusDays(8))));
+		assertEquals(1, removed.size());
+		assertEquals(2, set.size());
+		assertEquals(2, unknown.size());
+	}
+
+	@Test
+	void incrementalChangesMatchARebuild() {
+		Random random = new Random(7);
+		List<LeaveRequest> leaves = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			LocalDate start = BASE.plusDays(random.nextInt(200));
+			leaves.add(leave("L" + i, start, start.plusDays(random.nextInt(6))));
+		}
+		LeaveIntervalSet single = LeaveIntervalSet.of(leaves);
+		LeaveIntervalSet batched = single;
+		List<String> removedIds = new ArrayList<>();
+		List<LeaveRequest> added = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			LeaveRequest old = leaves.get(i);
+			LeaveRequest moved = leave(old.getId(), old.getStartDate().plusDays(30), old.getEndDate().plusDays(31));
+			single = single.replace(old, i % 4 == 0 ? null : moved);
+			removedIds.add(old.getId());
+			if (i % 4 != 0) {
+				added.add(moved);
+				leaves.set(i, moved);
+			} else {
+				leaves.set(i, null);
+			}
+		}
+		batched = batched.apply(removedIds, added);
+		leaves.removeIf(leave -> leave == null);
+		LeaveIntervalSet rebuilt = LeaveIntervalSet.of(leaves);
+
+		for (int day = 0; day < 260; day += 3) {
+			LocalDate date = BASE.plusDays(day);
+			assertEquals(ids(rebuilt.overlapping(date, date.plusDays(2))), ids(single.overlapping(date, date.plusDays(2))));
+			assertEquals(ids(rebuilt.overlapping(date, date.plusDays(2))), ids(batched.overlapping(date, date.plusDays(2))));
+		}
+		assertEquals(rebuilt.size(), single.size());
+		assertEquals(rebuilt.size(), batched.size());
+	}
+
+	@Test
+	void skipsLeavesWithoutDates() {
+		assertEquals(0, LeaveIntervalSet.of(List.of(leave("a", null, BASE))).size());
+	}
+
+	private static LeaveRequest leave(String id, LocalDate start, LocalDate end) {
+		LeaveRequest leave = new LeaveRequest("Employee " + id, start, end, "reason", "Approved");
+		leave.setId(id);
+		return leave;
+	}
+
+	private static List<String> ids(List<LeaveRequest> leaves) {
+		return leaves.stream().map(LeaveRequest::getId).collect(Collectors.toList());
+	}
+}
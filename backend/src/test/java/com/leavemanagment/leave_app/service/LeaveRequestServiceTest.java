@@ -0,0 +1,45 @@
+package com.leavemanagment.leave_app.service;
+
+import com.leavemanagment.leave_app.model.LeaveRequest;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LeaveRequestServiceTest {
+
+	@Test
+	void cursorRoundTripsCreatedAtAndId() {
+		LeaveRequest leave = new LeaveRequest();
+		leave.setId("65f1c0ffee0000000000abcd");
+		leave.setCreatedAt(LocalDateTime.of(2025, 3, 14, 9, 26, 53, 589_000_000));
+
+		LeaveRequestService.CursorPosition position =
+				LeaveRequestService.decodeCursor(LeaveRequestService.encodeCursor(leave));
+
+		assertEquals(leave.getCreatedAt(), position.createdAt());
+		assertEquals("65f1c0ffee0000000000abcd", position.id());
+	}
+
+	@Test
+	void cursorForRequestWithoutCreatedAt() {
+		LeaveRequest leave = new LeaveRequest();
+		leave.setId("legacy-1");
+		leave.setCreatedAt(null);
+
+		LeaveRequestService.CursorPosition position =
+				LeaveRequestService.decodeCursor(LeaveRequestService.encodeCursor(leave));
+
+		assertNull(position.createdAt());
+		assertEquals("legacy-1", position.id());
+	}
+
+	@Test
+	void rejectsTamperedCursor() {
+		assertThrows(IllegalArgumentException.class, () -> LeaveRequestService.decodeCursor("not-a-cursor"));
+		assertThrows(IllegalArgumentException.class, () -> LeaveRequestService.decodeCursor("%%%"));
+	}
+}
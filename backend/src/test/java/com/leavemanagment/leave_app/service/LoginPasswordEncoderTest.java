@@ -0,0 +1,99 @@
+package com.leavemanagment.leave_app.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoginPasswordEncoderTest {
+
+	private LoginPasswordEncoder encoder;
+
+	@AfterEach
+	void shutdown() {
+		if (encoder != null) {
+			encoder.shutdown();
+		}
+	}
+
+	@Test
+	void verifiedPasswordIsServedFromTheCacheNextTime() {
+		encoder = new LoginPasswordEncoder(4, 2, 10, 5000, 100, 60);
+		String hash = encoder.encode("password123");
+
+		assertTrue(encoder.matches("password123", hash));
+		assertTrue(encoder.matches("password123", hash));
+		assertFalse(encoder.matches("wrong", hash));
+		assertFalse(encoder.matches("wrong", hash));
+
+		assertEquals(3L, encoder.getStats().get("bcryptChecks"));
+		assertEquals(1L, encoder.getStats().get("cacheHits"));
+	}
+
+	@Test
+	void cachedPasswordDoesNotMatchANewHash() {
+		encoder = new LoginPasswordEncoder(4, 2, 10, 5000, 100, 60);
+		String oldHash = encoder.encode("password123");
+		assertTrue(encoder.matches("password123", oldHash));
+
+		String newHash = encoder.encode("changed456");
+		assertFalse(encoder.matches("password123", newHash));
+		assertTrue(encoder.matches("changed456", newHash));
+	}
+
+	@Test
+	void hashesWithAnotherWorkFactorAreUpgraded() {
+		encoder = new LoginPasswordEncoder(5, 1, 10, 5000, 100, 60);
+
+		assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("password123")));
+		assertFalse(encoder.upgradeEncoding(encoder.encode("password123")));
+		assertFalse(encoder.upgradeEncoding("plain-text"));
+		assertEquals(12, LoginPasswordEncoder.costOf("$2a$12$abcdefghijklmnopqrstuv"));
+		assertEquals(-1, LoginPasswordEncoder.costOf(null));
+	}
+
+	@Test
+	void loginsBeyondThePoolAndQueueAreRejectedInsteadOfWaiting() throws Exception {
+		// One thread, one queue slot and a slow work factor: of three simultaneous checks one is turned away
+		encoder = new LoginPasswordEncoder(12, 1, 1, 30000, 100, 60);
+		String hash = new BCryptPasswordEncoder(12).encode("password123");
+
+		ExecutorService logins = Executors.newFixedThreadPool(3);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Boolean>> results = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			String password = "attempt-" + i;
+			results.add(logins.submit(() -> {
+				start.await();
+				return encoder.matches(password, hash);
+			}));
+		}
+		start.countDown();
+
+		int rejected = 0;
+		for (Future<Boolean> result : results) {
+			try {
+				assertFalse(result.get());
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof AuthenticationServiceException);
+				rejected++;
+			}
+		}
+		logins.shutdown();
+
+		assertEquals(1, rejected);
+		assertEquals(1L, encoder.getStats().get("rejected"));
+	}
+}
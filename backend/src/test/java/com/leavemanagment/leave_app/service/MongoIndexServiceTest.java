@@ -0,0 +1,99 @@
+package com.leavemanagment.leave_app.service;
+
+import com.leavemanagment.leave_app.model.LateAttendance;
+import com.leavemanagment.leave_app.model.LeaveRequest;
+import com.leavemanagment.leave_app.repository.LateAttendanceRepository;
+import com.leavemanagment.leave_app.repository.LeaveRequestRepository;
+import com.leavemanagment.leave_app.repository.OutboundEmailRepository;
+import com.leavemanagment.leave_app.repository.UserRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MongoIndexServiceTest {
+
+	private final MongoMappingContext mappingContext = new MongoMappingContext();
+
+	MongoIndexServiceTest() {
+		// Same simple types (LocalDate, ...) as the application's mapping context
+		mappingContext.setSimpleTypeHolder(new MongoCustomConversions(List.of()).getSimpleTypeHolder());
+	}
+
+	@Test
+	void everyRepositoryQueryHasARegisteredShape() {
+		for (Class<?> repository : List.of(LeaveRequestRepository.class, OutboundEmailRepository.class,
+				LateAttendanceRepository.class, UserRepository.class)) {
+			for (Method method : repository.getDeclaredMethods()) {
+				String name = repository.getSimpleName() + "." + method.getName();
+				assertTrue(MongoIndexService.QUERY_SHAPES.containsKey(name),
+						name + " has no query shape in MongoIndexService.QUERY_SHAPES");
+			}
+		}
+	}
+
+	@Test
+	void everyQueryShapeIsServedByADeclaredIndex() {
+		MongoIndexService.QUERY_SHAPES.forEach((name, shape) -> {
+			List<IndexDefinition> indexes = MongoIndexService.declaredIndexes(mappingContext, shape.entity());
+			assertTrue(MongoIndexService.servingIndex(shape, indexes).isPresent(),
+					name + " would run as a COLLSCAN: no index on " + shape.entity().getSimpleName() + " leads with any of " + shape.fields());
+		});
+	}
+
+	@Test
+	void dashboardQueriesUseTheStatusDateIndex() {
+		List<IndexDefinition> indexes = MongoIndexService.declaredIndexes(mappingContext,
+				MongoIndexService.QUERY_SHAPES.get("LeaveRequestRepository.findCurrentlyOnLeave").entity());
+
+		assertEquals("status_startDate_endDate", MongoIndexService.servingIndex(
+				MongoIndexService.QUERY_SHAPES.get("LeaveRequestRepository.findCurrentlyOnLeave"), indexes).orElse(null));
+		assertEquals("employeeName_startDate", MongoIndexService.servingIndex(
+				MongoIndexService.QUERY_SHAPES.get("LeaveRequestRepository.findByEmployeeName"), indexes).orElse(null));
+	}
+
+	@Test
+	void lateAttendanceDayReportsUseTheDateIndex() {
+		List<IndexDefinition> indexes = MongoIndexService.declaredIndexes(mappingContext, LateAttendance.class);
+
+		assertEquals("date", MongoIndexService.servingIndex(
+				MongoIndexService.QUERY_SHAPES.get("LateAttendanceRepository.findByDate"), indexes).orElse(null));
+		assertEquals("date", MongoIndexService.servingIndex(
+				MongoIndexService.QUERY_SHAPES.get("LateAttendanceRepository.findByDateBetween"), indexes).orElse(null));
+	}
+
+	@Test
+	void orIsServedOnlyWhenEveryBranchIs() {
+		List<IndexDefinition> indexes = MongoIndexService.declaredIndexes(mappingContext, LeaveRequest.class);
+		MongoIndexService.QueryShape allIndexed = new MongoIndexService.QueryShape(LeaveRequest.class,
+				Document.parse("{$or: [{status: 'Pending'}, {employeeId: 'x'}]}"), null);
+		MongoIndexService.QueryShape oneUnindexed = new MongoIndexService.QueryShape(LeaveRequest.class,
+				Document.parse("{$or: [{status: 'Pending'}, {reason: 'x'}]}"), null);
+		MongoIndexService.QueryShape narrowedFirst = new MongoIndexService.QueryShape(LeaveRequest.class,
+				Document.parse("{status: 'Pending', $or: [{reason: 'x'}, {leaveType: 'y'}]}"), null);
+
+		assertEquals("status_startDate_endDate,employeeId_startDate",
+				MongoIndexService.servingIndex(allIndexed, indexes).orElse(null));
+		assertFalse(MongoIndexService.servingIndex(oneUnindexed, indexes).isPresent());
+		assertEquals("status_startDate_endDate", MongoIndexService.servingIndex(narrowedFirst, indexes).orElse(null));
+	}
+
+	@Test
+	void detectsCollectionScanAnywhereInThePlan() {
+		Document indexed = Document.parse("{stage: 'FETCH', inputStage: {stage: 'IXSCAN', indexName: 'status_startDate_endDate'}}");
+		Document orPlan = Document.parse("{stage: 'SUBPLAN', inputStage: {stage: 'OR', inputStages: ["
+				+ "{stage: 'IXSCAN', indexName: 'status_nextAttemptAt'}, {stage: 'COLLSCAN'}]}}");
+
+		assertFalse(MongoIndexService.usesCollectionScan(indexed));
+		assertEquals(List.of("status_startDate_endDate"), MongoIndexService.indexNames(indexed));
+		assertTrue(MongoIndexService.usesCollectionScan(orPlan));
+	}
+}
@@ -0,0 +1,69 @@
+package com.leavemanagment.leave_app.service;
+
+import com.leavemanagment.leave_app.model.CapacityCheck;
+import com.leavemanagment.leave_app.model.LeaveRequest;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TeamCapacityServiceTest {
+
+	private static final LocalDate MONDAY = LocalDate.of(2025, 6, 2);
+	private static final TeamCapacityService.Team ENGINEERING =
+			new TeamCapacityService.Team(TeamCapacityService.DEPARTMENT, "Engineering");
+
+	@Test
+	void peakCountsEachEmployeeOncePerDay() {
+		LeaveRequest request = leave("new", "u1", MONDAY, MONDAY.plusDays(4));
+		List<LeaveRequest> overlapping = List.of(
+				leave("a", "u2", MONDAY.minusDays(3), MONDAY.plusDays(1)),
+				// Two leaves of the same person on Wednesday count once
+				leave("b", "u3", MONDAY.plusDays(2), MONDAY.plusDays(2)),
+				leave("c", "u3", MONDAY.plusDays(2), MONDAY.plusDays(3)),
+				leave("d", "u4", MONDAY.plusDays(2), MONDAY.plusDays(9)));
+
+		CapacityCheck.GroupLoad load = TeamCapacityService.load(ENGINEERING, 10, 3, request, overlapping);
+
+		assertEquals(3, load.peakAbsent());
+		assertEquals(MONDAY.plusDays(2), load.peakDate());
+		assertFalse(load.overCapacity());
+	}
+
+	@Test
+	void overCapacityWhenTheRequestExceedsTheLimit() {
+		LeaveRequest request = leave("new", "u1", MONDAY, MONDAY);
+		List<LeaveRequest> overlapping = List.of(
+				leave("a", "u2", MONDAY, MONDAY),
+				leave("b", "u3", MONDAY, MONDAY));
+
+		CapacityCheck.GroupLoad load = TeamCapacityService.load(ENGINEERING, 6, 2, request, overlapping);
+
+		assertEquals(3, load.peakAbsent());
+		assertTrue(load.overCapacity());
+	}
+
+	@Test
+	void ignoresTheEmployeesOwnLeaves() {
+		LeaveRequest request = leave("new", "u1", MONDAY, MONDAY);
+		List<LeaveRequest> overlapping = List.of(leave("old", "u1", MONDAY, MONDAY), leave("new", "u1", MONDAY, MONDAY));
+
+		assertEquals(1, TeamCapacityService.load(ENGINEERING, 4, 1, request, overlapping).peakAbsent());
+	}
+
+	@Test
+	void smallTeamsMayAlwaysHaveOneAway() {
+		assertEquals(1, TeamCapacityService.maxAbsent(2, 0.3));
+		assertEquals(3, TeamCapacityService.maxAbsent(10, 0.3));
+	}
+
+	private static LeaveRequest leave(String id, String employeeId, LocalDate start, LocalDate end) {
+		LeaveRequest leave = new LeaveRequest("Employee " + employeeId, employeeId, start, end, "reason", "Approved");
+		leave.setId(id);
+		return leave;
+	}
+}
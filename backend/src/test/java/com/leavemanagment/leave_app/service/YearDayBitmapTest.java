@@ -0,0 +1,85 @@
+package com.leavemanagment.leave_app.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class YearDayBitmapTest {
+
+	@Test
+	void sparseDaysStayInTheArrayAndDenseDaysSwitchToTheBitmap() {
+		YearDayBitmap days = YearDayBitmap.empty(2025)
+				.with(LocalDate.of(2025, 1, 1))
+				.with(LocalDate.of(2025, 12, 31));
+
+		assertEquals(2, days.cardinality());
+		assertEquals(4, days.sizeInBytes());
+		assertTrue(days.contains(LocalDate.of(2025, 12, 31)));
+		assertFalse(days.contains(LocalDate.of(2024, 12, 31)));
+
+		YearDayBitmap dense = days.withRange(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 4, 30));
+		assertEquals(63, dense.cardinality());
+		assertEquals(48, dense.sizeInBytes());
+		assertTrue(dense.contains(LocalDate.of(2025, 4, 15)));
+	}
+
+	@Test
+	void removingDaysGoesBackToTheArray() {
+		YearDayBitmap dense = YearDayBitmap.empty(2025).withRange(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 25));
+		assertEquals(48, dense.sizeInBytes());
+
+		YearDayBitmap sparse = dense.without(LocalDate.of(2025, 1, 10));
+		assertEquals(24, sparse.cardinality());
+		assertEquals(48, sparse.sizeInBytes());
+		assertFalse(sparse.contains(LocalDate.of(2025, 1, 10)));
+		assertEquals(46, sparse.without(LocalDate.of(2025, 1, 11)).sizeInBytes());
+	}
+
+	@Test
+	void rangeCountsAreClampedToTheYearInBothRepresentations() {
+		YearDayBitmap sparse = YearDayBitmap.empty(2024)
+				.with(LocalDate.of(2024, 2, 29))
+				.with(LocalDate.of(2024, 3, 1))
+				.with(LocalDate.of(2024, 12, 31));
+		YearDayBitmap dense = sparse.withRange(LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 30));
+
+		assertEquals(2, sparse.count(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 3, 1)));
+		assertEquals(3, sparse.count(LocalDate.of(2023, 1, 1), LocalDate.of(2025, 1, 1)));
+		assertEquals(0, sparse.count(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 2, 1)));
+		assertEquals(32, dense.count(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 12, 31)));
+		assertEquals(32, dense.count(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 30)));
+	}
+
+	@Test
+	void weekendsAndLeaveDaysDoNotBreakALateStreak() {
+		// Mon 2 June to Fri 13 June 2025: late Wed to Fri, weekend, leave on Monday, late Tue and Wed, on time Thu
+		YearDayBitmap late = YearDayBitmap.empty(2025)
+				.withRange(LocalDate.of(2025, 6, 4), LocalDate.of(2025, 6, 6))
+				.withRange(LocalDate.of(2025, 6, 10), LocalDate.of(2025, 6, 11))
+				.with(LocalDate.of(2025, 6, 13));
+		YearDayBitmap skip = YearDayBitmap.weekends(2025).or(YearDayBitmap.empty(2025).with(LocalDate.of(2025, 6, 9)));
+
+		assertArrayEquals(new int[]{5, 1}, late.runs(LocalDate.of(2025, 6, 2), LocalDate.of(2025, 6, 13), skip, 0));
+		assertArrayEquals(new int[]{3, 0}, late.runs(LocalDate.of(2025, 6, 2), LocalDate.of(2025, 6, 9), null, 0));
+	}
+
+	@Test
+	void runsCarryOverFromThePreviousYear() {
+		YearDayBitmap late = YearDayBitmap.empty(2026).withRange(LocalDate.of(2026, 1, 1), LocalDate.of(2026, 1, 2));
+
+		assertArrayEquals(new int[]{4, 4}, late.runs(LocalDate.of(2025, 12, 1), LocalDate.of(2026, 1, 2), null, 2));
+	}
+
+	@Test
+	void andKeepsTheCommonDays() {
+		YearDayBitmap late = YearDayBitmap.empty(2025).withRange(LocalDate.of(2025, 5, 1), LocalDate.of(2025, 5, 10));
+		YearDayBitmap leave = YearDayBitmap.empty(2025).withRange(LocalDate.of(2025, 5, 8), LocalDate.of(2025, 5, 20));
+
+		assertEquals(3, late.and(leave).cardinality());
+	}
+}